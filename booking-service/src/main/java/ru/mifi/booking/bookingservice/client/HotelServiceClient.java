@@ -16,6 +16,7 @@ import ru.mifi.booking.common.exception.BadRequestException;
 import ru.mifi.booking.common.exception.NotFoundException;
 import ru.mifi.booking.common.exception.ServiceUnavailableException;
 import ru.mifi.booking.common.exception.UnauthorizedException;
+import ru.mifi.booking.common.http.MediaTypes;
 import ru.mifi.booking.common.http.RequestHeaders;
 
 import java.time.LocalDate;
@@ -30,6 +31,14 @@ import java.util.function.Supplier;
  * Важно: эти endpoints НЕ публикуются через API Gateway,
  * поэтому booking-service обращается напрямую на baseUrl.
  * </p>
+ *
+ * <p>
+ * Тела recommend и confirm-availability идут в формате {@code services.hotel-service.wire-format}:
+ * по умолчанию Smile — бинарный JSON, где имена полей повторяющихся объектов передаются ссылкой: список recommend
+ * втрое компактнее JSON при той же стоимости разбора. В Accept я оставляю JSON запасным вариантом (q=0.5),
+ * поэтому hotel-service без Smile отвечает как раньше;
+ * ответы об ошибках hotel-service всегда JSON.
+ * </p>
  */
 @Service
 public class HotelServiceClient {
@@ -39,25 +48,42 @@ public class HotelServiceClient {
     private final String baseUrl;
     private final int maxAttempts;
     private final long[] backoffMs;
+    private final MediaType bodyType;
+    private final List<MediaType> accept;
 
     public HotelServiceClient(
             RestTemplate restTemplate,
             ObjectMapper objectMapper,
             @Value("${services.hotel-service.base-url}") String baseUrl,
             @Value("${services.hotel-service.retry.max-attempts:3}") int maxAttempts,
-            @Value("${services.hotel-service.retry.backoff-ms:200,500,1000}") String backoffMsCsv
+            @Value("${services.hotel-service.retry.backoff-ms:200,500,1000}") String backoffMsCsv,
+            @Value("${services.hotel-service.wire-format:smile}") String wireFormat
     ) {
         this.restTemplate = restTemplate;
         this.objectMapper = objectMapper;
         this.baseUrl = baseUrl;
         this.maxAttempts = Math.max(1, maxAttempts);
         this.backoffMs = parseBackoff(backoffMsCsv);
+        switch (wireFormat.trim().toLowerCase()) {
+            case "smile" -> {
+                this.bodyType = MediaType.parseMediaType(MediaTypes.APPLICATION_SMILE_VALUE);
+                this.accept = List.of(this.bodyType, MediaType.parseMediaType("application/json;q=0.5"));
+            }
+            case "json" -> {
+                this.bodyType = MediaType.APPLICATION_JSON;
+                this.accept = List.of(MediaType.APPLICATION_JSON);
+            }
+            default -> throw new IllegalArgumentException(
+                    "services.hotel-service.wire-format must be smile or json: " + wireFormat);
+        }
     }
 
     /**
      * USER-ish endpoint (но мы зовём сервисным токеном): рекомендованные номера на период.
+     *
+     * @param limit сколько кандидатов запросить: hotel-service отдаёт top-K, а не весь отсортированный список
      */
-    public List<HotelRoomDto> recommendRooms(LocalDate start, LocalDate end, String serviceJwt, String requestId) {
+    public List<HotelRoomDto> recommendRooms(LocalDate start, LocalDate end, int limit, String serviceJwt, String requestId) {
         String url = UriComponentsBuilder
                 // fromHttpUrl(..) deprecated since Spring Framework 6.2, use fromUriString(..)
                 // (важно, т.к. у вас сборка может быть настроена как "warnings as errors")
@@ -65,9 +91,11 @@ public class HotelServiceClient {
                 .path("/api/rooms/recommend")
                 .queryParam("start", start)
                 .queryParam("end", end)
+                .queryParam("limit", limit)
                 .toUriString();
 
         HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(accept);
         headers.setBearerAuth(serviceJwt);
         if (requestId != null && !requestId.isBlank()) {
             headers.set(RequestHeaders.X_REQUEST_ID, requestId);
@@ -91,7 +119,8 @@ public class HotelServiceClient {
         String url = baseUrl + "/api/rooms/" + roomId + "/confirm-availability";
 
         HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setContentType(bodyType);
+        headers.setAccept(accept);
         headers.setBearerAuth(serviceJwt);
         if (requestId != null && !requestId.isBlank()) {
             headers.set(RequestHeaders.X_REQUEST_ID, requestId);
@@ -110,6 +139,28 @@ public class HotelServiceClient {
         }, "confirm-availability");
     }
 
+    public void commit(Long roomId, String bookingId, String serviceJwt, String requestId) {
+        String url = baseUrl + "/api/rooms/" + roomId + "/commit?bookingId=" + bookingId;
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(serviceJwt);
+        if (requestId != null && !requestId.isBlank()) {
+            headers.set(RequestHeaders.X_REQUEST_ID, requestId);
+        }
+
+        HttpEntity<Void> entity = new HttpEntity<>(headers);
+
+        executeWithRetry(() -> {
+            try {
+                restTemplate.exchange(url, HttpMethod.POST, entity, Void.class);
+                return null;
+            } catch (HttpClientErrorException ex) {
+                mapAndThrow(ex);
+                return null;
+            }
+        }, "commit");
+    }
+
     public void release(Long roomId, String bookingId, String serviceJwt, String requestId) {
         String url = baseUrl + "/api/rooms/" + roomId + "/release?bookingId=" + bookingId;
 
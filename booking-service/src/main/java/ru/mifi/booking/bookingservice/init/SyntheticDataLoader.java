@@ -0,0 +1,132 @@
+package ru.mifi.booking.bookingservice.init;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.mifi.booking.bookingservice.repository.SyntheticDatasetJdbcRepository;
+import ru.mifi.booking.common.dataset.DatasetSpec;
+import ru.mifi.booking.common.dataset.SyntheticBooking;
+import ru.mifi.booking.common.dataset.SyntheticDataset;
+import ru.mifi.booking.common.dataset.SyntheticRoom;
+import ru.mifi.booking.common.dataset.SyntheticUser;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Загрузка синтетических пользователей и подтверждённых броней (профиль {@code dataset}).
+ *
+ * <p>
+ * Профиль {@code dataset.*} тот же, что у hotel-service, поэтому каждая бронь совпадает с блокировкой
+ * номера там (bookingUid, номер, даты). Пользователи получают id 1..users и общий пароль
+ * {@code dataset.user-password}: хэширую его один раз — BCrypt на каждого пользователя занял бы минуты.
+ * </p>
+ *
+ * <p>
+ * Загрузчик идёт раньше {@link BookingDataInitializer}: admin@local и user@local создаются уже после
+ * синтетических пользователей и не занимают их id. Грузится только в пустую базу.
+ * </p>
+ */
+@Component
+@Profile("dataset")
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class SyntheticDataLoader implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(SyntheticDataLoader.class);
+
+    private final SyntheticDatasetJdbcRepository datasetRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final TransactionTemplate transactionTemplate;
+    private final DatasetSpec spec;
+    private final String userPassword;
+    private final int batchSize;
+
+    public SyntheticDataLoader(
+            SyntheticDatasetJdbcRepository datasetRepository,
+            PasswordEncoder passwordEncoder,
+            PlatformTransactionManager transactionManager,
+            @Value("${dataset.seed:42}") long seed,
+            @Value("${dataset.hotels:100}") int hotels,
+            @Value("${dataset.rooms-per-hotel:50}") int roomsPerHotel,
+            @Value("${dataset.bookings:50000}") long bookings,
+            @Value("${dataset.users:1000}") int users,
+            @Value("${dataset.past-days:180}") int pastDays,
+            @Value("${dataset.future-days:180}") int futureDays,
+            @Value("${dataset.skew:1.0}") double skew,
+            @Value("${dataset.base-date:}") String baseDate,
+            @Value("${dataset.user-password:guest123}") String userPassword,
+            @Value("${dataset.batch-size:5000}") int batchSize
+    ) {
+        this.datasetRepository = datasetRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.spec = new DatasetSpec(seed, hotels, roomsPerHotel, bookings, users, pastDays, futureDays, skew,
+                baseDate.isBlank() ? LocalDate.now() : LocalDate.parse(baseDate));
+        this.userPassword = userPassword;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (datasetRepository.hasData()) {
+            log.info("Users or bookings already exist. Skipping synthetic dataset.");
+            return;
+        }
+        long startedAt = System.nanoTime();
+        SyntheticDataset dataset = new SyntheticDataset(spec);
+
+        String passwordHash = passwordEncoder.encode(userPassword);
+        List<Object[]> users = new ArrayList<>();
+        for (long id = 1; id <= spec.users(); id++) {
+            SyntheticUser user = dataset.user(id);
+            users.add(new Object[]{user.id(), user.name(), user.email(), passwordHash});
+            if (users.size() >= batchSize) {
+                flushUsers(users);
+            }
+        }
+        flushUsers(users);
+
+        List<Object[]> bookings = new ArrayList<>();
+        long[] lastBookingId = {0};
+        dataset.forEachHotel(hotel -> {
+            for (SyntheticRoom room : hotel.rooms()) {
+                for (SyntheticBooking booking : room.bookings()) {
+                    bookings.add(new Object[]{booking.id(), booking.bookingUid(), booking.userId(), booking.roomId(),
+                            Date.valueOf(booking.startDate()), Date.valueOf(booking.endDate()),
+                            booking.createdAt().atOffset(ZoneOffset.UTC)});
+                    lastBookingId[0] = booking.id();
+                }
+            }
+            if (bookings.size() >= batchSize) {
+                flushBookings(bookings);
+            }
+        });
+        flushBookings(bookings);
+        datasetRepository.restartIds(spec.users(), lastBookingId[0]);
+
+        log.info("Synthetic dataset loaded in {} ms: {} users, {} confirmed bookings; {}",
+                (System.nanoTime() - startedAt) / 1_000_000, spec.users(), lastBookingId[0], spec);
+    }
+
+    private void flushUsers(List<Object[]> rows) {
+        transactionTemplate.executeWithoutResult(status -> datasetRepository.insertUsers(rows));
+        rows.clear();
+    }
+
+    private void flushBookings(List<Object[]> rows) {
+        transactionTemplate.executeWithoutResult(status -> datasetRepository.insertBookings(rows));
+        rows.clear();
+    }
+}
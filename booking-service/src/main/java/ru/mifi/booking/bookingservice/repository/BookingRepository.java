@@ -1,11 +1,15 @@
 package ru.mifi.booking.bookingservice.repository;
 
+import ru.mifi.booking.bookingservice.dto.BookingDtos;
 import ru.mifi.booking.bookingservice.entity.Booking;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface BookingRepository extends JpaRepository<Booking, Long> {
     List<Booking> findByUserId(Long userId);
@@ -15,7 +19,26 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
      *
      * <p>
      * Поддерживает параметры page/size/sort из Spring Data Pageable.
+     * Строки сразу проецируются в {@link BookingDtos.BookingResponse}: сущности Booking в контекст не попадают.
      * </p>
      */
-    Page<Booking> findByUserId(Long userId, Pageable pageable);
-}
\ No newline at end of file
+    @Query(value = """
+            select new ru.mifi.booking.bookingservice.dto.BookingDtos$BookingResponse(
+                b.id, b.bookingUid, b.roomId, b.startDate, b.endDate, b.status)
+            from Booking b
+            where b.userId = :userId
+            """,
+            countQuery = "select count(b) from Booking b where b.userId = :userId")
+    Page<BookingDtos.BookingResponse> findResponsesByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    /**
+     * Бронь пользователя в виде DTO. Чужая бронь не находится — как и несуществующая.
+     */
+    @Query("""
+            select new ru.mifi.booking.bookingservice.dto.BookingDtos$BookingResponse(
+                b.id, b.bookingUid, b.roomId, b.startDate, b.endDate, b.status)
+            from Booking b
+            where b.id = :id and b.userId = :userId
+            """)
+    Optional<BookingDtos.BookingResponse> findResponseByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId);
+}
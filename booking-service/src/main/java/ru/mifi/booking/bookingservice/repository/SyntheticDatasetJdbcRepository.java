@@ -0,0 +1,66 @@
+package ru.mifi.booking.bookingservice.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Массовая загрузка синтетических пользователей и броней (профиль {@code dataset}) JDBC-батчами.
+ *
+ * <p>
+ * id приходят из набора, поэтому после загрузки IDENTITY обеих таблиц переводится за максимальный id
+ * ({@link #restartIds}) — регистрация и новые брони продолжают нумерацию.
+ * </p>
+ */
+@Repository
+public class SyntheticDatasetJdbcRepository {
+
+    private static final String INSERT_USER_SQL =
+            "insert into users (id, name, email, password_hash, role) values (?, ?, ?, ?, 'USER')";
+    private static final String INSERT_BOOKING_SQL = """
+            insert into booking (id, booking_uid, user_id, room_id, start_date, end_date, status, created_at)
+            values (?, ?, ?, ?, ?, ?, 'CONFIRMED', ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SyntheticDatasetJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @return есть ли уже пользователи или брони
+     */
+    public boolean hasData() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "select exists(select 1 from users) or exists(select 1 from booking)", Boolean.class));
+    }
+
+    /**
+     * @param rows (id, name, email, password_hash)
+     */
+    public void insertUsers(List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_USER_SQL, rows);
+        }
+    }
+
+    /**
+     * @param rows (id, booking_uid, user_id, room_id, start_date, end_date, created_at)
+     */
+    public void insertBookings(List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_BOOKING_SQL, rows);
+        }
+    }
+
+    /**
+     * @param maxUserId    максимальный id пользователя
+     * @param maxBookingId максимальный id брони
+     */
+    public void restartIds(long maxUserId, long maxBookingId) {
+        jdbcTemplate.execute("alter table users alter column id restart with " + (maxUserId + 1));
+        jdbcTemplate.execute("alter table booking alter column id restart with " + (maxBookingId + 1));
+    }
+}
@@ -32,11 +32,17 @@ import java.util.UUID;
 @Service
 public class BookingServiceFacade {
 
+    /**
+     * Сколько рекомендованных номеров запрашивать при autoSelect: используется только первый.
+     */
+    private static final int AUTO_SELECT_CANDIDATES = 1;
+
     private final BookingRepository bookingRepository;
     private final IdempotencyService idempotencyService;
     private final HotelServiceClient hotelServiceClient;
     private final JwtService jwtService;
     private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTx;
 
     public BookingServiceFacade(
             BookingRepository bookingRepository,
@@ -50,21 +56,21 @@ public class BookingServiceFacade {
         this.hotelServiceClient = hotelServiceClient;
         this.jwtService = jwtService;
         this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
     }
 
+    /**
+     * Чтения для GET идут DTO-проекцией в read-only транзакции: без сущностей, lazy-загрузок и flush.
+     */
     public Page<BookingDtos.BookingResponse> listByUser(Long userId, Pageable pageable) {
-        return bookingRepository.findByUserId(userId, pageable).map(this::toDto);
+        return readOnlyTx.execute(status -> bookingRepository.findResponsesByUserId(userId, pageable));
     }
 
     public BookingDtos.BookingResponse get(Long id, Long userId) {
-        Booking b = bookingRepository.findById(id)
-                .orElseThrow(() -> new NotFoundException("Booking " + id + " not found"));
-
         // “Человечно”: не палим чужие id — делаем вид, что не существует
-        if (!b.getUserId().equals(userId)) {
-            throw new NotFoundException("Booking " + id + " not found");
-        }
-        return toDto(b);
+        return readOnlyTx.execute(status -> bookingRepository.findResponseByIdAndUserId(id, userId))
+                .orElseThrow(() -> new NotFoundException("Booking " + id + " not found"));
     }
 
     public BookingDtos.BookingResponse create(Long userId, BookingDtos.CreateBookingRequest req, String requestId) {
@@ -93,6 +99,10 @@ public class BookingServiceFacade {
         try {
             hotelServiceClient.confirmAvailability(roomId, confirmReq, serviceJwt, requestId);
 
+            // 3.1) confirm создал hold со сроком: подтверждаю его, иначе hotel-service сам освободит номер.
+            // Если hold уже истёк — 409, и бронь отменяется так же, как при конфликте confirm.
+            hotelServiceClient.commit(roomId, pending.getBookingUid(), serviceJwt, requestId);
+
             // 4) при успехе: обновляем статус на CONFIRMED
             updateStatus(pending.getId(), BookingStatus.CONFIRMED);
             return toDto(getBookingOrThrow(pending.getId()));
@@ -177,8 +187,9 @@ public class BookingServiceFacade {
             return req.roomId();
         }
 
-        // autoSelect=true: берём первый номер из рекомендованного списка
-        List<HotelRoomDto> rooms = hotelServiceClient.recommendRooms(req.startDate(), req.endDate(), serviceJwt, requestId);
+        // autoSelect=true: берём первый номер из рекомендованного списка (запрашиваю только его, а не весь список)
+        List<HotelRoomDto> rooms = hotelServiceClient.recommendRooms(
+                req.startDate(), req.endDate(), AUTO_SELECT_CANDIDATES, serviceJwt, requestId);
         if (rooms == null || rooms.isEmpty()) {
             throw new ConflictException("No available rooms for this period");
         }
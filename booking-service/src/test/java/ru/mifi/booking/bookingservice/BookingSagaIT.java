@@ -1,7 +1,11 @@
 package ru.mifi.booking.bookingservice;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
 import okhttp3.mockwebserver.*;
+import okio.Buffer;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -15,6 +19,7 @@ import org.springframework.context.annotation.Import;
 import org.springframework.context.annotation.Primary;
 import org.springframework.http.MediaType;
 import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.DynamicPropertyRegistry;
@@ -24,24 +29,32 @@ import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.RequestPostProcessor;
 import org.springframework.web.client.RestTemplate;
 
+import ru.mifi.booking.bookingservice.client.dto.ConfirmAvailabilityRequest;
+import ru.mifi.booking.bookingservice.client.dto.HotelRoomDto;
 import ru.mifi.booking.bookingservice.dto.BookingDtos;
 import ru.mifi.booking.bookingservice.entity.Booking;
+import ru.mifi.booking.bookingservice.entity.BookingStatus;
 import ru.mifi.booking.bookingservice.repository.BookingRepository;
 // ✅ если есть таблица идемпотентности:
 import ru.mifi.booking.bookingservice.repository.RequestLogRepository;
 
 import ru.mifi.booking.common.dto.ErrorDto;
+import ru.mifi.booking.common.http.MediaTypes;
 
 import java.io.IOException;
 import java.time.LocalDate;
+import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -56,6 +69,7 @@ class BookingSagaIT {
     @Autowired private MockMvc mockMvc;
     @Autowired private ObjectMapper objectMapper;
     @Autowired private BookingRepository bookingRepository;
+    @Autowired private EntityManagerFactory entityManagerFactory;
 
     // ✅ если у вас есть RequestLogRepository — обязательно чистим для изоляции тестов
     @Autowired(required = false)
@@ -86,6 +100,9 @@ class BookingSagaIT {
 
         // в тестах discovery не нужен
         registry.add("spring.cloud.discovery.enabled", () -> "false");
+
+        // счётчики Hibernate: GET-эндпоинты не должны загружать сущности и делать flush
+        registry.add("spring.jpa.properties.hibernate.generate_statistics", () -> "true");
     }
 
     @AfterAll
@@ -136,6 +153,11 @@ class BookingSagaIT {
                     return new MockResponse().setResponseCode(200);
                 }
 
+                if (path != null && path.startsWith("/api/rooms/1/commit")) {
+                    assertThat(request.getHeader("Authorization")).startsWith("Bearer ");
+                    return new MockResponse().setResponseCode(200);
+                }
+
                 return new MockResponse().setResponseCode(404);
             }
         });
@@ -166,10 +188,119 @@ class BookingSagaIT {
 
         List<RecordedRequest> requests = takeAllRequests(400);
         assertThat(countPathStartsWith(requests, "/api/rooms/recommend")).isEqualTo(1);
+        // autoSelect берёт только первого кандидата — весь список не запрашивается.
+        assertThat(requests).filteredOn(r -> r.getPath() != null && r.getPath().startsWith("/api/rooms/recommend"))
+                .allMatch(r -> r.getPath().contains("limit=1"));
         assertThat(countPathEquals(requests, "/api/rooms/1/confirm-availability")).isEqualTo(1);
+        assertThat(countPathStartsWith(requests, "/api/rooms/1/commit")).isEqualTo(1);
         assertThat(countPathStartsWith(requests, "/api/rooms/1/release")).isEqualTo(0);
     }
 
+    @Test
+    void autoSelect_shouldExchangeSmileWithHotelService() throws Exception {
+        String requestId = "rq-smile-1";
+        ObjectMapper smile = Jackson2ObjectMapperBuilder.smile().build();
+        // Кодирую и проверяю вне dispatcher: первая инициализация классов там длиннее read-timeout теста (50 мс).
+        byte[] rooms = smile.writeValueAsBytes(List.of(new HotelRoomDto(1L, 77L, "101", true, 0)));
+        List<String> accepts = new CopyOnWriteArrayList<>();
+        List<String> contentTypes = new CopyOnWriteArrayList<>();
+        List<byte[]> confirms = new CopyOnWriteArrayList<>();
+
+        mockWebServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String path = request.getPath();
+
+                if (path != null && path.startsWith("/api/rooms/recommend")) {
+                    accepts.add(request.getHeader("Accept"));
+                    return new MockResponse()
+                            .setResponseCode(200)
+                            .addHeader("Content-Type", MediaTypes.APPLICATION_SMILE_VALUE)
+                            .setBody(new Buffer().write(rooms));
+                }
+
+                if ("/api/rooms/1/confirm-availability".equals(path)) {
+                    contentTypes.add(request.getHeader("Content-Type"));
+                    confirms.add(request.getBody().readByteArray());
+                    return new MockResponse().setResponseCode(200);
+                }
+
+                if (path != null && path.startsWith("/api/rooms/1/commit")) {
+                    return new MockResponse().setResponseCode(200);
+                }
+
+                return new MockResponse().setResponseCode(404);
+            }
+        });
+
+        BookingDtos.CreateBookingRequest req = createRequest(true, null);
+
+        mockMvc.perform(
+                        post("/api/booking")
+                                .with(userJwt(2))
+                                .header("X-Request-Id", requestId)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(req))
+                )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.roomId").value(1))
+                .andExpect(jsonPath("$.status").value("CONFIRMED"));
+
+        // Первый вызов после старта контекста может упереться в read-timeout и повториться — проверяю каждый запрос.
+        assertThat(accepts).isNotEmpty().allSatisfy(a -> assertThat(a).startsWith(MediaTypes.APPLICATION_SMILE_VALUE));
+        assertThat(contentTypes).isNotEmpty().containsOnly(MediaTypes.APPLICATION_SMILE_VALUE);
+        assertThat(confirms).isNotEmpty();
+        ConfirmAvailabilityRequest confirm = smile.readValue(confirms.getLast(), ConfirmAvailabilityRequest.class);
+        assertThat(confirm.startDate()).isEqualTo(req.startDate());
+        assertThat(confirm.endDate()).isEqualTo(req.endDate());
+        assertThat(confirm.bookingId()).isNotBlank();
+    }
+
+    @Test
+    void expiredHold_commit409_cancelsAndReleasesRoom() throws Exception {
+        String requestId = "rq-hold-expired-1";
+
+        mockWebServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String path = request.getPath();
+
+                if ("/api/rooms/1/confirm-availability".equals(path)) {
+                    return new MockResponse().setResponseCode(200);
+                }
+
+                if (path != null && path.startsWith("/api/rooms/1/commit")) {
+                    // hold истёк между confirm и commit
+                    return new MockResponse().setResponseCode(409);
+                }
+
+                if (path != null && path.startsWith("/api/rooms/1/release")) {
+                    return new MockResponse().setResponseCode(200);
+                }
+
+                return new MockResponse().setResponseCode(404);
+            }
+        });
+
+        mockMvc.perform(
+                        post("/api/booking")
+                                .with(userJwt(2))
+                                .header("X-Request-Id", requestId)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(createRequest(false, 1L)))
+                )
+                .andExpect(status().isConflict());
+
+        List<Booking> bookings = bookingRepository.findAll();
+        assertThat(bookings).hasSize(1);
+        assertThat(bookings.getFirst().getStatus().name()).isEqualTo("CANCELLED");
+
+        List<RecordedRequest> requests = takeAllRequests(500);
+        assertThat(countPathEquals(requests, "/api/rooms/1/confirm-availability")).isEqualTo(1);
+        assertThat(countPathStartsWith(requests, "/api/rooms/1/commit")).isEqualTo(1);
+        assertThat(countPathStartsWith(requests, "/api/rooms/1/release")).isEqualTo(1);
+    }
+
     @Test
     void roomNotAvailable_conflict_409_cancelsAndReleasesRoom_noRetry() throws Exception {
         String requestId = "rq-conflict-1";
@@ -287,6 +418,9 @@ class BookingSagaIT {
                 if ("/api/rooms/1/confirm-availability".equals(path)) {
                     return new MockResponse().setResponseCode(200);
                 }
+                if (path != null && path.startsWith("/api/rooms/1/commit")) {
+                    return new MockResponse().setResponseCode(200);
+                }
                 return new MockResponse().setResponseCode(404);
             }
         });
@@ -342,6 +476,10 @@ class BookingSagaIT {
                             : new MockResponse().setResponseCode(409);
                 }
 
+                if (path != null && path.startsWith("/api/rooms/1/commit")) {
+                    return new MockResponse().setResponseCode(200);
+                }
+
                 if (path != null && path.startsWith("/api/rooms/1/release")) {
                     return new MockResponse().setResponseCode(200);
                 }
@@ -399,8 +537,49 @@ class BookingSagaIT {
         assertThat(countPathStartsWith(requests, "/api/rooms/1/release")).isEqualTo(1);
     }
 
+    @Test
+    void readEndpoints_useProjections_noEntityLoadsOrFlush() throws Exception {
+        Booking older = saveBooking(2, OffsetDateTime.now().minusHours(1));
+        Booking newer = saveBooking(2, OffsetDateTime.now());
+        Booking foreign = saveBooking(3, OffsetDateTime.now());
+
+        Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+
+        mockMvc.perform(get("/api/bookings").with(userJwt(2)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(2))
+                .andExpect(jsonPath("$.content[0].id").value(newer.getId()))
+                .andExpect(jsonPath("$.content[1].id").value(older.getId()));
+
+        mockMvc.perform(get("/api/booking/{id}", older.getId()).with(userJwt(2)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.bookingUid").value(older.getBookingUid()));
+
+        // чужая бронь — 404, как и несуществующая
+        mockMvc.perform(get("/api/booking/{id}", foreign.getId()).with(userJwt(2)))
+                .andExpect(status().isNotFound());
+
+        assertThat(stats.getPrepareStatementCount()).as("queries executed").isPositive();
+        assertThat(stats.getEntityLoadCount()).as("entities loaded").isZero();
+        assertThat(stats.getEntityFetchCount()).as("lazy fetches").isZero();
+        assertThat(stats.getFlushCount()).as("flushes").isZero();
+    }
+
     // ---------------- helpers ----------------
 
+    private Booking saveBooking(long userId, OffsetDateTime createdAt) {
+        Booking booking = new Booking();
+        booking.setUserId(userId);
+        booking.setRoomId(1L);
+        booking.setStartDate(LocalDate.now().plusDays(1));
+        booking.setEndDate(LocalDate.now().plusDays(3));
+        booking.setStatus(BookingStatus.CONFIRMED);
+        booking.setCreatedAt(createdAt);
+        booking.setBookingUid(UUID.randomUUID().toString());
+        return bookingRepository.save(booking);
+    }
+
     private static MockResponse json(int code, String json) {
         return new MockResponse()
                 .setResponseCode(code)
@@ -0,0 +1,106 @@
+package ru.mifi.booking.bookingservice;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.mifi.booking.bookingservice.dto.AuthRequest;
+import ru.mifi.booking.bookingservice.dto.AuthResponse;
+import ru.mifi.booking.common.dataset.DatasetSpec;
+import ru.mifi.booking.common.dataset.SyntheticBooking;
+import ru.mifi.booking.common.dataset.SyntheticDataset;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Профиль {@code dataset} на отдельной пустой БД: те же параметры, что в SyntheticDatasetIT hotel-service,
+ * поэтому брони здесь совпадают с блокировками там.
+ */
+@SpringBootTest(properties = {
+        "spring.cloud.discovery.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:booking-dataset-it;DB_CLOSE_DELAY=-1",
+        "dataset.seed=7",
+        "dataset.hotels=5",
+        "dataset.rooms-per-hotel=8",
+        "dataset.bookings=300",
+        "dataset.users=20",
+        "dataset.past-days=60",
+        "dataset.future-days=60",
+        "dataset.skew=1.2",
+        "dataset.batch-size=100"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("dataset")
+class SyntheticDatasetIT {
+
+    private static final DatasetSpec SPEC = new DatasetSpec(7, 5, 8, 300, 20, 60, 60, 1.2, LocalDate.now());
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void loader_shouldWriteGeneratedBookings_andKeepDemoAccounts() {
+        List<SyntheticBooking> bookings = generate();
+
+        assertThat(jdbcTemplate.queryForObject("select count(*) from booking where status = 'CONFIRMED'", Long.class))
+                .isEqualTo(bookings.size());
+        assertThat(jdbcTemplate.queryForObject("select count(*) from users where email like '%@synthetic.local'", Long.class))
+                .isEqualTo(20);
+        // Демо-аккаунты создаются после загрузки и получают id за синтетическими пользователями.
+        assertThat(jdbcTemplate.queryForObject("select id from users where email = 'admin@local'", Long.class))
+                .isGreaterThan(20);
+
+        SyntheticBooking sample = bookings.get(bookings.size() / 2);
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "select booking_uid, user_id, room_id, start_date, end_date from booking where id = ?", sample.id());
+        assertThat(row.get("BOOKING_UID")).isEqualTo(sample.bookingUid());
+        assertThat(((Number) row.get("USER_ID")).longValue()).isEqualTo(sample.userId());
+        assertThat(((Number) row.get("ROOM_ID")).longValue()).isEqualTo(sample.roomId());
+        assertThat(row.get("START_DATE").toString()).isEqualTo(sample.startDate().toString());
+        assertThat(row.get("END_DATE").toString()).isEqualTo(sample.endDate().toString());
+    }
+
+    @Test
+    void syntheticUser_shouldLogIn_andSeeOwnBookings() throws Exception {
+        long expected = generate().stream().filter(b -> b.userId() == 3).count();
+
+        String body = mockMvc.perform(post("/api/user/auth")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new AuthRequest("guest3@synthetic.local", "guest123"))))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        AuthResponse auth = objectMapper.readValue(body, AuthResponse.class);
+        assertThat(auth.userId()).isEqualTo(3);
+
+        mockMvc.perform(get("/api/bookings").header(HttpHeaders.AUTHORIZATION, "Bearer " + auth.token()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(expected));
+    }
+
+    private static List<SyntheticBooking> generate() {
+        List<SyntheticBooking> bookings = new ArrayList<>();
+        new SyntheticDataset(SPEC).forEachHotel(hotel -> hotel.rooms().forEach(room -> bookings.addAll(room.bookings())));
+        return bookings;
+    }
+}
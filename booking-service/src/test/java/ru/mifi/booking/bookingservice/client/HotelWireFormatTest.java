@@ -0,0 +1,87 @@
+package ru.mifi.booking.bookingservice.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.mifi.booking.bookingservice.client.dto.ConfirmAvailabilityRequest;
+import ru.mifi.booking.bookingservice.client.dto.HotelRoomDto;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * JSON и Smile на телах вызовов hotel-service: мапперы те же, что у конвертеров RestTemplate.
+ * Замер размера и стоимости сериализации/разбора — {@code -Dbooking.wire.benchmark.iterations=N}
+ * (по умолчанию не запускается).
+ */
+class HotelWireFormatTest {
+
+    private static final ObjectMapper JSON = Jackson2ObjectMapperBuilder.json().build();
+    private static final ObjectMapper SMILE = Jackson2ObjectMapperBuilder.smile().build();
+
+    private static final HotelRoomDto[] ROOMS = rooms(20);
+    private static final ConfirmAvailabilityRequest CONFIRM = new ConfirmAvailabilityRequest(
+            LocalDate.of(2030, 5, 1), LocalDate.of(2030, 5, 4),
+            "5f0c2a9e-8d1b-4c3e-9a7f-2b6d1e0c4a11", "rq-5f0c2a9e-8d1b-4c3e-9a7f-2b6d1e0c4a11");
+
+    @Test
+    void smile_shouldRoundTripSameValues_inFewerBytes() throws Exception {
+        byte[] roomsSmile = SMILE.writeValueAsBytes(ROOMS);
+        byte[] confirmSmile = SMILE.writeValueAsBytes(CONFIRM);
+
+        assertThat(SMILE.readValue(roomsSmile, HotelRoomDto[].class)).containsExactly(ROOMS);
+        assertThat(SMILE.readValue(confirmSmile, ConfirmAvailabilityRequest.class)).isEqualTo(CONFIRM);
+        // Имена полей повторяющихся объектов — ссылкой на первое вхождение.
+        assertThat(roomsSmile.length).isLessThan(JSON.writeValueAsBytes(ROOMS).length / 2);
+        assertThat(confirmSmile.length).isLessThan(JSON.writeValueAsBytes(CONFIRM).length);
+    }
+
+    /**
+     * Замер: сначала прогрев всех форматов, затем по N сериализаций и N разборов каждого тела. Результат — в stdout.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "booking.wire.benchmark.iterations", matches = "\\d+")
+    void benchmark_sizeAndSerDeser() throws Exception {
+        int iterations = Integer.parseInt(System.getProperty("booking.wire.benchmark.iterations"));
+        for (int round = 0; round < 2; round++) {
+            boolean print = round == 1;
+            report(print, "json ", "recommend(20)", JSON, ROOMS, HotelRoomDto[].class, iterations);
+            report(print, "smile", "recommend(20)", SMILE, ROOMS, HotelRoomDto[].class, iterations);
+            report(print, "json ", "confirm", JSON, CONFIRM, ConfirmAvailabilityRequest.class, iterations);
+            report(print, "smile", "confirm", SMILE, CONFIRM, ConfirmAvailabilityRequest.class, iterations);
+        }
+    }
+
+    private static void report(boolean print, String format, String body, ObjectMapper mapper, Object value,
+                               Class<?> type, int iterations) throws Exception {
+        byte[] bytes = mapper.writeValueAsBytes(value);
+        long sink = 0;
+        long started = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += mapper.writeValueAsBytes(value).length;
+        }
+        long ser = System.nanoTime() - started;
+        started = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += mapper.readValue(bytes, type).hashCode();
+        }
+        long deser = System.nanoTime() - started;
+        assertThat(sink).isNotZero();
+        if (print) {
+            System.out.printf("wire format benchmark: %s %-14s %5d bytes, ser %6d ns/op, deser %6d ns/op%n",
+                    format, body, bytes.length, ser / iterations, deser / iterations);
+        }
+    }
+
+    private static HotelRoomDto[] rooms(int count) {
+        List<HotelRoomDto> rooms = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rooms.add(new HotelRoomDto(100_000L + i, 1_000L + i / 5, String.valueOf(100 + i), true, i * 7L));
+        }
+        return rooms.toArray(HotelRoomDto[]::new);
+    }
+}
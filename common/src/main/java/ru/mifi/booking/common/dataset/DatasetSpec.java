@@ -0,0 +1,76 @@
+package ru.mifi.booking.common.dataset;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Профиль синтетического набора данных: N отелей × M номеров × K бронирований.
+ *
+ * <p>
+ * Один и тот же профиль (с тем же seed и baseDate) в любом сервисе даёт один и тот же набор —
+ * поэтому hotel-service и booking-service генерируют свои части независимо, без обмена данными.
+ * </p>
+ *
+ * @param seed          seed генератора
+ * @param hotels        число отелей (N)
+ * @param roomsPerHotel номеров в отеле (M)
+ * @param bookings      сколько бронирований разложить по номерам (K); горячие номера ограничены ёмкостью,
+ *                      поэтому фактически может получиться немного меньше
+ * @param users         число пользователей, между которыми распределены бронирования
+ * @param pastDays      сколько дней до baseDate покрывают прошедшие проживания
+ * @param futureDays    сколько дней после baseDate покрывают будущие проживания
+ * @param skew          показатель Zipf для «горячих» номеров: 0 — равномерно, 1 — классический Zipf
+ * @param baseDate      опорная дата горизонта (обычно сегодня)
+ */
+public record DatasetSpec(
+        long seed,
+        int hotels,
+        int roomsPerHotel,
+        long bookings,
+        int users,
+        int pastDays,
+        int futureDays,
+        double skew,
+        LocalDate baseDate
+) {
+
+    public DatasetSpec {
+        Objects.requireNonNull(baseDate, "baseDate");
+        if (hotels < 1 || roomsPerHotel < 1) {
+            throw new IllegalArgumentException("hotels and roomsPerHotel must be positive");
+        }
+        if ((long) hotels * roomsPerHotel > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("hotels * roomsPerHotel must not exceed " + Integer.MAX_VALUE);
+        }
+        if (bookings < 0 || users < 1) {
+            throw new IllegalArgumentException("bookings must not be negative and users must be positive");
+        }
+        if (pastDays < 0 || futureDays < 1) {
+            throw new IllegalArgumentException("pastDays must not be negative and futureDays must be positive");
+        }
+        if (!(skew >= 0)) {
+            throw new IllegalArgumentException("skew must not be negative");
+        }
+    }
+
+    /**
+     * @return общее число номеров (N × M)
+     */
+    public int rooms() {
+        return hotels * roomsPerHotel;
+    }
+
+    /**
+     * @return первая ночь горизонта
+     */
+    public LocalDate horizonStart() {
+        return baseDate.minusDays(pastDays);
+    }
+
+    /**
+     * @return конец горизонта (исключительно)
+     */
+    public LocalDate horizonEnd() {
+        return baseDate.plusDays(futureDays);
+    }
+}
@@ -0,0 +1,32 @@
+package ru.mifi.booking.common.dataset;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Синтетическое подтверждённое бронирование.
+ *
+ * <p>
+ * В hotel-service это блокировка номера (bookingUid — её booking_id), в booking-service — бронь
+ * в статусе CONFIRMED с тем же bookingUid.
+ * </p>
+ *
+ * @param id         идентификатор (сквозной, по порядку генерации)
+ * @param roomId     номер
+ * @param userId     пользователь (1..users)
+ * @param startDate  заезд (включительно)
+ * @param endDate    выезд (исключительно)
+ * @param bookingUid корреляционный идентификатор между сервисами
+ * @param requestId  ключ идемпотентности блокировки
+ * @param createdAt  когда бронь была сделана (не позже baseDate)
+ */
+public record SyntheticBooking(
+        long id,
+        long roomId,
+        long userId,
+        LocalDate startDate,
+        LocalDate endDate,
+        String bookingUid,
+        String requestId,
+        Instant createdAt
+) {}
@@ -0,0 +1,251 @@
+package ru.mifi.booking.common.dataset;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+
+/**
+ * Детерминированный генератор синтетического набора данных по {@link DatasetSpec}.
+ *
+ * <p>
+ * Набор не хранится целиком: я отдаю его по отелю за раз ({@link #forEachHotel}), так что память
+ * не зависит от N × M × K. Каждый отель и номер получает свой поток случайных чисел, выведенный
+ * из seed и своего индекса, поэтому результат не зависит от того, кто и сколько раз его генерирует.
+ * </p>
+ *
+ * <p>Как раскладываются бронирования:</p>
+ * <ul>
+ *     <li>номера ранжируются псевдослучайной перестановкой, вес номера с рангом r — 1 / (r + 1)^skew;</li>
+ *     <li>ожидаемое число броней номера пропорционально весу, но не больше ёмкости номера на горизонте
+ *     (90% ночей): излишек горячих номеров «переливается» в остальные, чтобы в сумме вышло K;</li>
+ *     <li>проживания — 1–14 ночей с геометрическим хвостом (в среднем 2,5), короткие чаще начинаются
+ *     в пятницу; брони номера идут по времени без пересечений, промежутки между ними случайны;</li>
+ *     <li>бронь сделана за 0–180 дней до заезда (экспоненциально, в среднем за 3 недели), но не позже baseDate.</li>
+ * </ul>
+ */
+public final class SyntheticDataset {
+
+    private static final String[] CITIES = {
+            "Moscow", "Saint Petersburg", "Kazan", "Sochi", "Yekaterinburg", "Novosibirsk",
+            "Nizhny Novgorod", "Kaliningrad", "Samara", "Vladivostok", "Irkutsk", "Murmansk"
+    };
+    private static final String[] STREETS = {
+            "Lenina", "Mira", "Sadovaya", "Naberezhnaya", "Tsentralnaya", "Vokzalnaya", "Pushkina", "Gagarina"
+    };
+    private static final String[] BRANDS = {"Grand", "Park", "River", "Central", "Plaza", "Garden", "Station", "Harbor"};
+
+    private static final int ROOMS_PER_FLOOR = 20;
+    private static final int MAX_NIGHTS = 14;
+    private static final double LONGER_STAY = 0.6;
+    private static final double MEAN_STAY = 1 / (1 - LONGER_STAY);
+    private static final double MAX_OCCUPANCY = 0.9;
+    private static final double WEEKEND_SHARE = 0.4;
+    private static final double MEAN_LEAD_DAYS = 21;
+    private static final int MAX_LEAD_DAYS = 180;
+
+    private static final long HOTEL_STREAM = 1;
+    private static final long ROOM_STREAM = 2;
+    private static final long PERMUTATION_STREAM = 3;
+
+    private final DatasetSpec spec;
+    private final int horizonDays;
+    private final int roomCapacity;
+    private final long rankStride;
+    private final long rankOffset;
+    /** Ранги меньше cappedRanks заполнены до ёмкости, остальные получают scale × вес. */
+    private final int cappedRanks;
+    private final double scale;
+
+    public SyntheticDataset(DatasetSpec spec) {
+        this.spec = spec;
+        this.horizonDays = spec.pastDays() + spec.futureDays();
+        this.roomCapacity = Math.max(1, (int) (horizonDays * MAX_OCCUPANCY / MEAN_STAY));
+
+        int rooms = spec.rooms();
+        SplittableRandom permutation = random(PERMUTATION_STREAM, 0);
+        long stride = rooms == 1 ? 1 : 1 + permutation.nextLong(rooms - 1);
+        while (gcd(stride, rooms) != 1) {
+            stride++;
+        }
+        this.rankStride = stride;
+        this.rankOffset = permutation.nextLong(rooms);
+
+        // Водораздел: первые k рангов упираются в ёмкость, остальные делят оставшиеся брони пропорционально весу.
+        int capped = rooms;
+        double lambda = 0;
+        if (spec.bookings() < (long) rooms * roomCapacity) {
+            double total = 0;
+            for (int r = 0; r < rooms; r++) {
+                total += weight(r);
+            }
+            double head = 0;
+            for (int k = 0; k < rooms; k++) {
+                double candidate = (spec.bookings() - (double) k * roomCapacity) / (total - head);
+                if (candidate * weight(k) <= roomCapacity) {
+                    capped = k;
+                    lambda = candidate;
+                    break;
+                }
+                head += weight(k);
+            }
+        }
+        this.cappedRanks = capped;
+        this.scale = lambda;
+    }
+
+    public DatasetSpec spec() {
+        return spec;
+    }
+
+    /**
+     * @return сколько броней максимум помещается в один номер на горизонте
+     */
+    public int roomCapacity() {
+        return roomCapacity;
+    }
+
+    /**
+     * Пользователь по идентификатору.
+     *
+     * @param id 1..users
+     * @return пользователь
+     */
+    public SyntheticUser user(long id) {
+        if (id < 1 || id > spec.users()) {
+            throw new IllegalArgumentException("user id must be in 1.." + spec.users());
+        }
+        return new SyntheticUser(id, "Guest " + id, "guest" + id + "@synthetic.local");
+    }
+
+    /**
+     * Сгенерировать набор по отелю за раз, в порядке id.
+     *
+     * <p>
+     * id броней сквозные (1, 2, …) в порядке отель → номер → дата, поэтому проход всегда идёт с начала.
+     * </p>
+     *
+     * @param consumer получает очередной отель с номерами и бронированиями
+     */
+    public void forEachHotel(Consumer<SyntheticHotel> consumer) {
+        long[] nextBookingId = {1};
+        for (int h = 0; h < spec.hotels(); h++) {
+            long hotelId = h + 1L;
+            List<SyntheticRoom> rooms = new ArrayList<>(spec.roomsPerHotel());
+            for (int m = 0; m < spec.roomsPerHotel(); m++) {
+                int roomIndex = h * spec.roomsPerHotel() + m;
+                long roomId = roomIndex + 1L;
+                rooms.add(new SyntheticRoom(roomId, hotelId, roomNumber(m), bookings(roomIndex, roomId, nextBookingId)));
+            }
+            consumer.accept(hotel(h, rooms));
+        }
+    }
+
+    private SyntheticHotel hotel(int index, List<SyntheticRoom> rooms) {
+        SplittableRandom rnd = random(HOTEL_STREAM, index);
+        // Лог-равномерный выбор: первые (крупные) города встречаются заметно чаще последних.
+        int city = Math.min(CITIES.length - 1, (int) Math.pow(CITIES.length + 1, rnd.nextDouble()) - 1);
+        String name = BRANDS[rnd.nextInt(BRANDS.length)] + " Hotel " + (index + 1);
+        String address = CITIES[city] + ", " + STREETS[rnd.nextInt(STREETS.length)] + " st., " + (1 + rnd.nextInt(200));
+        return new SyntheticHotel(index + 1L, name, address, rooms);
+    }
+
+    private static String roomNumber(int index) {
+        int floor = index / ROOMS_PER_FLOOR + 1;
+        return Integer.toString(floor * 100 + index % ROOMS_PER_FLOOR + 1);
+    }
+
+    private List<SyntheticBooking> bookings(int roomIndex, long roomId, long[] nextId) {
+        SplittableRandom rnd = random(ROOM_STREAM, roomIndex);
+        double expected = expectedBookings(rank(roomIndex));
+        int count = (int) expected;
+        if (rnd.nextDouble() < expected - count) {
+            count++;
+        }
+
+        LocalDate horizonStart = spec.horizonStart();
+        List<SyntheticBooking> result = new ArrayList<>(count);
+        int cursor = 0;
+        for (int j = 0; j < count && cursor < horizonDays; j++) {
+            int remaining = count - j;
+            int nights = stayLength(rnd);
+            // Свободные дни, которые ещё можно раздать промежуткам перед оставшимися бронями. Промежуток в среднем
+            // равен своей доле, но не больше всего запаса — иначе последние брони вылетали бы за горизонт.
+            double slack = (horizonDays - cursor) - remaining * MEAN_STAY;
+            double slackPerGap = slack / remaining;
+            int start = cursor + (slack > 0 ? rnd.nextInt((int) Math.min(2 * slackPerGap, slack) + 1) : 0);
+            if (nights <= 2 && slackPerGap >= 3 && rnd.nextDouble() < WEEKEND_SHARE) {
+                start += daysUntilFriday(horizonStart.plusDays(start));
+            }
+            if (start >= horizonDays) {
+                break;
+            }
+            int end = Math.min(start + nights, horizonDays);
+            LocalDate startDate = horizonStart.plusDays(start);
+            long id = nextId[0]++;
+            result.add(new SyntheticBooking(id, roomId, 1 + rnd.nextInt(spec.users()),
+                    startDate, horizonStart.plusDays(end),
+                    "syn-" + spec.seed() + "-" + id, "syn-req-" + spec.seed() + "-" + id,
+                    createdAt(rnd, startDate)));
+            cursor = end;
+        }
+        return result;
+    }
+
+    private Instant createdAt(SplittableRandom rnd, LocalDate startDate) {
+        int lead = (int) Math.min(MAX_LEAD_DAYS, -Math.log(1 - rnd.nextDouble()) * MEAN_LEAD_DAYS);
+        LocalDate day = startDate.minusDays(lead);
+        if (day.isAfter(spec.baseDate())) {
+            day = spec.baseDate();
+        }
+        return day.atStartOfDay(ZoneOffset.UTC).plusSeconds(8 * 3600 + rnd.nextInt(14 * 3600)).toInstant();
+    }
+
+    private static int stayLength(SplittableRandom rnd) {
+        int nights = 1;
+        while (nights < MAX_NIGHTS && rnd.nextDouble() < LONGER_STAY) {
+            nights++;
+        }
+        return nights;
+    }
+
+    private static int daysUntilFriday(LocalDate date) {
+        return (DayOfWeek.FRIDAY.getValue() - date.getDayOfWeek().getValue() + 7) % 7;
+    }
+
+    private double expectedBookings(int rank) {
+        return rank < cappedRanks ? roomCapacity : scale * weight(rank);
+    }
+
+    private int rank(int roomIndex) {
+        return (int) ((roomIndex * rankStride + rankOffset) % spec.rooms());
+    }
+
+    private double weight(int rank) {
+        return Math.pow(rank + 1, -spec.skew());
+    }
+
+    private SplittableRandom random(long stream, int index) {
+        return new SplittableRandom(mix64(spec.seed() ^ mix64((stream << 32) | (index & 0xFFFFFFFFL))));
+    }
+
+    /** Финализатор MurmurHash3: соседние индексы дают несвязанные seed. */
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
@@ -0,0 +1,18 @@
+package ru.mifi.booking.common.dataset;
+
+import java.util.List;
+
+/**
+ * Синтетический отель вместе со своими номерами.
+ *
+ * @param id      идентификатор (1..N по порядку генерации)
+ * @param name    название
+ * @param address адрес; начинается с города, как у демо-отелей
+ * @param rooms   номера отеля
+ */
+public record SyntheticHotel(
+        long id,
+        String name,
+        String address,
+        List<SyntheticRoom> rooms
+) {}
@@ -0,0 +1,18 @@
+package ru.mifi.booking.common.dataset;
+
+import java.util.List;
+
+/**
+ * Синтетический номер со своими бронированиями.
+ *
+ * @param id       идентификатор (сквозной по всем отелям)
+ * @param hotelId  отель
+ * @param number   номер на двери: этаж и порядковый номер на этаже
+ * @param bookings бронирования номера, по возрастанию дат и без пересечений
+ */
+public record SyntheticRoom(
+        long id,
+        long hotelId,
+        String number,
+        List<SyntheticBooking> bookings
+) {}
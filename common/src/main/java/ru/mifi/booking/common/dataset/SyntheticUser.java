@@ -0,0 +1,14 @@
+package ru.mifi.booking.common.dataset;
+
+/**
+ * Синтетический пользователь (роль USER).
+ *
+ * @param id    идентификатор (1..users)
+ * @param name  имя
+ * @param email уникальный email
+ */
+public record SyntheticUser(
+        long id,
+        String name,
+        String email
+) {}
@@ -0,0 +1,11 @@
+package ru.mifi.booking.common.exception;
+
+/**
+ * 412 Precondition Failed — условие запроса (If-Match) не выполнено: ресурс уже изменён.
+ */
+public class PreconditionFailedException extends ApiException {
+
+    public PreconditionFailedException(String message) {
+        super(412, message);
+    }
+}
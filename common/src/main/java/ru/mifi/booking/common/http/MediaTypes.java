@@ -0,0 +1,22 @@
+package ru.mifi.booking.common.http;
+
+/**
+ * Типы содержимого, о которых сервисы договариваются между собой.
+ *
+ * <p>
+ * Я держу их в common-модуле рядом с {@link RequestHeaders}: клиент booking-service и контроллер hotel-service
+ * должны называть формат одинаково.
+ * </p>
+ */
+public final class MediaTypes {
+
+    /**
+     * Smile — бинарный JSON Jackson: те же поля и типы, повторяющиеся имена полей передаются ссылкой на первое.
+     * Его читает и пишет MappingJackson2SmileHttpMessageConverter (есть и в Spring MVC, и в RestTemplate).
+     */
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+    private MediaTypes() {
+        // Утилитный класс: создание экземпляров не требуется.
+    }
+}
@@ -0,0 +1,80 @@
+package ru.mifi.booking.hotelservice.availability;
+
+import ru.mifi.booking.hotelservice.dto.AvailabilityChangeDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongFunction;
+
+/**
+ * Кольцевой буфер последних изменений доступности с монотонным номером seq.
+ *
+ * <p>
+ * Память ограничена capacity записями независимо от числа подписчиков: подписчик хранит только
+ * номер последнего отправленного изменения и дочитывает буфер с него. Если он отстал больше чем на capacity
+ * (или пришёл с seq, которого здесь не было), {@link #readAfter} возвращает null — подписчику нужен сброс.
+ * </p>
+ */
+public final class AvailabilityChangeLog {
+
+    private final AvailabilityChangeDto[] ring;
+    private long lastSeq;
+    private int size;
+
+    /**
+     * @param capacity   сколько последних изменений хранить
+     * @param initialSeq seq «до первого изменения»; первое получит initialSeq + 1
+     */
+    public AvailabilityChangeLog(int capacity, long initialSeq) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.ring = new AvailabilityChangeDto[capacity];
+        this.lastSeq = initialSeq;
+    }
+
+    /**
+     * Записать изменение со следующим seq (самое старое вытесняется).
+     *
+     * @param change строит изменение по выданному seq
+     * @return записанное изменение
+     */
+    public synchronized AvailabilityChangeDto append(LongFunction<AvailabilityChangeDto> change) {
+        long seq = lastSeq + 1;
+        AvailabilityChangeDto dto = change.apply(seq);
+        ring[slot(seq)] = dto;
+        lastSeq = seq;
+        size = Math.min(size + 1, ring.length);
+        return dto;
+    }
+
+    /**
+     * seq последнего записанного изменения.
+     */
+    public synchronized long lastSeq() {
+        return lastSeq;
+    }
+
+    /**
+     * Изменения с seq &gt; afterSeq по возрастанию, не больше max.
+     *
+     * @return изменения (пусто — новых нет) или null, если после afterSeq есть вытесненные изменения
+     *         либо такого seq ещё не было
+     */
+    public synchronized List<AvailabilityChangeDto> readAfter(long afterSeq, int max) {
+        long oldest = lastSeq - size + 1;
+        if (afterSeq > lastSeq || afterSeq < oldest - 1) {
+            return null;
+        }
+        int count = (int) Math.min(max, lastSeq - afterSeq);
+        List<AvailabilityChangeDto> result = new ArrayList<>(count);
+        for (long seq = afterSeq + 1; seq <= afterSeq + count; seq++) {
+            result.add(ring[slot(seq)]);
+        }
+        return result;
+    }
+
+    private int slot(long seq) {
+        return (int) Math.floorMod(seq, (long) ring.length);
+    }
+}
@@ -0,0 +1,512 @@
+package ru.mifi.booking.hotelservice.availability;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.mifi.booking.hotelservice.dto.AvailabilityIndexReport;
+import ru.mifi.booking.hotelservice.dto.FlexibleRoomDto;
+import ru.mifi.booking.hotelservice.dto.GroupAvailabilityDto;
+import ru.mifi.booking.hotelservice.dto.RoomCalendarDto;
+import ru.mifi.booking.hotelservice.dto.RoomDto;
+import ru.mifi.booking.hotelservice.dto.RoomStatsDto;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory индекс доступности номеров.
+ *
+ * <p>
+ * Для каждого номера хранится отсортированное множество интервалов блокировок [start, end) в epoch-day,
+ * битовый календарь занятости в скользящем окне (см. {@link OccupancyCalendar}) и поля номера,
+ * которые нужны для ответа {@link RoomDto} без похода в БД.
+ * Источник истины — БД: индекс строится из rooms/room_locks на старте и обновляется
+ * после commit транзакций confirm/release/update/delete (см. {@link AvailabilityIndexSynchronizer}).
+ * </p>
+ *
+ * <p>
+ * Память: календарь занимает ровно {@code ceil(windowDays / 64) * 8} байт на номер
+ * (для окна 731 день — 12 слов = 96 байт, т.е. ~18 МБ на 200 000 номеров), в куче или off-heap
+ * ({@code hotel.availability-index.calendar.storage}). Интервалы добавляют ~80 байт кучи на активную блокировку.
+ * </p>
+ */
+@Component
+public class AvailabilityIndex {
+
+    private static final int MAX_REPORTED_MISMATCHES = 50;
+
+    private static final NavigableSet<Long> EMPTY_IDS = Collections.emptyNavigableSet();
+
+    private static final Comparator<RoomDto> RECOMMEND_ORDER =
+            Comparator.comparingLong(RoomDto::timesBooked).thenComparing(RoomDto::id);
+
+    /**
+     * Обновления индекса (события) берут read-lock и могут идти параллельно,
+     * полная перестройка берёт write-lock, чтобы события не потерялись между снимком БД и подменой.
+     */
+    private final ReentrantReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+
+    private final String calendarStorage;
+    private final int windowDays;
+    private final int windowPastDays;
+
+    private volatile State state;
+    private volatile boolean ready;
+
+    public AvailabilityIndex(
+            @Value("${hotel.availability-index.calendar.storage:heap}") String calendarStorage,
+            @Value("${hotel.availability-index.calendar.window-days:731}") int windowDays,
+            @Value("${hotel.availability-index.calendar.window-past-days:365}") int windowPastDays
+    ) {
+        if (windowDays <= 0 || windowPastDays < 0 || windowPastDays >= windowDays) {
+            throw new IllegalArgumentException("Invalid calendar window: window-days=" + windowDays
+                    + ", window-past-days=" + windowPastDays);
+        }
+        this.calendarStorage = calendarStorage;
+        this.windowDays = windowDays;
+        this.windowPastDays = windowPastDays;
+        this.state = newState(LocalDate.now());
+    }
+
+    /**
+     * Индекс построен и может отвечать на запросы.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Полностью перестроить индекс по снимку БД.
+     *
+     * @param snapshot поставщик снимка (выполняется под write-lock индекса)
+     */
+    public void rebuild(Supplier<Snapshot> snapshot) {
+        rebuildLock.writeLock().lock();
+        try {
+            Snapshot data = snapshot.get();
+
+            State fresh = newState(LocalDate.now());
+            for (RoomDto room : data.rooms()) {
+                fresh.put(room);
+            }
+            for (LockSpan lock : data.locks()) {
+                RoomSlot slot = fresh.rooms.get(lock.roomId());
+                if (slot != null) {
+                    slot.add(Interval.of(lock));
+                }
+            }
+
+            this.state = fresh;
+            this.ready = true;
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Сдвинуть окно битовых календарей так, чтобы оно начиналось за window-past-days до {@code today}.
+     */
+    public void rollWindow(LocalDate today) {
+        withReadLock(() -> {
+            long windowStartDay = today.toEpochDay() - windowPastDays;
+            for (RoomSlot slot : state.rooms.values()) {
+                slot.rollWindow(windowStartDay);
+            }
+            state.windowStartDay = windowStartDay;
+        });
+    }
+
+    /**
+     * Сверить индекс со снимком БД.
+     *
+     * @param snapshot поставщик снимка (выполняется под write-lock, чтобы сверка была атомарной)
+     * @return отчёт о расхождениях
+     */
+    public AvailabilityIndexReport compare(Supplier<Snapshot> snapshot) {
+        rebuildLock.writeLock().lock();
+        try {
+            Snapshot data = snapshot.get();
+            List<String> mismatches = new ArrayList<>();
+            Map<Long, RoomSlot> current = state.rooms;
+
+            Map<Long, List<Interval>> dbIntervals = new HashMap<>();
+            for (LockSpan lock : data.locks()) {
+                dbIntervals.computeIfAbsent(lock.roomId(), k -> new ArrayList<>()).add(Interval.of(lock));
+            }
+
+            for (RoomDto dbRoom : data.rooms()) {
+                RoomSlot slot = current.get(dbRoom.id());
+                if (slot == null) {
+                    report(mismatches, "room " + dbRoom.id() + " missing in index");
+                    continue;
+                }
+                RoomDto indexed = slot.toDto();
+                if (!Objects.equals(indexed, dbRoom)) {
+                    report(mismatches, "room " + dbRoom.id() + " differs: db=" + dbRoom + ", index=" + indexed);
+                }
+
+                List<Interval> expected = dbIntervals.getOrDefault(dbRoom.id(), List.of()).stream()
+                        .sorted(Interval.ORDER)
+                        .toList();
+                List<Interval> actual = slot.intervals();
+                if (!expected.equals(actual)) {
+                    report(mismatches, "room " + dbRoom.id() + " locks differ: db=" + expected + ", index=" + actual);
+                }
+            }
+
+            Set<Long> dbRoomIds = data.rooms().stream().map(RoomDto::id).collect(Collectors.toSet());
+            for (Long id : current.keySet()) {
+                if (!dbRoomIds.contains(id)) {
+                    report(mismatches, "room " + id + " present in index but not in db");
+                }
+            }
+
+            long locksInIndex = current.values().stream().mapToLong(RoomSlot::size).sum();
+
+            return new AvailabilityIndexReport(
+                    mismatches.isEmpty(),
+                    dbRoomIds.size(),
+                    current.size(),
+                    data.locks().size(),
+                    locksInIndex,
+                    List.copyOf(mismatches)
+            );
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Свободные номера на период (только "в принципе доступные"), по возрастанию id.
+     */
+    public List<RoomDto> listAvailable(LocalDate start, LocalDate end) {
+        long startDay = start.toEpochDay();
+        long endDay = end.toEpochDay();
+
+        List<RoomDto> result = new ArrayList<>();
+        for (RoomSlot slot : state.rooms.values()) {
+            RoomDto dto = slot.toDtoIfFree(startDay, endDay);
+            if (dto != null) {
+                result.add(dto);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Top-K свободных номеров по (timesBooked, id) без сортировки всего списка.
+     *
+     * <p>
+     * Держу max-heap размера {@code limit}: кандидат попадает в кучу, только если он "лучше" её вершины,
+     * поэтому при n номерах это O(n log k) по времени и O(k) по памяти.
+     * </p>
+     *
+     * @param limit сколько кандидатов вернуть (&gt; 0)
+     * @return номера по timesBooked asc, затем id asc
+     */
+    public List<RoomDto> recommend(LocalDate start, LocalDate end, int limit) {
+        long startDay = start.toEpochDay();
+        long endDay = end.toEpochDay();
+
+        PriorityQueue<RoomDto> heap = new PriorityQueue<>(limit, RECOMMEND_ORDER.reversed());
+        for (RoomSlot slot : state.rooms.values()) {
+            RoomDto dto = slot.toDtoIfFree(startDay, endDay);
+            if (dto == null) {
+                continue;
+            }
+            if (heap.size() < limit) {
+                heap.add(dto);
+            } else if (RECOMMEND_ORDER.compare(dto, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(dto);
+            }
+        }
+
+        List<RoomDto> result = new ArrayList<>(heap);
+        result.sort(RECOMMEND_ORDER);
+        return result;
+    }
+
+    /**
+     * Номера (id &gt; afterId, по возрастанию id) с датами заезда на nights ночей в окне [from, to).
+     *
+     * <p>
+     * Для каждого номера — один проход по его календарю (см. {@link RoomSlot#flexible}), а не проверка
+     * каждой даты заезда отдельно. Номера без подходящих дат пропускаются и в limit не считаются.
+     * </p>
+     *
+     * @param hotelId фильтр по отелю (может быть null)
+     * @param limit   сколько номеров вернуть
+     */
+    public List<FlexibleRoomDto> flexible(Long hotelId, LocalDate from, LocalDate to, int nights, long afterId, int limit) {
+        long fromDay = from.toEpochDay();
+        long toDay = to.toEpochDay();
+
+        State current = state;
+        Iterable<RoomSlot> slots = hotelId == null
+                ? current.rooms.tailMap(afterId, false).values()
+                : current.roomsByHotel.getOrDefault(hotelId, EMPTY_IDS).tailSet(afterId, false).stream()
+                        .map(current.rooms::get)
+                        .filter(Objects::nonNull)::iterator;
+
+        List<FlexibleRoomDto> result = new ArrayList<>();
+        for (RoomSlot slot : slots) {
+            FlexibleRoomDto room = slot.flexible(fromDay, toDay, nights);
+            if (room != null) {
+                result.add(room);
+                if (result.size() >= limit) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Календарь номера отрезками (из битового календаря, если период в окне) или null, если номера нет в индексе.
+     */
+    public RoomCalendarDto calendar(Long roomId, LocalDate from, LocalDate to) {
+        RoomSlot slot = state.rooms.get(roomId);
+        return slot == null ? null : slot.calendar(from.toEpochDay(), to.toEpochDay());
+    }
+
+    /**
+     * Отели (id &gt; afterHotelId, по возрастанию id), где на период свободно не меньше rooms номеров.
+     *
+     * <p>
+     * Отели идут по отсортированному вторичному индексу, номера отеля — по возрастанию id; как только набрано
+     * rooms свободных, остальные номера отеля не проверяются. Обход останавливается на limit-м подходящем отеле,
+     * поэтому страница не зависит от общего числа отелей, если подходящие встречаются не слишком редко.
+     * </p>
+     *
+     * @param rooms сколько номеров нужно в одном отеле (&gt; 0)
+     * @param limit сколько отелей вернуть
+     */
+    public List<GroupAvailabilityDto> group(LocalDate start, LocalDate end, int rooms, long afterHotelId, int limit) {
+        long startDay = start.toEpochDay();
+        long endDay = end.toEpochDay();
+
+        State current = state;
+        List<GroupAvailabilityDto> result = new ArrayList<>();
+        for (Map.Entry<Long, NavigableSet<Long>> hotel : current.roomsByHotel.tailMap(afterHotelId, false).entrySet()) {
+            List<Long> roomIds = new ArrayList<>(rooms);
+            for (Long roomId : hotel.getValue()) {
+                RoomSlot slot = current.rooms.get(roomId);
+                if (slot != null && slot.isAvailableFor(startDay, endDay)) {
+                    roomIds.add(roomId);
+                    if (roomIds.size() == rooms) {
+                        break;
+                    }
+                }
+            }
+            if (roomIds.size() == rooms) {
+                result.add(new GroupAvailabilityDto(hotel.getKey(), List.copyOf(roomIds)));
+                if (result.size() >= limit) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Статистика загруженности номеров отеля за период (bookedDays — popcount по календарю, если период в окне).
+     */
+    public List<RoomStatsDto> stats(Long hotelId, LocalDate start, LocalDate end) {
+        long startDay = start.toEpochDay();
+        long endDay = end.toEpochDay();
+
+        State current = state;
+        Set<Long> roomIds = current.roomsByHotel.getOrDefault(hotelId, EMPTY_IDS);
+
+        List<RoomStatsDto> result = new ArrayList<>(roomIds.size());
+        for (Long roomId : roomIds) {
+            RoomSlot slot = current.rooms.get(roomId);
+            RoomStatsDto stats = slot == null ? null : slot.stats(startDay, endDay);
+            if (stats != null) {
+                result.add(stats);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Учесть созданную блокировку.
+     */
+    public void applyLockCreated(Long lockId, Long roomId, LocalDate start, LocalDate end) {
+        withReadLock(() -> {
+            RoomSlot slot = state.rooms.get(roomId);
+            if (slot != null && slot.add(new Interval(lockId, start.toEpochDay(), end.toEpochDay()))) {
+                slot.adjustTimesBooked(1);
+            }
+        });
+    }
+
+    /**
+     * Учесть снятую блокировку.
+     */
+    public void applyLockReleased(Long lockId, Long roomId, LocalDate start, LocalDate end) {
+        withReadLock(() -> {
+            RoomSlot slot = state.rooms.get(roomId);
+            if (slot != null && slot.remove(new Interval(lockId, start.toEpochDay(), end.toEpochDay()))) {
+                slot.adjustTimesBooked(-1);
+            }
+        });
+    }
+
+    /**
+     * Скрыть истёкший hold: номер свободен на его ночи, но timesBooked не меняется,
+     * пока строка не удалена из БД (тогда придёт {@link #adjustTimesBooked}).
+     *
+     * @return был ли интервал в индексе (false — его уже сняли release/reaper)
+     */
+    public boolean hideLock(Long lockId, Long roomId, LocalDate start, LocalDate end) {
+        rebuildLock.readLock().lock();
+        try {
+            RoomSlot slot = state.rooms.get(roomId);
+            return slot != null && slot.remove(new Interval(lockId, start.toEpochDay(), end.toEpochDay()));
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Вернуть скрытый hold (его всё-таки подтвердили), не трогая timesBooked.
+     */
+    public void restoreLock(Long lockId, Long roomId, LocalDate start, LocalDate end) {
+        withReadLock(() -> {
+            RoomSlot slot = state.rooms.get(roomId);
+            if (slot != null) {
+                slot.add(new Interval(lockId, start.toEpochDay(), end.toEpochDay()));
+            }
+        });
+    }
+
+    /**
+     * Изменить timesBooked номера (удалён скрытый ранее hold).
+     */
+    public void adjustTimesBooked(Long roomId, long delta) {
+        withReadLock(() -> {
+            RoomSlot slot = state.rooms.get(roomId);
+            if (slot != null) {
+                slot.adjustTimesBooked(delta);
+            }
+        });
+    }
+
+    /**
+     * Добавить номер или обновить его поля (интервалы блокировок сохраняются).
+     */
+    public void upsertRoom(RoomDto room) {
+        withReadLock(() -> state.put(room));
+    }
+
+    /**
+     * То же для пачки номеров (импорт каталога): одно взятие блокировки и одно чтение поколения на пачку.
+     */
+    public void upsertRooms(Collection<RoomDto> rooms) {
+        withReadLock(() -> {
+            State current = state;
+            rooms.forEach(current::put);
+        });
+    }
+
+    /**
+     * Удалить номер из индекса.
+     */
+    public void removeRoom(Long roomId) {
+        withReadLock(() -> state.remove(roomId));
+    }
+
+    /**
+     * Описание хранилища календарей (для логов).
+     */
+    public String describeMemory() {
+        State current = state;
+        return "rooms=" + current.rooms.size()
+                + ", calendar=" + current.store.storageName()
+                + ", window=" + windowDays + "d (" + current.store.wordsPerSlot() * Long.BYTES + " B/room)"
+                + ", allocated=" + current.store.allocatedBytes() / 1024 + " KiB";
+    }
+
+    private State newState(LocalDate today) {
+        int wordsPerSlot = (windowDays + 63) / 64;
+        return new State(CalendarStore.create(calendarStorage, wordsPerSlot), today.toEpochDay() - windowPastDays);
+    }
+
+    private void withReadLock(Runnable action) {
+        rebuildLock.readLock().lock();
+        try {
+            action.run();
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    private static void report(List<String> mismatches, String message) {
+        if (mismatches.size() < MAX_REPORTED_MISMATCHES) {
+            mismatches.add(message);
+        }
+    }
+
+    /**
+     * Снимок БД для построения/сверки индекса.
+     *
+     * @param rooms все номера
+     * @param locks все блокировки
+     */
+    public record Snapshot(List<RoomDto> rooms, List<LockSpan> locks) {}
+
+    /**
+     * Поколение индекса: номера, вторичный индекс по отелям и хранилище календарей.
+     * При rebuild создаётся целиком новое поколение и подменяется одной записью.
+     */
+    private final class State {
+
+        private final ConcurrentSkipListMap<Long, RoomSlot> rooms = new ConcurrentSkipListMap<>();
+        private final ConcurrentSkipListMap<Long, NavigableSet<Long>> roomsByHotel = new ConcurrentSkipListMap<>();
+        private final CalendarStore store;
+        private volatile long windowStartDay;
+
+        private State(CalendarStore store, long windowStartDay) {
+            this.store = store;
+            this.windowStartDay = windowStartDay;
+        }
+
+        private void put(RoomDto room) {
+            rooms.compute(room.id(), (id, slot) -> {
+                if (slot == null) {
+                    roomsByHotel.computeIfAbsent(room.hotelId(), k -> new ConcurrentSkipListSet<>()).add(id);
+                    return new RoomSlot(room, new OccupancyCalendar(store, windowDays, windowStartDay));
+                }
+                slot.update(room);
+                return slot;
+            });
+        }
+
+        private void remove(Long roomId) {
+            RoomSlot removed = rooms.remove(roomId);
+            if (removed != null) {
+                NavigableSet<Long> hotelRooms = roomsByHotel.get(removed.hotelId());
+                if (hotelRooms != null) {
+                    hotelRooms.remove(roomId);
+                }
+                removed.dispose();
+            }
+        }
+    }
+}
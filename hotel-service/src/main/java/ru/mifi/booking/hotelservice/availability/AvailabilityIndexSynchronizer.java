@@ -0,0 +1,306 @@
+package ru.mifi.booking.hotelservice.availability;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.mifi.booking.hotelservice.dto.AvailabilityIndexReport;
+import ru.mifi.booking.hotelservice.event.RoomChangedEvent;
+import ru.mifi.booking.hotelservice.event.RoomLockChangedEvent;
+import ru.mifi.booking.hotelservice.event.RoomsImportedEvent;
+import ru.mifi.booking.hotelservice.repository.RoomLockRepository;
+import ru.mifi.booking.hotelservice.repository.RoomRepository;
+import ru.mifi.booking.hotelservice.service.TimesBookedCounter;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Связка {@link AvailabilityIndex} с БД.
+ *
+ * <p>
+ * Я строю индекс после старта приложения (когда уже отработали инициализаторы данных)
+ * и применяю к нему доменные события только после commit — откат транзакции индекс не трогает.
+ * Если индекс выключен ({@code hotel.availability-index.enabled=false}), сервисы работают напрямую с БД.
+ * </p>
+ *
+ * <p>
+ * Здесь же инвалидирую {@link AvailabilityQueryCache} — строго после обновления индекса,
+ * чтобы перезагрузка записи кэша не прочитала индекс до применения события.
+ * </p>
+ *
+ * <p>
+ * Неподтверждённые hold-ы я держу в {@link PendingHolds}: перед поиском {@link #expireDueHolds()} убирает
+ * истёкшие из индекса и кэша, не дожидаясь, пока reaper удалит их строки. Сами запросы к БД фильтруют
+ * истёкшие hold-ы по expires_at, так что при выключенном индексе это нужно только для кэша.
+ * Скрытый hold не меняет timesBooked: метрика уменьшается, только когда строку действительно удалили (RELEASED).
+ * Скрытие и commit/release одного hold-а идут из разных потоков (поиск и reaper/сага), поэтому переходы
+ * {@link HoldState} по lockId я делаю в {@code compute}: release, пришедший во время скрытия, не теряет декремент,
+ * а поздний hide не скрывает уже подтверждённый или снятый hold.
+ * </p>
+ */
+@Component
+public class AvailabilityIndexSynchronizer {
+
+    private static final Logger log = LoggerFactory.getLogger(AvailabilityIndexSynchronizer.class);
+
+    private final AvailabilityIndex index;
+    private final AvailabilityQueryCache queryCache;
+    private final RoomRepository roomRepository;
+    private final RoomLockRepository roomLockRepository;
+    private final TimesBookedCounter timesBooked;
+    private final TransactionTemplate readOnlyTx;
+    private final boolean enabled;
+    private final PendingHolds pendingHolds = new PendingHolds();
+    private final ConcurrentHashMap<Long, HoldState> expiredHolds = new ConcurrentHashMap<>();
+
+    public AvailabilityIndexSynchronizer(
+            AvailabilityIndex index,
+            AvailabilityQueryCache queryCache,
+            RoomRepository roomRepository,
+            RoomLockRepository roomLockRepository,
+            TimesBookedCounter timesBooked,
+            PlatformTransactionManager transactionManager,
+            @Value("${hotel.availability-index.enabled:true}") boolean enabled
+    ) {
+        this.index = index;
+        this.queryCache = queryCache;
+        this.roomRepository = roomRepository;
+        this.roomLockRepository = roomLockRepository;
+        this.timesBooked = timesBooked;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.enabled = enabled;
+    }
+
+    /**
+     * Первичное построение индекса.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            log.info("Availability index is disabled, searches go to the database");
+            pendingHolds.addAll(roomLockRepository.findPendingHolds(Instant.now()));
+            return;
+        }
+        rebuild();
+    }
+
+    /**
+     * Перестроить индекс из rooms/room_locks.
+     */
+    public void rebuild() {
+        long startedAt = System.nanoTime();
+        pendingHolds.clear();
+        expiredHolds.clear();
+        index.rebuild(this::loadSnapshot);
+        queryCache.invalidateAll();
+        log.info("Availability index built in {} ms ({})",
+                (System.nanoTime() - startedAt) / 1_000_000, index.describeMemory());
+    }
+
+    /**
+     * Раз в сутки сдвигаю окно битовых календарей, чтобы "сегодня" оставалось внутри окна.
+     */
+    @Scheduled(cron = "${hotel.availability-index.calendar.roll-cron:0 5 0 * * *}")
+    public void rollCalendarWindow() {
+        if (!index.isReady()) {
+            return;
+        }
+        index.rollWindow(LocalDate.now());
+        log.info("Availability calendar window rolled ({})", index.describeMemory());
+    }
+
+    /**
+     * Сверка индекса с таблицами.
+     *
+     * @return отчёт о расхождениях
+     */
+    public AvailabilityIndexReport checkConsistency() {
+        expireDueHolds();
+        AvailabilityIndexReport report = index.compare(this::loadSnapshot);
+        if (!report.consistent()) {
+            log.warn("Availability index is inconsistent with the database: {}", report.mismatches());
+        }
+        return report;
+    }
+
+    /**
+     * Перестать учитывать hold-ы, чей срок уже наступил (вызывается перед поиском).
+     * Пока истекать нечего, это одно volatile-чтение.
+     */
+    public void expireDueHolds() {
+        Instant now = Instant.now();
+        if (!pendingHolds.mayHaveDue(now)) {
+            return;
+        }
+        List<PendingHold> due = pendingHolds.pollDue(now);
+        if (due.isEmpty()) {
+            return;
+        }
+        // Отмечаю до запроса к БД: commit/release, пришедший после отметки, оставит SETTLED, и скрытия не будет.
+        for (PendingHold hold : due) {
+            expiredHolds.putIfAbsent(hold.lockId(), HoldState.EXPIRING);
+        }
+        // Hold мог быть подтверждён в транзакции, событие которой ещё не дошло: такие оставляю в индексе.
+        Set<Long> active = new HashSet<>(roomLockRepository.findActiveIdsIn(
+                due.stream().map(PendingHold::lockId).toList(), now));
+        for (PendingHold hold : due) {
+            try {
+                expiredHolds.compute(hold.lockId(), (id, state) -> {
+                    if (state != HoldState.EXPIRING || active.contains(id)) {
+                        return null;
+                    }
+                    // Интервала уже нет — его снял release до отметки: помнить нечего.
+                    return index.isReady() && index.hideLock(id, hold.roomId(), hold.startDate(), hold.endDate())
+                            ? HoldState.HIDDEN
+                            : null;
+                });
+            } catch (RuntimeException ex) {
+                log.error("Failed to expire {} in availability index", hold, ex);
+                expiredHolds.remove(hold.lockId(), HoldState.EXPIRING);
+            } finally {
+                queryCache.invalidateRange(hold.startDate(), hold.endDate());
+            }
+        }
+    }
+
+    /**
+     * Сколько hold-ов сейчас скрыто по сроку или в процессе скрытия (ждут удаления reaper-ом либо commit).
+     */
+    public int expiredHoldCount() {
+        return expiredHolds.size();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLockChanged(RoomLockChangedEvent event) {
+        // Транзакция уже закоммичена: исключение здесь не должно превращать успешный ответ в 500.
+        boolean changed = true;
+        try {
+            switch (event.type()) {
+                case CREATED -> {
+                    if (event.expiresAt() != null) {
+                        pendingHolds.add(new PendingHold(event.lockId(), event.roomId(),
+                                event.startDate(), event.endDate(), event.expiresAt()));
+                    }
+                    if (index.isReady()) {
+                        index.applyLockCreated(event.lockId(), event.roomId(), event.startDate(), event.endDate());
+                    }
+                }
+                case COMMITTED -> {
+                    // Hold ещё учитывался — для поиска ничего не изменилось. Если он успел "истечь" в индексе
+                    // до commit — возвращаю его.
+                    // Без индекса не знаю, успел ли кэш увидеть hold истёкшим, — инвалидирую диапазон всегда.
+                    pendingHolds.remove(event.lockId());
+                    changed = settle(event.lockId(),
+                            () -> index.restoreLock(event.lockId(), event.roomId(), event.startDate(), event.endDate()),
+                            () -> {
+                            })
+                            || !index.isReady();
+                }
+                case RELEASED -> {
+                    pendingHolds.remove(event.lockId());
+                    settle(event.lockId(),
+                            () -> index.adjustTimesBooked(event.roomId(), -1),
+                            () -> {
+                                if (index.isReady()) {
+                                    index.applyLockReleased(event.lockId(), event.roomId(), event.startDate(), event.endDate());
+                                }
+                            });
+                }
+                case ARCHIVED -> {
+                    // Строка ушла в room_lock_history: из горячего индекса убираю, метрику не трогаю.
+                    expiredHolds.remove(event.lockId());
+                    if (index.isReady()) {
+                        index.hideLock(event.lockId(), event.roomId(), event.startDate(), event.endDate());
+                    }
+                }
+            }
+        } catch (RuntimeException ex) {
+            log.error("Failed to apply {} to availability index", event, ex);
+        } finally {
+            if (changed) {
+                queryCache.invalidateRange(event.startDate(), event.endDate());
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRoomChanged(RoomChangedEvent event) {
+        try {
+            if (index.isReady()) {
+                switch (event.type()) {
+                    case UPSERTED -> index.upsertRoom(event.room());
+                    case DELETED -> index.removeRoom(event.room().id());
+                }
+            }
+        } catch (RuntimeException ex) {
+            log.error("Failed to apply {} to availability index", event, ex);
+        } finally {
+            queryCache.invalidateAll();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRoomsImported(RoomsImportedEvent event) {
+        try {
+            if (index.isReady()) {
+                index.upsertRooms(event.rooms());
+            }
+        } catch (RuntimeException ex) {
+            log.error("Failed to apply {} imported rooms to availability index", event.rooms().size(), ex);
+        } finally {
+            queryCache.invalidateAll();
+        }
+    }
+
+    /**
+     * Применить commit/release hold-а атомарно со скрытием по сроку.
+     *
+     * @param ifHidden  hold был скрыт — вернуть его или уменьшить timesBooked (HIDDEN ставится только при готовом индексе)
+     * @param otherwise hold в индексе как обычная блокировка
+     * @return был ли hold скрыт
+     */
+    private boolean settle(Long lockId, Runnable ifHidden, Runnable otherwise) {
+        boolean[] hidden = new boolean[1];
+        expiredHolds.compute(lockId, (id, state) -> {
+            hidden[0] = state == HoldState.HIDDEN;
+            (hidden[0] ? ifHidden : otherwise).run();
+            // Скрытие этого hold-а ещё идёт: отметка не даст ему скрыть уже решённый hold.
+            return state == HoldState.EXPIRING ? HoldState.SETTLED : null;
+        });
+        return hidden[0];
+    }
+
+    private AvailabilityIndex.Snapshot loadSnapshot() {
+        // timesBooked в снапшоте живой (строка + незаписанная дельта), дальше индекс ведёт его по событиям.
+        return timesBooked.read(() -> readOnlyTx.execute(status -> {
+            Instant now = Instant.now();
+            pendingHolds.addAll(roomLockRepository.findPendingHolds(now));
+            return new AvailabilityIndex.Snapshot(
+                    timesBooked.live(roomRepository.findAllAsDto()),
+                    roomLockRepository.findActiveSpans(now)
+            );
+        }));
+    }
+
+    /**
+     * Состояние hold-а, чей срок наступил: EXPIRING — идёт скрытие, HIDDEN — скрыт в индексе,
+     * SETTLED — во время скрытия пришёл commit/release (уже применён), скрывать нельзя.
+     */
+    private enum HoldState {
+        EXPIRING,
+        HIDDEN,
+        SETTLED
+    }
+}
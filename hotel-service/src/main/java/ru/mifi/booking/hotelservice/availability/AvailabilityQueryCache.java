@@ -0,0 +1,186 @@
+package ru.mifi.booking.hotelservice.availability;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.mifi.booking.hotelservice.dto.RoomDto;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Кэш результатов listAvailable/recommend по ключу (запрос, start, end, limit).
+ *
+ * <p>
+ * Ограничен суммарным числом номеров во всех ответах ({@code max-rooms}) и TTL после записи.
+ * Промах загружается через {@code cache.get(key, loader)}: параллельные запросы с тем же ключом
+ * ждут одну загрузку, а не идут в БД каждый сам по себе.
+ * </p>
+ *
+ * <p>
+ * Инвалидация точечная: изменение блокировки на [s, e) выкидывает только записи, чей период пересекается с ним;
+ * изменение номера (available/number/удаление) и rebuild индекса — все записи.
+ * timesBooked в закэшированных ответах может отставать не больше чем на TTL: это метрика справедливости,
+ * а не доступности, и confirm-availability всё равно перепроверяет пересечения в БД.
+ * </p>
+ *
+ * <p>
+ * Гонка "загрузка началась до изменения, а легла в кэш после обхода ключей" закрыта журналом последних изменений:
+ * запись помнит номер изменения, с которого начиналась её загрузка, и при первом чтении сверяется с журналом.
+ * </p>
+ */
+@Component
+public class AvailabilityQueryCache {
+
+    private static final int MAX_RECENT_CHANGES = 1024;
+    private static final int MAX_LOAD_ATTEMPTS = 3;
+
+    private final boolean enabled;
+    private final Cache<Key, Entry> cache;
+
+    /**
+     * Журнал последних изменений (по возрастанию seq). Доступ — под монитором самого журнала.
+     */
+    private final ArrayDeque<Change> recentChanges = new ArrayDeque<>();
+    private long lastSeq;
+
+    public AvailabilityQueryCache(
+            MeterRegistry meterRegistry,
+            @Value("${hotel.availability-cache.enabled:true}") boolean enabled,
+            @Value("${hotel.availability-cache.max-rooms:1000000}") long maxRooms,
+            @Value("${hotel.availability-cache.ttl:30s}") Duration ttl
+    ) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxRooms)
+                .weigher((Key key, Entry entry) -> entry.rooms.size() + 1)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "availability");
+    }
+
+    /**
+     * Получить результат из кэша или загрузить его (одна загрузка на ключ).
+     *
+     * @param query  вид запроса
+     * @param start  начало периода
+     * @param end    конец периода
+     * @param limit  limit для recommend (0 — без ограничения)
+     * @param loader загрузка из индекса/БД
+     * @return неизменяемый список номеров
+     */
+    public List<RoomDto> get(Query query, LocalDate start, LocalDate end, int limit, Supplier<List<RoomDto>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+
+        Key key = new Key(query, start.toEpochDay(), end.toEpochDay(), limit);
+        for (int attempt = 0; attempt < MAX_LOAD_ATTEMPTS; attempt++) {
+            Entry entry = cache.get(key, k -> {
+                long seq = currentSeq();
+                return new Entry(seq, List.copyOf(loader.get()));
+            });
+            if (entry.verified || verify(key, entry)) {
+                return entry.rooms;
+            }
+            // Загрузка пересеклась с изменением, которое обход ключей не увидел.
+            cache.asMap().remove(key, entry);
+        }
+        // Период под непрерывными изменениями: отвечаю без кэша.
+        return List.copyOf(loader.get());
+    }
+
+    /**
+     * Блокировка на [start, end) создана или снята: выкинуть записи с пересекающимся периодом.
+     */
+    public void invalidateRange(LocalDate start, LocalDate end) {
+        if (!enabled) {
+            return;
+        }
+        Change change = record(start.toEpochDay(), end.toEpochDay());
+        cache.asMap().keySet().removeIf(change::affects);
+    }
+
+    /**
+     * Изменился номер или индекс перестроен: выкинуть все записи.
+     */
+    public void invalidateAll() {
+        if (!enabled) {
+            return;
+        }
+        record(Long.MIN_VALUE, Long.MAX_VALUE);
+        cache.invalidateAll();
+    }
+
+    private long currentSeq() {
+        synchronized (recentChanges) {
+            return lastSeq;
+        }
+    }
+
+    private Change record(long startDay, long endDay) {
+        synchronized (recentChanges) {
+            Change change = new Change(++lastSeq, startDay, endDay);
+            recentChanges.addLast(change);
+            if (recentChanges.size() > MAX_RECENT_CHANGES) {
+                recentChanges.removeFirst();
+            }
+            return change;
+        }
+    }
+
+    private boolean verify(Key key, Entry entry) {
+        synchronized (recentChanges) {
+            if (entry.seq < lastSeq) {
+                Change oldest = recentChanges.peekFirst();
+                if (oldest == null || oldest.seq() > entry.seq + 1) {
+                    // Часть изменений после начала загрузки уже вытеснена из журнала — считаю запись устаревшей.
+                    return false;
+                }
+                for (Change change : recentChanges) {
+                    if (change.seq() > entry.seq && change.affects(key)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        entry.verified = true;
+        return true;
+    }
+
+    /**
+     * Вид закэшированного запроса.
+     */
+    public enum Query {
+        LIST_AVAILABLE,
+        RECOMMEND
+    }
+
+    private record Key(Query query, long startDay, long endDay, int limit) {}
+
+    private record Change(long seq, long startDay, long endDay) {
+
+        private boolean affects(Key key) {
+            return startDay < key.endDay() && endDay > key.startDay();
+        }
+    }
+
+    private static final class Entry {
+
+        private final long seq;
+        private final List<RoomDto> rooms;
+        private volatile boolean verified;
+
+        private Entry(long seq, List<RoomDto> rooms) {
+            this.seq = seq;
+            this.rooms = rooms;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package ru.mifi.booking.hotelservice.availability;
+
+import ru.mifi.booking.hotelservice.dto.CalendarSpanDto;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Календарь номера на [fromDay, toDay) в виде чередующихся свободных и занятых отрезков (run-length).
+ *
+ * <p>
+ * Занятые интервалы подаются по возрастанию начала; пересекающиеся и стыкующиеся сливаются в один отрезок,
+ * поэтому число отрезков зависит от числа броней, а не от длины периода.
+ * </p>
+ */
+public final class CalendarSpans {
+
+    private final long fromDay;
+    private final long toDay;
+    private final List<CalendarSpanDto> spans = new ArrayList<>();
+
+    /** Начало текущего занятого отрезка или -1, если его нет. */
+    private long busyFrom = -1;
+    /** Первая ночь, не занятая уже поданными интервалами. */
+    private long freeFrom;
+
+    public CalendarSpans(long fromDay, long toDay) {
+        this.fromDay = fromDay;
+        this.toDay = toDay;
+        this.freeFrom = fromDay;
+    }
+
+    /**
+     * Очередной занятый интервал [startDay, endDay); начала — по неубыванию, части вне периода отбрасываются.
+     */
+    public void busy(long startDay, long endDay) {
+        long start = Math.max(startDay, fromDay);
+        long end = Math.min(endDay, toDay);
+        if (start >= end) {
+            return;
+        }
+        if (busyFrom < 0 || start > freeFrom) {
+            closeBusy();
+            add(freeFrom, start, true);
+            busyFrom = start;
+        }
+        freeFrom = Math.max(freeFrom, end);
+    }
+
+    /**
+     * Закрыть последние отрезки.
+     *
+     * @return отрезки по возрастанию, без промежутков, от fromDay до toDay
+     */
+    public List<CalendarSpanDto> finish() {
+        closeBusy();
+        add(freeFrom, toDay, true);
+        freeFrom = toDay;
+        return spans;
+    }
+
+    private void closeBusy() {
+        if (busyFrom >= 0) {
+            add(busyFrom, freeFrom, false);
+            busyFrom = -1;
+        }
+    }
+
+    private void add(long startDay, long endDay, boolean free) {
+        if (startDay < endDay) {
+            spans.add(new CalendarSpanDto(LocalDate.ofEpochDay(startDay), (int) (endDay - startDay), free));
+        }
+    }
+}
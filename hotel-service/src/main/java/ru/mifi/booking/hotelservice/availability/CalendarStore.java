@@ -0,0 +1,111 @@
+package ru.mifi.booking.hotelservice.availability;
+
+import java.util.Arrays;
+
+/**
+ * Хранилище битовых календарей занятости номеров.
+ *
+ * <p>
+ * Каждому номеру выделяется слот фиксированного размера — {@link #wordsPerSlot()} long-слов,
+ * 1 бит = 1 ночь. Память выделяется чанками по {@link #SLOTS_PER_CHUNK} слотов и при росте не перемещается,
+ * поэтому ссылку на слот можно держать всё время жизни номера в индексе.
+ * </p>
+ *
+ * <p>
+ * Реализация не синхронизирует доступ к словам: чтение/запись конкретного слота
+ * выполняется под монитором владельца (см. {@link RoomSlot}).
+ * </p>
+ */
+abstract class CalendarStore {
+
+    static final int SLOTS_PER_CHUNK = 1024;
+
+    private final int wordsPerSlot;
+    private final int wordsPerChunk;
+
+    private volatile Chunk[] chunks = new Chunk[0];
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private int nextSlot;
+
+    protected CalendarStore(int wordsPerSlot) {
+        this.wordsPerSlot = wordsPerSlot;
+        this.wordsPerChunk = wordsPerSlot * SLOTS_PER_CHUNK;
+    }
+
+    /**
+     * Создать хранилище.
+     *
+     * @param storage      "heap" или "off-heap"
+     * @param wordsPerSlot размер календаря одного номера в long-словах
+     * @return хранилище
+     */
+    static CalendarStore create(String storage, int wordsPerSlot) {
+        return switch (storage == null ? "heap" : storage.trim().toLowerCase()) {
+            case "heap" -> new HeapCalendarStore(wordsPerSlot);
+            case "off-heap", "offheap", "direct" -> new OffHeapCalendarStore(wordsPerSlot);
+            default -> throw new IllegalArgumentException("Unknown calendar storage: " + storage + " (expected heap|off-heap)");
+        };
+    }
+
+    int wordsPerSlot() {
+        return wordsPerSlot;
+    }
+
+    /**
+     * Выделить обнулённый слот.
+     */
+    synchronized int allocate() {
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            slot = nextSlot++;
+            int chunkIndex = slot / SLOTS_PER_CHUNK;
+            if (chunkIndex >= chunks.length) {
+                Chunk[] grown = Arrays.copyOf(chunks, chunkIndex + 1);
+                grown[chunkIndex] = newChunk(wordsPerChunk);
+                chunks = grown;
+            }
+        }
+        for (int i = 0; i < wordsPerSlot; i++) {
+            setWord(slot, i, 0L);
+        }
+        return slot;
+    }
+
+    /**
+     * Вернуть слот в пул.
+     */
+    synchronized void release(int slot) {
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    long word(int slot, int index) {
+        return chunks[slot / SLOTS_PER_CHUNK].get((slot % SLOTS_PER_CHUNK) * wordsPerSlot + index);
+    }
+
+    void setWord(int slot, int index, long value) {
+        chunks[slot / SLOTS_PER_CHUNK].set((slot % SLOTS_PER_CHUNK) * wordsPerSlot + index, value);
+    }
+
+    /**
+     * Сколько байт занято под календари (с учётом не до конца заполненного последнего чанка).
+     */
+    long allocatedBytes() {
+        return (long) chunks.length * wordsPerChunk * Long.BYTES;
+    }
+
+    abstract String storageName();
+
+    protected abstract Chunk newChunk(int words);
+
+    interface Chunk {
+        long get(int index);
+
+        void set(int index, long value);
+    }
+}
@@ -0,0 +1,57 @@
+package ru.mifi.booking.hotelservice.availability;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Даты заезда на {@code nights} ночей внутри окна [fromDay, toDay) за один проход по занятым интервалам номера.
+ *
+ * <p>
+ * Интервалы подаются по возрастанию начала (могут пересекаться); между ними — свободные отрезки,
+ * и в отрезке длины L помещается L − nights + 1 заездов. Источник интервалов — битовый календарь
+ * или отсортированные блокировки из индекса/БД, сам расчёт один и тот же.
+ * </p>
+ */
+public final class FlexibleStarts {
+
+    private final long fromDay;
+    private final long toDay;
+    private final int nights;
+    private final List<LocalDate> starts = new ArrayList<>();
+
+    /** Первая ночь, не занятая уже поданными интервалами. */
+    private long freeFrom;
+
+    public FlexibleStarts(long fromDay, long toDay, int nights) {
+        this.fromDay = fromDay;
+        this.toDay = toDay;
+        this.nights = nights;
+        this.freeFrom = fromDay;
+    }
+
+    /**
+     * Очередной занятый интервал [startDay, endDay); начала — по неубыванию.
+     */
+    public void busy(long startDay, long endDay) {
+        addFree(freeFrom, Math.min(startDay, toDay));
+        freeFrom = Math.max(freeFrom, endDay);
+    }
+
+    /**
+     * Закрыть последний свободный отрезок.
+     *
+     * @return даты заезда по возрастанию
+     */
+    public List<LocalDate> finish() {
+        addFree(freeFrom, toDay);
+        freeFrom = toDay;
+        return starts;
+    }
+
+    private void addFree(long startDay, long endDay) {
+        for (long day = Math.max(startDay, fromDay); day + nights <= endDay; day++) {
+            starts.add(LocalDate.ofEpochDay(day));
+        }
+    }
+}
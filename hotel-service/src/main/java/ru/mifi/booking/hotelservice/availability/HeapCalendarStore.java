@@ -0,0 +1,33 @@
+package ru.mifi.booking.hotelservice.availability;
+
+/**
+ * Календари в куче: один {@code long[]} на чанк из {@link CalendarStore#SLOTS_PER_CHUNK} номеров
+ * (без заголовка объекта на каждый номер).
+ */
+final class HeapCalendarStore extends CalendarStore {
+
+    HeapCalendarStore(int wordsPerSlot) {
+        super(wordsPerSlot);
+    }
+
+    @Override
+    String storageName() {
+        return "heap";
+    }
+
+    @Override
+    protected Chunk newChunk(int words) {
+        long[] data = new long[words];
+        return new Chunk() {
+            @Override
+            public long get(int index) {
+                return data[index];
+            }
+
+            @Override
+            public void set(int index, long value) {
+                data[index] = value;
+            }
+        };
+    }
+}
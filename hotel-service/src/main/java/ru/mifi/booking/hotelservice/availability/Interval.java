@@ -0,0 +1,21 @@
+package ru.mifi.booking.hotelservice.availability;
+
+import java.util.Comparator;
+
+/**
+ * Интервал блокировки [startDay, endDay) в epoch-day.
+ */
+record Interval(long lockId, long startDay, long endDay) {
+
+    static final Comparator<Interval> ORDER = Comparator
+            .comparingLong(Interval::startDay)
+            .thenComparingLong(Interval::lockId);
+
+    static Interval of(LockSpan lock) {
+        return new Interval(lock.lockId(), lock.startDate().toEpochDay(), lock.endDate().toEpochDay());
+    }
+
+    long length() {
+        return endDay - startDay;
+    }
+}
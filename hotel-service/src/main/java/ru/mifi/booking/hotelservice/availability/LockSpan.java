@@ -0,0 +1,18 @@
+package ru.mifi.booking.hotelservice.availability;
+
+import java.time.LocalDate;
+
+/**
+ * Лёгкая проекция блокировки для построения/сверки индекса доступности.
+ *
+ * @param lockId    идентификатор блокировки
+ * @param roomId    идентификатор номера
+ * @param startDate начало (включительно)
+ * @param endDate   конец (исключительно)
+ */
+public record LockSpan(
+        Long lockId,
+        Long roomId,
+        LocalDate startDate,
+        LocalDate endDate
+) {}
@@ -0,0 +1,153 @@
+package ru.mifi.booking.hotelservice.availability;
+
+/**
+ * Битовый календарь занятости одного номера в скользящем окне дат.
+ *
+ * <p>
+ * Бит i соответствует ночи {@code windowStartDay + i} (epoch-day). Проверка свободности периода
+ * [start, end) — проверка маской слов, bookedDays — popcount. Сам массив живёт в {@link CalendarStore},
+ * здесь только адрес слота и начало окна. Все вызовы — под монитором {@link RoomSlot}.
+ * </p>
+ */
+final class OccupancyCalendar {
+
+    private final CalendarStore store;
+    private final int slot;
+    private final int windowDays;
+
+    private long windowStartDay;
+
+    OccupancyCalendar(CalendarStore store, int windowDays, long windowStartDay) {
+        this.store = store;
+        this.slot = store.allocate();
+        this.windowDays = windowDays;
+        this.windowStartDay = windowStartDay;
+    }
+
+    /**
+     * Период [startDay, endDay) целиком внутри окна.
+     */
+    boolean covers(long startDay, long endDay) {
+        return startDay >= windowStartDay && endDay <= windowStartDay + windowDays;
+    }
+
+    /**
+     * Отметить ночи [startDay, endDay) (часть вне окна игнорируется).
+     */
+    void mark(long startDay, long endDay) {
+        apply(startDay, endDay, true);
+    }
+
+    /**
+     * Снять отметку с ночей [startDay, endDay) (часть вне окна игнорируется).
+     */
+    void clear(long startDay, long endDay) {
+        apply(startDay, endDay, false);
+    }
+
+    /**
+     * Все ночи [startDay, endDay) свободны. Требует {@link #covers(long, long)}.
+     */
+    boolean isFree(long startDay, long endDay) {
+        int from = (int) (startDay - windowStartDay);
+        int to = (int) (endDay - windowStartDay);
+        for (int w = from >>> 6; w <= (to - 1) >>> 6; w++) {
+            if ((store.word(slot, w) & mask(w, from, to)) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Количество занятых ночей в [startDay, endDay). Требует {@link #covers(long, long)}.
+     */
+    long countBooked(long startDay, long endDay) {
+        int from = (int) (startDay - windowStartDay);
+        int to = (int) (endDay - windowStartDay);
+        long count = 0;
+        for (int w = from >>> 6; w <= (to - 1) >>> 6; w++) {
+            count += Long.bitCount(store.word(slot, w) & mask(w, from, to));
+        }
+        return count;
+    }
+
+    /**
+     * Первая занятая ночь в [startDay, endDay) или endDay, если таких нет. Требует {@link #covers(long, long)}.
+     */
+    long nextBooked(long startDay, long endDay) {
+        return scan(startDay, endDay, false);
+    }
+
+    /**
+     * Первая свободная ночь в [startDay, endDay) или endDay, если таких нет. Требует {@link #covers(long, long)}.
+     */
+    long nextFree(long startDay, long endDay) {
+        return scan(startDay, endDay, true);
+    }
+
+    /**
+     * Сдвинуть окно: календарь обнуляется, владелец заново отмечает свои интервалы.
+     */
+    void reset(long newWindowStartDay) {
+        for (int i = 0; i < store.wordsPerSlot(); i++) {
+            store.setWord(slot, i, 0L);
+        }
+        this.windowStartDay = newWindowStartDay;
+    }
+
+    /**
+     * Вернуть слот в хранилище.
+     */
+    void dispose() {
+        store.release(slot);
+    }
+
+    private void apply(long startDay, long endDay, boolean set) {
+        long s = Math.max(startDay, windowStartDay);
+        long e = Math.min(endDay, windowStartDay + windowDays);
+        if (s >= e) {
+            return;
+        }
+        int from = (int) (s - windowStartDay);
+        int to = (int) (e - windowStartDay);
+        for (int w = from >>> 6; w <= (to - 1) >>> 6; w++) {
+            long word = store.word(slot, w);
+            long mask = mask(w, from, to);
+            store.setWord(slot, w, set ? word | mask : word & ~mask);
+        }
+    }
+
+    /**
+     * Первый бит с нужным значением: пустые по маске слова пропускаются целиком, в найденном — numberOfTrailingZeros.
+     */
+    private long scan(long startDay, long endDay, boolean free) {
+        int from = (int) (startDay - windowStartDay);
+        int to = (int) (endDay - windowStartDay);
+        if (from >= to) {
+            return endDay;
+        }
+        for (int w = from >>> 6; w <= (to - 1) >>> 6; w++) {
+            long word = store.word(slot, w);
+            long bits = (free ? ~word : word) & mask(w, from, to);
+            if (bits != 0) {
+                return windowStartDay + ((long) w << 6) + Long.numberOfTrailingZeros(bits);
+            }
+        }
+        return endDay;
+    }
+
+    /**
+     * Маска битов слова w, попадающих в диапазон бит [from, to).
+     */
+    private static long mask(int w, int from, int to) {
+        long mask = -1L;
+        if (w == from >>> 6) {
+            mask &= -1L << (from & 63);
+        }
+        if (w == (to - 1) >>> 6) {
+            mask &= -1L >>> (63 - ((to - 1) & 63));
+        }
+        return mask;
+    }
+}
@@ -0,0 +1,43 @@
+package ru.mifi.booking.hotelservice.availability;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * Календари вне кучи: direct-буфер на чанк из {@link CalendarStore#SLOTS_PER_CHUNK} номеров.
+ *
+ * <p>
+ * Не нагружает GC при сотнях тысяч номеров, но расходует direct memory
+ * (лимит задаётся {@code -XX:MaxDirectMemorySize}, по умолчанию равен размеру кучи).
+ * </p>
+ */
+final class OffHeapCalendarStore extends CalendarStore {
+
+    OffHeapCalendarStore(int wordsPerSlot) {
+        super(wordsPerSlot);
+    }
+
+    @Override
+    String storageName() {
+        return "off-heap";
+    }
+
+    @Override
+    protected Chunk newChunk(int words) {
+        LongBuffer data = ByteBuffer.allocateDirect(words * Long.BYTES)
+                .order(ByteOrder.nativeOrder())
+                .asLongBuffer();
+        return new Chunk() {
+            @Override
+            public long get(int index) {
+                return data.get(index);
+            }
+
+            @Override
+            public void set(int index, long value) {
+                data.put(index, value);
+            }
+        };
+    }
+}
@@ -0,0 +1,21 @@
+package ru.mifi.booking.hotelservice.availability;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Неподтверждённое удержание номера (hold) со сроком действия.
+ *
+ * @param lockId    идентификатор блокировки
+ * @param roomId    идентификатор номера
+ * @param startDate начало (включительно)
+ * @param endDate   конец (исключительно)
+ * @param expiresAt момент, после которого hold не занимает номер
+ */
+public record PendingHold(
+        Long lockId,
+        Long roomId,
+        LocalDate startDate,
+        LocalDate endDate,
+        Instant expiresAt
+) {}
@@ -0,0 +1,102 @@
+package ru.mifi.booking.hotelservice.availability;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Неподтверждённые hold-ы, упорядоченные по сроку.
+ *
+ * <p>
+ * Нужны затем, чтобы истёкший hold перестал занимать номер в индексе и кэше сразу по сроку, не дожидаясь reaper-а.
+ * Проверка "есть ли что истекать" — одно volatile-чтение, поэтому поиск платит за неё почти ничего;
+ * остальное — под монитором. Из кучи удаляю лениво: подтверждённый/снятый hold уходит из map,
+ * а его элемент кучи пропускается при выборке (и куча компактируется, если мусора стало больше половины).
+ * </p>
+ */
+class PendingHolds {
+
+    private final Map<Long, PendingHold> byId = new HashMap<>();
+    private final PriorityQueue<PendingHold> byExpiry =
+            new PriorityQueue<>(Comparator.comparing(PendingHold::expiresAt).thenComparing(PendingHold::lockId));
+
+    private volatile long nextDueMillis = Long.MAX_VALUE;
+
+    /**
+     * Быстрая проверка без блокировки: мог ли к моменту {@code now} истечь хоть один hold.
+     */
+    boolean mayHaveDue(Instant now) {
+        return nextDueMillis <= now.toEpochMilli();
+    }
+
+    synchronized void add(PendingHold hold) {
+        put(hold);
+        refreshNextDue();
+    }
+
+    synchronized void addAll(Collection<PendingHold> holds) {
+        for (PendingHold hold : holds) {
+            put(hold);
+        }
+        refreshNextDue();
+    }
+
+    /**
+     * Убрать hold (подтверждён или снят).
+     *
+     * @return true, если hold ещё ждал подтверждения
+     */
+    synchronized boolean remove(Long lockId) {
+        if (byId.remove(lockId) == null) {
+            return false;
+        }
+        if (byExpiry.size() > 2 * byId.size() + 16) {
+            byExpiry.removeIf(h -> !h.equals(byId.get(h.lockId())));
+        }
+        refreshNextDue();
+        return true;
+    }
+
+    synchronized void clear() {
+        byId.clear();
+        byExpiry.clear();
+        refreshNextDue();
+    }
+
+    /**
+     * Забрать hold-ы, срок которых наступил к {@code now}.
+     */
+    synchronized List<PendingHold> pollDue(Instant now) {
+        List<PendingHold> due = new ArrayList<>();
+        while (!byExpiry.isEmpty() && !byExpiry.peek().expiresAt().isAfter(now)) {
+            PendingHold hold = byExpiry.poll();
+            if (byId.remove(hold.lockId(), hold)) {
+                due.add(hold);
+            }
+        }
+        refreshNextDue();
+        return due;
+    }
+
+    synchronized int size() {
+        return byId.size();
+    }
+
+    private void put(PendingHold hold) {
+        if (!hold.equals(byId.put(hold.lockId(), hold))) {
+            byExpiry.add(hold);
+        }
+    }
+
+    private void refreshNextDue() {
+        while (!byExpiry.isEmpty() && !byExpiry.peek().equals(byId.get(byExpiry.peek().lockId()))) {
+            byExpiry.poll();
+        }
+        nextDueMillis = byExpiry.isEmpty() ? Long.MAX_VALUE : byExpiry.peek().expiresAt().toEpochMilli();
+    }
+}
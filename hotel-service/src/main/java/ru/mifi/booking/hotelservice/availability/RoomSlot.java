@@ -0,0 +1,217 @@
+package ru.mifi.booking.hotelservice.availability;
+
+import ru.mifi.booking.hotelservice.dto.FlexibleRoomDto;
+import ru.mifi.booking.hotelservice.dto.RoomCalendarDto;
+import ru.mifi.booking.hotelservice.dto.RoomDto;
+import ru.mifi.booking.hotelservice.dto.RoomStatsDto;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+/**
+ * Состояние одного номера в индексе. Все изменения и чтения — под монитором слота.
+ *
+ * <p>
+ * Точное представление — отсортированное множество интервалов (нужно для подсчёта блокировок,
+ * запросов за пределами окна и сдвига окна). Быстрый путь — битовый {@link OccupancyCalendar}:
+ * если период попадает в окно, свободность и занятые ночи считаются по битам.
+ * </p>
+ */
+final class RoomSlot {
+
+    private final long roomId;
+    private final NavigableSet<Interval> intervals = new TreeSet<>(Interval.ORDER);
+    private final OccupancyCalendar calendar;
+
+    private Long hotelId;
+    private String number;
+    private boolean available;
+    private long timesBooked;
+    private long maxLength;
+    private boolean disposed;
+
+    RoomSlot(RoomDto room, OccupancyCalendar calendar) {
+        this.roomId = room.id();
+        this.calendar = calendar;
+        update(room);
+    }
+
+    synchronized void update(RoomDto room) {
+        this.hotelId = room.hotelId();
+        this.number = room.number();
+        this.available = room.available();
+        this.timesBooked = room.timesBooked();
+    }
+
+    synchronized Long hotelId() {
+        return hotelId;
+    }
+
+    synchronized boolean add(Interval interval) {
+        boolean added = intervals.add(interval);
+        if (added && !disposed) {
+            maxLength = Math.max(maxLength, interval.length());
+            calendar.mark(interval.startDay(), interval.endDay());
+        }
+        return added;
+    }
+
+    synchronized boolean remove(Interval interval) {
+        boolean removed = intervals.remove(interval);
+        if (removed && !disposed) {
+            calendar.clear(interval.startDay(), interval.endDay());
+            // Если в этом диапазоне есть другие интервалы (например, пересекающиеся устаревшие) — вернуть их биты.
+            forEachOverlapping(interval.startDay(), interval.endDay(),
+                    other -> calendar.mark(other.startDay(), other.endDay()));
+        }
+        return removed;
+    }
+
+    synchronized void adjustTimesBooked(long delta) {
+        timesBooked = Math.max(0, timesBooked + delta);
+    }
+
+    synchronized void rollWindow(long windowStartDay) {
+        if (disposed) {
+            return;
+        }
+        calendar.reset(windowStartDay);
+        for (Interval interval : intervals) {
+            calendar.mark(interval.startDay(), interval.endDay());
+        }
+    }
+
+    /**
+     * Освободить календарь. После этого слот "пустой": читатели, успевшие взять ссылку, номер не увидят.
+     */
+    synchronized void dispose() {
+        if (!disposed) {
+            disposed = true;
+            calendar.dispose();
+        }
+    }
+
+    synchronized int size() {
+        return intervals.size();
+    }
+
+    synchronized List<Interval> intervals() {
+        return List.copyOf(intervals);
+    }
+
+    synchronized RoomDto toDto() {
+        return new RoomDto(roomId, hotelId, number, available, timesBooked);
+    }
+
+    synchronized RoomDto toDtoIfFree(long startDay, long endDay) {
+        if (disposed || !available || !isFree(startDay, endDay)) {
+            return null;
+        }
+        return new RoomDto(roomId, hotelId, number, true, timesBooked);
+    }
+
+    synchronized boolean isAvailableFor(long startDay, long endDay) {
+        return !disposed && available && isFree(startDay, endDay);
+    }
+
+    synchronized RoomStatsDto stats(long startDay, long endDay) {
+        if (disposed) {
+            return null;
+        }
+        long[] locksAndDays = new long[2];
+        forEachOverlapping(startDay, endDay, interval -> {
+            locksAndDays[0]++;
+            locksAndDays[1] += Math.min(interval.endDay(), endDay) - Math.max(interval.startDay(), startDay);
+        });
+
+        long bookedDays = calendar.covers(startDay, endDay)
+                ? calendar.countBooked(startDay, endDay)
+                : locksAndDays[1];
+
+        return new RoomStatsDto(roomId, hotelId, number, timesBooked, locksAndDays[0], bookedDays);
+    }
+
+    /**
+     * Даты заезда на nights ночей в окне [fromDay, toDay) или null, если номер недоступен или их нет.
+     */
+    synchronized FlexibleRoomDto flexible(long fromDay, long toDay, int nights) {
+        if (disposed || !available) {
+            return null;
+        }
+        FlexibleStarts starts = new FlexibleStarts(fromDay, toDay, nights);
+        forEachBusy(fromDay, toDay, starts::busy);
+        List<LocalDate> dates = starts.finish();
+        return dates.isEmpty() ? null : new FlexibleRoomDto(new RoomDto(roomId, hotelId, number, true, timesBooked), dates);
+    }
+
+    /**
+     * Календарь номера на [fromDay, toDay) отрезками или null, если номер уже удалён из индекса.
+     */
+    synchronized RoomCalendarDto calendar(long fromDay, long toDay) {
+        if (disposed) {
+            return null;
+        }
+        CalendarSpans spans = new CalendarSpans(fromDay, toDay);
+        forEachBusy(fromDay, toDay, spans::busy);
+        return new RoomCalendarDto(roomId, available, LocalDate.ofEpochDay(fromDay), LocalDate.ofEpochDay(toDay), spans.finish());
+    }
+
+    /**
+     * Занятые отрезки в [fromDay, toDay) по возрастанию начала. Если период в окне — иду по словам календаря
+     * (следующая занятая ночь, следующая свободная и т.д.), иначе — по отсортированным интервалам.
+     */
+    private void forEachBusy(long fromDay, long toDay, BusyRun action) {
+        if (calendar.covers(fromDay, toDay)) {
+            long day = calendar.nextBooked(fromDay, toDay);
+            while (day < toDay) {
+                long free = calendar.nextFree(day, toDay);
+                action.accept(day, free);
+                day = calendar.nextBooked(free, toDay);
+            }
+        } else {
+            List<Interval> overlapping = new ArrayList<>();
+            forEachOverlapping(fromDay, toDay, overlapping::add);
+            for (Interval interval : overlapping.reversed()) {
+                action.accept(interval.startDay(), interval.endDay());
+            }
+        }
+    }
+
+    private boolean isFree(long startDay, long endDay) {
+        if (calendar.covers(startDay, endDay)) {
+            return calendar.isFree(startDay, endDay);
+        }
+        boolean[] overlaps = new boolean[1];
+        forEachOverlapping(startDay, endDay, interval -> overlaps[0] = true);
+        return !overlaps[0];
+    }
+
+    /**
+     * Обойти интервалы, пересекающие [startDay, endDay): идём от интервалов с началом &lt; endDay назад
+     * и останавливаемся, когда начало + максимальная длина интервала уже не достаёт до startDay.
+     */
+    private void forEachOverlapping(long startDay, long endDay, Consumer<Interval> action) {
+        Iterator<Interval> it = intervals
+                .headSet(new Interval(Long.MIN_VALUE, endDay, endDay), false)
+                .descendingIterator();
+        while (it.hasNext()) {
+            Interval interval = it.next();
+            if (interval.startDay() + maxLength <= startDay) {
+                return;
+            }
+            if (interval.endDay() > startDay) {
+                action.accept(interval);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface BusyRun {
+        void accept(long startDay, long endDay);
+    }
+}
@@ -0,0 +1,62 @@
+package ru.mifi.booking.hotelservice.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Executor-ы отправки событий потока изменений доступности подписчикам SSE.
+ *
+ * <p>
+ * Отправка в сокет медленного клиента блокирует поток, поэтому она идёт не в потоке commit-а,
+ * а здесь; у подписчика в пуле не больше одной задачи, так что очереди хватает на max-subscribers.
+ * Саму запись поток отправки отдаёт changeStreamWriterExecutor и ждёт не дольше {@code hotel.changes.send-timeout-ms}.
+ * </p>
+ */
+@Configuration
+public class ChangeStreamExecutorConfig {
+
+    /**
+     * Ограниченный пул отправки SSE.
+     *
+     * @param threads        сколько подписчиков получают события одновременно
+     * @param maxSubscribers сколько подписчиков может быть всего (ёмкость очереди)
+     * @return executor
+     */
+    @Bean
+    public ThreadPoolTaskExecutor changeStreamExecutor(
+            @Value("${hotel.changes.sender-threads:4}") int threads,
+            @Value("${hotel.changes.max-subscribers:100}") int maxSubscribers
+    ) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(maxSubscribers);
+        executor.setThreadNamePrefix("hotel-changes-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+
+    /**
+     * Запись в сокет: виртуальный поток на запись. Запись клиента, который перестал читать, висит до таймаута
+     * записи Tomcat ({@code server.tomcat.connection-timeout}): поток отправки её не ждёт, а подписчика отключает.
+     * Пул с передачей из рук в руки здесь не годится: поток, только что отдавший результат, ещё не вернулся
+     * за новой задачей, и под нагрузкой пул упирается в максимум при почти пустой работе.
+     *
+     * @param maxSubscribers сколько подписчиков может быть всего: у каждого не больше одной записи,
+     *                       и ещё столько же могут висеть у уже отключённых
+     * @return executor; сверх лимита задача отклоняется, и подписчик отключается
+     */
+    @Bean
+    public SimpleAsyncTaskExecutor changeStreamWriterExecutor(
+            @Value("${hotel.changes.max-subscribers:100}") int maxSubscribers
+    ) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("hotel-changes-write-");
+        executor.setVirtualThreads(true);
+        executor.setConcurrencyLimit(2 * maxSubscribers);
+        executor.setRejectTasksWhenLimitReached(true);
+        return executor;
+    }
+}
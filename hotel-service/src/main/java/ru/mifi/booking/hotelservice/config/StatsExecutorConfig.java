@@ -0,0 +1,39 @@
+package ru.mifi.booking.hotelservice.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Пул для параллельного расчёта статистики по нескольким отелям.
+ *
+ * <p>
+ * Пул и очередь ограничены: отчёт по сотне отелей не должен занимать все JDBC-соединения
+ * и не должен копить задачи без предела. Задача сверх очереди отклоняется (ответ 503).
+ * </p>
+ */
+@Configuration
+public class StatsExecutorConfig {
+
+    /**
+     * Ограниченный пул расчёта статистики.
+     *
+     * @param parallelism   число потоков (и одновременно занятых соединений)
+     * @param queueCapacity сколько задач может ждать свободного потока
+     * @return executor
+     */
+    @Bean
+    public ThreadPoolTaskExecutor statsExecutor(
+            @Value("${hotel.stats.parallelism:4}") int parallelism,
+            @Value("${hotel.stats.queue-capacity:200}") int queueCapacity
+    ) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("hotel-stats-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+}
@@ -3,12 +3,26 @@ package ru.mifi.booking.hotelservice.controller;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 
 import jakarta.validation.Valid;
-import org.springframework.http.HttpStatus;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import ru.mifi.booking.hotelservice.dto.DeleteReport;
 import ru.mifi.booking.hotelservice.dto.HotelDto;
+import ru.mifi.booking.hotelservice.dto.HotelNightOccupancyDto;
+import ru.mifi.booking.hotelservice.dto.ImportReport;
+import ru.mifi.booking.hotelservice.dto.OccupancyRebuildReport;
+import ru.mifi.booking.hotelservice.dto.Tagged;
 import ru.mifi.booking.hotelservice.dto.UpdateHotelRequest;
+import ru.mifi.booking.hotelservice.service.CatalogImportService;
+import ru.mifi.booking.hotelservice.service.HotelOccupancyService;
 import ru.mifi.booking.hotelservice.service.HotelService;
 
+import java.io.InputStream;
+import java.time.LocalDate;
 import java.util.List;
 
 /**
@@ -20,9 +34,17 @@ import java.util.List;
 public class HotelController {
 
     private final HotelService hotelService;
+    private final HotelOccupancyService hotelOccupancyService;
+    private final CatalogImportService catalogImportService;
 
-    public HotelController(HotelService hotelService) {
+    public HotelController(
+            HotelService hotelService,
+            HotelOccupancyService hotelOccupancyService,
+            CatalogImportService catalogImportService
+    ) {
         this.hotelService = hotelService;
+        this.hotelOccupancyService = hotelOccupancyService;
+        this.catalogImportService = catalogImportService;
     }
 
     /**
@@ -37,44 +59,116 @@ public class HotelController {
     }
 
     /**
-     * USER: список отелей.
+     * USER: список отелей с ETag.
+     *
+     * <p>
+     * Сначала сверяю If-None-Match с версией списка (один агрегирующий запрос): совпала — 304 без чтения отелей.
+     * </p>
+     *
+     * @param request запрос (If-None-Match)
+     * @return список отелей или null, если ответ уже 304
      */
     @GetMapping
-    public List<HotelDto> list() {
-        return hotelService.list();
+    public ResponseEntity<List<HotelDto>> list(WebRequest request) {
+        String etag = hotelService.listEtag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(hotelService.list());
     }
 
     /**
-     * USER: получить отель по id.
+     * USER: получить отель по id с ETag (версия отеля); при совпадении If-None-Match — 304 без чтения отеля.
      *
-     * @param id идентификатор отеля
-     * @return отель
+     * @param id      идентификатор отеля
+     * @param request запрос (If-None-Match)
+     * @return отель или null, если ответ уже 304
      */
     @GetMapping("/{id}")
-    public HotelDto get(@PathVariable("id") Long id) {
-        return hotelService.get(id);
+    public ResponseEntity<HotelDto> get(@PathVariable("id") Long id, WebRequest request) {
+        String etag = hotelService.etag(id);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(hotelService.get(id));
     }
 
     /**
      * ADMIN: частично обновить отель (PATCH).
      *
-     * @param id  идентификатор отеля
-     * @param req запрос обновления (поля могут быть null)
-     * @return обновлённый отель
+     * @param id      идентификатор отеля
+     * @param ifMatch ETag, прочитанный клиентом (необязательно): отель изменён после него — 412
+     * @param req     запрос обновления (поля могут быть null)
+     * @return обновлённый отель с новым ETag
      */
     @PatchMapping("/{id}")
-    public HotelDto patch(@PathVariable("id") Long id, @RequestBody UpdateHotelRequest req) {
-        return hotelService.update(id, req);
+    public ResponseEntity<HotelDto> patch(
+            @PathVariable("id") Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody UpdateHotelRequest req
+    ) {
+        Tagged<HotelDto> updated = hotelService.update(id, req, ifMatch);
+        return ResponseEntity.ok().eTag(updated.etag()).body(updated.body());
     }
 
     /**
      * ADMIN: удалить отель.
      *
      * @param id идентификатор отеля
+     * @return сколько номеров, блокировок и строк агрегата удалено и за сколько пачек
      */
     @DeleteMapping("/{id}")
-    @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void delete(@PathVariable("id") Long id) {
-        hotelService.delete(id);
+    public DeleteReport delete(@PathVariable("id") Long id) {
+        return hotelService.delete(id);
+    }
+
+    /**
+     * ADMIN: свободные номера отеля по ночам за период (до 366 ночей).
+     *
+     * @param id    идентификатор отеля
+     * @param start первая ночь (ISO-8601)
+     * @param end   конец периода, исключительно (ISO-8601)
+     * @return по строке на каждую ночь: всего номеров, занято, свободно
+     */
+    @GetMapping("/{id}/occupancy")
+    public List<HotelNightOccupancyDto> occupancy(
+            @PathVariable("id") Long id,
+            @RequestParam("start") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate start,
+            @RequestParam("end") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate end
+    ) {
+        return hotelService.occupancy(id, start, end);
+    }
+
+    /**
+     * ADMIN: сверить агрегат загрузки с блокировками и пересчитать разошедшиеся отели.
+     *
+     * @return сколько отелей и строк пересчитано и сколько это заняло
+     */
+    @PostMapping("/occupancy/rebuild")
+    public OccupancyRebuildReport rebuildOccupancy() {
+        return hotelOccupancyService.rebuild();
+    }
+
+    /**
+     * ADMIN: потоковый импорт отелей и номеров.
+     *
+     * <p>
+     * Тело — NDJSON ({@code application/x-ndjson}, объект на строку) или CSV ({@code text/csv}, первая строка —
+     * заголовок с именами полей), формат строк — {@link ru.mifi.booking.hotelservice.dto.CatalogImportLine}.
+     * </p>
+     *
+     * @param contentType формат тела
+     * @param body        тело запроса, читается потоком
+     * @return сколько создано и ошибки по строкам
+     */
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, CatalogImportService.TEXT_CSV_VALUE})
+    public ImportReport importCatalog(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType, InputStream body) {
+        return catalogImportService.importCatalog(body, CatalogImportService.Format.of(contentType));
     }
-}
\ No newline at end of file
+}
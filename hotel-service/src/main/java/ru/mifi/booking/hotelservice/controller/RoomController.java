@@ -4,15 +4,42 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 
 import jakarta.validation.Valid;
 import org.springframework.format.annotation.DateTimeFormat;
-import org.springframework.http.HttpStatus;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.slf4j.MDC;
+import ru.mifi.booking.common.http.MediaTypes;
+import ru.mifi.booking.hotelservice.availability.AvailabilityIndexSynchronizer;
+import ru.mifi.booking.hotelservice.dto.AvailabilityIndexReport;
+import ru.mifi.booking.hotelservice.dto.BatchCommitRequest;
+import ru.mifi.booking.hotelservice.dto.BatchCommitResult;
+import ru.mifi.booking.hotelservice.dto.BatchConfirmAvailabilityRequest;
+import ru.mifi.booking.hotelservice.dto.BatchConfirmResult;
+import ru.mifi.booking.hotelservice.dto.BatchReleaseRequest;
+import ru.mifi.booking.hotelservice.dto.BatchReleaseResult;
 import ru.mifi.booking.hotelservice.dto.ConfirmAvailabilityRequest;
+import ru.mifi.booking.hotelservice.dto.DeleteReport;
+import ru.mifi.booking.hotelservice.dto.FlexibleSearchPage;
+import ru.mifi.booking.hotelservice.dto.GroupSearchPage;
+import ru.mifi.booking.hotelservice.dto.HotelRoomStatsDto;
+import ru.mifi.booking.hotelservice.dto.LockArchiveReport;
+import ru.mifi.booking.hotelservice.dto.RoomCalendarDto;
 import ru.mifi.booking.hotelservice.dto.RoomDto;
+import ru.mifi.booking.hotelservice.dto.RoomSearchPage;
 import ru.mifi.booking.hotelservice.dto.RoomStatsDto;
+import ru.mifi.booking.hotelservice.dto.Tagged;
 import ru.mifi.booking.hotelservice.dto.UpdateRoomRequest;
+import ru.mifi.booking.hotelservice.service.AvailabilityStreamService;
 import ru.mifi.booking.hotelservice.service.HotelService;
+import ru.mifi.booking.hotelservice.service.RoomBatchService;
+import ru.mifi.booking.hotelservice.service.RoomHoldService;
+import ru.mifi.booking.hotelservice.service.RoomLockArchiveService;
 import ru.mifi.booking.hotelservice.service.RoomService;
+import ru.mifi.booking.hotelservice.service.RoomStatsReportService;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -32,16 +59,43 @@ public class RoomController {
 
     private final HotelService hotelService;
     private final RoomService roomService;
+    private final RoomBatchService roomBatchService;
+    private final RoomHoldService roomHoldService;
+    private final RoomStatsReportService roomStatsReportService;
+    private final RoomLockArchiveService roomLockArchiveService;
+    private final AvailabilityIndexSynchronizer availabilityIndexSynchronizer;
+    private final AvailabilityStreamService availabilityStreamService;
 
     /**
      * Конструктор контроллера.
      *
-     * @param hotelService сервис работы с отелями
-     * @param roomService  сервис работы с номерами
+     * @param hotelService                  сервис работы с отелями
+     * @param roomService                   сервис работы с номерами
+     * @param roomBatchService              групповые confirm/release
+     * @param roomHoldService               подтверждение hold-ов (commit)
+     * @param roomStatsReportService        статистика по нескольким отелям
+     * @param roomLockArchiveService        перенос завершившихся блокировок в архив
+     * @param availabilityIndexSynchronizer управление in-memory индексом доступности
+     * @param availabilityStreamService     поток изменений доступности (SSE)
      */
-    public RoomController(HotelService hotelService, RoomService roomService) {
+    public RoomController(
+            HotelService hotelService,
+            RoomService roomService,
+            RoomBatchService roomBatchService,
+            RoomHoldService roomHoldService,
+            RoomStatsReportService roomStatsReportService,
+            RoomLockArchiveService roomLockArchiveService,
+            AvailabilityIndexSynchronizer availabilityIndexSynchronizer,
+            AvailabilityStreamService availabilityStreamService
+    ) {
         this.hotelService = hotelService;
         this.roomService = roomService;
+        this.roomBatchService = roomBatchService;
+        this.roomHoldService = roomHoldService;
+        this.roomStatsReportService = roomStatsReportService;
+        this.roomLockArchiveService = roomLockArchiveService;
+        this.availabilityIndexSynchronizer = availabilityIndexSynchronizer;
+        this.availabilityStreamService = availabilityStreamService;
     }
 
     /**
@@ -76,53 +130,181 @@ public class RoomController {
         return roomService.listAvailable(start, end);
     }
 
+    /**
+     * USER: постраничный поиск свободных номеров (v2) с фильтрами и keyset-курсором.
+     *
+     * @param start   дата начала (ISO-8601)
+     * @param end     дата окончания (ISO-8601)
+     * @param hotelId фильтр по отелю (необязательно)
+     * @param city    фильтр по городу — начало адреса отеля (необязательно)
+     * @param size    размер страницы (1..200, по умолчанию 20)
+     * @param cursor  курсор nextCursor из предыдущей страницы (необязательно)
+     * @return страница номеров с флагом hasMore
+     */
+    @GetMapping("/search")
+    public RoomSearchPage search(
+            @RequestParam("start") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate start,
+            @RequestParam("end") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate end,
+            @RequestParam(value = "hotelId", required = false) Long hotelId,
+            @RequestParam(value = "city", required = false) String city,
+            @RequestParam(value = "size", defaultValue = "20") int size,
+            @RequestParam(value = "cursor", required = false) String cursor
+    ) {
+        return roomService.search(start, end, hotelId, city, size, cursor);
+    }
+
+    /**
+     * USER: поиск с гибкими датами — «nights ночей в любые даты между from и to».
+     *
+     * @param from    первая возможная дата заезда (ISO-8601)
+     * @param to      последняя возможная дата выезда (ISO-8601), окно до 366 дней
+     * @param nights  число ночей
+     * @param hotelId фильтр по отелю (необязательно)
+     * @param size    сколько номеров на странице (1..200, по умолчанию 20)
+     * @param cursor  курсор nextCursor из предыдущей страницы (необязательно)
+     * @return номера с датами заезда, на которые они свободны
+     */
+    @GetMapping("/flexible")
+    public FlexibleSearchPage flexible(
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam("nights") int nights,
+            @RequestParam(value = "hotelId", required = false) Long hotelId,
+            @RequestParam(value = "size", defaultValue = "20") int size,
+            @RequestParam(value = "cursor", required = false) String cursor
+    ) {
+        return roomService.flexible(from, to, nights, hotelId, size, cursor);
+    }
+
+    /**
+     * USER: отели, где на период свободно сразу rooms номеров, с номерами-кандидатами.
+     *
+     * @param start  дата начала (ISO-8601)
+     * @param end    дата окончания (ISO-8601)
+     * @param rooms  сколько номеров нужно в одном отеле (1..100)
+     * @param size   сколько отелей на странице (1..200, по умолчанию 20)
+     * @param cursor курсор nextCursor из предыдущей страницы (необязательно)
+     * @return страница отелей с флагом hasMore
+     */
+    @GetMapping("/group")
+    public GroupSearchPage group(
+            @RequestParam("start") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate start,
+            @RequestParam("end") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate end,
+            @RequestParam("rooms") int rooms,
+            @RequestParam(value = "size", defaultValue = "20") int size,
+            @RequestParam(value = "cursor", required = false) String cursor
+    ) {
+        return roomService.group(start, end, rooms, size, cursor);
+    }
+
+    /**
+     * USER: поток изменений доступности (SSE) — создание/подтверждение/снятие блокировок и изменения номеров.
+     *
+     * @param since       seq последнего полученного изменения (необязательно)
+     * @param lastEventId заголовок Last-Event-ID, который EventSource присылает при переподключении
+     * @return SSE-поток; при отставании больше буфера — событие reset и закрытие потока
+     */
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter changes(
+            @RequestParam(value = "since", required = false) Long since,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId
+    ) {
+        return availabilityStreamService.subscribe(since != null ? since : lastEventId);
+    }
+
     /**
      * USER: рекомендованные номера на период (сортировка: timesBooked asc, затем id asc).
      *
      * @param start дата начала (ISO-8601)
      * @param end   дата окончания (ISO-8601)
-     * @return список рекомендованных номеров
+     * @param limit сколько кандидатов вернуть (необязательно; по умолчанию — все)
+     * @return список рекомендованных номеров (JSON или Smile по Accept: booking-service просит Smile)
      */
-    @GetMapping("/recommend")
+    @GetMapping(value = "/recommend", produces = {MediaType.APPLICATION_JSON_VALUE, MediaTypes.APPLICATION_SMILE_VALUE})
     public List<RoomDto> recommend(
             @RequestParam("start") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate start,
-            @RequestParam("end") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate end
+            @RequestParam("end") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate end,
+            @RequestParam(value = "limit", required = false) Integer limit
     ) {
-        return roomService.recommend(start, end);
+        return roomService.recommend(start, end, limit);
     }
 
     /**
-     * USER: получить номер по id.
+     * USER: получить номер по id с ETag (версия номера и timesBooked).
      *
-     * @param id идентификатор номера
-     * @return номер
+     * <p>
+     * If-None-Match сверяю с версией до чтения номера: совпала — 304, номер не читается.
+     * </p>
+     *
+     * @param id      идентификатор номера
+     * @param request запрос (If-None-Match)
+     * @return номер или null, если ответ уже 304
      */
     @GetMapping("/{id}")
-    public RoomDto get(@PathVariable("id") Long id) {
-        return roomService.get(id);
+    public ResponseEntity<RoomDto> get(@PathVariable("id") Long id, WebRequest request) {
+        String etag = roomService.etag(id);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(roomService.get(id));
+    }
+
+    /**
+     * USER: календарь номера за период (свободные и занятые отрезки) с ETag.
+     *
+     * <p>
+     * Cache-Control: no-cache — клиент хранит ответ и перепроверяет его через If-None-Match;
+     * если календарь не изменился, ответ — 304 без тела.
+     * </p>
+     *
+     * @param id   идентификатор номера
+     * @param from первая ночь (ISO-8601)
+     * @param to   конец периода, исключительно (ISO-8601), не дальше 366 дней от from
+     * @return календарь номера
+     */
+    @GetMapping("/{id}/calendar")
+    public ResponseEntity<RoomCalendarDto> calendar(
+            @PathVariable("id") Long id,
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        RoomCalendarDto calendar = roomService.calendar(id, from, to);
+        return ResponseEntity.ok()
+                .eTag(roomService.calendarEtag(calendar))
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(calendar);
     }
 
     /**
      * ADMIN: частично обновить номер.
      *
-     * @param id  идентификатор номера
-     * @param req запрос (number/available могут быть null)
-     * @return обновлённый номер
+     * @param id      идентификатор номера
+     * @param ifMatch ETag, прочитанный клиентом (необязательно): номер изменён после него — 412
+     * @param req     запрос (number/available могут быть null)
+     * @return обновлённый номер с новым ETag
      */
     @PatchMapping("/{id}")
-    public RoomDto patch(@PathVariable("id") Long id, @RequestBody UpdateRoomRequest req) {
-        return roomService.update(id, req);
+    public ResponseEntity<RoomDto> patch(
+            @PathVariable("id") Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody UpdateRoomRequest req
+    ) {
+        Tagged<RoomDto> updated = roomService.update(id, req, ifMatch);
+        return ResponseEntity.ok().eTag(updated.etag()).body(updated.body());
     }
 
     /**
      * ADMIN: удалить номер.
      *
      * @param id идентификатор номера
+     * @return сколько номеров, блокировок и строк агрегата удалено и за сколько пачек
      */
     @DeleteMapping("/{id}")
-    @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void delete(@PathVariable("id") Long id) {
-        roomService.delete(id);
+    public DeleteReport delete(@PathVariable("id") Long id) {
+        return roomService.delete(id);
     }
 
     /**
@@ -140,18 +322,66 @@ public class RoomController {
             @RequestParam("end") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate end
     ) {
         // Если отеля нет — хочу вернуть 404 заранее.
-        hotelService.getOrThrow(hotelId);
+        hotelService.requireExists(hotelId);
 
         return roomService.stats(hotelId, start, end);
     }
 
+    /**
+     * ADMIN: статистика загруженности номеров сразу по нескольким отелям (считаются параллельно).
+     *
+     * @param hotelIds идентификаторы отелей (до 100)
+     * @param start    дата начала (ISO-8601)
+     * @param end      дата окончания (ISO-8601)
+     * @return статистика по каждому отелю в порядке hotelIds
+     */
+    @GetMapping("/stats/hotels")
+    public List<HotelRoomStatsDto> statsForHotels(
+            @RequestParam("hotelIds") List<Long> hotelIds,
+            @RequestParam("start") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate start,
+            @RequestParam("end") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate end
+    ) {
+        return roomStatsReportService.stats(hotelIds, start, end);
+    }
+
+    /**
+     * ADMIN: сверить in-memory индекс доступности с таблицами rooms/room_locks.
+     *
+     * @return отчёт о расхождениях
+     */
+    @GetMapping("/index/consistency")
+    public AvailabilityIndexReport indexConsistency() {
+        return availabilityIndexSynchronizer.checkConsistency();
+    }
+
+    /**
+     * ADMIN: перестроить in-memory индекс доступности из БД.
+     *
+     * @return отчёт сверки после перестройки
+     */
+    @PostMapping("/index/rebuild")
+    public AvailabilityIndexReport rebuildIndex() {
+        availabilityIndexSynchronizer.rebuild();
+        return availabilityIndexSynchronizer.checkConsistency();
+    }
+
+    /**
+     * ADMIN: перенести завершившиеся блокировки в room_lock_history (то же делает ночное задание).
+     *
+     * @return сколько блокировок перенесено
+     */
+    @PostMapping("/archive")
+    public LockArchiveReport archiveLocks() {
+        return roomLockArchiveService.archive();
+    }
+
     /**
      * INTERNAL: подтвердить доступность номера на период (временная блокировка).
      *
      * @param id  идентификатор номера
-     * @param req запрос подтверждения доступности
+     * @param req запрос подтверждения доступности (JSON или Smile по Content-Type)
      */
-    @PostMapping("/{id}/confirm-availability")
+    @PostMapping(value = "/{id}/confirm-availability", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaTypes.APPLICATION_SMILE_VALUE})
     public void confirm(
             @PathVariable("id") Long id,
             @Valid @RequestBody ConfirmAvailabilityRequest req
@@ -161,6 +391,23 @@ public class RoomController {
         }
     }
 
+    /**
+     * INTERNAL: подтвердить hold бронирования (перед переводом брони в CONFIRMED).
+     * Истёкший или отсутствующий hold — 409.
+     *
+     * @param id        идентификатор номера
+     * @param bookingId идентификатор бронирования
+     */
+    @PostMapping("/{id}/commit")
+    public void commit(
+            @PathVariable("id") Long id,
+            @RequestParam("bookingId") String bookingId
+    ) {
+        try (MDC.MDCCloseable ignored = MDC.putCloseable("bookingUid", bookingId)) {
+            roomHoldService.commit(id, bookingId);
+        }
+    }
+
     /**
      * INTERNAL: компенсирующее действие — снять блокировку.
      *
@@ -176,4 +423,37 @@ public class RoomController {
             roomService.release(id, bookingId);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * INTERNAL: групповая блокировка номеров на одни даты (всё или ничего).
+     *
+     * @param req номера группы и период
+     * @return сколько блокировок создано и сколько requestId уже были обработаны
+     */
+    @PostMapping("/batch/confirm-availability")
+    public BatchConfirmResult confirmBatch(@Valid @RequestBody BatchConfirmAvailabilityRequest req) {
+        return roomBatchService.confirm(req);
+    }
+
+    /**
+     * INTERNAL: групповое снятие блокировок.
+     *
+     * @param req пары (номер, бронирование)
+     * @return сколько блокировок снято
+     */
+    @PostMapping("/batch/release")
+    public BatchReleaseResult releaseBatch(@Valid @RequestBody BatchReleaseRequest req) {
+        return roomBatchService.release(req);
+    }
+
+    /**
+     * INTERNAL: групповое подтверждение hold-ов (всё или ничего).
+     *
+     * @param req пары (номер, бронирование)
+     * @return сколько hold-ов подтверждено и сколько уже были подтверждены
+     */
+    @PostMapping("/batch/commit")
+    public BatchCommitResult commitBatch(@Valid @RequestBody BatchCommitRequest req) {
+        return roomHoldService.commit(req);
+    }
+}
@@ -0,0 +1,45 @@
+package ru.mifi.booking.hotelservice.dto;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Изменение доступности в потоке {@code GET /api/rooms/changes}.
+ *
+ * <p>
+ * Поля, не относящиеся к типу, равны null: у блокировок нет hotelId/available, у номеров — lockId и дат.
+ * </p>
+ *
+ * @param seq        номер изменения: строго растёт, в том числе между перезапусками сервиса
+ * @param type       тип изменения
+ * @param roomId     идентификатор номера
+ * @param hotelId    отель номера (ROOM_*)
+ * @param available  номер в продаже (ROOM_UPSERTED)
+ * @param lockId     идентификатор блокировки (LOCK_*)
+ * @param startDate  начало блокировки (LOCK_*)
+ * @param endDate    конец блокировки, исключительно (LOCK_*)
+ * @param expiresAt  срок hold-а для LOCK_CREATED (null — блокировка не истекает)
+ * @param occurredAt когда изменение закоммичено
+ */
+public record AvailabilityChangeDto(
+        long seq,
+        Type type,
+        Long roomId,
+        Long hotelId,
+        Boolean available,
+        Long lockId,
+        LocalDate startDate,
+        LocalDate endDate,
+        Instant expiresAt,
+        Instant occurredAt
+) {
+
+    public enum Type {
+        LOCK_CREATED,
+        /** Hold подтверждён: ночи по-прежнему заняты, но срока больше нет. */
+        LOCK_COMMITTED,
+        LOCK_RELEASED,
+        ROOM_UPSERTED,
+        ROOM_DELETED
+    }
+}
@@ -0,0 +1,22 @@
+package ru.mifi.booking.hotelservice.dto;
+
+import java.util.List;
+
+/**
+ * Результат сверки in-memory индекса доступности с таблицами rooms/room_locks.
+ *
+ * @param consistent   true, если расхождений нет
+ * @param roomsInDb    количество номеров в БД
+ * @param roomsInIndex количество номеров в индексе
+ * @param locksInDb    количество блокировок в БД
+ * @param locksInIndex количество интервалов в индексе
+ * @param mismatches   первые найденные расхождения (список ограничен)
+ */
+public record AvailabilityIndexReport(
+        boolean consistent,
+        long roomsInDb,
+        long roomsInIndex,
+        long locksInDb,
+        long locksInIndex,
+        List<String> mismatches
+) {}
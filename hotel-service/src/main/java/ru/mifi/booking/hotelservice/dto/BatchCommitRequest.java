@@ -0,0 +1,24 @@
+package ru.mifi.booking.hotelservice.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * Запрос на групповое подтверждение hold-ов (групповая бронь перед переводом в CONFIRMED).
+ *
+ * @param rooms пары (номер, бронирование)
+ */
+public record BatchCommitRequest(
+        @NotEmpty @Size(max = 100) List<@Valid @NotNull Item> rooms
+) {
+
+    public record Item(
+            @NotNull Long roomId,
+            @NotBlank String bookingId
+    ) {}
+}
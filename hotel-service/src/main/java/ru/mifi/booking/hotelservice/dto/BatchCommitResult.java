@@ -0,0 +1,12 @@
+package ru.mifi.booking.hotelservice.dto;
+
+/**
+ * Результат группового подтверждения hold-ов.
+ *
+ * @param committed        сколько hold-ов подтверждено этим вызовом
+ * @param alreadyCommitted сколько блокировок уже были подтверждены раньше (идемпотентный повтор)
+ */
+public record BatchCommitResult(
+        int committed,
+        int alreadyCommitted
+) {}
@@ -0,0 +1,30 @@
+package ru.mifi.booking.hotelservice.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Запрос на групповую блокировку номеров на одни даты (всё или ничего).
+ *
+ * @param startDate начало периода
+ * @param endDate   конец периода (исключительно)
+ * @param rooms     номера группы; у каждого свой bookingId и requestId (идемпотентность — по requestId)
+ */
+public record BatchConfirmAvailabilityRequest(
+        @NotNull LocalDate startDate,
+        @NotNull LocalDate endDate,
+        @NotEmpty @Size(max = 100) List<@Valid @NotNull Item> rooms
+) {
+
+    public record Item(
+            @NotNull Long roomId,
+            @NotBlank String bookingId,
+            @NotBlank String requestId
+    ) {}
+}
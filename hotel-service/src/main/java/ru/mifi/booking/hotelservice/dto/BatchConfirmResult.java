@@ -0,0 +1,12 @@
+package ru.mifi.booking.hotelservice.dto;
+
+/**
+ * Результат групповой блокировки.
+ *
+ * @param created          сколько блокировок создано этим вызовом
+ * @param alreadyConfirmed сколько requestId уже были обработаны раньше (идемпотентный повтор)
+ */
+public record BatchConfirmResult(
+        int created,
+        int alreadyConfirmed
+) {}
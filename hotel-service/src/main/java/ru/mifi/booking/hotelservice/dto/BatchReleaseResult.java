@@ -0,0 +1,10 @@
+package ru.mifi.booking.hotelservice.dto;
+
+/**
+ * Результат группового снятия блокировок.
+ *
+ * @param released сколько блокировок снято (отсутствующие bookingId пропускаются, как и в одиночном release)
+ */
+public record BatchReleaseResult(
+        int released
+) {}
@@ -0,0 +1,16 @@
+package ru.mifi.booking.hotelservice.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Отрезок календаря номера: nights ночей подряд с одинаковым состоянием.
+ *
+ * @param start  первая ночь отрезка
+ * @param nights длина отрезка в ночах
+ * @param free   true — номер свободен, false — занят бронированием или hold-ом
+ */
+public record CalendarSpanDto(
+        LocalDate start,
+        int nights,
+        boolean free
+) {}
@@ -0,0 +1,30 @@
+package ru.mifi.booking.hotelservice.dto;
+
+/**
+ * Одна строка импорта каталога (NDJSON-объект или строка CSV с теми же именами колонок в заголовке).
+ *
+ * <p>
+ * Отель: {@code {"type":"hotel","ref":"grand","name":"Grand","address":"Moscow, Tverskaya 1"}}.
+ * Номер: {@code {"type":"room","hotelRef":"grand","number":"101","available":true}} —
+ * отель задаётся ref-ом из этого же импорта (строкой выше) или id уже существующего отеля ({@code hotelId}).
+ * </p>
+ *
+ * @param type      hotel или room
+ * @param ref       ключ отеля внутри импорта (для hotel, необязательно)
+ * @param name      название отеля
+ * @param address   адрес отеля
+ * @param hotelRef  ref отеля из этого импорта (для room)
+ * @param hotelId   id существующего отеля (для room)
+ * @param number    номер комнаты
+ * @param available доступен ли номер (по умолчанию true)
+ */
+public record CatalogImportLine(
+        String type,
+        String ref,
+        String name,
+        String address,
+        String hotelRef,
+        Long hotelId,
+        String number,
+        Boolean available
+) {}
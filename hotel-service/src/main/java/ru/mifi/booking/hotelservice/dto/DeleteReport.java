@@ -0,0 +1,20 @@
+package ru.mifi.booking.hotelservice.dto;
+
+/**
+ * Результат удаления отеля или номера со всеми зависимыми строками.
+ *
+ * @param rooms          сколько номеров удалено
+ * @param locks          сколько блокировок удалено из room_locks (их ночи room_nights — каскадом)
+ * @param archivedLocks  сколько блокировок удалено из room_lock_history
+ * @param occupancyRows  сколько строк агрегата hotel_night_occupancy удалено
+ * @param batches        сколько пачек (транзакций) понадобилось
+ * @param durationMs     сколько длилось удаление
+ */
+public record DeleteReport(
+        int rooms,
+        long locks,
+        long archivedLocks,
+        int occupancyRows,
+        int batches,
+        long durationMs
+) {}
@@ -0,0 +1,15 @@
+package ru.mifi.booking.hotelservice.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Номер и даты заезда, на которые он свободен на всё проживание.
+ *
+ * @param room       номер
+ * @param startDates даты заезда по возрастанию (выезд — через nights ночей, не позже конца окна)
+ */
+public record FlexibleRoomDto(
+        RoomDto room,
+        List<LocalDate> startDates
+) {}
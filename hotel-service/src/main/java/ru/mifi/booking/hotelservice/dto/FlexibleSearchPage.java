@@ -0,0 +1,16 @@
+package ru.mifi.booking.hotelservice.dto;
+
+import java.util.List;
+
+/**
+ * Страница поиска «N ночей в любые даты окна» (keyset по id номера, как {@link RoomSearchPage}).
+ *
+ * @param items      номера страницы, у которых есть хотя бы одна дата заезда (по возрастанию id)
+ * @param nextCursor непрозрачный курсор следующей страницы (null, если страниц больше нет)
+ * @param hasMore    есть ли ещё номера после этой страницы
+ */
+public record FlexibleSearchPage(
+        List<FlexibleRoomDto> items,
+        String nextCursor,
+        boolean hasMore
+) {}
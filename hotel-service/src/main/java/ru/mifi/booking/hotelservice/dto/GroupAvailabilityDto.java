@@ -0,0 +1,14 @@
+package ru.mifi.booking.hotelservice.dto;
+
+import java.util.List;
+
+/**
+ * Отель, в котором на период свободно не меньше запрошенного числа номеров.
+ *
+ * @param hotelId идентификатор отеля
+ * @param roomIds ровно rooms свободных номеров-кандидатов (наименьшие id), их можно сразу передать в batch/confirm-availability
+ */
+public record GroupAvailabilityDto(
+        Long hotelId,
+        List<Long> roomIds
+) {}
@@ -0,0 +1,16 @@
+package ru.mifi.booking.hotelservice.dto;
+
+import java.util.List;
+
+/**
+ * Страница поиска «k номеров в одном отеле» (keyset по id отеля).
+ *
+ * @param items      подходящие отели страницы (по возрастанию id)
+ * @param nextCursor непрозрачный курсор следующей страницы (null, если страниц больше нет)
+ * @param hasMore    есть ли ещё отели после этой страницы
+ */
+public record GroupSearchPage(
+        List<GroupAvailabilityDto> items,
+        String nextCursor,
+        boolean hasMore
+) {}
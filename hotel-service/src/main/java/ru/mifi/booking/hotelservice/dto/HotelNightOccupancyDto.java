@@ -0,0 +1,14 @@
+package ru.mifi.booking.hotelservice.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Загрузка отеля в одну ночь: номеров в продаже, занято и свободно из них, сколько снято с продажи.
+ */
+public record HotelNightOccupancyDto(
+        LocalDate night,
+        long totalRooms,
+        long occupiedRooms,
+        long freeRooms,
+        long offSaleRooms
+) {}
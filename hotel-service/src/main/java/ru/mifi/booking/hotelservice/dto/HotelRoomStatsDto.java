@@ -0,0 +1,11 @@
+package ru.mifi.booking.hotelservice.dto;
+
+import java.util.List;
+
+/**
+ * Статистика загруженности номеров одного отеля за период (отчёт по нескольким отелям).
+ */
+public record HotelRoomStatsDto(
+        Long hotelId,
+        List<RoomStatsDto> rooms
+) {}
@@ -0,0 +1,11 @@
+package ru.mifi.booking.hotelservice.dto;
+
+/**
+ * Версия списка отелей для условного GET: агрегат по таблице без чтения строк в приложение.
+ * Создание и удаление меняют count/idSum (id из последовательности не повторяются), правка — versionSum.
+ */
+public record HotelsVersionDto(
+        long count,
+        long idSum,
+        long versionSum
+) {}
@@ -0,0 +1,12 @@
+package ru.mifi.booking.hotelservice.dto;
+
+/**
+ * Строка импорта, которая не попала в каталог.
+ *
+ * @param line    номер строки во входных данных (с 1, включая заголовок CSV)
+ * @param message причина
+ */
+public record ImportLineError(
+        long line,
+        String message
+) {}
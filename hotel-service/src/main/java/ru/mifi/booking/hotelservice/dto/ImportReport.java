@@ -0,0 +1,26 @@
+package ru.mifi.booking.hotelservice.dto;
+
+import java.util.List;
+
+/**
+ * Итог импорта каталога.
+ *
+ * @param lines           сколько непустых строк данных прочитано
+ * @param hotels          сколько отелей создано
+ * @param rooms           сколько номеров создано
+ * @param failedLines     сколько строк не импортировано
+ * @param errors          ошибки по строкам (не больше {@code hotel.import.max-errors})
+ * @param errorsTruncated true, если ошибок больше, чем вошло в список
+ * @param batches         сколько пачек записано (транзакция на пачку)
+ * @param durationMs      сколько занял импорт
+ */
+public record ImportReport(
+        long lines,
+        int hotels,
+        long rooms,
+        long failedLines,
+        List<ImportLineError> errors,
+        boolean errorsTruncated,
+        int batches,
+        long durationMs
+) {}
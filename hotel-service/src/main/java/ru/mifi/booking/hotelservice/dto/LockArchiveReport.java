@@ -0,0 +1,18 @@
+package ru.mifi.booking.hotelservice.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Результат переноса завершившихся блокировок в архив.
+ *
+ * @param cutoff     перенесены блокировки с end_date не позже этой даты
+ * @param archived   сколько блокировок перенесено
+ * @param batches    сколько пачек (транзакций) понадобилось
+ * @param durationMs сколько длился перенос
+ */
+public record LockArchiveReport(
+        LocalDate cutoff,
+        int archived,
+        int batches,
+        long durationMs
+) {}
@@ -0,0 +1,14 @@
+package ru.mifi.booking.hotelservice.dto;
+
+/**
+ * Результат пересчёта агрегата загрузки отелей.
+ *
+ * @param hotels     в скольких отелях агрегат разошёлся с room_nights и был пересчитан
+ * @param rows       сколько строк (отель, ночь) получилось в этих отелях
+ * @param durationMs сколько длился пересчёт
+ */
+public record OccupancyRebuildReport(
+        int hotels,
+        int rows,
+        long durationMs
+) {}
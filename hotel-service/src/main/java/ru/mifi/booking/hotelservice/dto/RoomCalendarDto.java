@@ -0,0 +1,21 @@
+package ru.mifi.booking.hotelservice.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Календарь занятости номера за период в run-length виде.
+ *
+ * @param roomId    идентификатор номера
+ * @param available номер в продаже (если false, свободные ночи всё равно нельзя забронировать)
+ * @param from      первая ночь периода
+ * @param to        конец периода (исключительно)
+ * @param spans     отрезки по возрастанию, покрывают [from, to) без промежутков
+ */
+public record RoomCalendarDto(
+        Long roomId,
+        boolean available,
+        LocalDate from,
+        LocalDate to,
+        List<CalendarSpanDto> spans
+) {}
@@ -0,0 +1,21 @@
+package ru.mifi.booking.hotelservice.dto;
+
+import java.util.List;
+
+/**
+ * Страница поиска свободных номеров (keyset-пагинация).
+ *
+ * <p>
+ * Общего количества нет намеренно: его подсчёт стоит столько же, сколько полный поиск.
+ * Для следующей страницы клиент передаёт {@code nextCursor} как есть.
+ * </p>
+ *
+ * @param items      номера текущей страницы (по возрастанию id)
+ * @param nextCursor непрозрачный курсор следующей страницы (null, если страниц больше нет)
+ * @param hasMore    есть ли ещё номера после этой страницы
+ */
+public record RoomSearchPage(
+        List<RoomDto> items,
+        String nextCursor,
+        boolean hasMore
+) {}
@@ -0,0 +1,9 @@
+package ru.mifi.booking.hotelservice.dto;
+
+/**
+ * Версия номера для условного GET: версия сущности и сохранённый timesBooked (без загрузки номера).
+ */
+public record RoomVersionDto(
+        long version,
+        long timesBooked
+) {}
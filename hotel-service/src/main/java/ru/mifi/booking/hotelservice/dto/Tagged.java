@@ -0,0 +1,12 @@
+package ru.mifi.booking.hotelservice.dto;
+
+/**
+ * Ответ вместе с его ETag (версией, на которой он прочитан или записан).
+ *
+ * @param body ответ
+ * @param etag ETag в кавычках, как в заголовке
+ */
+public record Tagged<T>(
+        T body,
+        String etag
+) {}
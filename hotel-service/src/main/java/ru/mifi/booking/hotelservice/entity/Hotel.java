@@ -7,11 +7,25 @@ import jakarta.persistence.*;
  * В этом сервисе отель — справочник (имя + адрес).
  */
 @Entity
-@Table(name = "hotels")
+@Table(
+        name = "hotels",
+        indexes = {
+                // Фильтр поиска по городу: префикс адреса.
+                @Index(name = "idx_hotel_address", columnList = "address")
+        }
+)
 public class Hotel {
 
+    /**
+     * Последовательность id: pooled-оптимизатор Hibernate берёт по {@value #ID_ALLOCATION_SIZE} id за обращение,
+     * поэтому вставки можно батчить (с IDENTITY id известен только после INSERT). Тем же блокам следует импорт.
+     */
+    public static final String ID_SEQUENCE = "hotels_seq";
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     /** Название отеля. */
@@ -22,6 +36,14 @@ public class Hotel {
     @Column(nullable = false)
     private String address;
 
+    /**
+     * Версия для оптимистической блокировки: растёт при каждом UPDATE, из неё строится ETag.
+     * Правки админов не держат строку под SELECT FOR UPDATE — устаревшее изменение получает 412/409.
+     */
+    @Version
+    @Column(nullable = false)
+    private long version;
+
     public Hotel() {}
 
     public Hotel(Long id, String name, String address) {
@@ -33,6 +55,7 @@ public class Hotel {
     public Long getId() { return id; }
     public String getName() { return name; }
     public String getAddress() { return address; }
+    public long getVersion() { return version; }
 
     public void setId(Long id) { this.id = id; }
     public void setName(String name) { this.name = name; }
@@ -0,0 +1,35 @@
+package ru.mifi.booking.hotelservice.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * Материализованный агрегат: сколько номеров отеля занято в ночь.
+ *
+ * <p>
+ * Строки пишутся и читаются только JDBC (см. {@code HotelNightOccupancyJdbcRepository}); сущность нужна ради схемы.
+ * Счётчик меняется в той же транзакции, что и room_locks/room_nights, а полный пересчёт делает
+ * {@code HotelOccupancyService#rebuild}. FK на hotels нет: строки отеля удаляются явно при его удалении,
+ * а rebuild всё равно пересчитывает все ночи с сегодняшней.
+ * </p>
+ */
+@Entity
+@Table(name = "hotel_night_occupancy")
+public class HotelNightOccupancy {
+
+    @EmbeddedId
+    private HotelNightOccupancyId id;
+
+    /** Число номеров отеля с блокировкой на эту ночь. */
+    @Column(name = "occupied_rooms", nullable = false)
+    private int occupiedRooms;
+
+    public HotelNightOccupancy() {}
+
+    public HotelNightOccupancy(HotelNightOccupancyId id, int occupiedRooms) {
+        this.id = id;
+        this.occupiedRooms = occupiedRooms;
+    }
+
+    public HotelNightOccupancyId getId() { return id; }
+    public int getOccupiedRooms() { return occupiedRooms; }
+}
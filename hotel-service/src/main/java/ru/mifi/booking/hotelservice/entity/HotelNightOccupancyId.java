@@ -0,0 +1,48 @@
+package ru.mifi.booking.hotelservice.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Ключ строки агрегата загрузки: (hotel_id, night).
+ */
+@Embeddable
+public class HotelNightOccupancyId implements Serializable {
+
+    @Column(name = "hotel_id", nullable = false)
+    private Long hotelId;
+
+    /** Ночь, начинающаяся в эту дату. */
+    @Column(name = "night", nullable = false)
+    private LocalDate night;
+
+    public HotelNightOccupancyId() {}
+
+    public HotelNightOccupancyId(Long hotelId, LocalDate night) {
+        this.hotelId = hotelId;
+        this.night = night;
+    }
+
+    public Long getHotelId() { return hotelId; }
+    public LocalDate getNight() { return night; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof HotelNightOccupancyId other)) {
+            return false;
+        }
+        return Objects.equals(hotelId, other.hotelId) && Objects.equals(night, other.night);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(hotelId, night);
+    }
+}
@@ -1,17 +1,33 @@
 package ru.mifi.booking.hotelservice.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.DynamicUpdate;
 
 /**
  * Сущность номера.
  * timesBooked — метрика "справедливости" для /rooms/recommend (меньше бронирований — выше приоритет).
+ * Её пишет в фоне {@code TimesBookedCounter}, поэтому UPDATE сущности содержит только изменённые колонки:
+ * PATCH номера не должен затереть times_booked значением, прочитанным до очередной записи счётчика.
  */
 @Entity
-@Table(name = "rooms")
+@DynamicUpdate
+@Table(
+        name = "rooms",
+        indexes = {
+                // Keyset-поиск свободных номеров: фильтр available + порядок по id.
+                @Index(name = "idx_room_available_id", columnList = "available, id"),
+                @Index(name = "idx_room_hotel_available_id", columnList = "hotel_id, available, id")
+        }
+)
 public class Room {
 
+    /** Последовательность id блоками, как у {@link Hotel}: батч-вставки номеров (в том числе импорт). */
+    public static final String ID_SEQUENCE = "rooms_seq";
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     /** Отель-владелец номера. */
@@ -31,6 +47,14 @@ public class Room {
     @Column(name = "times_booked", nullable = false)
     private long timesBooked = 0;
 
+    /**
+     * Версия для оптимистической блокировки и ETag, как у {@link Hotel}. Запись times_booked счётчиком идёт
+     * JDBC-запросом мимо неё: счётчик не конфликтует с PATCH (см. {@code @DynamicUpdate}).
+     */
+    @Version
+    @Column(nullable = false)
+    private long version;
+
     public Room() {}
 
     public Room(Long id, Hotel hotel, String number, boolean available, long timesBooked) {
@@ -46,6 +70,7 @@ public class Room {
     public String getNumber() { return number; }
     public boolean isAvailable() { return available; }
     public long getTimesBooked() { return timesBooked; }
+    public long getVersion() { return version; }
 
     public void setId(Long id) { this.id = id; }
     public void setHotel(Hotel hotel) { this.hotel = hotel; }
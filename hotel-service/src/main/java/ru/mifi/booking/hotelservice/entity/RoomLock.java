@@ -2,20 +2,29 @@ package ru.mifi.booking.hotelservice.entity;
 
 import jakarta.persistence.*;
 
+import java.time.Instant;
 import java.time.LocalDate;
 
 /**
  * Временная блокировка номера под бронирование (часть саги).
  * bookingId — корреляция между сервисами.
  * requestId — идемпотентность (повторный confirm с тем же requestId не должен создавать дубль).
+ * expiresAt — срок неподтверждённого удержания (hold): confirm создаёт hold, commit обнуляет срок.
+ * Истёкший hold не занимает номер, даже пока его строку не удалил reaper.
+ * Подтверждённые блокировки прошедших проживаний переносятся в {@link RoomLockHistory}.
  */
 @Entity
 @Table(
         name = "room_locks",
         indexes = {
-                @Index(name = "idx_room_lock_room", columnList = "room_id"),
+                // Составной индекс под anti-join поиска свободных номеров и проверку пересечений по room_id.
+                @Index(name = "idx_room_lock_room_dates", columnList = "room_id, start_date, end_date"),
                 @Index(name = "idx_room_lock_booking", columnList = "booking_id", unique = true),
-                @Index(name = "idx_room_lock_request", columnList = "request_id", unique = true)
+                @Index(name = "idx_room_lock_request", columnList = "request_id", unique = true),
+                // Reaper выбирает истёкшие hold-ы диапазоном по этому индексу (подтверждённые — NULL).
+                @Index(name = "idx_room_lock_expires_at", columnList = "expires_at"),
+                // Архивное задание выбирает завершившиеся блокировки диапазоном по дате выезда.
+                @Index(name = "idx_room_lock_end_date", columnList = "end_date")
         }
 )
 public class RoomLock {
@@ -41,6 +50,10 @@ public class RoomLock {
     @Column(name = "request_id", nullable = false, unique = true)
     private String requestId;
 
+    /** Срок удержания; null — блокировка подтверждена (commit) и не истекает. */
+    @Column(name = "expires_at")
+    private Instant expiresAt;
+
     public RoomLock() {}
 
     public RoomLock(Long id, Room room, LocalDate startDate, LocalDate endDate, String bookingId, String requestId) {
@@ -52,12 +65,19 @@ public class RoomLock {
         this.requestId = requestId;
     }
 
+    public RoomLock(Long id, Room room, LocalDate startDate, LocalDate endDate, String bookingId, String requestId,
+                    Instant expiresAt) {
+        this(id, room, startDate, endDate, bookingId, requestId);
+        this.expiresAt = expiresAt;
+    }
+
     public Long getId() { return id; }
     public Room getRoom() { return room; }
     public LocalDate getStartDate() { return startDate; }
     public LocalDate getEndDate() { return endDate; }
     public String getBookingId() { return bookingId; }
     public String getRequestId() { return requestId; }
+    public Instant getExpiresAt() { return expiresAt; }
 
     public void setId(Long id) { this.id = id; }
     public void setRoom(Room room) { this.room = room; }
@@ -65,5 +85,6 @@ public class RoomLock {
     public void setEndDate(LocalDate endDate) { this.endDate = endDate; }
     public void setBookingId(String bookingId) { this.bookingId = bookingId; }
     public void setRequestId(String requestId) { this.requestId = requestId; }
+    public void setExpiresAt(Instant expiresAt) { this.expiresAt = expiresAt; }
 }
 
@@ -0,0 +1,63 @@
+package ru.mifi.booking.hotelservice.entity;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Архив завершившихся блокировок (end_date в прошлом).
+ *
+ * <p>
+ * room_locks только растёт, а поиск, проверка пересечений и статистика ходят в неё по room_id и датам.
+ * Поэтому подтверждённые блокировки прошедших проживаний переносятся сюда фоновым заданием
+ * ({@code RoomLockArchiveService}), а ночи в room_nights удаляются вместе со строкой room_locks.
+ * id сохраняется прежним. FK на rooms нет: удаление номера не стирает его историю; история отеля удаляется вместе с отелем.
+ * </p>
+ */
+@Entity
+@Table(
+        name = "room_lock_history",
+        indexes = {
+                // Статистика за прошлые периоды: диапазон по отелю и дате выезда.
+                @Index(name = "idx_room_lock_history_hotel_end", columnList = "hotel_id, end_date"),
+                @Index(name = "idx_room_lock_history_room", columnList = "room_id")
+        }
+)
+public class RoomLockHistory {
+
+    @Id
+    private Long id;
+
+    @Column(name = "room_id", nullable = false)
+    private Long roomId;
+
+    @Column(name = "hotel_id", nullable = false)
+    private Long hotelId;
+
+    @Column(name = "start_date", nullable = false)
+    private LocalDate startDate;
+
+    @Column(name = "end_date", nullable = false)
+    private LocalDate endDate;
+
+    @Column(name = "booking_id", nullable = false)
+    private String bookingId;
+
+    @Column(name = "request_id", nullable = false)
+    private String requestId;
+
+    @Column(name = "archived_at", nullable = false)
+    private Instant archivedAt;
+
+    public RoomLockHistory() {}
+
+    public Long getId() { return id; }
+    public Long getRoomId() { return roomId; }
+    public Long getHotelId() { return hotelId; }
+    public LocalDate getStartDate() { return startDate; }
+    public LocalDate getEndDate() { return endDate; }
+    public String getBookingId() { return bookingId; }
+    public String getRequestId() { return requestId; }
+    public Instant getArchivedAt() { return archivedAt; }
+}
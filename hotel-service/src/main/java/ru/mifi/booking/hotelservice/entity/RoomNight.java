@@ -0,0 +1,44 @@
+package ru.mifi.booking.hotelservice.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+/**
+ * Занятая ночь номера — одна строка на (room_id, night).
+ *
+ * <p>
+ * {@link RoomLock} остаётся "шапкой" блокировки (bookingId/requestId/период), а ночи пишутся JDBC-батчем
+ * при её создании (см. {@code RoomNightJdbcRepository}). Первичный ключ (room_id, night) не даёт БД
+ * записать две блокировки на одну ночь, а пересечение периодов превращается в индексный диапазон по night.
+ * Ночи удаляются вместе с блокировкой: FK lock_id с ON DELETE CASCADE.
+ * </p>
+ */
+@Entity
+@Table(
+        name = "room_nights",
+        indexes = {
+                @Index(name = "idx_room_night_lock", columnList = "lock_id")
+        }
+)
+public class RoomNight {
+
+    @EmbeddedId
+    private RoomNightId id;
+
+    /** Блокировка, которой принадлежит ночь. */
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "lock_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private RoomLock lock;
+
+    public RoomNight() {}
+
+    public RoomNight(RoomNightId id, RoomLock lock) {
+        this.id = id;
+        this.lock = lock;
+    }
+
+    public RoomNightId getId() { return id; }
+    public RoomLock getLock() { return lock; }
+}
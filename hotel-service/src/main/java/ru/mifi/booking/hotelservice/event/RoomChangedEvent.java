@@ -0,0 +1,20 @@
+package ru.mifi.booking.hotelservice.event;
+
+import ru.mifi.booking.hotelservice.dto.RoomDto;
+
+/**
+ * Доменное событие: номер добавлен/изменён или удалён.
+ *
+ * @param type тип изменения
+ * @param room состояние номера после изменения (для DELETED — последнее известное)
+ */
+public record RoomChangedEvent(
+        Type type,
+        RoomDto room
+) {
+
+    public enum Type {
+        UPSERTED,
+        DELETED
+    }
+}
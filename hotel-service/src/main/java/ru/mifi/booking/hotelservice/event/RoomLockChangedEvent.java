@@ -0,0 +1,37 @@
+package ru.mifi.booking.hotelservice.event;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Доменное событие: блокировка номера создана, подтверждена (hold → commit), снята или перенесена в архив.
+ *
+ * <p>
+ * Публикуется из {@code RoomService} внутри транзакции, а слушатели получают его
+ * через {@code @TransactionalEventListener} только после успешного commit.
+ * </p>
+ *
+ * @param type      тип изменения
+ * @param lockId    идентификатор блокировки
+ * @param roomId    идентификатор номера
+ * @param startDate начало блокировки (включительно)
+ * @param endDate   конец блокировки (исключительно)
+ * @param expiresAt срок удержания для CREATED (null — блокировка не истекает)
+ */
+public record RoomLockChangedEvent(
+        Type type,
+        Long lockId,
+        Long roomId,
+        LocalDate startDate,
+        LocalDate endDate,
+        Instant expiresAt
+) {
+
+    public enum Type {
+        CREATED,
+        COMMITTED,
+        RELEASED,
+        /** Перенесена в room_lock_history: номер на её (прошедшие) ночи свободен, timesBooked не меняется. */
+        ARCHIVED
+    }
+}
@@ -0,0 +1,19 @@
+package ru.mifi.booking.hotelservice.event;
+
+import ru.mifi.booking.hotelservice.dto.RoomDto;
+
+import java.util.List;
+
+/**
+ * Доменное событие: пачка номеров добавлена импортом каталога.
+ *
+ * <p>
+ * Одно событие на пачку вместо {@link RoomChangedEvent} на номер: слушатель после commit
+ * добавляет все номера в индекс и сбрасывает кэш поиска один раз.
+ * </p>
+ *
+ * @param rooms добавленные номера
+ */
+public record RoomsImportedEvent(
+        List<RoomDto> rooms
+) {}
@@ -8,6 +8,7 @@ import org.slf4j.MDC;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 //import org.springframework.security.access.AccessDeniedException;
 //import org.springframework.security.core.AuthenticationException;
@@ -43,7 +44,9 @@ public class GlobalExceptionHandler {
         }
 
         ErrorDto dto = buildDto(status, resolveErrorCode(ex), ex.getMessage(), request);
-        return ResponseEntity.status(status).body(dto);
+        // Тип задаю явно: SSE-клиент (/api/rooms/changes) принимает только text/event-stream,
+        // и без этого ошибка подписки (503) потерялась бы на согласовании формата.
+        return ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON).body(dto);
     }
 
     /**
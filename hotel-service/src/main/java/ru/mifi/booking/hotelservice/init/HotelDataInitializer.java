@@ -4,6 +4,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 import ru.mifi.booking.hotelservice.entity.Hotel;
@@ -24,9 +25,11 @@ import java.util.List;
  * <p>
  * Данные добавляю только если база пустая.
  * Для H2 in-memory это означает — "каждый запуск будет с демо-данными".
+ * С профилем {@code dataset} вместо них грузится синтетический набор ({@link SyntheticDataLoader}).
  * </p>
  */
 @Component
+@Profile("!dataset")
 public class HotelDataInitializer implements ApplicationRunner {
 
     private static final Logger log = LoggerFactory.getLogger(HotelDataInitializer.class);
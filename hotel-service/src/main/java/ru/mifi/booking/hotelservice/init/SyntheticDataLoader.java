@@ -0,0 +1,174 @@
+package ru.mifi.booking.hotelservice.init;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.mifi.booking.common.dataset.DatasetSpec;
+import ru.mifi.booking.common.dataset.SyntheticBooking;
+import ru.mifi.booking.common.dataset.SyntheticDataset;
+import ru.mifi.booking.common.dataset.SyntheticHotel;
+import ru.mifi.booking.common.dataset.SyntheticRoom;
+import ru.mifi.booking.hotelservice.availability.LockSpan;
+import ru.mifi.booking.hotelservice.repository.RoomNightJdbcRepository;
+import ru.mifi.booking.hotelservice.repository.SyntheticDatasetJdbcRepository;
+
+import java.sql.Date;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Загрузка синтетического набора вместо демо-отелей (профиль {@code dataset}).
+ *
+ * <p>
+ * Профиль набора задаётся в {@code dataset.*} и должен совпадать с booking-service: тогда брони там и блокировки
+ * здесь сходятся по bookingUid, номеру и датам. Брони с выездом не позже сегодняшнего дня ложатся сразу
+ * в room_lock_history, остальные — подтверждёнными блокировками с ночами в room_nights.
+ * </p>
+ *
+ * <p>
+ * Пишу JDBC-батчами по {@code dataset.batch-size} строк, транзакция на пачку. Индекс доступности,
+ * агрегат загрузки и timesBooked строятся из БД на старте приложения, уже после загрузки.
+ * Как и демо-данные, набор грузится только в пустую базу.
+ * </p>
+ */
+@Component
+@Profile("dataset")
+public class SyntheticDataLoader implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(SyntheticDataLoader.class);
+
+    private final SyntheticDatasetJdbcRepository datasetRepository;
+    private final RoomNightJdbcRepository roomNightRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final DatasetSpec spec;
+    private final int batchSize;
+
+    public SyntheticDataLoader(
+            SyntheticDatasetJdbcRepository datasetRepository,
+            RoomNightJdbcRepository roomNightRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${dataset.seed:42}") long seed,
+            @Value("${dataset.hotels:100}") int hotels,
+            @Value("${dataset.rooms-per-hotel:50}") int roomsPerHotel,
+            @Value("${dataset.bookings:50000}") long bookings,
+            @Value("${dataset.users:1000}") int users,
+            @Value("${dataset.past-days:180}") int pastDays,
+            @Value("${dataset.future-days:180}") int futureDays,
+            @Value("${dataset.skew:1.0}") double skew,
+            @Value("${dataset.base-date:}") String baseDate,
+            @Value("${dataset.batch-size:5000}") int batchSize
+    ) {
+        this.datasetRepository = datasetRepository;
+        this.roomNightRepository = roomNightRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.spec = new DatasetSpec(seed, hotels, roomsPerHotel, bookings, users, pastDays, futureDays, skew,
+                baseDate.isBlank() ? LocalDate.now() : LocalDate.parse(baseDate));
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (datasetRepository.hasHotels()) {
+            log.info("Hotels already exist. Skipping synthetic dataset.");
+            return;
+        }
+        long startedAt = System.nanoTime();
+        Batch batch = new Batch(LocalDate.now(), Instant.now());
+        new SyntheticDataset(spec).forEachHotel(hotel -> {
+            batch.add(hotel);
+            if (batch.rows >= batchSize) {
+                batch.flush();
+            }
+        });
+        batch.flush();
+        datasetRepository.restartIds(spec.hotels(), spec.rooms(), batch.lastLockId);
+
+        long ms = Math.max((System.nanoTime() - startedAt) / 1_000_000, 1);
+        log.info("Synthetic dataset loaded in {} ms: {} hotels, {} rooms, {} room locks ({} nights), {} archived locks; {}",
+                ms, spec.hotels(), spec.rooms(), batch.lockCount, batch.nights, batch.archived, spec);
+    }
+
+    /**
+     * Строки очередной пачки и итоговые счётчики.
+     */
+    private final class Batch {
+
+        private final LocalDate today;
+        private final Instant archivedAt;
+        private final List<Object[]> hotels = new ArrayList<>();
+        private final List<Object[]> rooms = new ArrayList<>();
+        private final List<Object[]> locks = new ArrayList<>();
+        private final List<LockSpan> spans = new ArrayList<>();
+        private final List<Object[]> history = new ArrayList<>();
+        private int rows;
+        private long lastLockId;
+        private long lockCount;
+        private long nights;
+        private long archived;
+
+        private Batch(LocalDate today, Instant archivedAt) {
+            this.today = today;
+            this.archivedAt = archivedAt;
+        }
+
+        private void add(SyntheticHotel hotel) {
+            hotels.add(new Object[]{hotel.id(), hotel.name(), hotel.address()});
+            for (SyntheticRoom room : hotel.rooms()) {
+                rooms.add(new Object[]{room.id(), room.hotelId(), room.number(), room.bookings().size()});
+                for (SyntheticBooking booking : room.bookings()) {
+                    addBooking(room, booking);
+                }
+            }
+            rows += 1 + hotel.rooms().size();
+        }
+
+        private void addBooking(SyntheticRoom room, SyntheticBooking booking) {
+            Date start = Date.valueOf(booking.startDate());
+            Date end = Date.valueOf(booking.endDate());
+            if (booking.endDate().isAfter(today)) {
+                locks.add(new Object[]{booking.id(), room.id(), start, end, booking.bookingUid(), booking.requestId()});
+                spans.add(new LockSpan(booking.id(), room.id(), booking.startDate(), booking.endDate()));
+                long lockNights = booking.endDate().toEpochDay() - booking.startDate().toEpochDay();
+                lockCount++;
+                nights += lockNights;
+                rows += 1 + (int) lockNights;
+            } else {
+                history.add(new Object[]{booking.id(), room.id(), room.hotelId(), start, end,
+                        booking.bookingUid(), booking.requestId(), archivedAt.atOffset(ZoneOffset.UTC)});
+                archived++;
+                rows++;
+            }
+            lastLockId = booking.id();
+        }
+
+        private void flush() {
+            if (rows == 0) {
+                return;
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                datasetRepository.insertHotels(hotels);
+                datasetRepository.insertRooms(rooms);
+                datasetRepository.insertLocks(locks);
+                if (!spans.isEmpty()) {
+                    roomNightRepository.insertNights(spans);
+                }
+                datasetRepository.insertHistory(history);
+            });
+            hotels.clear();
+            rooms.clear();
+            locks.clear();
+            spans.clear();
+            history.clear();
+            rows = 0;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package ru.mifi.booking.hotelservice.lock;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.mifi.booking.common.exception.ConflictException;
+import ru.mifi.booking.common.exception.ServiceUnavailableException;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Блокировки диапазонов дат номера внутри JVM.
+ *
+ * <p>
+ * Вместо {@code SELECT ... FOR UPDATE} по строке rooms я сериализую только те операции над номером,
+ * чьи периоды [start, end) пересекаются: confirm на март и confirm на июль для одного номера идут параллельно.
+ * Захват делается до открытия транзакции (т.е. до того, как запрос займёт JDBC-соединение из пула),
+ * а отпускание — после commit, поэтому проверка пересечений и вставка под одним диапазоном атомарны
+ * относительно друг друга. Этого достаточно, потому что hotel-service владеет своей БД в одном процессе.
+ * </p>
+ *
+ * <p>
+ * Номера распределены по фиксированному числу полос ({@code hotel.confirm.lock.stripes}) по roomId:
+ * у полосы один монитор и одно условие, поэтому память не растёт с числом номеров, а горячий номер
+ * задевает только свою полосу. Ожидание ограничено:
+ * </p>
+ * <ul>
+ *     <li>в очереди одного номера уже {@code max-queue-depth} ожидающих — сразу 409 (горячий номер, искать другой);</li>
+ *     <li>не дождались за {@code timeout-ms} — 503 (клиент повторит).</li>
+ * </ul>
+ *
+ * <p>
+ * Метрики по полосам: {@code hotel.room.lock.queue} (сейчас ждут), {@code hotel.room.lock.wait} (время ожидания),
+ * {@code hotel.room.lock.rejected{reason=queue_full|timeout}}.
+ * </p>
+ */
+@Component
+public class RoomRangeLockManager {
+
+    private final Stripe[] stripes;
+    private final long timeoutNanos;
+    private final int maxQueueDepth;
+
+    public RoomRangeLockManager(
+            MeterRegistry meterRegistry,
+            @Value("${hotel.confirm.lock.stripes:32}") int stripes,
+            @Value("${hotel.confirm.lock.timeout-ms:5000}") long timeoutMs,
+            @Value("${hotel.confirm.lock.max-queue-depth:16}") int maxQueueDepth
+    ) {
+        if (stripes <= 0 || maxQueueDepth <= 0) {
+            throw new IllegalArgumentException("Invalid room lock settings: stripes=" + stripes
+                    + ", max-queue-depth=" + maxQueueDepth);
+        }
+        this.stripes = new Stripe[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new Stripe(meterRegistry, i);
+        }
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        this.maxQueueDepth = maxQueueDepth;
+    }
+
+    /**
+     * Захватить период [start, end) номера, дождавшись освобождения пересекающихся периодов.
+     *
+     * @return handle, который нужно закрыть (try-with-resources)
+     * @throws ConflictException           если очередь к номеру слишком длинная
+     * @throws ServiceUnavailableException если не удалось дождаться за таймаут
+     */
+    public Handle acquire(Long roomId, LocalDate start, LocalDate end) {
+        return acquire(roomId, start.toEpochDay(), end.toEpochDay());
+    }
+
+    /**
+     * Захватить номер целиком (изменение/удаление номера админом).
+     */
+    public Handle acquireAll(Long roomId) {
+        return acquire(roomId, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    private Handle acquire(Long roomId, long startDay, long endDay) {
+        Stripe stripe = stripes[Math.floorMod(Long.hashCode(roomId), stripes.length)];
+        Range range = new Range(startDay, endDay);
+        stripe.lock(roomId, range, timeoutNanos, maxQueueDepth);
+        return new Handle(stripe, roomId, range);
+    }
+
+    /**
+     * Захваченный период. Закрытие отпускает его и будит ожидающих.
+     */
+    public static final class Handle implements AutoCloseable {
+
+        private final Stripe stripe;
+        private final Long roomId;
+        private final Range range;
+        private boolean closed;
+
+        private Handle(Stripe stripe, Long roomId, Range range) {
+            this.stripe = stripe;
+            this.roomId = roomId;
+            this.range = range;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            stripe.unlock(roomId, range);
+        }
+    }
+
+    private record Range(long startDay, long endDay) {
+
+        private boolean overlaps(Range other) {
+            return startDay < other.endDay && endDay > other.startDay;
+        }
+    }
+
+    /**
+     * Захваченные периоды и число ожидающих одного номера. Доступ — под lock полосы.
+     */
+    private static final class RoomRanges {
+
+        private final List<Range> held = new ArrayList<>(2);
+        private int waiters;
+
+        private boolean overlapsHeld(Range range) {
+            for (Range h : held) {
+                if (h.overlaps(range)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean idle() {
+            return held.isEmpty() && waiters == 0;
+        }
+    }
+
+    private static final class Stripe {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition released = lock.newCondition();
+        private final Map<Long, RoomRanges> rooms = new HashMap<>();
+        private final AtomicInteger waiting = new AtomicInteger();
+
+        private final Timer waitTimer;
+        private final Counter rejectedQueueFull;
+        private final Counter rejectedTimeout;
+
+        private Stripe(MeterRegistry meterRegistry, int index) {
+            String stripe = Integer.toString(index);
+            Gauge.builder("hotel.room.lock.queue", waiting, AtomicInteger::get)
+                    .description("Requests waiting for an overlapping room date range")
+                    .tag("stripe", stripe)
+                    .register(meterRegistry);
+            this.waitTimer = Timer.builder("hotel.room.lock.wait")
+                    .description("Time spent waiting for a room date range")
+                    .tag("stripe", stripe)
+                    .register(meterRegistry);
+            this.rejectedQueueFull = Counter.builder("hotel.room.lock.rejected")
+                    .tag("stripe", stripe)
+                    .tag("reason", "queue_full")
+                    .register(meterRegistry);
+            this.rejectedTimeout = Counter.builder("hotel.room.lock.rejected")
+                    .tag("stripe", stripe)
+                    .tag("reason", "timeout")
+                    .register(meterRegistry);
+        }
+
+        private void lock(Long roomId, Range range, long timeoutNanos, int maxQueueDepth) {
+            long startedAt = System.nanoTime();
+            lock.lock();
+            try {
+                RoomRanges ranges = rooms.computeIfAbsent(roomId, id -> new RoomRanges());
+                if (ranges.overlapsHeld(range)) {
+                    if (ranges.waiters >= maxQueueDepth) {
+                        rejectedQueueFull.increment();
+                        throw new ConflictException("Too many concurrent requests for room " + roomId + ", try another room");
+                    }
+                    await(roomId, ranges, range, timeoutNanos);
+                }
+                ranges.held.add(range);
+            } finally {
+                try {
+                    RoomRanges ranges = rooms.get(roomId);
+                    if (ranges != null && ranges.idle()) {
+                        rooms.remove(roomId);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                waitTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private void await(Long roomId, RoomRanges ranges, Range range, long timeoutNanos) {
+            ranges.waiters++;
+            waiting.incrementAndGet();
+            try {
+                long nanos = timeoutNanos;
+                while (ranges.overlapsHeld(range)) {
+                    if (nanos <= 0) {
+                        rejectedTimeout.increment();
+                        throw new ServiceUnavailableException("Room " + roomId + " is busy, retry later");
+                    }
+                    nanos = released.awaitNanos(nanos);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new ServiceUnavailableException("Interrupted while waiting for room " + roomId);
+            } finally {
+                ranges.waiters--;
+                waiting.decrementAndGet();
+            }
+        }
+
+        private void unlock(Long roomId, Range range) {
+            lock.lock();
+            try {
+                RoomRanges ranges = rooms.get(roomId);
+                if (ranges != null) {
+                    ranges.held.remove(range);
+                    if (ranges.idle()) {
+                        rooms.remove(roomId);
+                    }
+                }
+                released.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
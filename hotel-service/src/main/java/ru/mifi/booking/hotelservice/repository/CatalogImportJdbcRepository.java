@@ -0,0 +1,57 @@
+package ru.mifi.booking.hotelservice.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Вставка импортируемых отелей и номеров JDBC-батчами, мимо persistence context.
+ *
+ * <p>
+ * id берутся из тех же последовательностей, что и у сущностей ({@code Hotel.ID_SEQUENCE}, {@code Room.ID_SEQUENCE}):
+ * одно обращение к последовательности резервирует блок id, как это делает pooled-оптимизатор Hibernate,
+ * поэтому импорт и обычные save не выдают одинаковых id.
+ * </p>
+ */
+@Repository
+public class CatalogImportJdbcRepository {
+
+    private static final String INSERT_HOTEL_SQL = "insert into hotels (id, name, address, version) values (?, ?, ?, 0)";
+    private static final String INSERT_ROOM_SQL =
+            "insert into rooms (id, hotel_id, number, available, times_booked, version) values (?, ?, ?, ?, 0, 0)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CatalogImportJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Следующее значение последовательности — верхняя граница очередного блока id.
+     *
+     * @param sequence имя последовательности
+     * @return значение последовательности
+     */
+    public long nextBlock(String sequence) {
+        return jdbcTemplate.queryForObject("select next value for " + sequence, Long.class);
+    }
+
+    /**
+     * @param rows (id, name, address)
+     */
+    public void insertHotels(List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_HOTEL_SQL, rows);
+        }
+    }
+
+    /**
+     * @param rows (id, hotel_id, number, available)
+     */
+    public void insertRooms(List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_ROOM_SQL, rows);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package ru.mifi.booking.hotelservice.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Чтение и изменение агрегата hotel_night_occupancy.
+ *
+ * <p>
+ * Изменение периода — один UPDATE по диапазону ночей (строки (hotel_id, night) лежат подряд по первичному ключу),
+ * поэтому confirm на 14 ночей стоит одного запроса, а не 14. Строки создаются заранее с нулём
+ * ({@link #insertMissingNights}), чтобы внутри транзакции был только UPDATE: параллельный INSERT одной
+ * и той же ночи двумя транзакциями откатил бы одну из них.
+ * </p>
+ */
+@Repository
+public class HotelNightOccupancyJdbcRepository {
+
+    private static final String SELECT_NIGHTS_SQL =
+            "select night from hotel_night_occupancy where hotel_id = ? and night >= ? and night < ?";
+    private static final String INSERT_ZERO_SQL =
+            "insert into hotel_night_occupancy (hotel_id, night, occupied_rooms) values (?, ?, 0)";
+    private static final String ADD_SQL =
+            "update hotel_night_occupancy set occupied_rooms = greatest(occupied_rooms + ?, 0) "
+                    + "where hotel_id = ? and night >= ? and night < ?";
+    private static final String SUBTRACT_ROOM_SQL =
+            "update hotel_night_occupancy set occupied_rooms = greatest(occupied_rooms - 1, 0) "
+                    + "where hotel_id = ? and night in (select rn.night from room_nights rn where rn.room_id = ?)";
+    private static final String DELETE_HOTEL_SQL = "delete from hotel_night_occupancy where hotel_id = ?";
+    private static final String DRIFTED_HOTELS_SQL = """
+            select c.hotel_id
+            from (select r.hotel_id, rn.night, count(*) as cnt
+                  from room_nights rn
+                  join rooms r on r.id = rn.room_id
+                  where rn.night >= ?
+                  group by r.hotel_id, rn.night) c
+            left join hotel_night_occupancy o on o.hotel_id = c.hotel_id and o.night = c.night
+            where o.occupied_rooms is null or o.occupied_rooms <> c.cnt
+            union
+            select o.hotel_id
+            from hotel_night_occupancy o
+            where o.night >= ? and o.occupied_rooms > 0
+              and not exists (select 1 from room_nights rn join rooms r on r.id = rn.room_id
+                              where r.hotel_id = o.hotel_id and rn.night = o.night)
+            """;
+    private static final String DELETE_HOTEL_FROM_SQL = "delete from hotel_night_occupancy where hotel_id = ? and night >= ?";
+    private static final String REBUILD_HOTEL_SQL = """
+            insert into hotel_night_occupancy (hotel_id, night, occupied_rooms)
+            select r.hotel_id, rn.night, count(*)
+            from rooms r
+            join room_nights rn on rn.room_id = r.id
+            where r.hotel_id = ? and rn.night >= ?
+            group by r.hotel_id, rn.night
+            """;
+    private static final String SELECT_OFF_SALE_SQL = """
+            select rn.night, count(*) as occupied_rooms
+            from rooms r
+            join room_nights rn on rn.room_id = r.id
+            where r.hotel_id = ? and r.available = false and rn.night >= ? and rn.night < ?
+            group by rn.night
+            """;
+    private static final String SELECT_RANGE_SQL =
+            "select night, occupied_rooms from hotel_night_occupancy "
+                    + "where hotel_id = ? and night >= ? and night < ? order by night";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public HotelNightOccupancyJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Создать недостающие строки ночей [start, end) отеля с нулевым счётчиком.
+     *
+     * @return сколько строк создано
+     * @throws org.springframework.dao.DuplicateKeyException если ту же ночь параллельно создал другой запрос
+     */
+    public int insertMissingNights(Long hotelId, LocalDate start, LocalDate end) {
+        Set<LocalDate> existing = new HashSet<>(jdbcTemplate.queryForList(
+                SELECT_NIGHTS_SQL, LocalDate.class, hotelId, Date.valueOf(start), Date.valueOf(end)));
+        List<Object[]> rows = new ArrayList<>();
+        for (LocalDate night = start; night.isBefore(end); night = night.plusDays(1)) {
+            if (!existing.contains(night)) {
+                rows.add(new Object[]{hotelId, Date.valueOf(night)});
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_ZERO_SQL, rows);
+        }
+        return rows.size();
+    }
+
+    /**
+     * Изменить счётчик ночей [start, end) отеля на delta (не ниже нуля).
+     *
+     * @return сколько строк изменено
+     */
+    public int add(Long hotelId, LocalDate start, LocalDate end, int delta) {
+        return jdbcTemplate.update(ADD_SQL, delta, hotelId, Date.valueOf(start), Date.valueOf(end));
+    }
+
+    /**
+     * Несколько изменений одним батчем.
+     */
+    public void addAll(List<Delta> deltas) {
+        List<Object[]> rows = new ArrayList<>(deltas.size());
+        for (Delta d : deltas) {
+            rows.add(new Object[]{d.delta(), d.hotelId(), Date.valueOf(d.startDate()), Date.valueOf(d.endDate())});
+        }
+        jdbcTemplate.batchUpdate(ADD_SQL, rows);
+    }
+
+    /**
+     * Вычесть все занятые ночи номера (вызывать до удаления его room_nights).
+     */
+    public int subtractRoomNights(Long hotelId, Long roomId) {
+        return jdbcTemplate.update(SUBTRACT_ROOM_SQL, hotelId, roomId);
+    }
+
+    public int deleteHotel(Long hotelId) {
+        return jdbcTemplate.update(DELETE_HOTEL_SQL, hotelId);
+    }
+
+    /**
+     * Отели, у которых агрегат ночей с {@code from} расходится с room_nights. Сравнение — один запрос,
+     * то есть по одному снимку БД: confirm/release меняют room_nights и агрегат в одной транзакции,
+     * поэтому параллельные изменения расхождением не выглядят.
+     *
+     * @return идентификаторы отелей без повторов
+     */
+    public List<Long> findDriftedHotels(LocalDate from) {
+        return jdbcTemplate.queryForList(DRIFTED_HOTELS_SQL, Long.class, Date.valueOf(from), Date.valueOf(from));
+    }
+
+    /**
+     * Пересчитать ночи отеля начиная с {@code from} из room_nights. Более ранние строки не трогаю:
+     * ночи прошедших проживаний уходят из room_nights вместе с архивированием блокировок.
+     *
+     * @return сколько строк получилось
+     */
+    public int rebuildHotel(Long hotelId, LocalDate from) {
+        jdbcTemplate.update(DELETE_HOTEL_FROM_SQL, hotelId, Date.valueOf(from));
+        return jdbcTemplate.update(REBUILD_HOTEL_SQL, hotelId, Date.valueOf(from));
+    }
+
+    /**
+     * Занятые номера по ночам [start, end) отеля. Ночи без строки в ответе отсутствуют.
+     */
+    public Map<LocalDate, Integer> findOccupied(Long hotelId, LocalDate start, LocalDate end) {
+        return queryByNight(SELECT_RANGE_SQL, hotelId, start, end);
+    }
+
+    /**
+     * Сколько номеров отеля, снятых с продажи, занято по ночам [start, end): агрегат их тоже считает.
+     * Ночи без таких блокировок в ответе отсутствуют.
+     */
+    public Map<LocalDate, Integer> findOccupiedOffSale(Long hotelId, LocalDate start, LocalDate end) {
+        return queryByNight(SELECT_OFF_SALE_SQL, hotelId, start, end);
+    }
+
+    private Map<LocalDate, Integer> queryByNight(String sql, Long hotelId, LocalDate start, LocalDate end) {
+        Map<LocalDate, Integer> occupied = new LinkedHashMap<>();
+        jdbcTemplate.query(sql,
+                rs -> {
+                    occupied.put(rs.getObject("night", LocalDate.class), rs.getInt("occupied_rooms"));
+                },
+                hotelId, Date.valueOf(start), Date.valueOf(end));
+        return occupied;
+    }
+
+    /**
+     * Изменение счётчика ночей [startDate, endDate) отеля.
+     */
+    public record Delta(Long hotelId, LocalDate startDate, LocalDate endDate, int delta) {}
+}
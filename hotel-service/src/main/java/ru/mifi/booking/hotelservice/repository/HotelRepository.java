@@ -1,7 +1,42 @@
 package ru.mifi.booking.hotelservice.repository;
 
-import ru.mifi.booking.hotelservice.entity.Hotel;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.mifi.booking.hotelservice.dto.HotelDto;
+import ru.mifi.booking.hotelservice.dto.HotelsVersionDto;
+import ru.mifi.booking.hotelservice.entity.Hotel;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface HotelRepository extends JpaRepository<Hotel, Long> {
+
+    /**
+     * Все отели сразу в {@link HotelDto}: сущности не попадают в persistence context, dirty checking не нужен.
+     */
+    @Query("select new ru.mifi.booking.hotelservice.dto.HotelDto(h.id, h.name, h.address) from Hotel h order by h.id")
+    List<HotelDto> findAllAsDto();
+
+    @Query("select new ru.mifi.booking.hotelservice.dto.HotelDto(h.id, h.name, h.address) from Hotel h where h.id = :id")
+    Optional<HotelDto> findDtoById(@Param("id") Long id);
+
+    /**
+     * Версия отеля для If-None-Match без загрузки строки целиком.
+     */
+    @Query("select h.version from Hotel h where h.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
 
-public interface HotelRepository extends JpaRepository<Hotel, Long> {}
+    /**
+     * Версия всего списка отелей для If-None-Match (одна агрегирующая строка).
+     */
+    @Query("select new ru.mifi.booking.hotelservice.dto.HotelsVersionDto(count(h), coalesce(sum(h.id), 0L), coalesce(sum(h.version), 0L)) from Hotel h")
+    HotelsVersionDto findListVersion();
 
+    /**
+     * Какие из переданных id существуют (проверка 404 без загрузки сущностей).
+     */
+    @Query("select h.id from Hotel h where h.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,35 @@
+package ru.mifi.booking.hotelservice.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.mifi.booking.hotelservice.availability.LockSpan;
+import ru.mifi.booking.hotelservice.entity.RoomLockHistory;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface RoomLockHistoryRepository extends JpaRepository<RoomLockHistory, Long> {
+
+    /**
+     * Архивные блокировки отеля, пересекающие период (для статистики за прошлое).
+     */
+    @Query("""
+            select new ru.mifi.booking.hotelservice.availability.LockSpan(h.id, h.roomId, h.startDate, h.endDate)
+            from RoomLockHistory h
+            where h.hotelId = :hotelId and h.endDate > :start and h.startDate < :end
+            """)
+    List<LockSpan> findSpansInHotel(
+            @Param("hotelId") Long hotelId,
+            @Param("start") LocalDate start,
+            @Param("end") LocalDate end
+    );
+
+    /**
+     * Удалить историю отеля (при удалении отеля).
+     */
+    @Modifying
+    @Query("delete from RoomLockHistory h where h.hotelId = :hotelId")
+    int deleteAllByHotelId(@Param("hotelId") Long hotelId);
+}
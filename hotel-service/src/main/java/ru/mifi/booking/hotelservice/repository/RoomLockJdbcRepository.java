@@ -0,0 +1,165 @@
+package ru.mifi.booking.hotelservice.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import ru.mifi.booking.hotelservice.availability.LockSpan;
+
+import java.sql.Date;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Вставка, удаление и архивирование шапок room_locks JDBC-батчами (групповая блокировка, reaper, release, архив,
+ * удаление номеров и отелей пачками).
+ *
+ * <p>
+ * У RoomLock id IDENTITY, поэтому Hibernate не батчит {@code saveAll}: каждый persist — отдельный INSERT
+ * с возвратом ключа. Здесь ключи не нужны сразу — их вместе с периодом дочитывает один запрос по requestId.
+ * </p>
+ */
+@Repository
+public class RoomLockJdbcRepository {
+
+    private static final String INSERT_SQL = """
+            insert into room_locks (room_id, start_date, end_date, booking_id, request_id, expires_at)
+            values (?, ?, ?, ?, ?, ?)
+            """;
+    private static final String DELETE_SQL = "delete from room_locks where id = ?";
+    private static final String DELETE_EXPIRED_SQL = "delete from room_locks where id = ? and expires_at <= ?";
+    private static final String SELECT_ARCHIVABLE_SQL = """
+            select id, room_id, start_date, end_date from room_locks
+            where end_date <= ? and expires_at is null
+            order by end_date, id
+            fetch first ? rows only
+            """;
+    private static final String COPY_TO_HISTORY_SQL = """
+            insert into room_lock_history (id, room_id, hotel_id, start_date, end_date, booking_id, request_id, archived_at)
+            select rl.id, rl.room_id, r.hotel_id, rl.start_date, rl.end_date, rl.booking_id, rl.request_id, ?
+            from room_locks rl join rooms r on r.id = rl.room_id
+            where rl.id = ? and rl.expires_at is null
+            """;
+    private static final String DELETE_HISTORY_SQL = "delete from room_lock_history where id = ?";
+    private static final String SELECT_OF_ROOM_SQL = """
+            select id, room_id, start_date, end_date from room_locks
+            where room_id = ?
+            order by id
+            fetch first ? rows only
+            """;
+    private static final String DELETE_OF_HOTEL_SQL = """
+            delete from room_locks where id in (
+                select rl.id from room_locks rl join rooms r on r.id = rl.room_id
+                where r.hotel_id = ?
+                fetch first ? rows only
+            )
+            """;
+    private static final String DELETE_HISTORY_OF_HOTEL_SQL = """
+            delete from room_lock_history where id in (
+                select id from room_lock_history where hotel_id = ? fetch first ? rows only
+            )
+            """;
+
+    private static final RowMapper<LockSpan> LOCK_SPAN = (rs, i) -> new LockSpan(rs.getLong("id"), rs.getLong("room_id"),
+            rs.getObject("start_date", LocalDate.class), rs.getObject("end_date", LocalDate.class));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public RoomLockJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Вставить блокировки одним батчем.
+     */
+    public void insertAll(List<NewLock> locks) {
+        List<Object[]> rows = new ArrayList<>(locks.size());
+        for (NewLock lock : locks) {
+            rows.add(new Object[]{lock.roomId(), Date.valueOf(lock.startDate()), Date.valueOf(lock.endDate()),
+                    lock.bookingId(), lock.requestId(), utc(lock.expiresAt())});
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+    }
+
+    /**
+     * Удалить блокировки по id одним батчем (ночи удаляет FK ON DELETE CASCADE).
+     *
+     * @return для каждого id: 1 — удалена этим вызовом, 0 — её уже удалил параллельный release/reaper
+     */
+    public int[] deleteAll(List<Long> ids) {
+        return jdbcTemplate.batchUpdate(DELETE_SQL, ids.stream().map(id -> new Object[]{id}).toList());
+    }
+
+    /**
+     * Удалить hold-ы, если они всё ещё истёкшие: параллельный commit успел — строка остаётся.
+     *
+     * @return для каждого id: 1 — удалён, 0 — подтверждён или уже удалён
+     */
+    public int[] deleteExpired(List<Long> ids, Instant now) {
+        OffsetDateTime at = utc(now);
+        return jdbcTemplate.batchUpdate(DELETE_EXPIRED_SQL, ids.stream().map(id -> new Object[]{id, at}).toList());
+    }
+
+    /**
+     * Очередная пачка подтверждённых блокировок, закончившихся не позже cutoff (по idx_room_lock_end_date).
+     */
+    public List<LockSpan> findArchivable(LocalDate cutoff, int limit) {
+        return jdbcTemplate.query(SELECT_ARCHIVABLE_SQL, LOCK_SPAN, Date.valueOf(cutoff), limit);
+    }
+
+    /**
+     * Очередная пачка блокировок номера (удаление номера).
+     */
+    public List<LockSpan> findOfRoom(Long roomId, int limit) {
+        return jdbcTemplate.query(SELECT_OF_ROOM_SQL, LOCK_SPAN, roomId, limit);
+    }
+
+    /**
+     * Удалить очередную пачку блокировок номеров отеля (ночи удаляет FK ON DELETE CASCADE).
+     *
+     * @return сколько удалено; меньше limit — блокировок отеля больше нет
+     */
+    public int deleteOfHotel(Long hotelId, int limit) {
+        return jdbcTemplate.update(DELETE_OF_HOTEL_SQL, hotelId, limit);
+    }
+
+    /**
+     * Удалить очередную пачку архива отеля.
+     *
+     * @return сколько удалено; меньше limit — архива отеля больше нет
+     */
+    public int deleteHistoryOfHotel(Long hotelId, int limit) {
+        return jdbcTemplate.update(DELETE_HISTORY_OF_HOTEL_SQL, hotelId, limit);
+    }
+
+    /**
+     * Скопировать блокировки в room_lock_history.
+     *
+     * @return для каждого id: 1 — скопирована, 0 — её уже нет в room_locks
+     */
+    public int[] copyToHistory(List<Long> ids, Instant archivedAt) {
+        OffsetDateTime at = utc(archivedAt);
+        return jdbcTemplate.batchUpdate(COPY_TO_HISTORY_SQL, ids.stream().map(id -> new Object[]{at, id}).toList());
+    }
+
+    /**
+     * Убрать из архива копии, чьи исходные строки параллельно удалил release.
+     */
+    public void deleteFromHistory(List<Long> ids) {
+        jdbcTemplate.batchUpdate(DELETE_HISTORY_SQL, ids.stream().map(id -> new Object[]{id}).toList());
+    }
+
+    private static OffsetDateTime utc(Instant instant) {
+        // expires_at — timestamp with time zone (так Hibernate хранит Instant).
+        return instant == null ? null : OffsetDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+
+    /**
+     * Строка room_locks для вставки.
+     */
+    public record NewLock(Long roomId, LocalDate startDate, LocalDate endDate, String bookingId, String requestId,
+                          Instant expiresAt) {}
+}
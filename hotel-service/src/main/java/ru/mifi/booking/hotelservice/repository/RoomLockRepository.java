@@ -1,48 +1,130 @@
 package ru.mifi.booking.hotelservice.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
-import ru.mifi.booking.hotelservice.entity.Room;
+import ru.mifi.booking.hotelservice.availability.LockSpan;
+import ru.mifi.booking.hotelservice.availability.PendingHold;
 import ru.mifi.booking.hotelservice.entity.RoomLock;
 
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface RoomLockRepository extends JpaRepository<RoomLock, Long> {
 
     /**
-     * Проверка пересечения периодов.
-     * Пересечение есть, если НЕ выполняется условие "lock полностью до start" И "lock полностью после end".
-     *
-     * @param room  номер, для которого ищем пересечения
-     * @param start начало периода
-     * @param end   конец периода
-     * @return список блокировок, пересекающихся с заданным периодом
-     */
-    @Query("select rl from RoomLock rl where rl.room = :room and not (rl.endDate <= :start or rl.startDate >= :end)")
-    List<RoomLock> findOverlaps(
-            @Param("room") Room room,
+     * Действующие блокировки (подтверждённые и неистёкшие hold-ы) в виде лёгкой проекции
+     * (для построения/сверки индекса доступности).
+     */
+    @Query("""
+            select new ru.mifi.booking.hotelservice.availability.LockSpan(rl.id, rl.room.id, rl.startDate, rl.endDate)
+            from RoomLock rl where rl.expiresAt is null or rl.expiresAt > :now
+            """)
+    List<LockSpan> findActiveSpans(@Param("now") Instant now);
+
+    /**
+     * Действующие блокировки номеров, пересекающие [start, end), по номеру и дате заезда.
+     */
+    @Query("""
+            select new ru.mifi.booking.hotelservice.availability.LockSpan(rl.id, rl.room.id, rl.startDate, rl.endDate)
+            from RoomLock rl
+            where rl.room.id in :roomIds and rl.startDate < :end and rl.endDate > :start
+              and (rl.expiresAt is null or rl.expiresAt > :now)
+            order by rl.room.id, rl.startDate
+            """)
+    List<LockSpan> findActiveSpansOfRooms(
+            @Param("roomIds") Collection<Long> roomIds,
             @Param("start") LocalDate start,
-            @Param("end") LocalDate end
+            @Param("end") LocalDate end,
+            @Param("now") Instant now
     );
 
     /**
-     * Все блокировки по отелю в заданном периоде (для статистики).
-     *
-     * @param hotelId идентификатор отеля
-     * @param start   начало периода
-     * @param end     конец периода
-     * @return список блокировок, которые пересекаются с периодом
-     */
-    @Query("select rl from RoomLock rl where rl.room.hotel.id = :hotelId and not (rl.endDate <= :start or rl.startDate >= :end)")
-    List<RoomLock> findOverlapsInHotel(
-            @Param("hotelId") Long hotelId,
+     * Неистёкшие hold-ы (чтобы индекс знал, когда их перестать учитывать).
+     */
+    @Query("""
+            select new ru.mifi.booking.hotelservice.availability.PendingHold(
+                rl.id, rl.room.id, rl.startDate, rl.endDate, rl.expiresAt)
+            from RoomLock rl where rl.expiresAt > :now
+            """)
+    List<PendingHold> findPendingHolds(@Param("now") Instant now);
+
+    /**
+     * Какие из блокировок ещё действуют (подтверждены или не истекли).
+     */
+    @Query("select rl.id from RoomLock rl where rl.id in :ids and (rl.expiresAt is null or rl.expiresAt > :now)")
+    List<Long> findActiveIdsIn(@Param("ids") Collection<Long> ids, @Param("now") Instant now);
+
+    /**
+     * Истёкшие hold-ы, пересекающие период номеров (их ночи освобождаются перед новым confirm).
+     */
+    @Query("""
+            select rl from RoomLock rl join fetch rl.room
+            where rl.room.id in :roomIds and rl.startDate < :end and rl.endDate > :start and rl.expiresAt <= :now
+            """)
+    List<RoomLock> findExpiredOverlapping(
+            @Param("roomIds") Collection<Long> roomIds,
             @Param("start") LocalDate start,
-            @Param("end") LocalDate end
+            @Param("end") LocalDate end,
+            @Param("now") Instant now
     );
 
+    /**
+     * Очередная пачка истёкших hold-ов для reaper (диапазон по idx_room_lock_expires_at).
+     */
+    @Query("select rl from RoomLock rl join fetch rl.room where rl.expiresAt <= :now order by rl.expiresAt")
+    List<RoomLock> findExpired(@Param("now") Instant now, Limit limit);
+
+    /**
+     * Подтвердить hold, если он ещё не истёк.
+     *
+     * @return 1 — подтверждён, 0 — истёк (или уже подтверждён/удалён)
+     */
+    @Modifying
+    @Query("update RoomLock rl set rl.expiresAt = null where rl.id = :id and rl.expiresAt > :now")
+    int commitHold(@Param("id") Long id, @Param("now") Instant now);
+
+    /**
+     * Подтвердить группу hold-ов, если ни один не истёк.
+     *
+     * @return сколько hold-ов подтверждено
+     */
+    @Modifying
+    @Query("update RoomLock rl set rl.expiresAt = null where rl.id in :ids and rl.expiresAt > :now")
+    int commitHolds(@Param("ids") Collection<Long> ids, @Param("now") Instant now);
+
+    /**
+     * Блокировки по набору requestId в виде проекции (дочитать id после батч-вставки / идемпотентность группы).
+     */
+    @Query("""
+            select new ru.mifi.booking.hotelservice.availability.LockSpan(rl.id, rl.room.id, rl.startDate, rl.endDate)
+            from RoomLock rl where rl.requestId in :requestIds
+            """)
+    List<LockSpan> findSpansByRequestIdIn(@Param("requestIds") Collection<String> requestIds);
+
+    /**
+     * Уже обработанные requestId из набора.
+     */
+    @Query("select rl.requestId from RoomLock rl where rl.requestId in :requestIds")
+    List<String> findExistingRequestIds(@Param("requestIds") Collection<String> requestIds);
+
+    /**
+     * Блокировки по набору bookingId (групповой release).
+     */
+    List<RoomLock> findAllByBookingIdIn(Collection<String> bookingIds);
+
+    /**
+     * Удалить блокировки по id одним запросом (ночи удаляет FK ON DELETE CASCADE).
+     */
+    @Modifying
+    @Query("delete from RoomLock rl where rl.id in :ids")
+    int deleteAllByIdIn(@Param("ids") Collection<Long> ids);
+
     /**
      * Поиск блокировки по bookingId.
      *
@@ -60,9 +142,22 @@ public interface RoomLockRepository extends JpaRepository<RoomLock, Long> {
     Optional<RoomLock> findByRequestId(String requestId);
 
     /**
-     * Удалить все блокировки конкретного номера.
+     * Удалить все блокировки конкретного номера одним запросом (без загрузки сущностей).
      *
      * @param roomId id номера
+     * @return сколько удалено
+     */
+    @Modifying
+    @Query("delete from RoomLock rl where rl.room.id = :roomId")
+    int deleteAllByRoomId(@Param("roomId") Long roomId);
+
+    /**
+     * Удалить все блокировки номеров отеля одним запросом (остаток после пачек {@code RoomLockJdbcRepository#deleteOfHotel}).
+     *
+     * @param hotelId id отеля
+     * @return сколько удалено
      */
-    void deleteAllByRoom_Id(Long roomId);
+    @Modifying
+    @Query("delete from RoomLock rl where rl.room.id in (select r.id from Room r where r.hotel.id = :hotelId)")
+    int deleteAllByHotelId(@Param("hotelId") Long hotelId);
 }
@@ -0,0 +1,56 @@
+package ru.mifi.booking.hotelservice.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import ru.mifi.booking.hotelservice.availability.LockSpan;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Запись ночей блокировки в room_nights одним JDBC-батчем.
+ *
+ * <p>
+ * JPA здесь не нужна: ночи не читаются как сущности, а на 14-ночное бронирование
+ * {@code persist} дал бы 14 отдельных INSERT. JdbcTemplate работает в той же транзакции,
+ * что и сохранение {@code RoomLock}.
+ * </p>
+ */
+@Repository
+public class RoomNightJdbcRepository {
+
+    private static final String INSERT_SQL = "insert into room_nights (room_id, night, lock_id) values (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public RoomNightJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Вставить ночи [start, end) номера для блокировки.
+     *
+     * @throws org.springframework.dao.DuplicateKeyException если хотя бы одна ночь уже занята
+     */
+    public void insertNights(Long lockId, Long roomId, LocalDate start, LocalDate end) {
+        insertNights(List.of(new LockSpan(lockId, roomId, start, end)));
+    }
+
+    /**
+     * Вставить ночи нескольких блокировок одним батчем.
+     *
+     * @throws org.springframework.dao.DuplicateKeyException если хотя бы одна ночь уже занята
+     */
+    public void insertNights(List<LockSpan> locks) {
+        List<Object[]> rows = new ArrayList<>();
+        for (LockSpan lock : locks) {
+            for (LocalDate night = lock.startDate(); night.isBefore(lock.endDate()); night = night.plusDays(1)) {
+                rows.add(new Object[]{lock.roomId(), Date.valueOf(night), lock.lockId()});
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+    }
+}
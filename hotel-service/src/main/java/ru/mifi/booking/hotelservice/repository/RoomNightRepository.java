@@ -0,0 +1,43 @@
+package ru.mifi.booking.hotelservice.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.mifi.booking.hotelservice.entity.RoomNight;
+import ru.mifi.booking.hotelservice.entity.RoomNightId;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public interface RoomNightRepository extends JpaRepository<RoomNight, RoomNightId> {
+
+    /**
+     * Есть ли у номера занятые ночи в периоде [start, end).
+     * Диапазон по первичному ключу (room_id, night) — без предиката пересечения интервалов.
+     *
+     * @param roomId идентификатор номера
+     * @param start  начало периода
+     * @param end    конец периода (исключительно)
+     * @return true, если хотя бы одна ночь занята
+     */
+    @Query("""
+            select count(rn) > 0 from RoomNight rn
+            where rn.id.roomId = :roomId and rn.id.night >= :start and rn.id.night < :end
+            """)
+    boolean existsInPeriod(@Param("roomId") Long roomId, @Param("start") LocalDate start, @Param("end") LocalDate end);
+
+
+    /**
+     * Какие из номеров заняты хотя бы одну ночь в периоде [start, end) — одним запросом для группы номеров.
+     */
+    @Query("""
+            select distinct rn.id.roomId from RoomNight rn
+            where rn.id.roomId in :roomIds and rn.id.night >= :start and rn.id.night < :end
+            """)
+    List<Long> findOccupiedRoomIds(
+            @Param("roomIds") Collection<Long> roomIds,
+            @Param("start") LocalDate start,
+            @Param("end") LocalDate end
+    );
+}
@@ -1,42 +1,371 @@
 package ru.mifi.booking.hotelservice.repository;
 
-import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import ru.mifi.booking.hotelservice.dto.RoomDto;
+import ru.mifi.booking.hotelservice.dto.RoomStatsDto;
+import ru.mifi.booking.hotelservice.dto.RoomVersionDto;
 import ru.mifi.booking.hotelservice.entity.Room;
 
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface RoomRepository extends JpaRepository<Room, Long> {
 
     /**
-     * Пессимистическая блокировка строки room при подтверждении доступности.
+     * Все номера, которые "в принципе доступны" (не выведены из эксплуатации).
+     */
+    @Query("select r from Room r where r.available = true")
+    List<Room> findAllAvailable();
+
+    /**
+     * Свободные номера на период одним запросом (anti-join по room_locks).
      *
      * <p>
-     * Нужна, чтобы конкурентные confirm-availability на один и тот же roomId
-     * сериализовались на уровне БД и не создавали пересекающиеся блокировки.
+     * Сразу проецирую в {@link RoomDto}: hotelId берётся из FK-колонки rooms.hotel_id,
+     * поэтому lazy-прокси Hotel не инициализируется и лишних запросов нет.
+     * Пересечение [start, end) с блокировкой: rl.startDate &lt; end и rl.endDate &gt; start.
+     * Истёкшие hold-ы (expiresAt &lt;= now) номер не занимают, даже если reaper их ещё не удалил.
      * </p>
+     *
+     * @param start начало периода
+     * @param end   конец периода
+     * @param now   текущий момент (для отсечения истёкших hold-ов)
+     * @return доступные номера, отсортированные по id
      */
-    @Lock(LockModeType.PESSIMISTIC_WRITE)
-    @Query("select r from Room r where r.id = :id")
-    Optional<Room> findByIdForUpdate(@Param("id") Long id);
+    @Query("""
+            select new ru.mifi.booking.hotelservice.dto.RoomDto(r.id, r.hotel.id, r.number, r.available, r.timesBooked)
+            from Room r
+            where r.available = true
+              and not exists (
+                  select 1 from RoomLock rl
+                  where rl.room = r and rl.startDate < :end and rl.endDate > :start
+                    and (rl.expiresAt is null or rl.expiresAt > :now)
+              )
+            order by r.id
+            """)
+    List<RoomDto> findAvailableForPeriod(
+            @Param("start") LocalDate start,
+            @Param("end") LocalDate end,
+            @Param("now") Instant now
+    );
 
     /**
-     * Все номера, которые "в принципе доступны" (не выведены из эксплуатации).
+     * Top-K рекомендованных свободных номеров: сортировка и LIMIT выполняются в БД,
+     * в приложение приходит только {@code limit} строк, а не весь список доступных номеров.
+     *
+     * @param start начало периода
+     * @param end   конец периода
+     * @param now   текущий момент (для отсечения истёкших hold-ов)
+     * @param limit сколько кандидатов вернуть
+     * @return номера по timesBooked asc, затем id asc
      */
-    @Query("select r from Room r where r.available = true")
-    List<Room> findAllAvailable();
+    @Query("""
+            select new ru.mifi.booking.hotelservice.dto.RoomDto(r.id, r.hotel.id, r.number, r.available, r.timesBooked)
+            from Room r
+            where r.available = true
+              and not exists (
+                  select 1 from RoomLock rl
+                  where rl.room = r and rl.startDate < :end and rl.endDate > :start
+                    and (rl.expiresAt is null or rl.expiresAt > :now)
+              )
+            order by r.timesBooked, r.id
+            """)
+    List<RoomDto> findRecommendedForPeriod(
+            @Param("start") LocalDate start,
+            @Param("end") LocalDate end,
+            @Param("now") Instant now,
+            Limit limit
+    );
+
+    /**
+     * Keyset-страница свободных номеров: id &gt; afterId, по возрастанию id.
+     * Использует индекс idx_room_available_id, стоимость не зависит от "глубины" страницы.
+     *
+     * @param start   начало периода
+     * @param end     конец периода
+     * @param now     текущий момент (для отсечения истёкших hold-ов)
+     * @param afterId последний id предыдущей страницы (0 для первой)
+     * @param limit   размер выборки
+     * @return номера страницы
+     */
+    @Query("""
+            select new ru.mifi.booking.hotelservice.dto.RoomDto(r.id, r.hotel.id, r.number, r.available, r.timesBooked)
+            from Room r
+            where r.available = true
+              and r.id > :afterId
+              and not exists (
+                  select 1 from RoomLock rl
+                  where rl.room = r and rl.startDate < :end and rl.endDate > :start
+                    and (rl.expiresAt is null or rl.expiresAt > :now)
+              )
+            order by r.id
+            """)
+    List<RoomDto> searchAvailable(
+            @Param("start") LocalDate start,
+            @Param("end") LocalDate end,
+            @Param("now") Instant now,
+            @Param("afterId") Long afterId,
+            Limit limit
+    );
+
+    /**
+     * То же, что {@link #searchAvailable}, но в пределах одного отеля (индекс idx_room_hotel_available_id).
+     */
+    @Query("""
+            select new ru.mifi.booking.hotelservice.dto.RoomDto(r.id, r.hotel.id, r.number, r.available, r.timesBooked)
+            from Room r
+            where r.hotel.id = :hotelId
+              and r.available = true
+              and r.id > :afterId
+              and not exists (
+                  select 1 from RoomLock rl
+                  where rl.room = r and rl.startDate < :end and rl.endDate > :start
+                    and (rl.expiresAt is null or rl.expiresAt > :now)
+              )
+            order by r.id
+            """)
+    List<RoomDto> searchAvailableInHotel(
+            @Param("hotelId") Long hotelId,
+            @Param("start") LocalDate start,
+            @Param("end") LocalDate end,
+            @Param("now") Instant now,
+            @Param("afterId") Long afterId,
+            Limit limit
+    );
+
+    /**
+     * То же, что {@link #searchAvailable}, но по отелям города.
+     * Город — префикс адреса отеля (адрес начинается с города), поэтому работает индекс idx_hotel_address.
+     * city приходит с экранированными {@code \}, {@code %} и {@code _}: префикс сравнивается буквально.
+     */
+    @Query("""
+            select new ru.mifi.booking.hotelservice.dto.RoomDto(r.id, h.id, r.number, r.available, r.timesBooked)
+            from Room r join r.hotel h
+            where h.address like concat(:city, '%') escape '\\'
+              and r.available = true
+              and r.id > :afterId
+              and not exists (
+                  select 1 from RoomLock rl
+                  where rl.room = r and rl.startDate < :end and rl.endDate > :start
+                    and (rl.expiresAt is null or rl.expiresAt > :now)
+              )
+            order by r.id
+            """)
+    List<RoomDto> searchAvailableInCity(
+            @Param("city") String city,
+            @Param("start") LocalDate start,
+            @Param("end") LocalDate end,
+            @Param("now") Instant now,
+            @Param("afterId") Long afterId,
+            Limit limit
+    );
+
+    /**
+     * Отели, где на период свободно не меньше rooms номеров: один GROUP BY по номерам с anti-join по room_locks.
+     *
+     * <p>
+     * Keyset по id отеля (hotel_id &gt; afterHotelId) и LIMIT отсекают уже показанные отели,
+     * HAVING — отели, где свободных номеров меньше нужного; в приложение приходят только id отелей.
+     * </p>
+     *
+     * @param start        начало периода
+     * @param end          конец периода
+     * @param now          текущий момент (для отсечения истёкших hold-ов)
+     * @param rooms        сколько номеров нужно в одном отеле
+     * @param afterHotelId последний id отеля предыдущей страницы (0 для первой)
+     * @param limit        сколько отелей вернуть
+     * @return id отелей по возрастанию
+     */
+    @Query("""
+            select r.hotel.id
+            from Room r
+            where r.available = true
+              and r.hotel.id > :afterHotelId
+              and not exists (
+                  select 1 from RoomLock rl
+                  where rl.room = r and rl.startDate < :end and rl.endDate > :start
+                    and (rl.expiresAt is null or rl.expiresAt > :now)
+              )
+            group by r.hotel.id
+            having count(r) >= :rooms
+            order by r.hotel.id
+            """)
+    List<Long> findHotelIdsWithFreeRooms(
+            @Param("start") LocalDate start,
+            @Param("end") LocalDate end,
+            @Param("now") Instant now,
+            @Param("rooms") long rooms,
+            @Param("afterHotelId") Long afterHotelId,
+            Limit limit
+    );
+
+    /**
+     * Свободные на период номера указанных отелей (кандидаты для {@link #findHotelIdsWithFreeRooms}).
+     *
+     * @return номера по отелю, затем по id
+     */
+    @Query("""
+            select new ru.mifi.booking.hotelservice.dto.RoomDto(r.id, r.hotel.id, r.number, r.available, r.timesBooked)
+            from Room r
+            where r.hotel.id in :hotelIds
+              and r.available = true
+              and not exists (
+                  select 1 from RoomLock rl
+                  where rl.room = r and rl.startDate < :end and rl.endDate > :start
+                    and (rl.expiresAt is null or rl.expiresAt > :now)
+              )
+            order by r.hotel.id, r.id
+            """)
+    List<RoomDto> findAvailableInHotelsForPeriod(
+            @Param("hotelIds") Collection<Long> hotelIds,
+            @Param("start") LocalDate start,
+            @Param("end") LocalDate end,
+            @Param("now") Instant now
+    );
+
+    /**
+     * Keyset-выборка номеров в продаже без фильтра по датам (кандидаты поиска с гибкими датами).
+     *
+     * @param afterId последний просмотренный id (0 для первой)
+     * @param limit   размер выборки
+     * @return номера по возрастанию id
+     */
+    @Query("""
+            select new ru.mifi.booking.hotelservice.dto.RoomDto(r.id, r.hotel.id, r.number, r.available, r.timesBooked)
+            from Room r
+            where r.available = true and r.id > :afterId
+            order by r.id
+            """)
+    List<RoomDto> findAvailableAfter(@Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * То же, что {@link #findAvailableAfter}, в пределах отеля.
+     */
+    @Query("""
+            select new ru.mifi.booking.hotelservice.dto.RoomDto(r.id, r.hotel.id, r.number, r.available, r.timesBooked)
+            from Room r
+            where r.hotel.id = :hotelId and r.available = true and r.id > :afterId
+            order by r.id
+            """)
+    List<RoomDto> findAvailableInHotelAfter(@Param("hotelId") Long hotelId, @Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Статистика загруженности номеров отеля за период одним GROUP BY-запросом.
+     *
+     * <p>
+     * Сущности RoomLock не загружаются: bookedDays — число строк room_nights номера в [start, end),
+     * locksCount — число различных блокировок среди этих ночей (блокировка пересекает период,
+     * только если у неё есть ночь внутри него). Left join оставляет номера без блокировок с нулями.
+     * Ночи истёкших hold-ов не считаются (case по expiresAt блокировки).
+     * </p>
+     *
+     * @param hotelId идентификатор отеля
+     * @param start   начало периода
+     * @param end     конец периода (исключительно)
+     * @param now     текущий момент
+     * @return статистика по каждому номеру отеля, по возрастанию id
+     */
+    @Query("""
+            select new ru.mifi.booking.hotelservice.dto.RoomStatsDto(
+                r.id, r.hotel.id, r.number, r.timesBooked,
+                count(distinct case when l.expiresAt is null or l.expiresAt > :now then l.id end),
+                count(case when l.expiresAt is null or l.expiresAt > :now then rn.id.night end))
+            from Room r
+            left join RoomNight rn on rn.id.roomId = r.id and rn.id.night >= :start and rn.id.night < :end
+            left join rn.lock l
+            where r.hotel.id = :hotelId
+            group by r.id, r.hotel.id, r.number, r.timesBooked
+            order by r.id
+            """)
+    List<RoomStatsDto> aggregateStats(
+            @Param("hotelId") Long hotelId,
+            @Param("start") LocalDate start,
+            @Param("end") LocalDate end,
+            @Param("now") Instant now
+    );
+
+    /**
+     * Все номера в виде DTO (для построения/сверки индекса доступности).
+     */
+    @Query("select new ru.mifi.booking.hotelservice.dto.RoomDto(r.id, r.hotel.id, r.number, r.available, r.timesBooked) from Room r")
+    List<RoomDto> findAllAsDto();
 
     /**
-     * Все номера конкретного отеля.
+     * Номер в виде DTO: hotelId из FK-колонки, lazy-прокси Hotel не создаётся.
+     *
+     * @param id идентификатор номера
+     * @return номер или пусто
+     */
+    @Query("select new ru.mifi.booking.hotelservice.dto.RoomDto(r.id, r.hotel.id, r.number, r.available, r.timesBooked) from Room r where r.id = :id")
+    Optional<RoomDto> findDtoById(@Param("id") Long id);
+
+    /**
+     * Версия номера для If-None-Match: две колонки по первичному ключу вместо DTO.
+     */
+    @Query("select new ru.mifi.booking.hotelservice.dto.RoomVersionDto(r.version, r.timesBooked) from Room r where r.id = :id")
+    Optional<RoomVersionDto> findVersionById(@Param("id") Long id);
+
+    /**
+     * Номера отеля в виде DTO (без загрузки сущностей, которые затем удаляются bulk-запросом).
      *
      * @param hotelId идентификатор отеля
-     * @return список номеров
+     * @return номера отеля
      */
-    @Query("select r from Room r where r.hotel.id = :hotelId")
-    List<Room> findAllByHotelId(@Param("hotelId") Long hotelId);
-}
+    @Query("select new ru.mifi.booking.hotelservice.dto.RoomDto(r.id, r.hotel.id, r.number, r.available, r.timesBooked) from Room r where r.hotel.id = :hotelId")
+    List<RoomDto> findAllAsDtoByHotelId(@Param("hotelId") Long hotelId);
+
+    /**
+     * Снять с продажи все номера отеля (перед удалением отеля пачками).
+     * Bulk UPDATE идёт мимо {@code @Version}, поэтому версию я увеличиваю явно: ETag номеров должен смениться.
+     *
+     * @param hotelId идентификатор отеля
+     * @return сколько номеров обновлено
+     */
+    @Modifying
+    @Query("update Room r set r.available = false, r.version = r.version + 1 where r.hotel.id = :hotelId")
+    int markUnavailableByHotelId(@Param("hotelId") Long hotelId);
+
+    /**
+     * Удалить номера отеля одним запросом (их блокировки уже удалены).
+     *
+     * @param hotelId идентификатор отеля
+     * @return сколько номеров удалено
+     */
+    @Modifying
+    @Query("delete from Room r where r.hotel.id = :hotelId")
+    int deleteAllByHotelId(@Param("hotelId") Long hotelId);
+
+    /**
+     * id отеля номера без загрузки сущности.
+     *
+     * @param roomId идентификатор номера
+     * @return id отеля или null, если номера нет
+     */
+    @Query("select r.hotel.id from Room r where r.id = :roomId")
+    Long findHotelIdById(@Param("roomId") Long roomId);
+
+    /**
+     * Различные отели, которым принадлежат номера.
+     *
+     * @param roomIds идентификаторы номеров
+     * @return id отелей
+     */
+    @Query("select distinct r.hotel.id from Room r where r.id in :roomIds")
+    List<Long> findHotelIdsByIdIn(@Param("roomIds") Collection<Long> roomIds);
 
+    /**
+     * Число номеров отеля в продаже или снятых с неё (idx_room_hotel_available_id).
+     *
+     * @param hotelId   идентификатор отеля
+     * @param available true — в продаже, false — сняты с продажи
+     * @return количество номеров
+     */
+    long countByHotel_IdAndAvailable(Long hotelId, boolean available);
+}
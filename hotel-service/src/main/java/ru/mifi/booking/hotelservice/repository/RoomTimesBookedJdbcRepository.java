@@ -0,0 +1,54 @@
+package ru.mifi.booking.hotelservice.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Запись счётчика rooms.times_booked из {@code TimesBookedCounter}: дельты за интервал — одним JDBC-батчем.
+ *
+ * <p>
+ * Инвариант счётчика: times_booked = число блокировок номера в room_locks (включая ещё не удалённые истёкшие hold-ы)
+ * + число перенесённых в room_lock_history. Поэтому его можно пересчитать с нуля, если в памяти что-то потерялось.
+ * </p>
+ */
+@Repository
+public class RoomTimesBookedJdbcRepository {
+
+    private static final String ADD_SQL =
+            "update rooms set times_booked = greatest(times_booked + ?, 0) where id = ?";
+    private static final String RECOMPUTE_SQL = """
+            update rooms r set times_booked =
+                (select count(*) from room_locks rl where rl.room_id = r.id)
+                + (select count(*) from room_lock_history h where h.room_id = r.id)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public RoomTimesBookedJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Прибавить дельты (не опускаясь ниже 0) одним батчем.
+     *
+     * @param deltas пары (roomId, дельта) в порядке обхода
+     * @return для каждой пары: 1 — номер обновлён, 0 — номера уже нет
+     */
+    public int[] addAll(List<Map.Entry<Long, Long>> deltas) {
+        return jdbcTemplate.batchUpdate(ADD_SQL, deltas.stream()
+                .map(d -> new Object[]{d.getValue(), d.getKey()})
+                .toList());
+    }
+
+    /**
+     * Пересчитать times_booked всех номеров из room_locks и room_lock_history.
+     *
+     * @return число обновлённых номеров
+     */
+    public int recomputeAll() {
+        return jdbcTemplate.update(RECOMPUTE_SQL);
+    }
+}
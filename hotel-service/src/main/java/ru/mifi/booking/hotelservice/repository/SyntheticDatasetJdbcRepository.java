@@ -0,0 +1,103 @@
+package ru.mifi.booking.hotelservice.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.mifi.booking.hotelservice.entity.Hotel;
+import ru.mifi.booking.hotelservice.entity.Room;
+
+import java.util.List;
+
+/**
+ * Массовая загрузка синтетического набора (профиль {@code dataset}) JDBC-батчами.
+ *
+ * <p>
+ * id отелей, номеров и блокировок берутся из набора, а не из последовательностей: так обе стороны
+ * (hotel-service и booking-service) получают одинаковые id без обмена данными. После загрузки
+ * {@link #restartIds} переводит последовательности и IDENTITY за максимальные id, чтобы обычные save
+ * и confirm продолжили нумерацию без пересечений.
+ * </p>
+ */
+@Repository
+public class SyntheticDatasetJdbcRepository {
+
+    private static final String INSERT_HOTEL_SQL = "insert into hotels (id, name, address, version) values (?, ?, ?, 0)";
+    private static final String INSERT_ROOM_SQL =
+            "insert into rooms (id, hotel_id, number, available, times_booked, version) values (?, ?, ?, true, ?, 0)";
+    private static final String INSERT_LOCK_SQL = """
+            insert into room_locks (id, room_id, start_date, end_date, booking_id, request_id, expires_at)
+            values (?, ?, ?, ?, ?, ?, null)
+            """;
+    private static final String INSERT_HISTORY_SQL = """
+            insert into room_lock_history (id, room_id, hotel_id, start_date, end_date, booking_id, request_id, archived_at)
+            values (?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SyntheticDatasetJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @return есть ли в каталоге хотя бы один отель
+     */
+    public boolean hasHotels() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("select exists(select 1 from hotels)", Boolean.class));
+    }
+
+    /**
+     * @param rows (id, name, address)
+     */
+    public void insertHotels(List<Object[]> rows) {
+        batch(INSERT_HOTEL_SQL, rows);
+    }
+
+    /**
+     * @param rows (id, hotel_id, number, times_booked)
+     */
+    public void insertRooms(List<Object[]> rows) {
+        batch(INSERT_ROOM_SQL, rows);
+    }
+
+    /**
+     * Подтверждённые (без срока) блокировки текущих и будущих проживаний.
+     *
+     * @param rows (id, room_id, start_date, end_date, booking_id, request_id)
+     */
+    public void insertLocks(List<Object[]> rows) {
+        batch(INSERT_LOCK_SQL, rows);
+    }
+
+    /**
+     * Прошедшие проживания — сразу в архив, как их перенесло бы задание архивации.
+     *
+     * @param rows (id, room_id, hotel_id, start_date, end_date, booking_id, request_id, archived_at)
+     */
+    public void insertHistory(List<Object[]> rows) {
+        batch(INSERT_HISTORY_SQL, rows);
+    }
+
+    /**
+     * Продолжить нумерацию после загруженных id.
+     *
+     * <p>
+     * Последовательность перезапускается с {@code max + allocationSize}: pooled-оптимизатор считает
+     * полученное значение верхней границей блока, поэтому первый новый id будет {@code max + 1}.
+     * </p>
+     *
+     * @param maxHotelId максимальный id отеля
+     * @param maxRoomId  максимальный id номера
+     * @param maxLockId  максимальный id блокировки (в том числе архивной)
+     */
+    public void restartIds(long maxHotelId, long maxRoomId, long maxLockId) {
+        jdbcTemplate.execute("alter sequence " + Hotel.ID_SEQUENCE + " restart with " + (maxHotelId + Hotel.ID_ALLOCATION_SIZE));
+        jdbcTemplate.execute("alter sequence " + Room.ID_SEQUENCE + " restart with " + (maxRoomId + Room.ID_ALLOCATION_SIZE));
+        jdbcTemplate.execute("alter table room_locks alter column id restart with " + (maxLockId + 1));
+    }
+
+    private void batch(String sql, List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, rows);
+        }
+    }
+}
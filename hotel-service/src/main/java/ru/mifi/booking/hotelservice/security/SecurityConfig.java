@@ -1,5 +1,6 @@
 package ru.mifi.booking.hotelservice.security;
 
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -49,8 +50,13 @@ public class SecurityConfig {
                 .csrf(csrf -> csrf.disable())
 
                 .authorizeHttpRequests(auth -> auth
+                        // Завершение SSE-потока (/api/rooms/changes) приходит ASYNC-диспетчеризацией без JWT:
+                        // доступ уже проверен на исходном запросе.
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+
                         // Actuator оставляем доступным для health/info (при желании можно тоже закрыть)
                         .requestMatchers("/actuator/health", "/actuator/info").permitAll()
+                        .requestMatchers("/actuator/metrics", "/actuator/metrics/**").hasRole("ADMIN")
 
                         // Swagger / OpenAPI (чтобы проверяющий мог открыть Swagger UI без токена)
                         .requestMatchers("/v3/api-docs/**", "/swagger-ui/**", "/swagger-ui.html").permitAll()
@@ -65,8 +71,12 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.PATCH, "/api/rooms/**").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.DELETE, "/api/rooms/**").hasRole("ADMIN")
 
-                        // ===== Статистика =====
+                        // ===== Статистика и обслуживание индекса доступности =====
                         .requestMatchers(HttpMethod.GET, "/api/rooms/stats").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.GET, "/api/rooms/stats/**").hasRole("ADMIN")
+                        .requestMatchers("/api/rooms/index/**").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.POST, "/api/rooms/archive").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.GET, "/api/hotels/*/occupancy").hasRole("ADMIN")
 
                         // ===== Публичные ручки (но только для аутентифицированных USER|ADMIN) =====
                         .requestMatchers(HttpMethod.GET, "/api/hotels/**").hasAnyRole("USER", "ADMIN")
@@ -74,6 +84,8 @@ public class SecurityConfig {
                         // ===== Internal endpoints (под 2.4 заложим SERVICE) =====
                         .requestMatchers(HttpMethod.POST, "/api/rooms/*/confirm-availability").hasRole("SERVICE")
                         .requestMatchers(HttpMethod.POST, "/api/rooms/*/release").hasRole("SERVICE")
+                        .requestMatchers(HttpMethod.POST, "/api/rooms/*/commit").hasRole("SERVICE")
+                        .requestMatchers(HttpMethod.POST, "/api/rooms/batch/**").hasRole("SERVICE")
 
                         // Всё остальное — только с валидным JWT
                         .anyRequest().authenticated()
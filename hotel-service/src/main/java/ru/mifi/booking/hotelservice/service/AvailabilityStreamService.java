@@ -0,0 +1,347 @@
+package ru.mifi.booking.hotelservice.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.mifi.booking.common.exception.ServiceUnavailableException;
+import ru.mifi.booking.hotelservice.availability.AvailabilityChangeLog;
+import ru.mifi.booking.hotelservice.dto.AvailabilityChangeDto;
+import ru.mifi.booking.hotelservice.dto.RoomDto;
+import ru.mifi.booking.hotelservice.event.RoomChangedEvent;
+import ru.mifi.booking.hotelservice.event.RoomLockChangedEvent;
+import ru.mifi.booking.hotelservice.event.RoomsImportedEvent;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Поток изменений доступности для партнёров (SSE) вместо опроса {@code /api/rooms} каждые несколько секунд.
+ *
+ * <p>
+ * После commit блокировки (создана/подтверждена/снята) и изменения номера (в т.ч. снятие с продажи)
+ * я записываю изменение в {@link AvailabilityChangeLog} с очередным seq и бужу подписчиков.
+ * seq — id SSE-события: переподключившийся клиент присылает Last-Event-ID (или ?since=) и получает
+ * пропущенное из буфера. Начальный seq берётся от текущего времени (мс × 1000), поэтому после
+ * перезапуска номера продолжают расти, а seq прошлого процесса просто не найдётся в буфере.
+ * </p>
+ *
+ * <p>
+ * Backpressure: подписчик — это только курсор в общем буфере, очереди на подписчика нет. Отправка идёт
+ * в ограниченном пуле changeStreamExecutor, не больше одной задачи на подписчика. Запись пачки в сокет
+ * идёт в changeStreamWriterExecutor (виртуальные потоки), и поток отправки ждёт её не дольше
+ * {@code hotel.changes.send-timeout-ms}: клиент, который перестал читать, отключается по этому сроку, а не держит
+ * поток отправки до таймаута сокета, поэтому остальных он задерживает не больше чем на send-timeout-ms.
+ * Отставший больше чем на {@code hotel.changes.buffer-size} изменений получает событие reset (id — текущий seq)
+ * и отключается: он перечитывает состояние и переподключается с этого seq.
+ * Число подписчиков ограничено {@code hotel.changes.max-subscribers}, сверх — 503.
+ * </p>
+ */
+@Service
+public class AvailabilityStreamService {
+
+    private static final Logger log = LoggerFactory.getLogger(AvailabilityStreamService.class);
+
+    static final String READY_EVENT = "ready";
+    static final String RESET_EVENT = "reset";
+
+    private final AvailabilityChangeLog changes;
+    private final ThreadPoolTaskExecutor executor;
+    private final AsyncTaskExecutor writer;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final int maxSubscribers;
+    private final int batchSize;
+    private final long emitterTimeoutMs;
+    private final long sendTimeoutMs;
+
+    public AvailabilityStreamService(
+            @Qualifier("changeStreamExecutor") ThreadPoolTaskExecutor executor,
+            @Qualifier("changeStreamWriterExecutor") AsyncTaskExecutor writer,
+            @Value("${hotel.changes.buffer-size:10000}") int bufferSize,
+            @Value("${hotel.changes.max-subscribers:100}") int maxSubscribers,
+            @Value("${hotel.changes.batch-size:100}") int batchSize,
+            @Value("${hotel.changes.emitter-timeout-ms:1800000}") long emitterTimeoutMs,
+            @Value("${hotel.changes.send-timeout-ms:10000}") long sendTimeoutMs
+    ) {
+        this.changes = new AvailabilityChangeLog(bufferSize, Instant.now().toEpochMilli() * 1000);
+        this.executor = executor;
+        this.writer = writer;
+        this.maxSubscribers = maxSubscribers;
+        this.batchSize = batchSize;
+        this.emitterTimeoutMs = emitterTimeoutMs;
+        this.sendTimeoutMs = sendTimeoutMs;
+    }
+
+    /**
+     * Подписаться на изменения.
+     *
+     * @param since seq последнего полученного изменения (null — только новые)
+     * @return SSE-поток: сначала ready (id — seq, с которого идёт поток), затем изменения по одному на событие
+     */
+    public SseEmitter subscribe(Long since) {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new ServiceUnavailableException("Too many change stream subscribers, retry later");
+        }
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, since == null ? changes.lastSeq() : since);
+        subscribers.add(subscriber);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(ex -> subscribers.remove(subscriber));
+        schedule(subscriber);
+        return emitter;
+    }
+
+    /**
+     * seq последнего изменения.
+     */
+    public long lastSeq() {
+        return changes.lastSeq();
+    }
+
+    /**
+     * Сколько подписчиков сейчас подключено.
+     */
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLockChanged(RoomLockChangedEvent event) {
+        AvailabilityChangeDto.Type type = switch (event.type()) {
+            case CREATED -> AvailabilityChangeDto.Type.LOCK_CREATED;
+            case COMMITTED -> AvailabilityChangeDto.Type.LOCK_COMMITTED;
+            case RELEASED -> AvailabilityChangeDto.Type.LOCK_RELEASED;
+            // Архивируются только прошедшие проживания: будущая доступность не меняется.
+            case ARCHIVED -> null;
+        };
+        if (type == null) {
+            return;
+        }
+        Instant now = Instant.now();
+        changes.append(seq -> new AvailabilityChangeDto(seq, type, event.roomId(), null, null, event.lockId(),
+                event.startDate(), event.endDate(), type == AvailabilityChangeDto.Type.LOCK_CREATED ? event.expiresAt() : null, now));
+        wakeUp();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRoomChanged(RoomChangedEvent event) {
+        appendRoom(event.type() == RoomChangedEvent.Type.DELETED
+                ? AvailabilityChangeDto.Type.ROOM_DELETED
+                : AvailabilityChangeDto.Type.ROOM_UPSERTED, event.room(), Instant.now());
+        wakeUp();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRoomsImported(RoomsImportedEvent event) {
+        Instant now = Instant.now();
+        for (RoomDto room : event.rooms()) {
+            appendRoom(AvailabilityChangeDto.Type.ROOM_UPSERTED, room, now);
+        }
+        wakeUp();
+    }
+
+    /**
+     * Heartbeat-комментарий: держит соединение через прокси и выявляет отвалившихся клиентов.
+     */
+    @Scheduled(fixedDelayString = "${hotel.changes.heartbeat-ms:15000}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.heartbeatDue = true;
+            schedule(subscriber);
+        }
+    }
+
+    @PreDestroy
+    public void closeAll() {
+        subscribers.forEach(s -> s.emitter.complete());
+        subscribers.clear();
+    }
+
+    private void appendRoom(AvailabilityChangeDto.Type type, RoomDto room, Instant now) {
+        changes.append(seq -> new AvailabilityChangeDto(seq, type, room.id(), room.hotelId(),
+                type == AvailabilityChangeDto.Type.ROOM_UPSERTED ? room.available() : null, null, null, null, null, now));
+    }
+
+    private void wakeUp() {
+        subscribers.forEach(this::schedule);
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (!subscriber.draining.compareAndSet(false, true)) {
+            return;
+        }
+        // wakeUp мог взять подписчика до того, как его отключили по send-timeout-ms: новая запись встала бы
+        // за висящей. detached выставляется до сброса draining, поэтому после успешного CAS он уже виден.
+        if (subscriber.detached) {
+            subscriber.draining.set(false);
+            return;
+        }
+        try {
+            executor.execute(() -> drain(subscriber));
+        } catch (TaskRejectedException ex) {
+            subscriber.draining.set(false);
+            log.warn("Change stream executor is full, disconnecting subscriber at seq {}", subscriber.cursor);
+            close(subscriber);
+        }
+    }
+
+    /**
+     * Отправить подписчику всё, что накопилось после его курсора, пачками по batch-size.
+     */
+    private void drain(Subscriber subscriber) {
+        try {
+            while (true) {
+                List<AvailabilityChangeDto> batch = changes.readAfter(subscriber.cursor, batchSize);
+                if (batch == null) {
+                    long seq = changes.lastSeq();
+                    log.info("Change stream subscriber fell behind the buffer at seq {}, sending reset to {}", subscriber.cursor, seq);
+                    write(subscriber, List.of(SseEmitter.event().id(Long.toString(seq)).name(RESET_EVENT).data(seq)));
+                    close(subscriber);
+                    return;
+                }
+                List<SseEmitter.SseEventBuilder> events = new ArrayList<>(batch.size() + 1);
+                // ready — только когда курсор найден в буфере: иначе клиент сразу получает reset.
+                if (!subscriber.ready) {
+                    events.add(SseEmitter.event()
+                            .id(Long.toString(subscriber.cursor)).name(READY_EVENT).data(subscriber.cursor));
+                }
+                for (AvailabilityChangeDto change : batch) {
+                    events.add(SseEmitter.event()
+                            .id(Long.toString(change.seq())).name(change.type().name()).data(change));
+                }
+                if (!events.isEmpty()) {
+                    write(subscriber, events);
+                }
+                subscriber.ready = true;
+                if (batch.isEmpty()) {
+                    break;
+                }
+                subscriber.cursor = batch.getLast().seq();
+                subscriber.heartbeatDue = false;
+            }
+            if (subscriber.heartbeatDue) {
+                subscriber.heartbeatDue = false;
+                write(subscriber, List.of(SseEmitter.event().comment("heartbeat")));
+            }
+        } catch (ClientStalled ex) {
+            // Запись висит в своём потоке и держит блокировку emitter-а: complete() здесь встал бы за ней.
+            // Emitter завершит сама запись, когда закончится (или Tomcat оборвёт её по своему таймауту).
+            log.warn("Change stream subscriber at seq {} did not accept data within {} ms, disconnecting",
+                    subscriber.cursor, sendTimeoutMs);
+            subscribers.remove(subscriber);
+            subscriber.detached = true;
+            if (ex.write.isDone()) {
+                close(subscriber);
+            }
+            return;
+        } catch (IOException | IllegalStateException ex) {
+            // Клиент отключился или поток уже закрыт.
+            close(subscriber);
+            return;
+        } finally {
+            subscriber.draining.set(false);
+        }
+        // Изменение могло прийти, пока draining был true: тогда его wakeUp не поставил задачу.
+        if (changes.lastSeq() > subscriber.cursor && subscribers.contains(subscriber)) {
+            schedule(subscriber);
+        }
+    }
+
+    /**
+     * Записать события в changeStreamWriterExecutor и дождаться не дольше send-timeout-ms.
+     *
+     * @throws ClientStalled запись не закончилась за send-timeout-ms (клиент не читает)
+     */
+    private void write(Subscriber subscriber, List<SseEmitter.SseEventBuilder> events) throws IOException {
+        Future<?> write;
+        try {
+            write = writer.submit(() -> {
+                try {
+                    for (SseEmitter.SseEventBuilder event : events) {
+                        subscriber.emitter.send(event);
+                    }
+                } finally {
+                    if (subscriber.detached) {
+                        close(subscriber);
+                    }
+                }
+                return null;
+            });
+        } catch (TaskRejectedException ex) {
+            throw new IOException("Too many pending change stream writes", ex);
+        }
+        try {
+            write.get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            throw new ClientStalled(write);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ClientStalled(write);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (ex.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    private void close(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+        try {
+            subscriber.emitter.complete();
+        } catch (IllegalStateException ignored) {
+            // уже завершён
+        }
+    }
+
+    private static final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        /** seq последнего отправленного изменения (пишется только из drain, под draining). */
+        private volatile long cursor;
+        private volatile boolean ready;
+        private volatile boolean heartbeatDue;
+        /** Отключён по send-timeout-ms, пока запись ещё шла: emitter завершает тот, кто закончит последним. */
+        private volatile boolean detached;
+
+        private Subscriber(SseEmitter emitter, long cursor) {
+            this.emitter = emitter;
+            this.cursor = cursor;
+        }
+    }
+
+    /**
+     * Запись подписчику не закончилась за send-timeout-ms. Без stack trace: это исход, а не сбой.
+     */
+    private static final class ClientStalled extends RuntimeException {
+
+        private final transient Future<?> write;
+
+        private ClientStalled(Future<?> write) {
+            super(null, null, false, false);
+            this.write = write;
+        }
+    }
+}
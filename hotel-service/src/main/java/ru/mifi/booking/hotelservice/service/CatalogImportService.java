@@ -0,0 +1,431 @@
+package ru.mifi.booking.hotelservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.mifi.booking.common.exception.BadRequestException;
+import ru.mifi.booking.hotelservice.dto.CatalogImportLine;
+import ru.mifi.booking.hotelservice.dto.ImportLineError;
+import ru.mifi.booking.hotelservice.dto.ImportReport;
+import ru.mifi.booking.hotelservice.dto.RoomDto;
+import ru.mifi.booking.hotelservice.entity.Hotel;
+import ru.mifi.booking.hotelservice.entity.Room;
+import ru.mifi.booking.hotelservice.event.RoomsImportedEvent;
+import ru.mifi.booking.hotelservice.repository.CatalogImportJdbcRepository;
+import ru.mifi.booking.hotelservice.repository.HotelRepository;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * ADMIN-импорт каталога (отели и номера) из NDJSON или CSV.
+ *
+ * <p>
+ * Тело читаю построчно, не собирая его в память: держу только текущую пачку ({@code hotel.import.batch-size} строк),
+ * словарь ref → id отелей этого импорта и не больше {@code hotel.import.max-errors} ошибок, поэтому память
+ * не растёт с числом номеров. Пачка пишется JDBC-батчем в своей транзакции; id заранее берутся блоками
+ * из последовательностей сущностей — ни загрузки отеля, ни INSERT с IDENTITY на каждую строку.
+ * </p>
+ *
+ * <p>
+ * Строка с ошибкой (разбор, валидация, неизвестный отель) попадает в отчёт и не мешает остальным.
+ * Если БД отвергла пачку (например, отель удалили посреди импорта), в отчёт уходят все её строки,
+ * а ref-ы её отелей забываются — номера, ссылающиеся на них ниже, тоже станут ошибками, а не нарушением FK.
+ * </p>
+ */
+@Service
+public class CatalogImportService {
+
+    public static final String TEXT_CSV_VALUE = "text/csv";
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogImportService.class);
+
+    private static final List<String> CSV_COLUMNS =
+            List.of("type", "ref", "name", "address", "hotelRef", "hotelId", "number", "available");
+
+    /**
+     * Формат тела: NDJSON (объект {@link CatalogImportLine} на строку) или CSV с заголовком из имён его полей.
+     */
+    public enum Format {
+        NDJSON, CSV;
+
+        public static Format of(MediaType contentType) {
+            return MediaType.APPLICATION_NDJSON.isCompatibleWith(contentType) ? NDJSON : CSV;
+        }
+    }
+
+    private final CatalogImportJdbcRepository importRepository;
+    private final HotelRepository hotelRepository;
+    private final ObjectReader lineReader;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+    private final int maxErrors;
+
+    public CatalogImportService(
+            CatalogImportJdbcRepository importRepository,
+            HotelRepository hotelRepository,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${hotel.import.batch-size:1000}") int batchSize,
+            @Value("${hotel.import.max-errors:1000}") int maxErrors
+    ) {
+        this.importRepository = importRepository;
+        this.hotelRepository = hotelRepository;
+        this.lineReader = objectMapper.readerFor(CatalogImportLine.class);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * Импортировать отели и номера.
+     *
+     * @param body   тело запроса (UTF-8), читается до конца
+     * @param format формат строк
+     * @return сколько создано и какие строки не импортированы
+     */
+    public ImportReport importCatalog(InputStream body, Format format) {
+        long startedAt = System.nanoTime();
+        Run run = new Run(format);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                run.accept(line);
+            }
+        } catch (IOException ex) {
+            throw new BadRequestException("Failed to read import body: " + ex.getMessage());
+        }
+        run.flush();
+
+        ImportReport report = run.report((System.nanoTime() - startedAt) / 1_000_000);
+        log.info("Catalog import ({}): {} lines, {} hotels, {} rooms, {} failed, {} batches in {} ms", format,
+                report.lines(), report.hotels(), report.rooms(), report.failedLines(), report.batches(), report.durationMs());
+        return report;
+    }
+
+    /**
+     * Разбить строку CSV на поля: разделитель — запятая, поле в двойных кавычках может содержать запятые,
+     * кавычка внутри него удваивается. Перевод строки внутри поля не поддерживается.
+     */
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>(CSV_COLUMNS.size());
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new LineRejected("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Состояние одного импорта.
+     */
+    private final class Run {
+
+        private final Format format;
+        private final Map<String, Long> hotelRefs = new HashMap<>();
+        private final Set<Long> existingHotels = new HashSet<>();
+        private final Set<Long> missingHotels = new HashSet<>();
+        private final IdBlock hotelIds = new IdBlock(Hotel.ID_SEQUENCE, Hotel.ID_ALLOCATION_SIZE);
+        private final IdBlock roomIds = new IdBlock(Room.ID_SEQUENCE, Room.ID_ALLOCATION_SIZE);
+        private final List<ImportLineError> errors = new ArrayList<>();
+        private int[] columns;
+        private int columnCount;
+
+        // Текущая пачка.
+        private final List<Object[]> hotelRows = new ArrayList<>();
+        private final List<Object[]> roomRows = new ArrayList<>();
+        private final List<RoomDto> rooms = new ArrayList<>();
+        private final List<Long> batchLines = new ArrayList<>();
+        private final List<String> batchRefs = new ArrayList<>();
+
+        private long lineNo;
+        private long lines;
+        private long failed;
+        private int hotelsCreated;
+        private long roomsCreated;
+        private int batches;
+
+        private Run(Format format) {
+            this.format = format;
+        }
+
+        private void accept(String line) {
+            lineNo++;
+            if (line.isBlank()) {
+                return;
+            }
+            if (format == Format.CSV && columns == null) {
+                columns = parseHeader(line);
+                return;
+            }
+            lines++;
+            try {
+                add(format == Format.NDJSON ? parseJson(line) : parseCsv(line));
+            } catch (LineRejected ex) {
+                fail(lineNo, ex.getMessage());
+                return;
+            }
+            batchLines.add(lineNo);
+            if (batchLines.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (batchLines.isEmpty()) {
+                return;
+            }
+            batches++;
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    importRepository.insertHotels(hotelRows);
+                    importRepository.insertRooms(roomRows);
+                    if (!rooms.isEmpty()) {
+                        eventPublisher.publishEvent(new RoomsImportedEvent(List.copyOf(rooms)));
+                    }
+                });
+                hotelsCreated += hotelRows.size();
+                roomsCreated += roomRows.size();
+            } catch (DataAccessException ex) {
+                String reason = "Batch rejected by database: " + ex.getMostSpecificCause().getMessage();
+                log.warn("Catalog import: batch {} (lines {}..{}) rejected", batches, batchLines.getFirst(), batchLines.getLast(), ex);
+                batchLines.forEach(n -> fail(n, reason));
+                batchRefs.forEach(hotelRefs::remove);
+            }
+            hotelRows.clear();
+            roomRows.clear();
+            rooms.clear();
+            batchLines.clear();
+            batchRefs.clear();
+        }
+
+        private ImportReport report(long durationMs) {
+            return new ImportReport(lines, hotelsCreated, roomsCreated, failed, List.copyOf(errors), failed > errors.size(),
+                    batches, durationMs);
+        }
+
+        private void add(CatalogImportLine line) {
+            String type = line.type() == null ? "" : line.type().trim().toLowerCase(Locale.ROOT);
+            switch (type) {
+                case "hotel" -> addHotel(line);
+                case "room" -> addRoom(line);
+                default -> throw new LineRejected("type must be hotel or room");
+            }
+        }
+
+        private void addHotel(CatalogImportLine line) {
+            String name = required(line.name(), "name");
+            String address = required(line.address(), "address");
+            String ref = blankToNull(line.ref());
+            if (ref != null && hotelRefs.containsKey(ref)) {
+                throw new LineRejected("Duplicate hotel ref " + ref);
+            }
+            long id = hotelIds.next();
+            hotelRows.add(new Object[]{id, name, address});
+            if (ref != null) {
+                hotelRefs.put(ref, id);
+                batchRefs.add(ref);
+            }
+        }
+
+        private void addRoom(CatalogImportLine line) {
+            String number = required(line.number(), "number");
+            Long hotelId = resolveHotel(line);
+            boolean available = line.available() == null || line.available();
+            long id = roomIds.next();
+            roomRows.add(new Object[]{id, hotelId, number, available});
+            rooms.add(new RoomDto(id, hotelId, number, available, 0));
+        }
+
+        private Long resolveHotel(CatalogImportLine line) {
+            String ref = blankToNull(line.hotelRef());
+            if (ref != null) {
+                Long id = hotelRefs.get(ref);
+                if (id == null) {
+                    throw new LineRejected("Unknown hotelRef " + ref);
+                }
+                return id;
+            }
+            Long id = line.hotelId();
+            if (id == null) {
+                throw new LineRejected("hotelRef or hotelId must be provided");
+            }
+            // Существование отеля проверяю один раз на id, а не на каждую строку.
+            if (!existingHotels.contains(id)) {
+                if (missingHotels.contains(id) || !hotelRepository.existsById(id)) {
+                    missingHotels.add(id);
+                    throw new LineRejected("Hotel " + id + " not found");
+                }
+                existingHotels.add(id);
+            }
+            return id;
+        }
+
+        private void fail(long line, String message) {
+            failed++;
+            if (errors.size() < maxErrors) {
+                errors.add(new ImportLineError(line, message));
+            }
+        }
+
+        private CatalogImportLine parseJson(String line) {
+            try {
+                return lineReader.readValue(line);
+            } catch (JsonProcessingException ex) {
+                throw new LineRejected("Invalid JSON: " + ex.getOriginalMessage());
+            }
+        }
+
+        /**
+         * Заголовок CSV: для каждой известной колонки — её позиция в строке (-1, если колонки нет).
+         */
+        private int[] parseHeader(String line) {
+            List<String> names;
+            try {
+                names = splitCsv(line);
+            } catch (LineRejected ex) {
+                throw new BadRequestException("Invalid CSV header: " + ex.getMessage());
+            }
+            int[] positions = new int[CSV_COLUMNS.size()];
+            Arrays.fill(positions, -1);
+            for (int i = 0; i < names.size(); i++) {
+                int column = CSV_COLUMNS.indexOf(names.get(i).trim());
+                if (column < 0) {
+                    throw new BadRequestException("Unknown CSV column: " + names.get(i).trim());
+                }
+                positions[column] = i;
+            }
+            if (positions[0] < 0) {
+                throw new BadRequestException("CSV header must contain column type");
+            }
+            columnCount = names.size();
+            return positions;
+        }
+
+        private CatalogImportLine parseCsv(String line) {
+            List<String> fields = splitCsv(line);
+            if (fields.size() != columnCount) {
+                throw new LineRejected("Expected " + columnCount + " columns, got " + fields.size());
+            }
+            String hotelId = blankToNull(field(fields, 5));
+            String available = blankToNull(field(fields, 7));
+            return new CatalogImportLine(field(fields, 0), field(fields, 1), field(fields, 2), field(fields, 3),
+                    field(fields, 4), hotelId == null ? null : parseId(hotelId), field(fields, 6),
+                    available == null ? null : parseBoolean(available));
+        }
+
+        private String field(List<String> fields, int column) {
+            int position = columns[column];
+            return position < 0 ? null : fields.get(position);
+        }
+    }
+
+    /**
+     * Блок id из последовательности: значение v резервирует (v - size, v] — так же, как pooled-оптимизатор Hibernate.
+     */
+    private final class IdBlock {
+
+        private final String sequence;
+        private final int size;
+        private long next = 1;
+        private long last;
+
+        private IdBlock(String sequence, int size) {
+            this.sequence = sequence;
+            this.size = size;
+        }
+
+        private long next() {
+            if (next > last) {
+                long hi = importRepository.nextBlock(sequence);
+                next = Math.max(hi - size + 1, 1);
+                last = hi;
+            }
+            return next++;
+        }
+    }
+
+    private static String required(String value, String field) {
+        if (value == null || value.isBlank()) {
+            throw new LineRejected(field + " must not be blank");
+        }
+        return value.trim();
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    private static Long parseId(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException ex) {
+            throw new LineRejected("hotelId must be a number");
+        }
+    }
+
+    private static Boolean parseBoolean(String value) {
+        if ("true".equalsIgnoreCase(value)) {
+            return true;
+        }
+        if ("false".equalsIgnoreCase(value)) {
+            return false;
+        }
+        throw new LineRejected("available must be true or false");
+    }
+
+    /**
+     * Строка не импортируется; причина — в отчёт. Без stack trace: это не сбой, а обычный исход строки.
+     */
+    private static final class LineRejected extends RuntimeException {
+
+        private LineRejected(String message) {
+            super(message, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package ru.mifi.booking.hotelservice.service;
+
+/**
+ * ETag отелей и номеров из версии сущности ({@code @Version}) и разбор If-Match.
+ *
+ * <p>
+ * ETag номера — {@code "версия.timesBooked"}: GET должен меняться и от броней. If-Match я сравниваю только по версии
+ * (часть до точки): PATCH меняет поля номера, а не счётчик, и брони между GET и PATCH не должны давать 412.
+ * </p>
+ */
+public final class EntityTags {
+
+    private EntityTags() {
+    }
+
+    public static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    public static String of(long version, long counter) {
+        return "\"" + version + "." + counter + "\"";
+    }
+
+    /**
+     * Выполнено ли условие If-Match для текущей версии.
+     *
+     * @param ifMatch значение заголовка: {@code *} или список ETag через запятую (слабые не совпадают никогда)
+     * @param version текущая версия сущности
+     * @return true, если какой-то ETag из списка указывает на эту версию
+     */
+    public static boolean matchesVersion(String ifMatch, long version) {
+        for (String token : ifMatch.split(",")) {
+            String tag = token.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.length() < 3 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+                continue;
+            }
+            String value = tag.substring(1, tag.length() - 1);
+            int dot = value.indexOf('.');
+            try {
+                if (Long.parseLong(dot < 0 ? value : value.substring(0, dot)) == version) {
+                    return true;
+                }
+            } catch (NumberFormatException ignored) {
+                // чужой ETag — просто не совпадает
+            }
+        }
+        return false;
+    }
+}
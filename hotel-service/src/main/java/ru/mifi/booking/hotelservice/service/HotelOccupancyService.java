@@ -0,0 +1,245 @@
+package ru.mifi.booking.hotelservice.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.mifi.booking.common.exception.BadRequestException;
+import ru.mifi.booking.common.exception.NotFoundException;
+import ru.mifi.booking.hotelservice.dto.HotelNightOccupancyDto;
+import ru.mifi.booking.hotelservice.dto.OccupancyRebuildReport;
+import ru.mifi.booking.hotelservice.repository.HotelNightOccupancyJdbcRepository;
+import ru.mifi.booking.hotelservice.repository.HotelRepository;
+import ru.mifi.booking.hotelservice.repository.RoomRepository;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Агрегат загрузки отелей по ночам (hotel_night_occupancy) для админских дашбордов.
+ *
+ * <p>
+ * Счётчик занятых номеров меняется в транзакциях confirm/release/удаления номера и отеля
+ * (включая групповые операции), поэтому "свободно номеров по ночам" читается из готовых строк,
+ * без room_locks. Полный пересчёт — {@link #rebuild()}: после старта, по cron и по запросу админа.
+ * Пересчитываются ночи с сегодняшней: прошедшие уже не меняются, а их room_nights удаляет архивирование блокировок.
+ * </p>
+ *
+ * <p>
+ * Пересчёт не должен пересекаться с инкрементальными изменениями: те работают под общей (read) частью
+ * {@link ReentrantReadWriteLock}, пересчёт отеля — под эксклюзивной. Тяжёлая часть (сравнение агрегата
+ * со всеми будущими room_nights) идёт без блокировки, эксклюзивно пересчитываются только разошедшиеся отели,
+ * по одному: confirm ждёт не весь пересчёт, а пересчёт одного отеля.
+ * Как и {@code RoomRangeLockManager}, это блокировка внутри JVM: hotel-service владеет своей БД в одном процессе.
+ * Захватывать её нужно до открытия транзакции и отпускать после commit.
+ * </p>
+ */
+@Service
+public class HotelOccupancyService {
+
+    private static final Logger log = LoggerFactory.getLogger(HotelOccupancyService.class);
+
+    static final int MAX_RANGE_NIGHTS = 366;
+    private static final int MAX_PREPARE_ATTEMPTS = 3;
+
+    private final HotelNightOccupancyJdbcRepository occupancyRepository;
+    private final HotelRepository hotelRepository;
+    private final RoomRepository roomRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ReentrantReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+
+    public HotelOccupancyService(
+            HotelNightOccupancyJdbcRepository occupancyRepository,
+            HotelRepository hotelRepository,
+            RoomRepository roomRepository,
+            PlatformTransactionManager transactionManager
+    ) {
+        this.occupancyRepository = occupancyRepository;
+        this.hotelRepository = hotelRepository;
+        this.roomRepository = roomRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Войти в инкрементальное изменение агрегата (несколько таких идут параллельно, но не с пересчётом отеля).
+     *
+     * @return handle, который нужно закрыть после commit (try-with-resources)
+     */
+    public Handle shared() {
+        Lock lock = rebuildLock.readLock();
+        lock.lock();
+        return new Handle(lock);
+    }
+
+    /**
+     * Подготовить строки ночей [start, end) отеля до транзакции, чтобы в ней остался только UPDATE.
+     * Вызывать под {@link #shared()} и вне транзакции: строки с нулём безвредны, даже если confirm потом откатится.
+     *
+     * @param hotelId отель (null — номер не найден, транзакция сама ответит 404)
+     */
+    public void prepare(Long hotelId, LocalDate start, LocalDate end) {
+        if (hotelId == null) {
+            return;
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                occupancyRepository.insertMissingNights(hotelId, start, end);
+                return;
+            } catch (DuplicateKeyException ex) {
+                // Ту же ночь отеля только что создал параллельный confirm — перечитываю недостающие.
+                if (attempt >= MAX_PREPARE_ATTEMPTS) {
+                    throw ex;
+                }
+            }
+        }
+    }
+
+    /**
+     * Занято ещё count номеров отеля на ночи [start, end). Вызывать в транзакции, после {@link #prepare}.
+     */
+    public void locksCreated(Long hotelId, LocalDate start, LocalDate end, int count) {
+        int updated = occupancyRepository.add(hotelId, start, end, count);
+        long nights = ChronoUnit.DAYS.between(start, end);
+        if (updated != nights) {
+            // Строки не подготовлены (вызов мимо prepare) — агрегат поправит ближайший rebuild.
+            log.warn("Occupancy rows missing for hotel {} [{}, {}): updated {} of {}", hotelId, start, end, updated, nights);
+        }
+    }
+
+    /**
+     * Освобождена блокировка номера отеля на [start, end). Вызывать в транзакции release.
+     */
+    public void lockReleased(Long hotelId, LocalDate start, LocalDate end) {
+        occupancyRepository.add(hotelId, start, end, -1);
+    }
+
+    /**
+     * Освобождено несколько блокировок (групповой release): delta каждого элемента — сколько номеров освободилось.
+     */
+    public void locksReleased(List<HotelNightOccupancyJdbcRepository.Delta> released) {
+        occupancyRepository.addAll(released.stream()
+                .map(d -> new HotelNightOccupancyJdbcRepository.Delta(d.hotelId(), d.startDate(), d.endDate(), -d.delta()))
+                .toList());
+    }
+
+    /**
+     * Номер удаляется: вычесть его занятые ночи. Вызывать в транзакции до удаления блокировок номера.
+     */
+    public void roomDeleted(Long hotelId, Long roomId) {
+        occupancyRepository.subtractRoomNights(hotelId, roomId);
+    }
+
+    /**
+     * Отель удаляется: удалить его строки. Вызывать в транзакции удаления отеля.
+     *
+     * @return сколько строк удалено
+     */
+    public int hotelDeleted(Long hotelId) {
+        return occupancyRepository.deleteHotel(hotelId);
+    }
+
+    /**
+     * Свободные номера отеля по ночам [start, end). Считаются только номера в продаже: снятые с продажи
+     * (в том числе при удалении отеля пачками) не свободны и не заняты, их число — отдельным полем.
+     *
+     * @param hotelId идентификатор отеля
+     * @param start   первая ночь
+     * @param end     конец периода (исключительно), не дальше {@value #MAX_RANGE_NIGHTS} ночей от start
+     * @return по строке на каждую ночь периода
+     */
+    public List<HotelNightOccupancyDto> freeRooms(Long hotelId, LocalDate start, LocalDate end) {
+        if (start == null || end == null || !start.isBefore(end)) {
+            throw new BadRequestException("start must be before end");
+        }
+        if (ChronoUnit.DAYS.between(start, end) > MAX_RANGE_NIGHTS) {
+            throw new BadRequestException("Range must not exceed " + MAX_RANGE_NIGHTS + " nights");
+        }
+        if (!hotelRepository.existsById(hotelId)) {
+            throw new NotFoundException("Hotel " + hotelId + " not found");
+        }
+
+        long onSale = roomRepository.countByHotel_IdAndAvailable(hotelId, true);
+        long offSale = roomRepository.countByHotel_IdAndAvailable(hotelId, false);
+        Map<LocalDate, Integer> occupied = occupancyRepository.findOccupied(hotelId, start, end);
+        // Агрегат считает блокировки всех номеров; занятые номера вне продажи вычитаю (их обычно нет).
+        Map<LocalDate, Integer> occupiedOffSale = offSale == 0
+                ? Map.of()
+                : occupancyRepository.findOccupiedOffSale(hotelId, start, end);
+
+        List<HotelNightOccupancyDto> nights = new ArrayList<>((int) ChronoUnit.DAYS.between(start, end));
+        for (LocalDate night = start; night.isBefore(end); night = night.plusDays(1)) {
+            long taken = Math.max(occupied.getOrDefault(night, 0) - occupiedOffSale.getOrDefault(night, 0), 0);
+            nights.add(new HotelNightOccupancyDto(night, onSale, taken, Math.max(onSale - taken, 0), offSale));
+        }
+        return nights;
+    }
+
+    /**
+     * Первичный пересчёт после старта (когда уже отработали инициализаторы данных).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Сверить агрегат с room_nights (ночи блокировок room_locks) и пересчитать разошедшиеся отели.
+     * Инкрементальные изменения ждут только пересчёта одного отеля, а не всей сверки.
+     *
+     * @return сколько отелей и строк пересчитано и сколько это заняло
+     */
+    @Scheduled(cron = "${hotel.occupancy.rebuild-cron:0 30 3 * * *}")
+    public OccupancyRebuildReport rebuild() {
+        long startedAt = System.nanoTime();
+        LocalDate from = LocalDate.now();
+        List<Long> drifted = occupancyRepository.findDriftedHotels(from);
+        int rows = 0;
+        for (Long hotelId : drifted) {
+            Lock lock = rebuildLock.writeLock();
+            lock.lock();
+            try {
+                Integer hotelRows = transactionTemplate.execute(status -> occupancyRepository.rebuildHotel(hotelId, from));
+                rows += hotelRows == null ? 0 : hotelRows;
+            } finally {
+                lock.unlock();
+            }
+        }
+        OccupancyRebuildReport report = new OccupancyRebuildReport(
+                drifted.size(), rows, (System.nanoTime() - startedAt) / 1_000_000);
+        log.info("Hotel occupancy rebuilt: {} drifted hotels, {} rows in {} ms",
+                report.hotels(), report.rows(), report.durationMs());
+        return report;
+    }
+
+    /**
+     * Захваченная общая часть блокировки пересчёта.
+     */
+    public static final class Handle implements AutoCloseable {
+
+        private final Lock lock;
+        private boolean closed;
+
+        private Handle(Lock lock) {
+            this.lock = lock;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            lock.unlock();
+        }
+    }
+}
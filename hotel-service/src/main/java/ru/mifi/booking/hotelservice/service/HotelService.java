@@ -1,17 +1,33 @@
 package ru.mifi.booking.hotelservice.service;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.mifi.booking.common.exception.BadRequestException;
+import ru.mifi.booking.common.exception.ConflictException;
 import ru.mifi.booking.common.exception.NotFoundException;
+import ru.mifi.booking.common.exception.PreconditionFailedException;
+import ru.mifi.booking.hotelservice.dto.DeleteReport;
 import ru.mifi.booking.hotelservice.dto.HotelDto;
+import ru.mifi.booking.hotelservice.dto.HotelNightOccupancyDto;
+import ru.mifi.booking.hotelservice.dto.HotelsVersionDto;
+import ru.mifi.booking.hotelservice.dto.RoomDto;
+import ru.mifi.booking.hotelservice.dto.Tagged;
 import ru.mifi.booking.hotelservice.dto.UpdateHotelRequest;
 import ru.mifi.booking.hotelservice.entity.Hotel;
-import ru.mifi.booking.hotelservice.entity.Room;
+import ru.mifi.booking.hotelservice.event.RoomChangedEvent;
 import ru.mifi.booking.hotelservice.repository.HotelRepository;
+import ru.mifi.booking.hotelservice.repository.RoomLockHistoryRepository;
+import ru.mifi.booking.hotelservice.repository.RoomLockJdbcRepository;
 import ru.mifi.booking.hotelservice.repository.RoomLockRepository;
 import ru.mifi.booking.hotelservice.repository.RoomRepository;
 
+import java.time.LocalDate;
 import java.util.List;
 
 /**
@@ -20,18 +36,41 @@ import java.util.List;
 @Service
 public class HotelService {
 
+    private static final Logger log = LoggerFactory.getLogger(HotelService.class);
+
     private final HotelRepository hotelRepository;
     private final RoomRepository roomRepository;
     private final RoomLockRepository roomLockRepository;
+    private final RoomLockJdbcRepository roomLockJdbcRepository;
+    private final RoomLockHistoryRepository roomLockHistoryRepository;
+    private final HotelOccupancyService occupancy;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTx;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int deleteBatchSize;
 
     public HotelService(
             HotelRepository hotelRepository,
             RoomRepository roomRepository,
-            RoomLockRepository roomLockRepository
+            RoomLockRepository roomLockRepository,
+            RoomLockJdbcRepository roomLockJdbcRepository,
+            RoomLockHistoryRepository roomLockHistoryRepository,
+            HotelOccupancyService occupancy,
+            PlatformTransactionManager transactionManager,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${hotel.delete.batch-size:5000}") int deleteBatchSize
     ) {
         this.hotelRepository = hotelRepository;
         this.roomRepository = roomRepository;
         this.roomLockRepository = roomLockRepository;
+        this.roomLockJdbcRepository = roomLockJdbcRepository;
+        this.roomLockHistoryRepository = roomLockHistoryRepository;
+        this.occupancy = occupancy;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.eventPublisher = eventPublisher;
+        this.deleteBatchSize = deleteBatchSize;
     }
 
     /**
@@ -48,12 +87,15 @@ public class HotelService {
     /**
      * Получить список отелей.
      *
+     * <p>
+     * Чтение идёт проекцией в {@link HotelDto} в read-only транзакции: сущности не загружаются,
+     * поэтому нет ни lazy-загрузок, ни flush с dirty checking на выходе.
+     * </p>
+     *
      * @return список отелей
      */
     public List<HotelDto> list() {
-        return hotelRepository.findAll().stream()
-                .map(this::toDto)
-                .toList();
+        return readOnlyTx.execute(status -> hotelRepository.findAllAsDto());
     }
 
     /**
@@ -63,7 +105,31 @@ public class HotelService {
      * @return отель
      */
     public HotelDto get(Long id) {
-        return toDto(getOrThrow(id));
+        return readOnlyTx.execute(status -> hotelRepository.findDtoById(id))
+                .orElseThrow(() -> notFound(id));
+    }
+
+    /**
+     * ETag отеля для условного GET: одна колонка по первичному ключу, отель не загружается.
+     * Читаю его до самого отеля — так ETag никогда не новее отданного тела.
+     *
+     * @param id идентификатор отеля
+     * @return ETag в кавычках
+     */
+    public String etag(Long id) {
+        return readOnlyTx.execute(status -> hotelRepository.findVersionById(id))
+                .map(EntityTags::of)
+                .orElseThrow(() -> notFound(id));
+    }
+
+    /**
+     * ETag списка отелей: агрегат по таблице (число, сумма id, сумма версий) без чтения строк в приложение.
+     *
+     * @return ETag в кавычках
+     */
+    public String listEtag() {
+        HotelsVersionDto version = readOnlyTx.execute(status -> hotelRepository.findListVersion());
+        return "\"" + version.count() + "-" + version.idSum() + "-" + version.versionSum() + "\"";
     }
 
     /**
@@ -73,9 +139,39 @@ public class HotelService {
      * @param req запрос обновления
      * @return обновлённый отель
      */
-    @Transactional
     public HotelDto update(Long id, UpdateHotelRequest req) {
+        return update(id, req, null).body();
+    }
+
+    /**
+     * Частичное обновление отеля, если он не изменился с прочитанной версии (If-Match).
+     *
+     * <p>
+     * Строку не блокирую: версию сверяю с {@code @Version}, а одновременную правку между проверкой и commit
+     * ловит UPDATE по версии. Без If-Match такая гонка — 409, с If-Match — 412.
+     * </p>
+     *
+     * @param id      идентификатор отеля
+     * @param req     запрос обновления
+     * @param ifMatch значение If-Match (null — без условия)
+     * @return обновлённый отель и его новый ETag
+     */
+    public Tagged<HotelDto> update(Long id, UpdateHotelRequest req, String ifMatch) {
+        try {
+            return transactionTemplate.execute(status -> updateHotel(id, req, ifMatch));
+        } catch (OptimisticLockingFailureException ex) {
+            if (ifMatch != null) {
+                throw new PreconditionFailedException("Hotel " + id + " was modified concurrently");
+            }
+            throw new ConflictException("Hotel " + id + " was modified concurrently, retry");
+        }
+    }
+
+    private Tagged<HotelDto> updateHotel(Long id, UpdateHotelRequest req, String ifMatch) {
         Hotel hotel = getOrThrow(id);
+        if (ifMatch != null && !EntityTags.matchesVersion(ifMatch, hotel.getVersion())) {
+            throw new PreconditionFailedException("Hotel " + id + " was modified: version is " + hotel.getVersion());
+        }
 
         boolean changed = false;
 
@@ -101,7 +197,8 @@ public class HotelService {
             throw new BadRequestException("At least one field must be provided for PATCH");
         }
 
-        return toDto(hotel);
+        hotelRepository.flush();
+        return new Tagged<>(toDto(hotel), EntityTags.of(hotel.getVersion()));
     }
 
     /**
@@ -109,21 +206,93 @@ public class HotelService {
      *
      * <p>
      * Я удаляю связанные комнаты и их блокировки, чтобы не нарушить ссылочную целостность.
+     * У отеля за годы работы блокировок может быть миллионы, поэтому одна транзакция на всё не годится:
+     * </p>
+     * <ol>
+     *     <li>номера отеля снимаются с продажи — новые confirm на них получают 409;</li>
+     *     <li>блокировки (с ночами — каскадом) и архив удаляются set-based DELETE пачками по
+     *     {@code hotel.delete.batch-size}, каждая пачка — своя транзакция, прогресс пишется в лог;</li>
+     *     <li>последняя транзакция удаляет остаток блокировок, агрегат загрузки, номера и сам отель.</li>
+     * </ol>
+     * <p>
+     * Если удаление прервётся, отель останется с номерами вне продажи — повторный DELETE доудалит его.
      * </p>
      *
      * @param id идентификатор отеля
+     * @return сколько строк удалено и за сколько пачек
      */
-    @Transactional
-    public void delete(Long id) {
-        Hotel hotel = getOrThrow(id);
+    public DeleteReport delete(Long id) {
+        long startedAt = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> withdrawRooms(id));
 
-        List<Room> rooms = roomRepository.findAllByHotelId(id);
-        for (Room room : rooms) {
-            roomLockRepository.deleteAllByRoom_Id(room.getId());
+        long locks = 0;
+        long archived = 0;
+        int batches = 0;
+        int deleted;
+        do {
+            deleted = transactionTemplate.execute(status -> roomLockJdbcRepository.deleteOfHotel(id, deleteBatchSize));
+            locks += deleted;
+            logProgress(id, ++batches, locks, archived);
+        } while (deleted >= deleteBatchSize);
+        do {
+            deleted = transactionTemplate.execute(status -> roomLockJdbcRepository.deleteHistoryOfHotel(id, deleteBatchSize));
+            archived += deleted;
+            logProgress(id, ++batches, locks, archived);
+        } while (deleted >= deleteBatchSize);
+
+        DeleteReport tail;
+        try (HotelOccupancyService.Handle ignored = occupancy.shared()) {
+            tail = transactionTemplate.execute(status -> deleteHotel(id));
         }
+        DeleteReport report = new DeleteReport(tail.rooms(), locks + tail.locks(), archived + tail.archivedLocks(),
+                tail.occupancyRows(), batches + 1, (System.nanoTime() - startedAt) / 1_000_000);
+        log.info("Hotel {} deleted: {}", id, report);
+        return report;
+    }
+
+    /**
+     * ADMIN: свободные номера отеля по ночам за период (из агрегата загрузки).
+     *
+     * @param id    идентификатор отеля
+     * @param start первая ночь
+     * @param end   конец периода (исключительно)
+     * @return по строке на каждую ночь
+     */
+    public List<HotelNightOccupancyDto> occupancy(Long id, LocalDate start, LocalDate end) {
+        return occupancy.freeRooms(id, start, end);
+    }
+
+    private void withdrawRooms(Long id) {
+        getOrThrow(id);
+        if (roomRepository.markUnavailableByHotelId(id) == 0) {
+            return;
+        }
+        for (RoomDto room : roomRepository.findAllAsDtoByHotelId(id)) {
+            eventPublisher.publishEvent(new RoomChangedEvent(RoomChangedEvent.Type.UPSERTED, room));
+        }
+    }
+
+    private DeleteReport deleteHotel(Long id) {
+        Hotel hotel = getOrThrow(id);
+        List<RoomDto> rooms = roomRepository.findAllAsDtoByHotelId(id);
 
-        roomRepository.deleteAll(rooms);
+        // Остаток: confirm, успевшие проверить номер до снятия с продажи.
+        int locks = roomLockRepository.deleteAllByHotelId(id);
+        int archived = roomLockHistoryRepository.deleteAllByHotelId(id);
+        int occupancyRows = occupancy.hotelDeleted(id);
+        int deletedRooms = roomRepository.deleteAllByHotelId(id);
         hotelRepository.delete(hotel);
+
+        for (RoomDto room : rooms) {
+            eventPublisher.publishEvent(new RoomChangedEvent(RoomChangedEvent.Type.DELETED, room));
+        }
+        return new DeleteReport(deletedRooms, locks, archived, occupancyRows, 1, 0);
+    }
+
+    private void logProgress(Long id, int batch, long locks, long archived) {
+        if (batch % 10 == 0) {
+            log.info("Deleting hotel {}: batch {}, {} room locks and {} archived locks deleted so far", id, batch, locks, archived);
+        }
     }
 
     /**
@@ -134,7 +303,22 @@ public class HotelService {
      */
     public Hotel getOrThrow(Long id) {
         return hotelRepository.findById(id)
-                .orElseThrow(() -> new NotFoundException("Hotel " + id + " not found"));
+                .orElseThrow(() -> notFound(id));
+    }
+
+    /**
+     * Проверить, что отель есть, не загружая сущность (404 Not Found, если нет).
+     *
+     * @param id идентификатор отеля
+     */
+    public void requireExists(Long id) {
+        if (!hotelRepository.existsById(id)) {
+            throw notFound(id);
+        }
+    }
+
+    private static NotFoundException notFound(Long id) {
+        return new NotFoundException("Hotel " + id + " not found");
     }
 
     private HotelDto toDto(Hotel hotel) {
@@ -0,0 +1,267 @@
+package ru.mifi.booking.hotelservice.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.mifi.booking.common.exception.BadRequestException;
+import ru.mifi.booking.common.exception.ConflictException;
+import ru.mifi.booking.common.exception.NotFoundException;
+import ru.mifi.booking.hotelservice.availability.LockSpan;
+import ru.mifi.booking.hotelservice.dto.BatchConfirmAvailabilityRequest;
+import ru.mifi.booking.hotelservice.dto.BatchConfirmResult;
+import ru.mifi.booking.hotelservice.dto.BatchReleaseRequest;
+import ru.mifi.booking.hotelservice.dto.BatchReleaseResult;
+import ru.mifi.booking.hotelservice.entity.Room;
+import ru.mifi.booking.hotelservice.entity.RoomLock;
+import ru.mifi.booking.hotelservice.event.RoomLockChangedEvent;
+import ru.mifi.booking.hotelservice.lock.RoomRangeLockManager;
+import ru.mifi.booking.hotelservice.repository.HotelNightOccupancyJdbcRepository;
+import ru.mifi.booking.hotelservice.repository.RoomLockJdbcRepository;
+import ru.mifi.booking.hotelservice.repository.RoomLockRepository;
+import ru.mifi.booking.hotelservice.repository.RoomNightJdbcRepository;
+import ru.mifi.booking.hotelservice.repository.RoomNightRepository;
+import ru.mifi.booking.hotelservice.repository.RoomRepository;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Групповые операции confirm/release для корпоративных броней (десятки номеров на одни даты).
+ *
+ * <p>
+ * Вместо N отдельных саг и транзакций — один вызов "всё или ничего":
+ * периоды номеров захватываются в порядке возрастания roomId (детерминированный порядок — нет взаимных блокировок
+ * ни между группами, ни с одиночными confirm), пересечения проверяются одним запросом по room_nights,
+ * а шапки и ночи вставляются JDBC-батчами. Идемпотентность — по requestId каждого номера, как в одиночном confirm.
+ * Блокировки группы создаются hold-ами и подтверждаются вместе через {@link RoomHoldService#commit(ru.mifi.booking.hotelservice.dto.BatchCommitRequest)}.
+ * </p>
+ */
+@Service
+public class RoomBatchService {
+
+    private static final Logger log = LoggerFactory.getLogger(RoomBatchService.class);
+
+    private final RoomRepository roomRepository;
+    private final RoomLockRepository roomLockRepository;
+    private final RoomLockJdbcRepository roomLockJdbcRepository;
+    private final RoomNightRepository roomNightRepository;
+    private final RoomNightJdbcRepository roomNightJdbcRepository;
+    private final RoomRangeLockManager rangeLocks;
+    private final HotelOccupancyService occupancy;
+    private final RoomHoldService holds;
+    private final TimesBookedCounter timesBooked;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public RoomBatchService(
+            RoomRepository roomRepository,
+            RoomLockRepository roomLockRepository,
+            RoomLockJdbcRepository roomLockJdbcRepository,
+            RoomNightRepository roomNightRepository,
+            RoomNightJdbcRepository roomNightJdbcRepository,
+            RoomRangeLockManager rangeLocks,
+            HotelOccupancyService occupancy,
+            RoomHoldService holds,
+            TimesBookedCounter timesBooked,
+            PlatformTransactionManager transactionManager,
+            ApplicationEventPublisher eventPublisher
+    ) {
+        this.roomRepository = roomRepository;
+        this.roomLockRepository = roomLockRepository;
+        this.roomLockJdbcRepository = roomLockJdbcRepository;
+        this.roomNightRepository = roomNightRepository;
+        this.roomNightJdbcRepository = roomNightJdbcRepository;
+        this.rangeLocks = rangeLocks;
+        this.occupancy = occupancy;
+        this.holds = holds;
+        this.timesBooked = timesBooked;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * INTERNAL: заблокировать группу номеров на один период — все или ни одного.
+     *
+     * @param req номера группы и период
+     * @return сколько блокировок создано и сколько requestId уже были обработаны
+     */
+    public BatchConfirmResult confirm(BatchConfirmAvailabilityRequest req) {
+        validateRange(req.startDate(), req.endDate());
+        List<BatchConfirmAvailabilityRequest.Item> items = req.rooms();
+        requireDistinct(items, BatchConfirmAvailabilityRequest.Item::roomId, "roomId");
+        requireDistinct(items, BatchConfirmAvailabilityRequest.Item::bookingId, "bookingId");
+        requireDistinct(items, BatchConfirmAvailabilityRequest.Item::requestId, "requestId");
+
+        List<Long> roomIds = items.stream().map(BatchConfirmAvailabilityRequest.Item::roomId).sorted().toList();
+
+        List<RoomRangeLockManager.Handle> handles = new ArrayList<>(roomIds.size());
+        HotelOccupancyService.Handle occupancyHandle = null;
+        try {
+            for (Long roomId : roomIds) {
+                handles.add(rangeLocks.acquire(roomId, req.startDate(), req.endDate()));
+            }
+            occupancyHandle = occupancy.shared();
+            for (Long hotelId : roomRepository.findHotelIdsByIdIn(roomIds)) {
+                occupancy.prepare(hotelId, req.startDate(), req.endDate());
+            }
+            return transactionTemplate.execute(status -> createLocks(req));
+        } catch (DataIntegrityViolationException ex) {
+            // requestId группы "влетели" параллельным повтором — если все они уже есть, это идемпотентный успех.
+            Set<String> requestIds = items.stream().map(BatchConfirmAvailabilityRequest.Item::requestId).collect(Collectors.toSet());
+            if (roomLockRepository.findExistingRequestIds(requestIds).size() == requestIds.size()) {
+                log.debug("batch confirm idempotent after save-race: rooms={}", roomIds);
+                return new BatchConfirmResult(0, requestIds.size());
+            }
+            throw ex;
+        } finally {
+            if (occupancyHandle != null) {
+                occupancyHandle.close();
+            }
+            for (int i = handles.size() - 1; i >= 0; i--) {
+                handles.get(i).close();
+            }
+        }
+    }
+
+    /**
+     * INTERNAL: снять блокировки группы. Отсутствующие bookingId пропускаются (как в одиночном release).
+     *
+     * @param req пары (номер, бронирование)
+     * @return сколько блокировок снято
+     */
+    public BatchReleaseResult release(BatchReleaseRequest req) {
+        try (HotelOccupancyService.Handle ignored = occupancy.shared()) {
+            return transactionTemplate.execute(status -> releaseLocks(req));
+        }
+    }
+
+    private BatchReleaseResult releaseLocks(BatchReleaseRequest req) {
+        Map<String, Long> roomByBooking = new HashMap<>();
+        for (BatchReleaseRequest.Item item : req.rooms()) {
+            roomByBooking.put(item.bookingId(), item.roomId());
+        }
+
+        // Доп.страховка как в одиночном release: снимаю только блокировки, относящиеся к указанному номеру.
+        List<RoomLock> released = roomLockRepository.findAllByBookingIdIn(roomByBooking.keySet()).stream()
+                .filter(l -> l.getRoom().getId().equals(roomByBooking.get(l.getBookingId())))
+                .toList();
+        if (released.isEmpty()) {
+            return new BatchReleaseResult(0);
+        }
+        // Reaper мог успеть удалить часть истёкших hold-ов: учитываю только реально удалённые строки.
+        int[] deleted = roomLockJdbcRepository.deleteAll(released.stream().map(RoomLock::getId).toList());
+        List<RoomLock> actuallyReleased = new ArrayList<>(released.size());
+        for (int i = 0; i < deleted.length; i++) {
+            if (deleted[i] > 0) {
+                actuallyReleased.add(released.get(i));
+            }
+        }
+        if (actuallyReleased.isEmpty()) {
+            return new BatchReleaseResult(0);
+        }
+        List<LockSpan> locks = actuallyReleased.stream()
+                .map(l -> new LockSpan(l.getId(), l.getRoom().getId(), l.getStartDate(), l.getEndDate()))
+                .toList();
+        occupancy.locksReleased(actuallyReleased.stream()
+                .map(l -> new HotelNightOccupancyJdbcRepository.Delta(
+                        l.getRoom().getHotel().getId(), l.getStartDate(), l.getEndDate(), 1))
+                .toList());
+
+        Map<Long, Long> releasedPerRoom = locks.stream()
+                .collect(Collectors.groupingBy(LockSpan::roomId, Collectors.counting()));
+        timesBooked.decrementAll(releasedPerRoom);
+
+        for (LockSpan lock : locks) {
+            eventPublisher.publishEvent(new RoomLockChangedEvent(
+                    RoomLockChangedEvent.Type.RELEASED, lock.lockId(), lock.roomId(), lock.startDate(), lock.endDate(), null));
+        }
+        return new BatchReleaseResult(locks.size());
+    }
+
+    private BatchConfirmResult createLocks(BatchConfirmAvailabilityRequest req) {
+        Set<String> existing = new HashSet<>(roomLockRepository.findExistingRequestIds(
+                req.rooms().stream().map(BatchConfirmAvailabilityRequest.Item::requestId).toList()));
+        List<BatchConfirmAvailabilityRequest.Item> pending = req.rooms().stream()
+                .filter(item -> !existing.contains(item.requestId()))
+                .toList();
+        if (pending.isEmpty()) {
+            log.debug("batch confirm idempotent hit: {} requestIds", existing.size());
+            return new BatchConfirmResult(0, existing.size());
+        }
+
+        List<Long> roomIds = pending.stream().map(BatchConfirmAvailabilityRequest.Item::roomId).toList();
+        Map<Long, Room> rooms = roomRepository.findAllById(roomIds).stream()
+                .collect(Collectors.toMap(Room::getId, Function.identity()));
+
+        List<Long> missing = roomIds.stream().filter(id -> !rooms.containsKey(id)).toList();
+        if (!missing.isEmpty()) {
+            throw new NotFoundException("Rooms not found: " + missing);
+        }
+        List<Long> notOperational = roomIds.stream().filter(id -> !rooms.get(id).isAvailable()).toList();
+        if (!notOperational.isEmpty()) {
+            throw new ConflictException("Rooms are not operational: " + notOperational);
+        }
+        holds.expireOverlapping(roomIds, req.startDate(), req.endDate());
+        List<Long> occupied = roomNightRepository.findOccupiedRoomIds(roomIds, req.startDate(), req.endDate());
+        if (!occupied.isEmpty()) {
+            throw new ConflictException("Rooms are not available for this period: " + occupied.stream().sorted().toList());
+        }
+
+        Instant expiresAt = holds.newExpiry();
+        roomLockJdbcRepository.insertAll(pending.stream()
+                .map(item -> new RoomLockJdbcRepository.NewLock(
+                        item.roomId(), req.startDate(), req.endDate(), item.bookingId(), item.requestId(), expiresAt))
+                .toList());
+        List<LockSpan> created = roomLockRepository.findSpansByRequestIdIn(
+                pending.stream().map(BatchConfirmAvailabilityRequest.Item::requestId).toList());
+        try {
+            roomNightJdbcRepository.insertNights(created);
+        } catch (DuplicateKeyException ex) {
+            throw new ConflictException("Rooms are not available for this period");
+        }
+
+        // метрика справедливости: по одной блокировке на номер группы
+        timesBooked.incrementAll(roomIds);
+        roomIds.stream()
+                .collect(Collectors.groupingBy(id -> rooms.get(id).getHotel().getId(), Collectors.summingInt(id -> 1)))
+                .forEach((hotelId, count) -> occupancy.locksCreated(hotelId, req.startDate(), req.endDate(), count));
+
+        for (LockSpan lock : created) {
+            eventPublisher.publishEvent(new RoomLockChangedEvent(
+                    RoomLockChangedEvent.Type.CREATED, lock.lockId(), lock.roomId(), lock.startDate(), lock.endDate(), expiresAt));
+        }
+        return new BatchConfirmResult(created.size(), existing.size());
+    }
+
+    private static <T> void requireDistinct(List<BatchConfirmAvailabilityRequest.Item> items,
+                                            Function<BatchConfirmAvailabilityRequest.Item, T> key, String field) {
+        Set<T> seen = new HashSet<>();
+        for (BatchConfirmAvailabilityRequest.Item item : items) {
+            if (!seen.add(key.apply(item))) {
+                throw new BadRequestException("Duplicate " + field + " in batch: " + key.apply(item));
+            }
+        }
+    }
+
+    private void validateRange(LocalDate start, LocalDate end) {
+        if (start == null || end == null) {
+            throw new BadRequestException("start and end must be provided");
+        }
+        if (!start.isBefore(end)) {
+            throw new BadRequestException("start must be before end");
+        }
+    }
+}
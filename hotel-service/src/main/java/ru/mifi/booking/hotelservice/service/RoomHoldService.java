@@ -0,0 +1,224 @@
+package ru.mifi.booking.hotelservice.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.mifi.booking.common.exception.ConflictException;
+import ru.mifi.booking.common.exception.NotFoundException;
+import ru.mifi.booking.hotelservice.dto.BatchCommitRequest;
+import ru.mifi.booking.hotelservice.dto.BatchCommitResult;
+import ru.mifi.booking.hotelservice.entity.RoomLock;
+import ru.mifi.booking.hotelservice.event.RoomLockChangedEvent;
+import ru.mifi.booking.hotelservice.repository.HotelNightOccupancyJdbcRepository;
+import ru.mifi.booking.hotelservice.repository.RoomLockJdbcRepository;
+import ru.mifi.booking.hotelservice.repository.RoomLockRepository;
+import ru.mifi.booking.hotelservice.repository.RoomRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Жизненный цикл удержаний (hold): confirm-availability создаёт hold со сроком {@code hotel.hold.ttl},
+ * booking-service подтверждает его (commit) перед тем, как пометить бронь CONFIRMED.
+ *
+ * <p>
+ * Если booking-service упал между confirm и commit, hold истекает сам: поиск и индекс перестают его учитывать
+ * сразу по сроку, новый confirm на те же ночи удаляет его в своей транзакции, а reaper по расписанию
+ * удаляет остальные пачками по {@code hotel.hold.reaper.batch-size} (индекс idx_room_lock_expires_at).
+ * Удаление истёкшего hold-а — то же, что release: timesBooked и агрегат загрузки уменьшаются, публикуется RELEASED.
+ * </p>
+ *
+ * <p>
+ * commit и удаление истёкшего hold-а — условные UPDATE/DELETE по expires_at, поэтому их гонка решается строкой в БД:
+ * кто первым взял строку, тот и прав, а второй видит 0 изменённых строк.
+ * </p>
+ */
+@Service
+public class RoomHoldService {
+
+    private static final Logger log = LoggerFactory.getLogger(RoomHoldService.class);
+
+    private final RoomLockRepository roomLockRepository;
+    private final RoomLockJdbcRepository roomLockJdbcRepository;
+    private final RoomRepository roomRepository;
+    private final HotelOccupancyService occupancy;
+    private final TimesBookedCounter timesBooked;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Duration ttl;
+    private final int reaperBatchSize;
+    private final int reaperMaxBatches;
+
+    public RoomHoldService(
+            RoomLockRepository roomLockRepository,
+            RoomLockJdbcRepository roomLockJdbcRepository,
+            RoomRepository roomRepository,
+            HotelOccupancyService occupancy,
+            TimesBookedCounter timesBooked,
+            PlatformTransactionManager transactionManager,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${hotel.hold.ttl:15m}") Duration ttl,
+            @Value("${hotel.hold.reaper.batch-size:500}") int reaperBatchSize,
+            @Value("${hotel.hold.reaper.max-batches:20}") int reaperMaxBatches
+    ) {
+        this.roomLockRepository = roomLockRepository;
+        this.roomLockJdbcRepository = roomLockJdbcRepository;
+        this.roomRepository = roomRepository;
+        this.occupancy = occupancy;
+        this.timesBooked = timesBooked;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.ttl = ttl;
+        this.reaperBatchSize = reaperBatchSize;
+        this.reaperMaxBatches = reaperMaxBatches;
+    }
+
+    /**
+     * Срок для hold-а, создаваемого сейчас.
+     */
+    public Instant newExpiry() {
+        return Instant.now().plus(ttl);
+    }
+
+    /**
+     * INTERNAL: подтвердить hold бронирования. Повторный commit уже подтверждённой блокировки — успех.
+     *
+     * @param roomId    идентификатор номера
+     * @param bookingId идентификатор бронирования
+     * @throws ConflictException если hold истёк или его нет (бронь нужно отменить)
+     */
+    public void commit(Long roomId, String bookingId) {
+        if (!roomRepository.existsById(roomId)) {
+            throw new NotFoundException("Room " + roomId + " not found");
+        }
+        Instant now = Instant.now();
+        transactionTemplate.executeWithoutResult(status -> {
+            RoomLock lock = roomLockRepository.findByBookingId(bookingId)
+                    .filter(l -> roomId.equals(l.getRoom().getId()))
+                    .orElseThrow(() -> new ConflictException("Hold for booking " + bookingId + " is expired or missing"));
+            if (lock.getExpiresAt() == null) {
+                log.debug("commit idempotent hit: roomId={}, bookingId={}", roomId, bookingId);
+                return;
+            }
+            if (roomLockRepository.commitHold(lock.getId(), now) == 0) {
+                throw new ConflictException("Hold for booking " + bookingId + " is expired or missing");
+            }
+            eventPublisher.publishEvent(new RoomLockChangedEvent(RoomLockChangedEvent.Type.COMMITTED,
+                    lock.getId(), roomId, lock.getStartDate(), lock.getEndDate(), null));
+        });
+    }
+
+    /**
+     * INTERNAL: подтвердить hold-ы группы — все или ни одного.
+     *
+     * @param req пары (номер, бронирование)
+     * @return сколько hold-ов подтверждено и сколько уже были подтверждены
+     * @throws ConflictException если хоть один hold истёк или отсутствует (групповую бронь нужно отменить)
+     */
+    public BatchCommitResult commit(BatchCommitRequest req) {
+        Map<String, Long> roomByBooking = new HashMap<>();
+        for (BatchCommitRequest.Item item : req.rooms()) {
+            roomByBooking.put(item.bookingId(), item.roomId());
+        }
+        Instant now = Instant.now();
+        return transactionTemplate.execute(status -> {
+            List<RoomLock> locks = roomLockRepository.findAllByBookingIdIn(roomByBooking.keySet()).stream()
+                    .filter(l -> l.getRoom().getId().equals(roomByBooking.get(l.getBookingId())))
+                    .toList();
+            List<RoomLock> pending = locks.stream().filter(l -> l.getExpiresAt() != null).toList();
+            boolean allPresent = locks.size() == roomByBooking.size();
+            // Условный UPDATE не трогает истёкшие: если подтвердилось меньше, чем ждали, откатываю всю группу.
+            if (!allPresent || (!pending.isEmpty()
+                    && roomLockRepository.commitHolds(pending.stream().map(RoomLock::getId).toList(), now) != pending.size())) {
+                throw new ConflictException("Holds of the batch are expired or missing");
+            }
+            for (RoomLock lock : pending) {
+                eventPublisher.publishEvent(new RoomLockChangedEvent(RoomLockChangedEvent.Type.COMMITTED,
+                        lock.getId(), lock.getRoom().getId(), lock.getStartDate(), lock.getEndDate(), null));
+            }
+            return new BatchCommitResult(pending.size(), locks.size() - pending.size());
+        });
+    }
+
+    /**
+     * Удалить истёкшие hold-ы, пересекающие период номеров. Вызывать в транзакции confirm
+     * (под захваченными периодами и {@link HotelOccupancyService#shared()}), до проверки пересечений.
+     */
+    public void expireOverlapping(Collection<Long> roomIds, LocalDate start, LocalDate end) {
+        Instant now = Instant.now();
+        List<RoomLock> expired = roomLockRepository.findExpiredOverlapping(roomIds, start, end, now);
+        if (!expired.isEmpty()) {
+            deleteExpired(expired, now);
+        }
+    }
+
+    /**
+     * Reaper: удалить истёкшие hold-ы пачками (не больше {@code max-batches} пачек за запуск).
+     *
+     * @return сколько hold-ов удалено
+     */
+    @Scheduled(fixedDelayString = "${hotel.hold.reaper.fixed-delay-ms:30000}")
+    public int reapExpired() {
+        int reaped = 0;
+        for (int batch = 0; batch < reaperMaxBatches; batch++) {
+            int[] result;
+            try (HotelOccupancyService.Handle ignored = occupancy.shared()) {
+                result = transactionTemplate.execute(status -> {
+                    Instant now = Instant.now();
+                    List<RoomLock> expired = roomLockRepository.findExpired(now, Limit.of(reaperBatchSize));
+                    return new int[]{expired.size(), expired.isEmpty() ? 0 : deleteExpired(expired, now)};
+                });
+            }
+            reaped += result[1];
+            if (result[0] < reaperBatchSize) {
+                break;
+            }
+        }
+        if (reaped > 0) {
+            log.info("Reaped {} expired room holds", reaped);
+        }
+        return reaped;
+    }
+
+    private int deleteExpired(List<RoomLock> expired, Instant now) {
+        int[] counts = roomLockJdbcRepository.deleteExpired(expired.stream().map(RoomLock::getId).toList(), now);
+        List<RoomLock> deleted = new ArrayList<>(expired.size());
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                deleted.add(expired.get(i));
+            }
+        }
+        if (deleted.isEmpty()) {
+            return 0;
+        }
+
+        // Как в release: истёкший hold не должен "забивать" метрику справедливости.
+        Map<Long, Long> perRoom = deleted.stream()
+                .collect(Collectors.groupingBy(l -> l.getRoom().getId(), Collectors.counting()));
+        timesBooked.decrementAll(perRoom);
+        occupancy.locksReleased(deleted.stream()
+                .map(l -> new HotelNightOccupancyJdbcRepository.Delta(
+                        l.getRoom().getHotel().getId(), l.getStartDate(), l.getEndDate(), 1))
+                .toList());
+
+        for (RoomLock lock : deleted) {
+            eventPublisher.publishEvent(new RoomLockChangedEvent(RoomLockChangedEvent.Type.RELEASED,
+                    lock.getId(), lock.getRoom().getId(), lock.getStartDate(), lock.getEndDate(), null));
+        }
+        log.debug("expired holds deleted: {}", deleted.stream().map(RoomLock::getId).toList());
+        return deleted.size();
+    }
+}
@@ -0,0 +1,126 @@
+package ru.mifi.booking.hotelservice.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.mifi.booking.hotelservice.availability.LockSpan;
+import ru.mifi.booking.hotelservice.dto.LockArchiveReport;
+import ru.mifi.booking.hotelservice.event.RoomLockChangedEvent;
+import ru.mifi.booking.hotelservice.repository.RoomLockJdbcRepository;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Перенос завершившихся блокировок из room_locks в room_lock_history.
+ *
+ * <p>
+ * В горячей таблице остаются только текущие и будущие проживания (и неподтверждённые hold-ы — ими занимается reaper),
+ * поэтому поиск, проверка пересечений, индекс доступности и room_nights не растут с историей.
+ * Переношу пачками по {@code hotel.archive.batch-size}: каждая пачка — своя короткая транзакция
+ * (копия в историю + удаление строки, ночи удаляются каскадом), чтобы не держать блокировки на миллионах строк.
+ * </p>
+ *
+ * <p>
+ * Агрегат загрузки за прошлые ночи не меняется: архив — не отмена. timesBooked тоже.
+ * Статистика за периоды в прошлом дочитывает архив (см. {@link RoomService#stats}).
+ * </p>
+ */
+@Service
+public class RoomLockArchiveService {
+
+    private static final Logger log = LoggerFactory.getLogger(RoomLockArchiveService.class);
+
+    private final RoomLockJdbcRepository roomLockJdbcRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+    private final int maxBatches;
+
+    public RoomLockArchiveService(
+            RoomLockJdbcRepository roomLockJdbcRepository,
+            PlatformTransactionManager transactionManager,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${hotel.archive.batch-size:1000}") int batchSize,
+            @Value("${hotel.archive.max-batches:1000}") int maxBatches
+    ) {
+        this.roomLockJdbcRepository = roomLockJdbcRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+    }
+
+    /**
+     * Перенести в архив блокировки, закончившиеся к сегодняшнему дню (по cron и вручную ADMIN-ом).
+     */
+    @Scheduled(cron = "${hotel.archive.cron:0 0 4 * * *}")
+    public LockArchiveReport archive() {
+        return archive(LocalDate.now());
+    }
+
+    /**
+     * Перенести в архив подтверждённые блокировки с end_date не позже cutoff.
+     */
+    public LockArchiveReport archive(LocalDate cutoff) {
+        long startedAt = System.nanoTime();
+        int archived = 0;
+        int batches = 0;
+        while (batches < maxBatches) {
+            int[] result = transactionTemplate.execute(status -> archiveBatch(cutoff));
+            batches++;
+            archived += result[1];
+            if (result[0] < batchSize) {
+                break;
+            }
+        }
+        LockArchiveReport report = new LockArchiveReport(cutoff, archived, batches, (System.nanoTime() - startedAt) / 1_000_000);
+        if (archived > 0) {
+            log.info("Archived {} room locks ended by {} in {} batches, {} ms",
+                    report.archived(), cutoff, report.batches(), report.durationMs());
+        }
+        return report;
+    }
+
+    private int[] archiveBatch(LocalDate cutoff) {
+        List<LockSpan> candidates = roomLockJdbcRepository.findArchivable(cutoff, batchSize);
+        if (candidates.isEmpty()) {
+            return new int[]{0, 0};
+        }
+
+        int[] copied = roomLockJdbcRepository.copyToHistory(candidates.stream().map(LockSpan::lockId).toList(), Instant.now());
+        List<LockSpan> toDelete = new ArrayList<>(candidates.size());
+        for (int i = 0; i < copied.length; i++) {
+            if (copied[i] > 0) {
+                toDelete.add(candidates.get(i));
+            }
+        }
+
+        int[] deleted = roomLockJdbcRepository.deleteAll(toDelete.stream().map(LockSpan::lockId).toList());
+        List<LockSpan> moved = new ArrayList<>(toDelete.size());
+        List<Long> releasedMeanwhile = new ArrayList<>();
+        for (int i = 0; i < deleted.length; i++) {
+            if (deleted[i] > 0) {
+                moved.add(toDelete.get(i));
+            } else {
+                releasedMeanwhile.add(toDelete.get(i).lockId());
+            }
+        }
+        if (!releasedMeanwhile.isEmpty()) {
+            roomLockJdbcRepository.deleteFromHistory(releasedMeanwhile);
+        }
+
+        for (LockSpan lock : moved) {
+            eventPublisher.publishEvent(new RoomLockChangedEvent(RoomLockChangedEvent.Type.ARCHIVED,
+                    lock.lockId(), lock.roomId(), lock.startDate(), lock.endDate(), null));
+        }
+        return new int[]{candidates.size(), moved.size()};
+    }
+}
@@ -1,41 +1,138 @@
 package ru.mifi.booking.hotelservice.service;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.DigestUtils;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.DuplicateKeyException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ru.mifi.booking.common.exception.BadRequestException;
 import ru.mifi.booking.common.exception.ConflictException;
 import ru.mifi.booking.common.exception.NotFoundException;
+import ru.mifi.booking.common.exception.PreconditionFailedException;
+import ru.mifi.booking.common.exception.ServiceUnavailableException;
+import ru.mifi.booking.hotelservice.availability.AvailabilityIndex;
+import ru.mifi.booking.hotelservice.availability.AvailabilityIndexSynchronizer;
+import ru.mifi.booking.hotelservice.availability.AvailabilityQueryCache;
+import ru.mifi.booking.hotelservice.availability.CalendarSpans;
+import ru.mifi.booking.hotelservice.availability.FlexibleStarts;
+import ru.mifi.booking.hotelservice.availability.LockSpan;
+import ru.mifi.booking.hotelservice.dto.CalendarSpanDto;
 import ru.mifi.booking.hotelservice.dto.ConfirmAvailabilityRequest;
+import ru.mifi.booking.hotelservice.dto.DeleteReport;
+import ru.mifi.booking.hotelservice.dto.FlexibleRoomDto;
+import ru.mifi.booking.hotelservice.dto.FlexibleSearchPage;
+import ru.mifi.booking.hotelservice.dto.GroupAvailabilityDto;
+import ru.mifi.booking.hotelservice.dto.GroupSearchPage;
+import ru.mifi.booking.hotelservice.dto.RoomCalendarDto;
 import ru.mifi.booking.hotelservice.dto.RoomDto;
+import ru.mifi.booking.hotelservice.dto.RoomSearchPage;
 import ru.mifi.booking.hotelservice.dto.RoomStatsDto;
+import ru.mifi.booking.hotelservice.dto.RoomVersionDto;
+import ru.mifi.booking.hotelservice.dto.Tagged;
 import ru.mifi.booking.hotelservice.dto.UpdateRoomRequest;
 import ru.mifi.booking.hotelservice.entity.Hotel;
 import ru.mifi.booking.hotelservice.entity.Room;
 import ru.mifi.booking.hotelservice.entity.RoomLock;
+import ru.mifi.booking.hotelservice.event.RoomChangedEvent;
+import ru.mifi.booking.hotelservice.event.RoomLockChangedEvent;
+import ru.mifi.booking.hotelservice.lock.RoomRangeLockManager;
+import ru.mifi.booking.hotelservice.repository.HotelNightOccupancyJdbcRepository;
+import ru.mifi.booking.hotelservice.repository.HotelRepository;
+import ru.mifi.booking.hotelservice.repository.RoomLockHistoryRepository;
+import ru.mifi.booking.hotelservice.repository.RoomLockJdbcRepository;
 import ru.mifi.booking.hotelservice.repository.RoomLockRepository;
+import ru.mifi.booking.hotelservice.repository.RoomNightJdbcRepository;
+import ru.mifi.booking.hotelservice.repository.RoomNightRepository;
 import ru.mifi.booking.hotelservice.repository.RoomRepository;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
 
 @Service
 public class RoomService {
 
     private static final Logger log = LoggerFactory.getLogger(RoomService.class);
 
+    private static final int MAX_SEARCH_PAGE_SIZE = 200;
+    private static final int MAX_FLEXIBLE_WINDOW_DAYS = 366;
+    private static final int MAX_GROUP_ROOMS = 100;
+    private static final int MAX_CALENDAR_DAYS = 366;
+    private static final String CURSOR_PREFIX = "r1:";
+
     private final RoomRepository roomRepository;
     private final RoomLockRepository roomLockRepository;
-
-    public RoomService(RoomRepository roomRepository, RoomLockRepository roomLockRepository) {
+    private final RoomLockHistoryRepository roomLockHistoryRepository;
+    private final RoomLockJdbcRepository roomLockJdbcRepository;
+    private final RoomNightRepository roomNightRepository;
+    private final RoomNightJdbcRepository roomNightJdbcRepository;
+    private final HotelRepository hotelRepository;
+    private final AvailabilityIndex availabilityIndex;
+    private final AvailabilityQueryCache queryCache;
+    private final AvailabilityIndexSynchronizer availabilitySync;
+    private final RoomRangeLockManager rangeLocks;
+    private final HotelOccupancyService occupancy;
+    private final RoomHoldService holds;
+    private final TimesBookedCounter timesBooked;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTx;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int deleteBatchSize;
+
+    public RoomService(
+            RoomRepository roomRepository,
+            RoomLockRepository roomLockRepository,
+            RoomLockHistoryRepository roomLockHistoryRepository,
+            RoomLockJdbcRepository roomLockJdbcRepository,
+            RoomNightRepository roomNightRepository,
+            RoomNightJdbcRepository roomNightJdbcRepository,
+            HotelRepository hotelRepository,
+            AvailabilityIndex availabilityIndex,
+            AvailabilityQueryCache queryCache,
+            AvailabilityIndexSynchronizer availabilitySync,
+            RoomRangeLockManager rangeLocks,
+            HotelOccupancyService occupancy,
+            RoomHoldService holds,
+            TimesBookedCounter timesBooked,
+            PlatformTransactionManager transactionManager,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${hotel.delete.batch-size:5000}") int deleteBatchSize
+    ) {
         this.roomRepository = roomRepository;
         this.roomLockRepository = roomLockRepository;
+        this.roomLockHistoryRepository = roomLockHistoryRepository;
+        this.roomLockJdbcRepository = roomLockJdbcRepository;
+        this.roomNightRepository = roomNightRepository;
+        this.roomNightJdbcRepository = roomNightJdbcRepository;
+        this.hotelRepository = hotelRepository;
+        this.availabilityIndex = availabilityIndex;
+        this.queryCache = queryCache;
+        this.availabilitySync = availabilitySync;
+        this.rangeLocks = rangeLocks;
+        this.occupancy = occupancy;
+        this.holds = holds;
+        this.timesBooked = timesBooked;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.eventPublisher = eventPublisher;
+        this.deleteBatchSize = deleteBatchSize;
     }
 
     /**
@@ -44,7 +141,9 @@ public class RoomService {
     public RoomDto addRoom(Hotel hotel, String number, boolean available) {
         Room room = new Room(null, hotel, number, available, 0);
         Room saved = roomRepository.save(room);
-        return toDto(saved);
+        RoomDto dto = toDto(saved);
+        eventPublisher.publishEvent(new RoomChangedEvent(RoomChangedEvent.Type.UPSERTED, dto));
+        return dto;
     }
 
     /**
@@ -54,116 +153,557 @@ public class RoomService {
      * @return номер
      */
     public RoomDto get(Long id) {
-        Room room = roomRepository.findById(id)
+        return readOnly(() -> roomRepository.findDtoById(id).map(timesBooked::live))
+                .orElseThrow(() -> new NotFoundException("Room " + id + " not found"));
+    }
+
+    /**
+     * ETag номера для условного GET: версия и живой timesBooked, без загрузки номера.
+     *
+     * <p>
+     * Читаю его до самого номера: если номер изменится между чтениями, клиент получит более новое тело
+     * со старым ETag и просто перекачает его в следующий раз — обратного (новый ETag на старом теле) не бывает.
+     * </p>
+     *
+     * @param id идентификатор номера
+     * @return ETag в кавычках
+     */
+    public String etag(Long id) {
+        RoomVersionDto version = readOnly(() -> roomRepository.findVersionById(id))
                 .orElseThrow(() -> new NotFoundException("Room " + id + " not found"));
-        return toDto(room);
+        return EntityTags.of(version.version(), timesBooked.live(id, version.timesBooked()));
+    }
+
+    /**
+     * USER: календарь номера за период — чередующиеся свободные и занятые отрезки.
+     *
+     * <p>
+     * Из индекса — обход битового календаря номера по словам, без БД. Без индекса — номер по id
+     * и один запрос его действующих блокировок в периоде по idx_room_lock_room_dates.
+     * Период не длиннее 366 дней.
+     * </p>
+     *
+     * @param id   идентификатор номера
+     * @param from первая ночь
+     * @param to   конец периода (исключительно)
+     * @return календарь номера
+     */
+    public RoomCalendarDto calendar(Long id, LocalDate from, LocalDate to) {
+        validateRange(from, to);
+        if (to.toEpochDay() - from.toEpochDay() > MAX_CALENDAR_DAYS) {
+            throw new BadRequestException("Period must not exceed " + MAX_CALENDAR_DAYS + " days");
+        }
+        availabilitySync.expireDueHolds();
+
+        RoomCalendarDto calendar = availabilityIndex.isReady()
+                ? availabilityIndex.calendar(id, from, to)
+                : readOnly(() -> calendarFromDb(id, from, to));
+        if (calendar == null) {
+            throw new NotFoundException("Room " + id + " not found");
+        }
+        return calendar;
+    }
+
+    /**
+     * ETag календаря: хэш его содержимого. Одинаковый календарь даёт одинаковый ETag в индексе и в БД,
+     * любая бронь/отмена в периоде или снятие номера с продажи его меняют.
+     */
+    public String calendarEtag(RoomCalendarDto calendar) {
+        StringBuilder key = new StringBuilder()
+                .append(calendar.roomId()).append(':').append(calendar.available())
+                .append(':').append(calendar.from()).append(':').append(calendar.to());
+        for (CalendarSpanDto span : calendar.spans()) {
+            key.append(';').append(span.start()).append('+').append(span.nights()).append(span.free() ? 'f' : 'b');
+        }
+        return "\"" + DigestUtils.md5DigestAsHex(key.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    private RoomCalendarDto calendarFromDb(Long id, LocalDate from, LocalDate to) {
+        RoomDto room = roomRepository.findDtoById(id).orElse(null);
+        if (room == null) {
+            return null;
+        }
+        CalendarSpans spans = new CalendarSpans(from.toEpochDay(), to.toEpochDay());
+        for (LockSpan lock : roomLockRepository.findActiveSpansOfRooms(List.of(id), from, to, Instant.now())) {
+            spans.busy(lock.startDate().toEpochDay(), lock.endDate().toEpochDay());
+        }
+        return new RoomCalendarDto(id, room.available(), from, to, spans.finish());
     }
 
     /**
      * USER: список доступных номеров на период.
+     *
+     * <p>
+     * Если in-memory индекс построен — отвечаю из него без обращения к БД.
+     * Иначе — один SQL-запрос на поиск независимо от количества номеров (см. {@link RoomRepository#findAvailableForPeriod}).
+     * Одинаковые (start, end) отдаются из {@link AvailabilityQueryCache}.
+     * Истёкшие hold-ы номер не занимают — ни в индексе, ни в кэше, ни в запросе к БД.
+     * </p>
      */
     public List<RoomDto> listAvailable(LocalDate start, LocalDate end) {
         validateRange(start, end);
+        availabilitySync.expireDueHolds();
 
-        return roomRepository.findAllAvailable().stream()
-                .filter(r -> roomLockRepository.findOverlaps(r, start, end).isEmpty())
-                .map(this::toDto)
-                .toList();
+        return queryCache.get(AvailabilityQueryCache.Query.LIST_AVAILABLE, start, end, 0, () -> findAvailable(start, end));
     }
 
     /**
-     * USER: рекомендованные номера: те же доступные, но отсортированы по timesBooked (по возрастанию), затем по id.
+     * USER: постраничный поиск свободных номеров (keyset по id) с фильтрами по отелю/городу.
+     *
+     * <p>
+     * Каждая страница — один запрос с {@code id > cursor ... order by id limit size + 1}:
+     * лишняя строка говорит, есть ли следующая страница, а стоимость не растёт с глубиной.
+     * Если заданы и hotelId, и city — ищу в отеле и проверяю, что он в этом городе.
+     * </p>
+     *
+     * @param start   начало периода
+     * @param end     конец периода
+     * @param hotelId фильтр по отелю (может быть null)
+     * @param city    фильтр по городу — префикс адреса отеля (может быть null)
+     * @param size    размер страницы (1..200)
+     * @param cursor  курсор из предыдущей страницы (null для первой)
+     * @return страница номеров
      */
-    public List<RoomDto> recommend(LocalDate start, LocalDate end) {
-        return listAvailable(start, end).stream()
-                .sorted(Comparator.comparingLong(RoomDto::timesBooked).thenComparing(RoomDto::id))
-                .toList();
+    public RoomSearchPage search(LocalDate start, LocalDate end, Long hotelId, String city, int size, String cursor) {
+        validateRange(start, end);
+        if (size < 1 || size > MAX_SEARCH_PAGE_SIZE) {
+            throw new BadRequestException("size must be between 1 and " + MAX_SEARCH_PAGE_SIZE);
+        }
+
+        long afterId = decodeCursor(cursor);
+        Limit limit = Limit.of(size + 1);
+        boolean byCity = city != null && !city.isBlank();
+        Instant now = Instant.now();
+
+        List<RoomDto> rows = readOnly(() -> {
+            if (hotelId != null) {
+                return timesBooked.live(roomRepository.searchAvailableInHotel(hotelId, start, end, now, afterId, limit));
+            }
+            if (byCity) {
+                return timesBooked.live(roomRepository.searchAvailableInCity(escapeLike(city.trim()), start, end, now, afterId, limit));
+            }
+            return timesBooked.live(roomRepository.searchAvailable(start, end, now, afterId, limit));
+        });
+        if (hotelId != null && byCity && !rows.isEmpty() && !hotelInCity(hotelId, city.trim())) {
+            rows = List.of();
+        }
+
+        boolean hasMore = rows.size() > size;
+        List<RoomDto> items = hasMore ? rows.subList(0, size) : rows;
+        String nextCursor = hasMore ? encodeCursor(items.getLast().id()) : null;
+
+        return new RoomSearchPage(List.copyOf(items), nextCursor, hasMore);
     }
 
     /**
-     * ADMIN: частично обновить номер (PATCH).
+     * USER: «nights ночей в любые даты окна» — по каждому номеру все даты заезда, на которые он свободен.
      *
-     * @param id  идентификатор номера
-     * @param req запрос обновления
-     * @return обновлённый номер
+     * <p>
+     * Вместо listAvailable на каждую дату заезда каждый номер обходится один раз: свободные отрезки окна
+     * получаются из его календаря в индексе или из его блокировок, отсортированных по дате
+     * (см. {@link FlexibleStarts}). Без индекса страница стоит пары запросов на порцию кандидатов:
+     * номера в продаже по keyset и их действующие блокировки в окне.
+     * </p>
+     *
+     * @param from    первая возможная дата заезда
+     * @param to      последняя возможная дата выезда (окно не длиннее 366 дней)
+     * @param nights  длина проживания (1..длина окна)
+     * @param hotelId фильтр по отелю (может быть null)
+     * @param size    сколько номеров вернуть (1..200)
+     * @param cursor  курсор из предыдущей страницы (null для первой)
+     * @return страница номеров с датами заезда
      */
-    @Transactional
-    public RoomDto update(Long id, UpdateRoomRequest req) {
-        Room room = roomRepository.findById(id)
-                .orElseThrow(() -> new NotFoundException("Room " + id + " not found"));
+    public FlexibleSearchPage flexible(LocalDate from, LocalDate to, int nights, Long hotelId, int size, String cursor) {
+        validateRange(from, to);
+        long windowDays = to.toEpochDay() - from.toEpochDay();
+        if (windowDays > MAX_FLEXIBLE_WINDOW_DAYS) {
+            throw new BadRequestException("Window must not exceed " + MAX_FLEXIBLE_WINDOW_DAYS + " days");
+        }
+        if (nights < 1 || nights > windowDays) {
+            throw new BadRequestException("nights must be between 1 and the window length (" + windowDays + ")");
+        }
+        if (size < 1 || size > MAX_SEARCH_PAGE_SIZE) {
+            throw new BadRequestException("size must be between 1 and " + MAX_SEARCH_PAGE_SIZE);
+        }
+        availabilitySync.expireDueHolds();
+
+        long afterId = decodeCursor(cursor);
+        List<FlexibleRoomDto> rows = availabilityIndex.isReady()
+                ? availabilityIndex.flexible(hotelId, from, to, nights, afterId, size + 1)
+                : readOnly(() -> flexibleFromDb(hotelId, from, to, nights, afterId, size + 1));
 
-        boolean changed = false;
+        boolean hasMore = rows.size() > size;
+        List<FlexibleRoomDto> items = hasMore ? rows.subList(0, size) : rows;
+        String nextCursor = hasMore ? encodeCursor(items.getLast().room().id()) : null;
 
-        if (req != null && req.number() != null) {
-            String number = req.number();
-            if (number.isBlank()) {
-                throw new BadRequestException("number must not be blank");
+        return new FlexibleSearchPage(List.copyOf(items), nextCursor, hasMore);
+    }
+
+    private List<FlexibleRoomDto> flexibleFromDb(Long hotelId, LocalDate from, LocalDate to, int nights,
+                                                 long afterId, int limit) {
+        Instant now = Instant.now();
+        List<FlexibleRoomDto> result = new ArrayList<>();
+        long lastId = afterId;
+        while (result.size() < limit) {
+            List<RoomDto> candidates = timesBooked.live(hotelId == null
+                    ? roomRepository.findAvailableAfter(lastId, Limit.of(limit))
+                    : roomRepository.findAvailableInHotelAfter(hotelId, lastId, Limit.of(limit)));
+            if (candidates.isEmpty()) {
+                break;
+            }
+            Map<Long, List<LockSpan>> locks = new HashMap<>();
+            for (LockSpan lock : roomLockRepository.findActiveSpansOfRooms(
+                    candidates.stream().map(RoomDto::id).toList(), from, to, now)) {
+                locks.computeIfAbsent(lock.roomId(), id -> new ArrayList<>()).add(lock);
+            }
+            for (RoomDto room : candidates) {
+                FlexibleStarts starts = new FlexibleStarts(from.toEpochDay(), to.toEpochDay(), nights);
+                for (LockSpan lock : locks.getOrDefault(room.id(), List.of())) {
+                    starts.busy(lock.startDate().toEpochDay(), lock.endDate().toEpochDay());
+                }
+                List<LocalDate> dates = starts.finish();
+                if (!dates.isEmpty()) {
+                    result.add(new FlexibleRoomDto(room, dates));
+                    if (result.size() >= limit) {
+                        break;
+                    }
+                }
             }
-            room.setNumber(number);
-            changed = true;
+            lastId = candidates.getLast().id();
+            if (candidates.size() < limit) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * USER: отели, где на период свободно сразу rooms номеров (семья, группа), с номерами-кандидатами.
+     *
+     * <p>
+     * Из индекса — обход отелей по возрастанию id с остановкой на rooms-м свободном номере отеля.
+     * Из БД — два запроса на страницу: GROUP BY ... HAVING count &gt;= rooms по отелям (keyset по id отеля)
+     * и свободные номера найденных отелей. rooms ограничен размером batch/confirm-availability (100).
+     * </p>
+     *
+     * @param start  дата начала
+     * @param end    дата окончания
+     * @param rooms  сколько номеров нужно в одном отеле (1..100)
+     * @param size   сколько отелей вернуть (1..200)
+     * @param cursor курсор из предыдущей страницы (null для первой)
+     * @return страница отелей по возрастанию id
+     */
+    public GroupSearchPage group(LocalDate start, LocalDate end, int rooms, int size, String cursor) {
+        validateRange(start, end);
+        if (rooms < 1 || rooms > MAX_GROUP_ROOMS) {
+            throw new BadRequestException("rooms must be between 1 and " + MAX_GROUP_ROOMS);
         }
+        if (size < 1 || size > MAX_SEARCH_PAGE_SIZE) {
+            throw new BadRequestException("size must be between 1 and " + MAX_SEARCH_PAGE_SIZE);
+        }
+        availabilitySync.expireDueHolds();
+
+        long afterHotelId = decodeCursor(cursor);
+        List<GroupAvailabilityDto> rows = availabilityIndex.isReady()
+                ? availabilityIndex.group(start, end, rooms, afterHotelId, size + 1)
+                : readOnly(() -> groupFromDb(start, end, rooms, afterHotelId, size + 1));
+
+        boolean hasMore = rows.size() > size;
+        List<GroupAvailabilityDto> items = hasMore ? rows.subList(0, size) : rows;
+        String nextCursor = hasMore ? encodeCursor(items.getLast().hotelId()) : null;
+
+        return new GroupSearchPage(List.copyOf(items), nextCursor, hasMore);
+    }
 
-        if (req != null && req.available() != null) {
-            room.setAvailable(req.available());
-            changed = true;
+    private List<GroupAvailabilityDto> groupFromDb(LocalDate start, LocalDate end, int rooms, long afterHotelId, int limit) {
+        Instant now = Instant.now();
+        List<Long> hotelIds = roomRepository.findHotelIdsWithFreeRooms(start, end, now, rooms, afterHotelId, Limit.of(limit));
+        if (hotelIds.isEmpty()) {
+            return List.of();
         }
+        Map<Long, List<Long>> candidates = new LinkedHashMap<>();
+        for (RoomDto room : roomRepository.findAvailableInHotelsForPeriod(hotelIds, start, end, now)) {
+            List<Long> roomIds = candidates.computeIfAbsent(room.hotelId(), id -> new ArrayList<>(rooms));
+            if (roomIds.size() < rooms) {
+                roomIds.add(room.id());
+            }
+        }
+        List<GroupAvailabilityDto> result = new ArrayList<>(candidates.size());
+        candidates.forEach((hotelId, roomIds) -> {
+            // Между запросами номер могли занять: такой отель пропускаю, а не отдаю неполную группу.
+            if (roomIds.size() == rooms) {
+                result.add(new GroupAvailabilityDto(hotelId, List.copyOf(roomIds)));
+            }
+        });
+        return result;
+    }
 
-        if (!changed) {
-            throw new BadRequestException("At least one field must be provided for PATCH");
+    /**
+     * USER: рекомендованные номера: те же доступные, но отсортированы по timesBooked (по возрастанию), затем по id.
+     *
+     * <p>
+     * Если задан {@code limit}, возвращаю только первые limit кандидатов: из индекса — через ограниченную кучу,
+     * из БД — через {@code order by ... limit}. Без limit поведение прежнее (весь отсортированный список).
+     * </p>
+     *
+     * <p>
+     * Порядок — по живому timesBooked ({@link TimesBookedCounter}): индекс ведёт его сам, а из БД я беру кандидатов
+     * с запасом на номера с ещё не записанными инкрементами (они могли выпасть из окна) и пересортировываю.
+     * Номер с незаписанным release может остаться ниже своего места — не дольше одного интервала записи.
+     * </p>
+     *
+     * @param limit сколько кандидатов вернуть (1..200) или null — все
+     */
+    public List<RoomDto> recommend(LocalDate start, LocalDate end, Integer limit) {
+        validateRange(start, end);
+        availabilitySync.expireDueHolds();
+
+        if (limit == null) {
+            // Загрузчик не должен обращаться к кэшу (вложенная загрузка другого ключа), поэтому findAvailable.
+            return queryCache.get(AvailabilityQueryCache.Query.RECOMMEND, start, end, 0, () ->
+                    findAvailable(start, end).stream()
+                            .sorted(Comparator.comparingLong(RoomDto::timesBooked).thenComparing(RoomDto::id))
+                            .toList());
+        }
+        if (limit < 1 || limit > MAX_SEARCH_PAGE_SIZE) {
+            throw new BadRequestException("limit must be between 1 and " + MAX_SEARCH_PAGE_SIZE);
         }
 
-        return toDto(room);
+        return queryCache.get(AvailabilityQueryCache.Query.RECOMMEND, start, end, limit, () -> {
+            if (availabilityIndex.isReady()) {
+                return availabilityIndex.recommend(start, end, limit);
+            }
+            return readOnly(() -> timesBooked.live(roomRepository.findRecommendedForPeriod(
+                            start, end, Instant.now(), Limit.of(limit + timesBooked.pendingIncrements()))))
+                    .stream()
+                    .sorted(Comparator.comparingLong(RoomDto::timesBooked).thenComparing(RoomDto::id))
+                    .limit(limit)
+                    .toList();
+        });
+    }
+
+    /**
+     * ADMIN: частично обновить номер (PATCH).
+     *
+     * <p>
+     * Номер захватываю целиком: смена available не должна проскочить между проверкой и вставкой в confirm.
+     * </p>
+     *
+     * @param id  идентификатор номера
+     * @param req запрос обновления
+     * @return обновлённый номер
+     */
+    public RoomDto update(Long id, UpdateRoomRequest req) {
+        return update(id, req, null).body();
+    }
+
+    /**
+     * ADMIN: частично обновить номер, если он не изменился с прочитанной версии (If-Match).
+     *
+     * <p>
+     * Версию сверяю с {@code @Version} загруженного номера; правку с другого экземпляра сервиса между проверкой
+     * и commit ловит сам UPDATE по версии. Без If-Match такая гонка — 409, с If-Match — 412.
+     * </p>
+     *
+     * @param id      идентификатор номера
+     * @param req     запрос обновления
+     * @param ifMatch значение If-Match (null — без условия)
+     * @return обновлённый номер и его новый ETag
+     */
+    public Tagged<RoomDto> update(Long id, UpdateRoomRequest req, String ifMatch) {
+        try (RoomRangeLockManager.Handle ignored = rangeLocks.acquireAll(id)) {
+            return transactionTemplate.execute(status -> {
+                Room room = roomRepository.findById(id)
+                        .orElseThrow(() -> new NotFoundException("Room " + id + " not found"));
+                if (ifMatch != null && !EntityTags.matchesVersion(ifMatch, room.getVersion())) {
+                    throw new PreconditionFailedException("Room " + id + " was modified: version is " + room.getVersion());
+                }
+
+                boolean changed = false;
+
+                if (req != null && req.number() != null) {
+                    String number = req.number();
+                    if (number.isBlank()) {
+                        throw new BadRequestException("number must not be blank");
+                    }
+                    room.setNumber(number);
+                    changed = true;
+                }
+
+                if (req != null && req.available() != null) {
+                    room.setAvailable(req.available());
+                    changed = true;
+                }
+
+                if (!changed) {
+                    throw new BadRequestException("At least one field must be provided for PATCH");
+                }
+
+                roomRepository.flush();
+                RoomDto dto = toDto(room);
+                eventPublisher.publishEvent(new RoomChangedEvent(RoomChangedEvent.Type.UPSERTED, dto));
+                return new Tagged<>(dto, EntityTags.of(room.getVersion(), dto.timesBooked()));
+            });
+        } catch (OptimisticLockingFailureException ex) {
+            if (ifMatch != null) {
+                throw new PreconditionFailedException("Room " + id + " was modified concurrently");
+            }
+            throw new ConflictException("Room " + id + " was modified concurrently, retry");
+        }
     }
 
     /**
      * ADMIN: удалить номер вместе с блокировками.
      *
+     * <p>
+     * Как и отель (см. {@link HotelService#delete}), номер удаляется в несколько транзакций: сначала снимается
+     * с продажи (новые confirm — 409), затем его блокировки удаляются пачками по {@code hotel.delete.batch-size}
+     * вместе с их вкладом в агрегат загрузки, и последняя транзакция удаляет остаток и сам номер.
+     * Целиком номер захватываю только в первой и последней транзакции, чтобы пачки не держали его period-lock.
+     * </p>
+     *
      * @param id идентификатор номера
+     * @return сколько строк удалено и за сколько пачек
      */
-    @Transactional
-    public void delete(Long id) {
+    public DeleteReport delete(Long id) {
+        long startedAt = System.nanoTime();
+        Long hotelId;
+        try (RoomRangeLockManager.Handle ignored = rangeLocks.acquireAll(id)) {
+            hotelId = transactionTemplate.execute(status -> withdraw(id));
+        }
+
+        long locks = 0;
+        int batches = 0;
+        int[] result;
+        do {
+            try (HotelOccupancyService.Handle ignored = occupancy.shared()) {
+                result = transactionTemplate.execute(status -> deleteLockBatch(id, hotelId));
+            }
+            locks += result[1];
+            batches++;
+        } while (result[0] >= deleteBatchSize);
+
+        int tail;
+        try (RoomRangeLockManager.Handle ignored = rangeLocks.acquireAll(id);
+             HotelOccupancyService.Handle occupancyHandle = occupancy.shared()) {
+            tail = transactionTemplate.execute(status -> deleteRoom(id));
+        }
+        DeleteReport report = new DeleteReport(1, locks + tail, 0, 0, batches + 1, (System.nanoTime() - startedAt) / 1_000_000);
+        log.info("Room {} deleted: {}", id, report);
+        return report;
+    }
+
+    private Long withdraw(Long id) {
+        Room room = roomRepository.findById(id)
+                .orElseThrow(() -> new NotFoundException("Room " + id + " not found"));
+        if (room.isAvailable()) {
+            room.setAvailable(false);
+            eventPublisher.publishEvent(new RoomChangedEvent(RoomChangedEvent.Type.UPSERTED, toDto(room)));
+        }
+        return room.getHotel().getId();
+    }
+
+    private int[] deleteLockBatch(Long roomId, Long hotelId) {
+        List<LockSpan> batch = roomLockJdbcRepository.findOfRoom(roomId, deleteBatchSize);
+        if (batch.isEmpty()) {
+            return new int[]{0, 0};
+        }
+        // Reaper/release могли удалить часть строк раньше: агрегат уменьшаю только за реально удалённые.
+        int[] counts = roomLockJdbcRepository.deleteAll(batch.stream().map(LockSpan::lockId).toList());
+        List<HotelNightOccupancyJdbcRepository.Delta> released = new ArrayList<>(batch.size());
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                LockSpan lock = batch.get(i);
+                released.add(new HotelNightOccupancyJdbcRepository.Delta(hotelId, lock.startDate(), lock.endDate(), 1));
+            }
+        }
+        occupancy.locksReleased(released);
+        return new int[]{batch.size(), released.size()};
+    }
+
+    private int deleteRoom(Long id) {
         Room room = roomRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Room " + id + " not found"));
 
-        roomLockRepository.deleteAllByRoom_Id(room.getId());
+        RoomDto dto = toDto(room);
+        occupancy.roomDeleted(room.getHotel().getId(), room.getId());
+        int locks = roomLockRepository.deleteAllByRoomId(room.getId());
         roomRepository.delete(room);
+        eventPublisher.publishEvent(new RoomChangedEvent(RoomChangedEvent.Type.DELETED, dto));
+        return locks;
     }
 
     /**
      * ADMIN: статистика загруженности номеров по отелю за период.
      *
+     * <p>
+     * Горячая часть — из индекса или одним GROUP BY по room_locks/room_nights. Если период заходит в прошлое,
+     * добавляю перенесённые в room_lock_history блокировки: их ночи с горячими не пересекаются
+     * (пересечения запрещал первичный ключ room_nights, пока они были горячими).
+     * </p>
+     *
      * @param hotelId идентификатор отеля
      * @param start   начало периода
      * @param end     конец периода
      * @return статистика по каждому номеру отеля
      */
     public List<RoomStatsDto> stats(Long hotelId, LocalDate start, LocalDate end) {
+        return stats(hotelId, start, end, readOnlyTx);
+    }
+
+    /**
+     * То же, но запросы к БД ограничены дедлайном отчёта: JDBC query timeout — сколько до него осталось.
+     * Задача, которую отчёт перестал ждать, не держит соединение дольше дедлайна.
+     *
+     * @param deadline момент, после которого результат уже никому не нужен
+     */
+    public List<RoomStatsDto> stats(Long hotelId, LocalDate start, LocalDate end, Instant deadline) {
+        long leftMs = Duration.between(Instant.now(), deadline).toMillis();
+        if (leftMs <= 0) {
+            throw new ServiceUnavailableException("Stats deadline passed before hotel " + hotelId);
+        }
+        TransactionTemplate tx = new TransactionTemplate(readOnlyTx.getTransactionManager(), readOnlyTx);
+        // Таймаут транзакции Spring переносит в query timeout каждого запроса (секунды, округляю вверх).
+        tx.setTimeout((int) Math.ceilDiv(leftMs, 1000));
+        return stats(hotelId, start, end, tx);
+    }
+
+    private List<RoomStatsDto> stats(Long hotelId, LocalDate start, LocalDate end, TransactionTemplate tx) {
         validateRange(start, end);
+        availabilitySync.expireDueHolds();
+
+        List<RoomStatsDto> hot = availabilityIndex.isReady()
+                // bookedDays = popcount по битовому календарю, без загрузки RoomLock-сущностей.
+                ? availabilityIndex.stats(hotelId, start, end)
+                // Один GROUP BY по room_nights вместо загрузки всех RoomLock периода.
+                : readOnly(tx, () -> timesBooked.liveStats(roomRepository.aggregateStats(hotelId, start, end, Instant.now())));
+
+        // В архиве только блокировки с end_date <= сегодня: период с сегодняшнего дня его не касается.
+        if (!start.isBefore(LocalDate.now())) {
+            return hot;
+        }
+        return withHistory(hot, tx.execute(status -> roomLockHistoryRepository.findSpansInHotel(hotelId, start, end)),
+                start, end);
+    }
 
-        List<Room> rooms = roomRepository.findAllByHotelId(hotelId);
-        List<RoomLock> locks = roomLockRepository.findOverlapsInHotel(hotelId, start, end);
-
-        Map<Long, List<RoomLock>> locksByRoomId = locks.stream()
-                .collect(Collectors.groupingBy(l -> l.getRoom().getId()));
-
-        return rooms.stream()
-                .sorted(Comparator.comparingLong(Room::getId))
-                .map(room -> {
-                    List<RoomLock> roomLocks = locksByRoomId.getOrDefault(room.getId(), List.of());
-
-                    long locksCount = roomLocks.size();
-                    long bookedDays = roomLocks.stream()
-                            .mapToLong(l -> overlapDays(l.getStartDate(), l.getEndDate(), start, end))
-                            .sum();
-
-                    return new RoomStatsDto(
-                            room.getId(),
-                            room.getHotel().getId(),
-                            room.getNumber(),
-                            room.getTimesBooked(),
-                            locksCount,
-                            bookedDays
-                    );
+    private static List<RoomStatsDto> withHistory(List<RoomStatsDto> hot, List<LockSpan> archived,
+                                                  LocalDate start, LocalDate end) {
+        if (archived.isEmpty()) {
+            return hot;
+        }
+        Map<Long, long[]> perRoom = new HashMap<>();
+        for (LockSpan lock : archived) {
+            long[] locksAndDays = perRoom.computeIfAbsent(lock.roomId(), id -> new long[2]);
+            locksAndDays[0]++;
+            LocalDate from = lock.startDate().isAfter(start) ? lock.startDate() : start;
+            LocalDate to = lock.endDate().isBefore(end) ? lock.endDate() : end;
+            locksAndDays[1] += to.toEpochDay() - from.toEpochDay();
+        }
+        return hot.stream()
+                .map(s -> {
+                    long[] extra = perRoom.get(s.roomId());
+                    return extra == null ? s : new RoomStatsDto(s.roomId(), s.hotelId(), s.number(), s.timesBooked(),
+                            s.locksCountInRange() + extra[0], s.bookedDaysInRange() + extra[1]);
                 })
                 .toList();
     }
@@ -171,17 +711,42 @@ public class RoomService {
     /**
      * INTERNAL: подтвердить доступность (временная блокировка).
      * Идемпотентность: если requestId уже был — просто выходим без ошибки.
+     * Блокировка создаётся как hold со сроком: её нужно подтвердить через {@link RoomHoldService#commit}.
+     *
+     * <p>
+     * Сериализую только пересекающиеся периоды одного номера (см. {@link RoomRangeLockManager}):
+     * диапазон захватывается до транзакции и отпускается после commit, поэтому два confirm
+     * на пересекающиеся даты не могут оба пройти проверку пересечений, а confirm на разные месяцы не ждут друг друга.
+     * Последний рубеж — уникальность (room_id, night) в room_nights: двойную бронь отвергает сама БД.
+     * </p>
      */
-    @Transactional
     public void confirmAvailability(Long roomId, ConfirmAvailabilityRequest req) {
         validateRange(req.startDate(), req.endDate());
 
-        // 1) Блокируем room строку, чтобы сериализовать конкурентные confirm на один и тот же roomId.
-        Room room = roomRepository.findByIdForUpdate(roomId)
+        try (RoomRangeLockManager.Handle ignored = rangeLocks.acquire(roomId, req.startDate(), req.endDate());
+             HotelOccupancyService.Handle occupancyHandle = occupancy.shared()) {
+            occupancy.prepare(roomRepository.findHotelIdById(roomId), req.startDate(), req.endDate());
+            transactionTemplate.executeWithoutResult(status -> createLock(roomId, req));
+        } catch (DataIntegrityViolationException ex) {
+            // В конкурентных сценариях возможна ситуация, когда requestId «влетел» параллельно (с другим периодом).
+            // Тогда считаю это успешной идемпотентной обработкой. Проверяю уже вне откатившейся транзакции.
+            if (roomLockRepository.findByRequestId(req.requestId()).isPresent()) {
+                log.debug("confirm-availability idempotent after save-race: roomId={}, requestId={}", roomId, req.requestId());
+                return;
+            }
+            if (!roomRepository.existsById(roomId)) {
+                throw new NotFoundException("Room " + roomId + " not found");
+            }
+            throw ex;
+        }
+    }
+
+    private void createLock(Long roomId, ConfirmAvailabilityRequest req) {
+        Room room = roomRepository.findById(roomId)
                 .orElseThrow(() -> new NotFoundException("Room " + roomId + " not found"));
 
-        // 2) Идемпотентность по requestId.
-        //    Проверку делаю ПОСЛЕ лока, чтобы снизить риск гонки «check-then-insert».
+        // Идемпотентность по requestId.
+        // Проверку делаю ПОСЛЕ захвата периода, чтобы снизить риск гонки «check-then-insert».
         if (roomLockRepository.findByRequestId(req.requestId()).isPresent()) {
             log.debug("confirm-availability idempotent hit: roomId={}, requestId={}", roomId, req.requestId());
             return;
@@ -191,26 +756,29 @@ public class RoomService {
             throw new ConflictException("Room is not operational");
         }
 
-        if (!roomLockRepository.findOverlaps(room, req.startDate(), req.endDate()).isEmpty()) {
+        // Истёкшие hold-ы на эти ночи не должны мешать: удаляю их в этой же транзакции.
+        holds.expireOverlapping(List.of(roomId), req.startDate(), req.endDate());
+
+        // Быстрый отказ без исключения БД; гарантию даёт первичный ключ room_nights ниже.
+        if (roomNightRepository.existsInPeriod(roomId, req.startDate(), req.endDate())) {
             throw new ConflictException("Room is not available for this period");
         }
 
-        RoomLock lock = new RoomLock(null, room, req.startDate(), req.endDate(), req.bookingId(), req.requestId());
+        RoomLock lock = roomLockRepository.save(
+                new RoomLock(null, room, req.startDate(), req.endDate(), req.bookingId(), req.requestId(), holds.newExpiry()));
         try {
-            roomLockRepository.save(lock);
-        } catch (DataIntegrityViolationException ex) {
-            // В конкурентных сценариях возможна ситуация, когда requestId «влетел» параллельно.
-            // Тогда считаю это успешной идемпотентной обработкой.
-            if (roomLockRepository.findByRequestId(req.requestId()).isPresent()) {
-                log.debug("confirm-availability idempotent after save-race: roomId={}, requestId={}", roomId, req.requestId());
-                return;
-            }
-            throw ex;
+            roomNightJdbcRepository.insertNights(lock.getId(), roomId, req.startDate(), req.endDate());
+        } catch (DuplicateKeyException ex) {
+            // Ночь уже занята другой блокировкой: транзакция откатится вместе с шапкой RoomLock.
+            throw new ConflictException("Room is not available for this period");
         }
 
-        // метрика справедливости: увеличиваем при подтверждении доступности
-        room.setTimesBooked(room.getTimesBooked() + 1);
-        // save не обязателен, если Room является managed-entity в текущей транзакции.
+        // метрика справедливости: увеличиваем при подтверждении доступности (в памяти после commit, см. TimesBookedCounter)
+        timesBooked.increment(roomId);
+        occupancy.locksCreated(room.getHotel().getId(), req.startDate(), req.endDate(), 1);
+
+        eventPublisher.publishEvent(new RoomLockChangedEvent(
+                RoomLockChangedEvent.Type.CREATED, lock.getId(), roomId, lock.getStartDate(), lock.getEndDate(), lock.getExpiresAt()));
     }
 
     /**
@@ -222,23 +790,51 @@ public class RoomService {
      * чтобы отменённые брони не "забивали" статистику рекомендаций.
      * </p>
      */
-    @Transactional
     public void release(Long roomId, String bookingId) {
-        Room room = roomRepository.findById(roomId)
-                .orElseThrow(() -> new NotFoundException("Room " + roomId + " not found"));
+        try (HotelOccupancyService.Handle ignored = occupancy.shared()) {
+            transactionTemplate.executeWithoutResult(status -> releaseLock(roomId, bookingId));
+        }
+    }
+
+    private void releaseLock(Long roomId, String bookingId) {
+        if (!roomRepository.existsById(roomId)) {
+            throw new NotFoundException("Room " + roomId + " not found");
+        }
 
         roomLockRepository.findByBookingId(bookingId)
                 .ifPresent(lock -> {
                     // Доп.страховка: bookingId уникален, но проверю, что lock относится к нашему roomId.
-                    if (lock.getRoom() != null && roomId.equals(lock.getRoom().getId())) {
-                        roomLockRepository.delete(lock);
-
-                        long current = room.getTimesBooked();
-                        room.setTimesBooked(Math.max(0, current - 1));
+                    // Условное удаление: reaper мог удалить истёкший hold раньше — тогда побочные эффекты уже учтены.
+                    if (lock.getRoom() != null && roomId.equals(lock.getRoom().getId())
+                            && roomLockRepository.deleteAllByIdIn(List.of(lock.getId())) == 1) {
+                        timesBooked.decrement(roomId);
+                        occupancy.lockReleased(lock.getRoom().getHotel().getId(), lock.getStartDate(), lock.getEndDate());
+
+                        eventPublisher.publishEvent(new RoomLockChangedEvent(
+                                RoomLockChangedEvent.Type.RELEASED, lock.getId(), roomId, lock.getStartDate(), lock.getEndDate(), null));
                     }
                 });
     }
 
+    private List<RoomDto> findAvailable(LocalDate start, LocalDate end) {
+        if (availabilityIndex.isReady()) {
+            return availabilityIndex.listAvailable(start, end);
+        }
+        return readOnly(() -> timesBooked.live(roomRepository.findAvailableForPeriod(start, end, Instant.now())));
+    }
+
+    /**
+     * Чтение из БД для GET-ответов: только DTO-проекции, в read-only транзакции
+     * (Hibernate не делает flush и не хранит снимки для dirty checking) и под чтением {@link TimesBookedCounter}.
+     */
+    private <T> T readOnly(Supplier<T> query) {
+        return readOnly(readOnlyTx, query);
+    }
+
+    private <T> T readOnly(TransactionTemplate tx, Supplier<T> query) {
+        return timesBooked.read(() -> tx.execute(status -> query.get()));
+    }
+
     private void validateRange(LocalDate start, LocalDate end) {
         if (start == null || end == null) {
             throw new BadRequestException("start and end must be provided");
@@ -248,11 +844,37 @@ public class RoomService {
         }
     }
 
-    private long overlapDays(LocalDate lockStart, LocalDate lockEnd, LocalDate start, LocalDate end) {
-        LocalDate s = lockStart.isAfter(start) ? lockStart : start;
-        LocalDate e = lockEnd.isBefore(end) ? lockEnd : end;
-        long days = ChronoUnit.DAYS.between(s, e);
-        return Math.max(0, days);
+    private boolean hotelInCity(Long hotelId, String city) {
+        return readOnlyTx.execute(status -> hotelRepository.findDtoById(hotelId))
+                .map(h -> h.address().startsWith(city))
+                .orElse(false);
+    }
+
+    /**
+     * Экранировать спецсимволы like (escape '\'): город — буквальный префикс адреса, как в {@link #hotelInCity}.
+     */
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private String encodeCursor(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((CURSOR_PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!raw.startsWith(CURSOR_PREFIX)) {
+                throw new IllegalArgumentException("unknown cursor version");
+            }
+            return Long.parseLong(raw.substring(CURSOR_PREFIX.length()));
+        } catch (IllegalArgumentException ex) {
+            throw new BadRequestException("Invalid cursor");
+        }
     }
 
     private RoomDto toDto(Room room) {
@@ -261,7 +883,7 @@ public class RoomService {
                 room.getHotel().getId(),
                 room.getNumber(),
                 room.isAvailable(),
-                room.getTimesBooked()
+                timesBooked.live(room.getId(), room.getTimesBooked())
         );
     }
 }
@@ -0,0 +1,130 @@
+package ru.mifi.booking.hotelservice.service;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import ru.mifi.booking.common.exception.ApiException;
+import ru.mifi.booking.common.exception.BadRequestException;
+import ru.mifi.booking.common.exception.NotFoundException;
+import ru.mifi.booking.common.exception.ServiceUnavailableException;
+import ru.mifi.booking.hotelservice.dto.HotelRoomStatsDto;
+import ru.mifi.booking.hotelservice.repository.HotelRepository;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * ADMIN-отчёт: статистика загруженности сразу по нескольким отелям.
+ *
+ * <p>
+ * Каждый отель считается отдельной задачей ({@link RoomService#stats}) в ограниченном пуле statsExecutor,
+ * поэтому время отчёта определяется самым тяжёлым отелем, а не суммой. Общий дедлайн — {@code hotel.stats.timeout-ms}:
+ * не успели, пул переполнен или один из отелей упал — ответ сразу, остальные задачи отменяются.
+ * </p>
+ *
+ * <p>
+ * Ждущие в очереди задачи просто не запустятся, а уже выполняемые получают interrupt. Запрос к БД прерыванием
+ * не остановить, поэтому его ограничивает JDBC query timeout до того же дедлайна
+ * ({@link RoomService#stats(Long, LocalDate, LocalDate, Instant)}): соединение освобождается не позже дедлайна.
+ * </p>
+ */
+@Service
+public class RoomStatsReportService {
+
+    static final int MAX_HOTELS = 100;
+
+    private final RoomService roomService;
+    private final HotelRepository hotelRepository;
+    private final ThreadPoolTaskExecutor statsExecutor;
+    private final long timeoutMs;
+
+    public RoomStatsReportService(
+            RoomService roomService,
+            HotelRepository hotelRepository,
+            @Qualifier("statsExecutor") ThreadPoolTaskExecutor statsExecutor,
+            @Value("${hotel.stats.timeout-ms:10000}") long timeoutMs
+    ) {
+        this.roomService = roomService;
+        this.hotelRepository = hotelRepository;
+        this.statsExecutor = statsExecutor;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * Статистика номеров по каждому отелю за период.
+     *
+     * @param hotelIds идентификаторы отелей (не больше {@value #MAX_HOTELS}, повторы схлопываются)
+     * @param start    начало периода
+     * @param end      конец периода
+     * @return статистика в порядке hotelIds
+     */
+    public List<HotelRoomStatsDto> stats(List<Long> hotelIds, LocalDate start, LocalDate end) {
+        if (hotelIds == null || hotelIds.isEmpty()) {
+            throw new BadRequestException("hotelIds must not be empty");
+        }
+        Set<Long> ids = new LinkedHashSet<>(hotelIds);
+        if (ids.size() > MAX_HOTELS) {
+            throw new BadRequestException("hotelIds must contain at most " + MAX_HOTELS + " hotels");
+        }
+        if (start == null || end == null || !start.isBefore(end)) {
+            throw new BadRequestException("start must be before end");
+        }
+
+        // Как и в одиночном /stats: несуществующий отель — 404 до начала расчёта.
+        Set<Long> existing = new HashSet<>(hotelRepository.findExistingIds(ids));
+        List<Long> missing = ids.stream().filter(id -> !existing.contains(id)).toList();
+        if (!missing.isEmpty()) {
+            throw new NotFoundException("Hotels not found: " + missing);
+        }
+
+        Instant deadline = Instant.now().plusMillis(timeoutMs);
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        List<Future<HotelRoomStatsDto>> futures = new ArrayList<>(ids.size());
+        try {
+            for (Long hotelId : ids) {
+                futures.add(statsExecutor.submit(
+                        () -> new HotelRoomStatsDto(hotelId, roomService.stats(hotelId, start, end, deadline))));
+            }
+            List<HotelRoomStatsDto> result = new ArrayList<>(futures.size());
+            for (Future<HotelRoomStatsDto> future : futures) {
+                result.add(future.get(Math.max(deadlineNanos - System.nanoTime(), 0), TimeUnit.NANOSECONDS));
+            }
+            return result;
+        } catch (TaskRejectedException ex) {
+            cancel(futures);
+            throw new ServiceUnavailableException("Stats executor is busy, retry later");
+        } catch (TimeoutException ex) {
+            cancel(futures);
+            throw new ServiceUnavailableException("Stats report did not complete in " + timeoutMs + " ms");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            cancel(futures);
+            throw new ServiceUnavailableException("Interrupted while computing stats");
+        } catch (ExecutionException ex) {
+            cancel(futures);
+            if (ex.getCause() instanceof ApiException api) {
+                throw api;
+            }
+            if (ex.getCause() instanceof QueryTimeoutException) {
+                throw new ServiceUnavailableException("Stats report did not complete in " + timeoutMs + " ms");
+            }
+            throw new IllegalStateException("Stats computation failed", ex.getCause());
+        }
+    }
+
+    private static void cancel(List<Future<HotelRoomStatsDto>> futures) {
+        futures.forEach(f -> f.cancel(true));
+    }
+}
@@ -0,0 +1,278 @@
+package ru.mifi.booking.hotelservice.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.mifi.booking.hotelservice.dto.RoomDto;
+import ru.mifi.booking.hotelservice.dto.RoomStatsDto;
+import ru.mifi.booking.hotelservice.repository.RoomTimesBookedJdbcRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Метрика справедливости timesBooked с отложенной записью в rooms.times_booked.
+ *
+ * <p>
+ * confirm/release больше не обновляют строку rooms в своей транзакции: на популярном номере это была
+ * горячая строка, которую параллельные confirm на разные месяцы ждали до commit друг друга.
+ * Вместо этого после commit я прибавляю дельту к {@link LongAdder} номера (без общей блокировки),
+ * а {@link #flush()} раз в {@code hotel.times-booked.flush-ms} пишет накопленное одним JDBC-батчем.
+ * </p>
+ *
+ * <p>
+ * Живое значение = rooms.times_booked + ещё не записанная дельта. Его отдают get/search/recommend/stats,
+ * в том числе при выключенном индексе; индекс доступности получает дельту при построении из снапшота,
+ * а дальше ведёт её сам по событиям. Чтобы запись не попала между чтением строки и чтением дельты,
+ * чтение делается под общей частью {@link ReentrantReadWriteLock} ({@link #read}), запись — под эксклюзивной.
+ * Как и другие блокировки сервиса, её захватывают до открытия транзакции.
+ * </p>
+ *
+ * <p>
+ * Падение процесса теряет не больше одного интервала дельт. При старте ({@code recompute-on-startup})
+ * я пересчитываю times_booked из room_locks и room_lock_history — счётчик равен числу блокировок номера,
+ * поэтому потерянные дельты восстанавливаются, а не копятся. При штатной остановке накопленное дописывается.
+ * </p>
+ */
+@Component
+public class TimesBookedCounter {
+
+    private static final Logger log = LoggerFactory.getLogger(TimesBookedCounter.class);
+
+    private final RoomTimesBookedJdbcRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean recomputeOnStartup;
+    private final Map<Long, Counter> counters = new ConcurrentHashMap<>();
+    private final ReentrantReadWriteLock flushLock = new ReentrantReadWriteLock();
+
+    public TimesBookedCounter(
+            RoomTimesBookedJdbcRepository repository,
+            PlatformTransactionManager transactionManager,
+            @Value("${hotel.times-booked.recompute-on-startup:true}") boolean recomputeOnStartup
+    ) {
+        this.repository = repository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.recomputeOnStartup = recomputeOnStartup;
+    }
+
+    /**
+     * Пересчёт из блокировок — до построения индекса доступности, который читает уже исправленные значения.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onApplicationReady() {
+        if (!recomputeOnStartup) {
+            return;
+        }
+        Lock lock = flushLock.writeLock();
+        lock.lock();
+        try {
+            Integer rooms = transactionTemplate.execute(status -> repository.recomputeAll());
+            counters.values().forEach(Counter::markFlushed);
+            log.info("timesBooked recomputed from room locks for {} rooms", rooms);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @EventListener(ContextClosedEvent.class)
+    public void onContextClosed() {
+        flush();
+    }
+
+    /**
+     * Номер получил блокировку (учитывается после commit текущей транзакции).
+     */
+    public void increment(Long roomId) {
+        add(Map.of(roomId, 1L));
+    }
+
+    /**
+     * С номера снята блокировка (учитывается после commit текущей транзакции).
+     */
+    public void decrement(Long roomId) {
+        add(Map.of(roomId, -1L));
+    }
+
+    /**
+     * По одной новой блокировке на каждый номер группы.
+     */
+    public void incrementAll(Collection<Long> roomIds) {
+        Map<Long, Long> deltas = new HashMap<>();
+        roomIds.forEach(id -> deltas.merge(id, 1L, Long::sum));
+        add(deltas);
+    }
+
+    /**
+     * Сняты блокировки: сколько на каждом номере.
+     */
+    public void decrementAll(Map<Long, Long> releasedPerRoom) {
+        Map<Long, Long> deltas = new HashMap<>();
+        releasedPerRoom.forEach((id, count) -> deltas.put(id, -count));
+        add(deltas);
+    }
+
+    /**
+     * Выполнить чтение строк rooms так, чтобы {@link #flush()} не прошёл между ним и наложением дельт.
+     */
+    public <T> T read(Supplier<T> query) {
+        Lock lock = flushLock.readLock();
+        lock.lock();
+        try {
+            return query.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Живое значение по прочитанному из rooms.
+     */
+    public long live(Long roomId, long stored) {
+        Counter counter = counters.get(roomId);
+        return counter == null ? stored : Math.max(0, stored + counter.pending());
+    }
+
+    public RoomDto live(RoomDto room) {
+        long timesBooked = live(room.id(), room.timesBooked());
+        return timesBooked == room.timesBooked() ? room
+                : new RoomDto(room.id(), room.hotelId(), room.number(), room.available(), timesBooked);
+    }
+
+    public List<RoomDto> live(List<RoomDto> rooms) {
+        if (counters.isEmpty()) {
+            return rooms;
+        }
+        return rooms.stream().map(this::live).toList();
+    }
+
+    public List<RoomStatsDto> liveStats(List<RoomStatsDto> stats) {
+        if (counters.isEmpty()) {
+            return stats;
+        }
+        return stats.stream()
+                .map(s -> {
+                    long timesBooked = live(s.roomId(), s.timesBooked());
+                    return timesBooked == s.timesBooked() ? s : new RoomStatsDto(s.roomId(), s.hotelId(), s.number(),
+                            timesBooked, s.locksCountInRange(), s.bookedDaysInRange());
+                })
+                .toList();
+    }
+
+    /**
+     * Сколько номеров сейчас имеют положительную незаписанную дельту (их место в order by устарело).
+     */
+    public int pendingIncrements() {
+        int n = 0;
+        for (Counter counter : counters.values()) {
+            if (counter.pending() > 0) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Записать накопленные дельты в rooms.times_booked.
+     *
+     * @return число обновлённых номеров
+     */
+    @Scheduled(fixedDelayString = "${hotel.times-booked.flush-ms:1000}")
+    public int flush() {
+        Lock lock = flushLock.writeLock();
+        lock.lock();
+        try {
+            List<Map.Entry<Long, Long>> deltas = new ArrayList<>();
+            List<Long> totals = new ArrayList<>();
+            counters.forEach((roomId, counter) -> {
+                long total = counter.total.sum();
+                if (total != counter.flushed) {
+                    deltas.add(Map.entry(roomId, total - counter.flushed));
+                    totals.add(total);
+                }
+            });
+            if (deltas.isEmpty()) {
+                return 0;
+            }
+
+            int[] updated = transactionTemplate.execute(status -> repository.addAll(deltas));
+            int flushed = 0;
+            for (int i = 0; i < updated.length; i++) {
+                Long roomId = deltas.get(i).getKey();
+                if (updated[i] == 0) {
+                    // Номер удалён — вместе со строкой уходит и его счётчик.
+                    counters.remove(roomId);
+                } else {
+                    counters.get(roomId).flushed = totals.get(i);
+                    flushed++;
+                }
+            }
+            log.debug("timesBooked flushed for {} rooms", flushed);
+            return flushed;
+        } catch (RuntimeException ex) {
+            // Дельты остаются в памяти и уйдут следующей записью.
+            log.error("Failed to flush timesBooked", ex);
+            return 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void add(Map<Long, Long> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(deltas);
+            return;
+        }
+        // Откат транзакции дельту не применяет: блокировка так и не появилась.
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(deltas);
+            }
+        });
+    }
+
+    private void apply(Map<Long, Long> deltas) {
+        deltas.forEach((roomId, delta) -> counters.computeIfAbsent(roomId, id -> new Counter()).total.add(delta));
+    }
+
+    /**
+     * Сумма дельт номера с запуска и сколько из неё уже записано. Сумму не сбрасываю:
+     * иначе прибавление между sum() и reset() потерялось бы. flushed меняется только под эксклюзивной блокировкой.
+     */
+    private static final class Counter {
+
+        private final LongAdder total = new LongAdder();
+        private volatile long flushed;
+
+        private long pending() {
+            return total.sum() - flushed;
+        }
+
+        private void markFlushed() {
+            flushed = total.sum();
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package ru.mifi.booking.hotelservice;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import ru.mifi.booking.hotelservice.dto.ConfirmAvailabilityRequest;
+import ru.mifi.booking.hotelservice.dto.UpdateRoomRequest;
+import ru.mifi.booking.hotelservice.entity.Hotel;
+import ru.mifi.booking.hotelservice.repository.HotelRepository;
+import ru.mifi.booking.hotelservice.service.AvailabilityStreamService;
+import ru.mifi.booking.hotelservice.service.CatalogImportService;
+import ru.mifi.booking.hotelservice.service.HotelService;
+import ru.mifi.booking.hotelservice.service.RoomService;
+
+import java.io.ByteArrayInputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Поток изменений доступности {@code GET /api/rooms/changes} (SSE):
+ * <ul>
+ *     <li>после commit приходят создание/снятие блокировки и снятие номера с продажи, id события — seq</li>
+ *     <li>переподключение с Last-Event-ID или ?since= дочитывает пропущенное из буфера</li>
+ *     <li>seq старше буфера или «из будущего» — событие reset, подписчиков сверх лимита — 503</li>
+ *     <li>клиент, который перестал читать, отключается по send-timeout-ms и не задерживает остальных
+ *     (настоящий сервер, один поток отправки)</li>
+ * </ul>
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "eureka.client.enabled=false",
+        "spring.cloud.discovery.enabled=false",
+        "hotel.times-booked.flush-ms=3600000",
+        "hotel.hold.reaper.fixed-delay-ms=3600000",
+        "hotel.changes.max-subscribers=3",
+        "hotel.changes.sender-threads=1",
+        "hotel.changes.buffer-size=50000",
+        "hotel.changes.send-timeout-ms=500"
+})
+@AutoConfigureMockMvc
+class AvailabilityChangeStreamIT {
+
+    private static final long WAIT_MS = 5_000;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private HotelService hotelService;
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private HotelRepository hotelRepository;
+
+    @Autowired
+    private AvailabilityStreamService streamService;
+
+    @Autowired
+    private CatalogImportService importService;
+
+    @LocalServerPort
+    private int port;
+
+    @Value("${security.jwt.secret}")
+    private String jwtSecret;
+
+    private Hotel hotel;
+    private Long roomId;
+    private LocalDate start;
+
+    @BeforeEach
+    void setUp() {
+        hotel = hotelRepository.save(new Hotel(null, "Stream Hotel", "Stream City, 1"));
+        roomId = roomService.addRoom(hotel, "ST-1", true).id();
+        start = LocalDate.now().plusDays(60);
+    }
+
+    @AfterEach
+    void tearDown() {
+        streamService.closeAll();
+        hotelService.delete(hotel.getId());
+    }
+
+    @Test
+    void stream_shouldDeliverChangesAfterCommit() throws Exception {
+        MvcResult stream = subscribe(changesRequest());
+        awaitContent(stream, "event:ready");
+
+        String bookingId = "booking-st-" + UUID.randomUUID();
+        roomService.confirmAvailability(roomId, new ConfirmAvailabilityRequest(
+                start, start.plusDays(2), bookingId, "req-st-" + UUID.randomUUID()));
+        awaitContent(stream, "event:LOCK_CREATED");
+
+        roomService.release(roomId, bookingId);
+        awaitContent(stream, "event:LOCK_RELEASED");
+
+        roomService.update(roomId, new UpdateRoomRequest(null, false));
+        String content = awaitContent(stream, "event:ROOM_UPSERTED");
+
+        assertThat(content).contains("\"roomId\":" + roomId, "\"startDate\":\"" + start + "\"", "\"available\":false");
+        assertThat(content.indexOf("event:LOCK_CREATED")).isLessThan(content.indexOf("event:LOCK_RELEASED"));
+        assertThat(content).contains("id:" + streamService.lastSeq());
+    }
+
+    @Test
+    void stream_shouldResumeFromLastEventId() throws Exception {
+        long seen = streamService.lastSeq();
+        roomService.confirmAvailability(roomId, new ConfirmAvailabilityRequest(
+                start, start.plusDays(1), "booking-st-" + UUID.randomUUID(), "req-st-" + UUID.randomUUID()));
+        long created = streamService.lastSeq();
+
+        MvcResult byHeader = subscribe(changesRequest().header("Last-Event-ID", seen));
+        String content = awaitContent(byHeader, "event:LOCK_CREATED");
+        assertThat(content).contains("id:" + seen + "\nevent:ready", "id:" + created + "\nevent:LOCK_CREATED");
+
+        MvcResult byParam = subscribe(get("/api/rooms/changes?since=" + seen)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .with(SecurityMockMvcRequestPostProcessors.user("1").roles("USER")));
+        awaitContent(byParam, "id:" + created + "\nevent:LOCK_CREATED");
+    }
+
+    @Test
+    void stream_shouldResetUnknownSeq_andLimitSubscribers() throws Exception {
+        long last = streamService.lastSeq();
+        String reset = awaitContent(subscribe(changesRequest().header("Last-Event-ID", 1)), "event:reset");
+        assertThat(reset).contains("id:" + last + "\nevent:reset").doesNotContain("event:ready");
+        awaitContent(subscribe(changesRequest().header("Last-Event-ID", last + 1_000)), "event:reset");
+
+        for (int i = 0; i < 3; i++) {
+            subscribe(changesRequest());
+        }
+        mockMvc.perform(changesRequest())
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    void stream_shouldDisconnectNonReadingClient_withoutDelayingOthers() throws Exception {
+        String token = userToken();
+        try (Socket stalled = new Socket()) {
+            // Клиент, который подписался и перестал читать: маленький буфер приёма быстро забивается.
+            stalled.setReceiveBufferSize(4096);
+            stalled.connect(new InetSocketAddress("localhost", port));
+            stalled.getOutputStream().write(("GET /api/rooms/changes HTTP/1.1\r\nHost: localhost\r\n"
+                    + "Accept: text/event-stream\r\nAuthorization: Bearer " + token + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            awaitSubscribers(1);
+
+            BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+            HttpResponse<Stream<String>> healthy = HttpClient.newHttpClient().send(HttpRequest.newBuilder()
+                            .uri(URI.create("http://localhost:" + port + "/api/rooms/changes"))
+                            .header("Accept", MediaType.TEXT_EVENT_STREAM_VALUE)
+                            .header("Authorization", "Bearer " + token)
+                            .build(),
+                    HttpResponse.BodyHandlers.ofLines());
+            assertThat(healthy.statusCode()).isEqualTo(200);
+            // Поток чтения заканчивается вместе с потоком событий (closeAll в tearDown).
+            Thread.ofPlatform().daemon().start(() -> healthy.body().forEach(lines::add));
+            awaitSubscribers(2);
+
+            // Несколько МБ изменений: у нечитающего клиента запись встаёт, единственный поток отправки занят им.
+            StringBuilder body = new StringBuilder("{\"type\":\"hotel\",\"ref\":\"h\",\"name\":\"Stream Import\",\"address\":\"Stream City, 2\"}\n");
+            for (int i = 0; i < 30_000; i++) {
+                body.append("{\"type\":\"room\",\"hotelRef\":\"h\",\"number\":\"SI-").append(i).append("\"}\n");
+            }
+            importService.importCatalog(new ByteArrayInputStream(body.toString().getBytes(StandardCharsets.UTF_8)),
+                    CatalogImportService.Format.NDJSON);
+            roomService.confirmAvailability(roomId, new ConfirmAvailabilityRequest(
+                    start, start.plusDays(1), "booking-st-" + UUID.randomUUID(), "req-st-" + UUID.randomUUID()));
+            long created = streamService.lastSeq();
+
+            // Без срока записи единственный поток отправки висел бы на нечитающем клиенте до таймаута сокета Tomcat.
+            awaitLine(lines, "id:" + created);
+            awaitSubscribers(1);
+        }
+    }
+
+    private MockHttpServletRequestBuilder changesRequest() {
+        return get("/api/rooms/changes")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .with(SecurityMockMvcRequestPostProcessors.user("1").roles("USER"));
+    }
+
+    private MvcResult subscribe(MockHttpServletRequestBuilder request) throws Exception {
+        return mockMvc.perform(request)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
+    private void awaitSubscribers(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT_MS;
+        while (streamService.subscriberCount() != expected) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Expected " + expected + " subscribers, got " + streamService.subscriberCount());
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    private static void awaitLine(BlockingQueue<String> lines, String expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT_MS;
+        while (true) {
+            String line = lines.poll(Math.max(deadline - System.currentTimeMillis(), 1), TimeUnit.MILLISECONDS);
+            if (line == null) {
+                fail("No '" + expected + "' in stream");
+            }
+            if (line.equals(expected)) {
+                return;
+            }
+        }
+    }
+
+    private String userToken() throws JOSEException {
+        SignedJWT jwt = new SignedJWT(new JWSHeader(JWSAlgorithm.HS256), new JWTClaimsSet.Builder()
+                .subject("1")
+                .claim("role", "USER")
+                .expirationTime(Date.from(Instant.now().plusSeconds(600)))
+                .build());
+        jwt.sign(new MACSigner(jwtSecret));
+        return jwt.serialize();
+    }
+
+    private static String awaitContent(MvcResult stream, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + WAIT_MS;
+        while (true) {
+            String content = stream.getResponse().getContentAsString();
+            if (content.contains(expected)) {
+                return content;
+            }
+            if (System.currentTimeMillis() > deadline) {
+                fail("No '" + expected + "' in stream: " + content);
+            }
+            Thread.sleep(20);
+        }
+    }
+}
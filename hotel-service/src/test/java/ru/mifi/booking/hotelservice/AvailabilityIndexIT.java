@@ -0,0 +1,259 @@
+package ru.mifi.booking.hotelservice;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import ru.mifi.booking.hotelservice.availability.AvailabilityIndexSynchronizer;
+import ru.mifi.booking.hotelservice.dto.CalendarSpanDto;
+import ru.mifi.booking.hotelservice.dto.ConfirmAvailabilityRequest;
+import ru.mifi.booking.hotelservice.dto.GroupAvailabilityDto;
+import ru.mifi.booking.hotelservice.dto.RoomCalendarDto;
+import ru.mifi.booking.hotelservice.dto.RoomDto;
+import ru.mifi.booking.hotelservice.dto.RoomStatsDto;
+import ru.mifi.booking.hotelservice.entity.Hotel;
+import ru.mifi.booking.hotelservice.entity.Room;
+import ru.mifi.booking.hotelservice.repository.HotelRepository;
+import ru.mifi.booking.hotelservice.repository.RoomLockRepository;
+import ru.mifi.booking.hotelservice.repository.RoomRepository;
+import ru.mifi.booking.hotelservice.service.RoomService;
+import ru.mifi.booking.hotelservice.service.TimesBookedCounter;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Интеграционные проверки in-memory индекса доступности:
+ * <ul>
+ *     <li>confirm/release после commit сразу отражаются в выдаче listAvailable/recommend</li>
+ *     <li>recommend с limit (куча в индексе и LIMIT в БД) совпадает с началом полного списка</li>
+ *     <li>сверка индекса с таблицами находит расхождения и rebuild их устраняет</li>
+ *     <li>гибкие даты из календаря индекса совпадают с перебором listAvailable по каждой дате</li>
+ *     <li>«k номеров в одном отеле» из индекса совпадает с GROUP BY ... HAVING в БД</li>
+ *     <li>календарь номера одинаков из битового календаря и из интервалов (период за окном)</li>
+ * </ul>
+ */
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "spring.cloud.discovery.enabled=false"
+})
+class AvailabilityIndexIT {
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private AvailabilityIndexSynchronizer synchronizer;
+
+    @Autowired
+    private HotelRepository hotelRepository;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private TimesBookedCounter timesBooked;
+
+    @Autowired
+    private RoomLockRepository roomLockRepository;
+
+    private Hotel hotel;
+    private Long roomId;
+
+    @BeforeEach
+    void setUp() {
+        roomLockRepository.deleteAll();
+        hotel = hotelRepository.save(new Hotel(null, "Index Hotel", "Test City"));
+        roomId = roomService.addRoom(hotel, "IDX-1", true).id();
+
+        // Другие тесты меняют таблицы в обход сервисов — начинаю с согласованного индекса.
+        synchronizer.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        roomLockRepository.deleteAll();
+        roomService.delete(roomId);
+        hotelRepository.delete(hotel);
+    }
+
+    @Test
+    void confirmAndRelease_shouldBeVisibleInIndexedSearch() {
+        LocalDate start = LocalDate.now().plusDays(20);
+        LocalDate end = LocalDate.now().plusDays(23);
+        String bookingId = "booking-idx-" + UUID.randomUUID();
+
+        assertThat(availableIds(start, end)).contains(roomId);
+
+        roomService.confirmAvailability(roomId,
+                new ConfirmAvailabilityRequest(start, end, bookingId, "req-idx-" + UUID.randomUUID()));
+
+        assertThat(availableIds(start, end)).doesNotContain(roomId);
+        assertThat(availableIds(end, end.plusDays(2))).contains(roomId);
+        assertThat(synchronizer.checkConsistency().consistent()).isTrue();
+
+        roomService.release(roomId, bookingId);
+
+        assertThat(availableIds(start, end)).contains(roomId);
+        assertThat(roomService.recommend(start, end, null).stream().filter(r -> r.id().equals(roomId)).findFirst())
+                .get()
+                .extracting(RoomDto::timesBooked)
+                .isEqualTo(0L);
+        assertThat(synchronizer.checkConsistency().consistent()).isTrue();
+    }
+
+    @Test
+    void consistencyCheck_shouldDetectChangesBypassingServices_andRebuildShouldFixThem() {
+        LocalDate start = LocalDate.now().plusDays(30);
+        LocalDate end = LocalDate.now().plusDays(31);
+
+        roomService.confirmAvailability(roomId,
+                new ConfirmAvailabilityRequest(start, end, "booking-idx-" + UUID.randomUUID(), "req-idx-" + UUID.randomUUID()));
+
+        // Удаление мимо сервиса: индекс об этом не узнает.
+        timesBooked.flush();
+        roomLockRepository.deleteAll();
+        Room room = roomRepository.findById(roomId).orElseThrow();
+        room.setTimesBooked(0);
+        roomRepository.save(room);
+
+        assertThat(synchronizer.checkConsistency().consistent()).isFalse();
+
+        synchronizer.rebuild();
+
+        assertThat(synchronizer.checkConsistency().consistent()).isTrue();
+        assertThat(availableIds(start, end)).contains(roomId);
+    }
+
+    @Test
+    void stats_shouldCountBookedNightsFromCalendar() {
+        LocalDate base = LocalDate.now().plusDays(40);
+
+        roomService.confirmAvailability(roomId,
+                new ConfirmAvailabilityRequest(base, base.plusDays(3), "booking-idx-" + UUID.randomUUID(), "req-idx-" + UUID.randomUUID()));
+        roomService.confirmAvailability(roomId,
+                new ConfirmAvailabilityRequest(base.plusDays(10), base.plusDays(12), "booking-idx-" + UUID.randomUUID(), "req-idx-" + UUID.randomUUID()));
+
+        RoomStatsDto stats = roomService.stats(hotel.getId(), base.plusDays(1), base.plusDays(11)).stream()
+                .filter(s -> s.roomId().equals(roomId))
+                .findFirst()
+                .orElseThrow();
+
+        assertThat(stats.locksCountInRange()).isEqualTo(2);
+        // 2 ночи из первой блокировки + 1 ночь из второй.
+        assertThat(stats.bookedDaysInRange()).isEqualTo(3);
+        assertThat(stats.timesBooked()).isEqualTo(2);
+    }
+
+    @Test
+    void recommendWithLimit_shouldMatchPrefixOfFullOrder_inIndexAndDatabase() {
+        LocalDate start = LocalDate.now().plusDays(50);
+        LocalDate end = LocalDate.now().plusDays(52);
+
+        List<RoomDto> full = roomService.recommend(start, end, null);
+        assertThat(full).hasSizeGreaterThan(3);
+
+        List<RoomDto> top = roomService.recommend(start, end, 3);
+        assertThat(top).containsExactlyElementsOf(full.subList(0, 3));
+        assertThat(roomRepository.findRecommendedForPeriod(start, end, Instant.now(), Limit.of(3))).containsExactlyElementsOf(top);
+    }
+
+    @Test
+    void flexible_shouldMatchPerDateListAvailable() {
+        LocalDate from = LocalDate.now().plusDays(60);
+        LocalDate to = from.plusDays(12);
+        Long otherId = roomService.addRoom(hotel, "IDX-2", true).id();
+        try {
+            roomService.confirmAvailability(roomId, new ConfirmAvailabilityRequest(
+                    from.plusDays(1), from.plusDays(3), "booking-idx-" + UUID.randomUUID(), "req-idx-" + UUID.randomUUID()));
+            roomService.confirmAvailability(roomId, new ConfirmAvailabilityRequest(
+                    from.plusDays(6), from.plusDays(7), "booking-idx-" + UUID.randomUUID(), "req-idx-" + UUID.randomUUID()));
+            roomService.confirmAvailability(otherId, new ConfirmAvailabilityRequest(
+                    from.minusDays(2), from.plusDays(9), "booking-idx-" + UUID.randomUUID(), "req-idx-" + UUID.randomUUID()));
+
+            for (int nights = 1; nights <= 4; nights++) {
+                Map<Long, List<LocalDate>> expected = new TreeMap<>();
+                for (LocalDate d = from; !d.plusDays(nights).isAfter(to); d = d.plusDays(1)) {
+                    for (Long id : availableIds(d, d.plusDays(nights))) {
+                        if (id.equals(roomId) || id.equals(otherId)) {
+                            expected.computeIfAbsent(id, k -> new ArrayList<>()).add(d);
+                        }
+                    }
+                }
+                Map<Long, List<LocalDate>> actual = new TreeMap<>();
+                roomService.flexible(from, to, nights, hotel.getId(), 200, null).items()
+                        .forEach(r -> actual.put(r.room().id(), r.startDates()));
+
+                assertThat(actual).as("nights=%d", nights).isEqualTo(expected);
+            }
+        } finally {
+            roomLockRepository.deleteAll();
+            roomService.delete(otherId);
+        }
+    }
+
+    @Test
+    void group_shouldMatchGroupedCountInDatabase() {
+        LocalDate start = LocalDate.now().plusDays(70);
+        LocalDate end = start.plusDays(2);
+        Long secondId = roomService.addRoom(hotel, "IDX-2", true).id();
+        try {
+            roomService.confirmAvailability(secondId, new ConfirmAvailabilityRequest(
+                    start.plusDays(1), end, "booking-idx-" + UUID.randomUUID(), "req-idx-" + UUID.randomUUID()));
+
+            for (int k = 1; k <= 3; k++) {
+                int rooms = k;
+                List<GroupAvailabilityDto> indexed = roomService.group(start, end, rooms, 200, null).items();
+                List<Long> dbHotelIds = roomRepository.findHotelIdsWithFreeRooms(
+                        start, end, Instant.now(), rooms, 0L, Limit.of(201));
+
+                assertThat(indexed).extracting(GroupAvailabilityDto::hotelId).as("rooms=%d", rooms)
+                        .containsExactlyElementsOf(dbHotelIds);
+                assertThat(indexed).allSatisfy(g -> assertThat(g.roomIds()).hasSize(rooms).doesNotContain(secondId));
+            }
+            assertThat(roomService.group(start, end, 2, 200, null).items())
+                    .extracting(GroupAvailabilityDto::hotelId).doesNotContain(hotel.getId());
+            assertThat(roomService.group(start, end, 1, 200, null).items())
+                    .filteredOn(g -> g.hotelId().equals(hotel.getId()))
+                    .singleElement()
+                    .extracting(GroupAvailabilityDto::roomIds)
+                    .isEqualTo(List.of(roomId));
+        } finally {
+            roomLockRepository.deleteAll();
+            roomService.delete(secondId);
+        }
+    }
+
+    @Test
+    void calendar_shouldBeSameInsideAndOutsideCalendarWindow() {
+        LocalDate near = LocalDate.now().plusDays(80);
+        LocalDate far = LocalDate.now().plusDays(500);
+        for (LocalDate base : List.of(near, far)) {
+            roomService.confirmAvailability(roomId, new ConfirmAvailabilityRequest(
+                    base.plusDays(2), base.plusDays(4), "booking-idx-" + UUID.randomUUID(), "req-idx-" + UUID.randomUUID()));
+            roomService.confirmAvailability(roomId, new ConfirmAvailabilityRequest(
+                    base.plusDays(4), base.plusDays(5), "booking-idx-" + UUID.randomUUID(), "req-idx-" + UUID.randomUUID()));
+        }
+
+        for (LocalDate base : List.of(near, far)) {
+            RoomCalendarDto calendar = roomService.calendar(roomId, base, base.plusDays(10));
+            assertThat(calendar.spans()).as("from %s", base).containsExactly(
+                    new CalendarSpanDto(base, 2, true),
+                    new CalendarSpanDto(base.plusDays(2), 3, false),
+                    new CalendarSpanDto(base.plusDays(5), 5, true));
+        }
+    }
+
+    private List<Long> availableIds(LocalDate start, LocalDate end) {
+        return roomService.listAvailable(start, end).stream().map(RoomDto::id).toList();
+    }
+}
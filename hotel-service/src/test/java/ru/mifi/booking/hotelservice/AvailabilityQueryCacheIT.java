@@ -0,0 +1,173 @@
+package ru.mifi.booking.hotelservice;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.mifi.booking.hotelservice.availability.AvailabilityIndexSynchronizer;
+import ru.mifi.booking.hotelservice.availability.AvailabilityQueryCache;
+import ru.mifi.booking.hotelservice.dto.ConfirmAvailabilityRequest;
+import ru.mifi.booking.hotelservice.dto.RoomDto;
+import ru.mifi.booking.hotelservice.entity.Hotel;
+import ru.mifi.booking.hotelservice.repository.HotelRepository;
+import ru.mifi.booking.hotelservice.repository.RoomLockRepository;
+import ru.mifi.booking.hotelservice.service.RoomService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Интеграционные проверки кэша выдачи доступности:
+ * <ul>
+ *     <li>повторный поиск отдаётся из кэша, confirm инвалидирует только пересекающиеся периоды</li>
+ *     <li>параллельные промахи по одному ключу грузятся один раз</li>
+ *     <li>загрузка, которая пересеклась с изменением, не остаётся в кэше</li>
+ * </ul>
+ */
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "spring.cloud.discovery.enabled=false"
+})
+class AvailabilityQueryCacheIT {
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private AvailabilityQueryCache queryCache;
+
+    @Autowired
+    private AvailabilityIndexSynchronizer synchronizer;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private HotelRepository hotelRepository;
+
+    @Autowired
+    private RoomLockRepository roomLockRepository;
+
+    private Hotel hotel;
+    private Long roomId;
+
+    @BeforeEach
+    void setUp() {
+        roomLockRepository.deleteAll();
+        hotel = hotelRepository.save(new Hotel(null, "Cache Hotel", "Test City"));
+        roomId = roomService.addRoom(hotel, "CACHE-1", true).id();
+        synchronizer.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        roomLockRepository.deleteAll();
+        roomService.delete(roomId);
+        hotelRepository.delete(hotel);
+    }
+
+    @Test
+    void listAvailable_shouldHitCacheUntilIntersectingLockChanges() {
+        LocalDate start = LocalDate.now().plusDays(60);
+        LocalDate end = LocalDate.now().plusDays(63);
+        LocalDate otherStart = LocalDate.now().plusDays(70);
+        LocalDate otherEnd = LocalDate.now().plusDays(72);
+
+        roomService.listAvailable(start, end);
+        roomService.listAvailable(otherStart, otherEnd);
+        double hitsBefore = hits();
+
+        assertThat(ids(roomService.listAvailable(start, end))).contains(roomId);
+        assertThat(hits()).isEqualTo(hitsBefore + 1);
+
+        roomService.confirmAvailability(roomId, new ConfirmAvailabilityRequest(
+                start.plusDays(1), start.plusDays(2), "booking-cache-" + UUID.randomUUID(), "req-cache-" + UUID.randomUUID()));
+
+        // Пересекающийся период перечитан, непересекающийся остался в кэше.
+        assertThat(ids(roomService.listAvailable(start, end))).doesNotContain(roomId);
+        assertThat(hits()).isEqualTo(hitsBefore + 1);
+        assertThat(ids(roomService.listAvailable(otherStart, otherEnd))).contains(roomId);
+        assertThat(hits()).isEqualTo(hitsBefore + 2);
+    }
+
+    @Test
+    void concurrentMisses_shouldLoadOnce() throws Exception {
+        LocalDate start = LocalDate.now().plusDays(80);
+        LocalDate end = LocalDate.now().plusDays(81);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch go = new CountDownLatch(1);
+
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<RoomDto>>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(pool.submit(() -> {
+                    go.await();
+                    return queryCache.get(AvailabilityQueryCache.Query.RECOMMEND, start, end, 7, () -> {
+                        loads.incrementAndGet();
+                        sleep(200);
+                        return List.of();
+                    });
+                }));
+            }
+            go.countDown();
+            for (Future<List<RoomDto>> f : futures) {
+                assertThat(f.get(5, TimeUnit.SECONDS)).isEmpty();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    void loadRacingWithChange_shouldNotCacheStaleResult() {
+        LocalDate start = LocalDate.now().plusDays(90);
+        LocalDate end = LocalDate.now().plusDays(93);
+        RoomDto stale = new RoomDto(roomId, hotel.getId(), "STALE", true, 0);
+        AtomicInteger loads = new AtomicInteger();
+
+        List<RoomDto> result = queryCache.get(AvailabilityQueryCache.Query.RECOMMEND, start, end, 5, () -> {
+            if (loads.incrementAndGet() == 1) {
+                // Изменение прилетает, пока загрузка ещё не легла в кэш: обход ключей её не видит.
+                queryCache.invalidateRange(start.plusDays(1), start.plusDays(2));
+                return List.of(stale);
+            }
+            return List.of();
+        });
+
+        assertThat(result).isEmpty();
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(queryCache.get(AvailabilityQueryCache.Query.RECOMMEND, start, end, 5, () -> List.of(stale))).isEmpty();
+    }
+
+    private double hits() {
+        return meterRegistry.get("cache.gets").tag("cache", "availability").tag("result", "hit").functionCounter().count();
+    }
+
+    private static List<Long> ids(List<RoomDto> rooms) {
+        return rooms.stream().map(RoomDto::id).toList();
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
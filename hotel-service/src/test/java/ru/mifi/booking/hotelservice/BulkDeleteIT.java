@@ -0,0 +1,150 @@
+package ru.mifi.booking.hotelservice;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.mifi.booking.common.exception.NotFoundException;
+import ru.mifi.booking.hotelservice.availability.AvailabilityIndexSynchronizer;
+import ru.mifi.booking.hotelservice.dto.ConfirmAvailabilityRequest;
+import ru.mifi.booking.hotelservice.dto.DeleteReport;
+import ru.mifi.booking.hotelservice.entity.Hotel;
+import ru.mifi.booking.hotelservice.repository.HotelRepository;
+import ru.mifi.booking.hotelservice.repository.RoomLockRepository;
+import ru.mifi.booking.hotelservice.service.HotelService;
+import ru.mifi.booking.hotelservice.service.RoomHoldService;
+import ru.mifi.booking.hotelservice.service.RoomLockArchiveService;
+import ru.mifi.booking.hotelservice.service.RoomService;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Интеграционные проверки удаления отеля и номера пачками (batch-size=3):
+ * <ul>
+ *     <li>отель удаляется вместе с блокировками, ночами, архивом и агрегатом загрузки; отчёт считает строки и пачки</li>
+ *     <li>удаление номера вычитает из агрегата только его ночи, индекс остаётся согласованным</li>
+ * </ul>
+ */
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "spring.cloud.discovery.enabled=false",
+        "hotel.delete.batch-size=3"
+})
+class BulkDeleteIT {
+
+    @Autowired
+    private HotelService hotelService;
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private RoomHoldService roomHoldService;
+
+    @Autowired
+    private RoomLockArchiveService archiveService;
+
+    @Autowired
+    private AvailabilityIndexSynchronizer synchronizer;
+
+    @Autowired
+    private HotelRepository hotelRepository;
+
+    @Autowired
+    private RoomLockRepository roomLockRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Hotel hotel;
+    private Long roomA;
+    private Long roomB;
+
+    @BeforeEach
+    void setUp() {
+        roomLockRepository.deleteAll();
+        hotel = hotelRepository.save(new Hotel(null, "Bulk Delete Hotel", "Delete City"));
+        roomA = roomService.addRoom(hotel, "BD-1", true).id();
+        roomB = roomService.addRoom(hotel, "BD-2", true).id();
+        synchronizer.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (hotelRepository.existsById(hotel.getId())) {
+            hotelService.delete(hotel.getId());
+        }
+    }
+
+    @Test
+    void hotelDelete_shouldRemoveEverythingInBatches_andReportCounts() {
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < 4; i++) {
+            confirm(roomA, today.plusDays(10 + i * 3L), today.plusDays(12 + i * 3L));
+        }
+        for (int i = 0; i < 3; i++) {
+            confirm(roomB, today.plusDays(10 + i * 3L), today.plusDays(11 + i * 3L));
+        }
+        roomHoldService.commit(roomA, confirm(roomA, today.minusDays(6), today.minusDays(4)));
+        roomHoldService.commit(roomB, confirm(roomB, today.minusDays(6), today.minusDays(5)));
+        assertThat(archiveService.archive().archived()).isEqualTo(2);
+
+        DeleteReport report = hotelService.delete(hotel.getId());
+
+        assertThat(report.rooms()).isEqualTo(2);
+        assertThat(report.locks()).isEqualTo(7);
+        assertThat(report.archivedLocks()).isEqualTo(2);
+        assertThat(report.occupancyRows()).isPositive();
+        // 7 блокировок: 3 + 3 + 1, архив: 2, и последняя транзакция.
+        assertThat(report.batches()).isEqualTo(5);
+
+        assertThat(hotelRepository.existsById(hotel.getId())).isFalse();
+        assertThat(count("select count(*) from rooms where hotel_id = ?")).isZero();
+        assertThat(count("select count(*) from room_lock_history where hotel_id = ?")).isZero();
+        assertThat(count("select count(*) from hotel_night_occupancy where hotel_id = ?")).isZero();
+        assertThat(jdbcTemplate.queryForObject("select count(*) from room_nights where room_id in (?, ?)",
+                Long.class, roomA, roomB)).isZero();
+        assertThat(roomLockRepository.count()).isZero();
+        assertThat(synchronizer.checkConsistency().consistent()).isTrue();
+    }
+
+    @Test
+    void roomDelete_shouldRemoveItsLocksInBatches_andKeepOtherRoomsOccupancy() {
+        LocalDate start = LocalDate.now().plusDays(20);
+        for (int i = 0; i < 7; i++) {
+            confirm(roomA, start.plusDays(i * 2L), start.plusDays(i * 2L + 1));
+        }
+        confirm(roomB, start, start.plusDays(1));
+
+        DeleteReport report = roomService.delete(roomA);
+
+        assertThat(report.rooms()).isEqualTo(1);
+        assertThat(report.locks()).isEqualTo(7);
+        // 3 + 3 + 1 и последняя транзакция.
+        assertThat(report.batches()).isEqualTo(4);
+
+        assertThatThrownBy(() -> roomService.get(roomA)).isInstanceOf(NotFoundException.class);
+        assertThat(roomLockRepository.count()).isEqualTo(1);
+        assertThat(hotelService.occupancy(hotel.getId(), start, start.plusDays(3)))
+                .extracting(n -> n.occupiedRooms())
+                .containsExactly(1L, 0L, 0L);
+        assertThat(synchronizer.checkConsistency().consistent()).isTrue();
+    }
+
+    private String confirm(Long roomId, LocalDate start, LocalDate end) {
+        String bookingId = "booking-bd-" + UUID.randomUUID();
+        roomService.confirmAvailability(roomId,
+                new ConfirmAvailabilityRequest(start, end, bookingId, "req-bd-" + UUID.randomUUID()));
+        return bookingId;
+    }
+
+    private long count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Long.class, hotel.getId());
+    }
+}
@@ -0,0 +1,225 @@
+package ru.mifi.booking.hotelservice;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import ru.mifi.booking.hotelservice.availability.AvailabilityIndexSynchronizer;
+import ru.mifi.booking.hotelservice.dto.HotelDto;
+import ru.mifi.booking.hotelservice.dto.ImportLineError;
+import ru.mifi.booking.hotelservice.dto.ImportReport;
+import ru.mifi.booking.hotelservice.entity.Hotel;
+import ru.mifi.booking.hotelservice.repository.HotelRepository;
+import ru.mifi.booking.hotelservice.service.CatalogImportService;
+import ru.mifi.booking.hotelservice.service.HotelService;
+import ru.mifi.booking.hotelservice.service.RoomService;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Интеграционные проверки импорта каталога {@code POST /api/hotels/import} (batch-size=1000):
+ * <ul>
+ *     <li>NDJSON: отели и номера по ref через несколько пачек, плохие строки — в отчёте, остальные импортированы</li>
+ *     <li>CSV: поля в кавычках, номер на существующий отель по hotelId, ошибки колонок и значений</li>
+ *     <li>id импорта и обычного save берутся из одной последовательности и не пересекаются</li>
+ * </ul>
+ * Замер скорости — {@code -Dhotel.import.benchmark.rooms=N} (по умолчанию не запускается).
+ */
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "spring.cloud.discovery.enabled=false"
+})
+@AutoConfigureMockMvc
+class CatalogImportIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private HotelService hotelService;
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private HotelRepository hotelRepository;
+
+    @Autowired
+    private CatalogImportService importService;
+
+    @Autowired
+    private AvailabilityIndexSynchronizer synchronizer;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        // БД общая для контекстов других тестов: индекс этого контекста сверяю с её текущим состоянием.
+        synchronizer.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        hotelRepository.findAllAsDto().stream()
+                .filter(h -> h.name().startsWith("Import "))
+                .forEach(h -> hotelService.delete(h.id()));
+    }
+
+    @Test
+    void ndjson_shouldImportAcrossBatches_andReportBadLines() throws Exception {
+        StringBuilder body = new StringBuilder()
+                .append("{\"type\":\"hotel\",\"ref\":\"a\",\"name\":\"Import A\",\"address\":\"Import City, 1\"}\n")
+                .append("{\"type\":\"hotel\",\"ref\":\"b\",\"name\":\"Import B\",\"address\":\"Import City, 2\"}\n");
+        for (int i = 0; i < 2500; i++) {
+            body.append("{\"type\":\"room\",\"hotelRef\":\"").append(i % 2 == 0 ? "a" : "b")
+                    .append("\",\"number\":\"").append(i).append("\"}\n");
+        }
+        body.append("\n")
+                .append("{not json\n")
+                .append("{\"type\":\"room\",\"hotelRef\":\"zzz\",\"number\":\"1\"}\n")
+                .append("{\"type\":\"room\",\"hotelRef\":\"a\",\"number\":\" \"}\n")
+                .append("{\"type\":\"room\",\"hotelId\":999999999,\"number\":\"1\"}\n")
+                .append("{\"type\":\"suite\"}\n")
+                .append("{\"type\":\"hotel\",\"ref\":\"a\",\"name\":\"Import A2\",\"address\":\"Import City, 3\"}\n")
+                .append("{\"type\":\"hotel\",\"name\":\"Import C\"}\n");
+
+        ImportReport report = importBody(MediaType.APPLICATION_NDJSON_VALUE, body.toString());
+
+        assertThat(report.lines()).isEqualTo(2509);
+        assertThat(report.hotels()).isEqualTo(2);
+        assertThat(report.rooms()).isEqualTo(2500);
+        assertThat(report.failedLines()).isEqualTo(7);
+        assertThat(report.errorsTruncated()).isFalse();
+        assertThat(report.batches()).isEqualTo(3);
+        // Строка 2503 пустая и в счёт не идёт, но номера строк сохраняются.
+        assertThat(report.errors()).extracting(ImportLineError::line)
+                .containsExactly(2504L, 2505L, 2506L, 2507L, 2508L, 2509L, 2510L);
+        assertThat(report.errors()).extracting(ImportLineError::message)
+                .element(0).asString().startsWith("Invalid JSON");
+        assertThat(report.errors()).extracting(ImportLineError::message)
+                .containsSubsequence("Unknown hotelRef zzz", "number must not be blank", "Hotel 999999999 not found",
+                        "type must be hotel or room", "Duplicate hotel ref a", "address must not be blank");
+
+        HotelDto hotelA = importedHotel("Import A");
+        LocalDate start = LocalDate.now().plusDays(5);
+        assertThat(roomService.search(start, start.plusDays(1), hotelA.id(), null, 200, null).items()).hasSize(200);
+        assertThat(count("select count(*) from rooms where hotel_id = ?", hotelA.id())).isEqualTo(1250);
+
+        // Обычный save берёт id из той же последовательности: новый номер не совпадает с импортированными.
+        Long added = roomService.addRoom(hotelRepository.findById(hotelA.id()).orElseThrow(), "Import-extra", true).id();
+        assertThat(count("select count(*) from rooms where id = ?", added)).isEqualTo(1);
+        assertThat(synchronizer.checkConsistency().consistent()).isTrue();
+    }
+
+    @Test
+    void csv_shouldParseQuotedFields_andReferenceExistingHotel() throws Exception {
+        Hotel existing = hotelRepository.save(new Hotel(null, "Import Existing", "Import City, 9"));
+        String body = """
+                type,ref,name,address,hotelRef,hotelId,number,available
+                hotel,old,Import Old,"Import City, ""Old"" Town",,,,
+                room,,,,old,,101,
+                room,,,,,%d,201,false
+                room,,,,old,,102
+                room,,,,old,,103,maybe
+                room,,,,,abc,104,true
+                """.formatted(existing.getId());
+
+        ImportReport report = importBody("text/csv", body);
+
+        assertThat(report.lines()).isEqualTo(6);
+        assertThat(report.hotels()).isEqualTo(1);
+        assertThat(report.rooms()).isEqualTo(2);
+        assertThat(report.errors()).containsExactly(
+                new ImportLineError(5, "Expected 8 columns, got 7"),
+                new ImportLineError(6, "available must be true or false"),
+                new ImportLineError(7, "hotelId must be a number"));
+
+        assertThat(importedHotel("Import Old").address()).isEqualTo("Import City, \"Old\" Town");
+        assertThat(jdbcTemplate.queryForObject("select available from rooms where hotel_id = ?", Boolean.class, existing.getId()))
+                .isFalse();
+
+        mockMvc.perform(post("/api/hotels/import")
+                        .with(SecurityMockMvcRequestPostProcessors.user("1").roles("ADMIN"))
+                        .contentType("text/csv")
+                        .content("type,floor\nroom,1\n"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Замер: N номеров в 100 отелях одним NDJSON-телом. Результат — в stdout.
+     * Сервис вызываю напрямую: MockMvc отдаёт тело по байту, и чтение в замере стоило бы больше, чем с Tomcat.
+     * Перед замером прогоняю {@code hotel.import.benchmark.warmup} таких же импортов (по умолчанию 2)
+     * в свои отели: холодный JIT иначе съедает заметную часть единственного прогона.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "hotel.import.benchmark.rooms", matches = "\\d+")
+    void benchmark_importRate() throws Exception {
+        int rooms = Integer.parseInt(System.getProperty("hotel.import.benchmark.rooms"));
+        int warmup = Integer.getInteger("hotel.import.benchmark.warmup", 2);
+        for (int round = 1; round <= warmup; round++) {
+            ImportReport report = importService.importCatalog(benchmarkBody("Warmup " + round, rooms), CatalogImportService.Format.NDJSON);
+            assertThat(report.rooms()).isEqualTo(rooms);
+        }
+
+        ImportReport report = importService.importCatalog(benchmarkBody("Bench", rooms), CatalogImportService.Format.NDJSON);
+
+        System.out.printf("catalog import benchmark: rooms=%d, %d ms, %d rooms/s (%d batches, %d warm-up imports)%n",
+                rooms, report.durationMs(), rooms * 1000L / Math.max(report.durationMs(), 1), report.batches(), warmup);
+        assertThat(report.rooms()).isEqualTo(rooms);
+        assertThat(report.failedLines()).isZero();
+    }
+
+    private static InputStream benchmarkBody(String hotelPrefix, int rooms) {
+        StringBuilder body = new StringBuilder(rooms * 50);
+        for (int h = 0; h < 100; h++) {
+            body.append("{\"type\":\"hotel\",\"ref\":\"h").append(h)
+                    .append("\",\"name\":\"Import ").append(hotelPrefix).append(' ').append(h)
+                    .append("\",\"address\":\"Bench City\"}\n");
+        }
+        for (int i = 0; i < rooms; i++) {
+            body.append("{\"type\":\"room\",\"hotelRef\":\"h").append(i % 100)
+                    .append("\",\"number\":\"").append(i).append("\"}\n");
+        }
+        return new ByteArrayInputStream(body.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private ImportReport importBody(String contentType, String body) throws Exception {
+        ResultActions result = mockMvc.perform(post("/api/hotels/import")
+                        .with(SecurityMockMvcRequestPostProcessors.user("1").roles("ADMIN"))
+                        .contentType(contentType)
+                        .content(body.getBytes(StandardCharsets.UTF_8)))
+                .andExpect(status().isOk());
+        return objectMapper.readValue(result.andReturn().getResponse().getContentAsByteArray(), ImportReport.class);
+    }
+
+    private HotelDto importedHotel(String name) {
+        List<HotelDto> hotels = hotelRepository.findAllAsDto().stream().filter(h -> h.name().equals(name)).toList();
+        assertThat(hotels).hasSize(1);
+        return hotels.getFirst();
+    }
+
+    private long count(String sql, Long id) {
+        return jdbcTemplate.queryForObject(sql, Long.class, id);
+    }
+}
@@ -0,0 +1,212 @@
+package ru.mifi.booking.hotelservice;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import ru.mifi.booking.hotelservice.dto.ConfirmAvailabilityRequest;
+import ru.mifi.booking.hotelservice.dto.HotelDto;
+import ru.mifi.booking.hotelservice.dto.UpdateHotelRequest;
+import ru.mifi.booking.hotelservice.entity.Hotel;
+import ru.mifi.booking.hotelservice.repository.HotelRepository;
+import ru.mifi.booking.hotelservice.service.HotelService;
+import ru.mifi.booking.hotelservice.service.RoomService;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Условные запросы к отелям и номерам (из БД, индекс и кэш выключены):
+ * <ul>
+ *     <li>GET отдаёт ETag, повтор с If-None-Match — 304 за один запрос версии, без чтения сущности</li>
+ *     <li>PATCH с актуальным If-Match применяется и отдаёт новый ETag, с устаревшим — 412 без изменений</li>
+ *     <li>бронь меняет ETag номера (timesBooked), но не мешает If-Match правке номера</li>
+ *     <li>ETag списка отелей меняется при создании, правке и удалении отеля</li>
+ * </ul>
+ */
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "spring.cloud.discovery.enabled=false",
+        "hotel.availability-index.enabled=false",
+        "hotel.availability-cache.enabled=false",
+        "hotel.times-booked.flush-ms=3600000",
+        "hotel.hold.reaper.fixed-delay-ms=3600000",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureMockMvc
+class ConditionalRequestsIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private HotelService hotelService;
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private HotelRepository hotelRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Hotel hotel;
+    private Long roomId;
+
+    @BeforeEach
+    void setUp() {
+        hotel = hotelRepository.save(new Hotel(null, "Etag Hotel", "Etag City, 1"));
+        roomId = roomService.addRoom(hotel, "ET-1", true).id();
+    }
+
+    @AfterEach
+    void tearDown() {
+        hotelService.delete(hotel.getId());
+    }
+
+    @Test
+    void hotel_shouldRevalidateWithoutLoading_andRejectStaleIfMatch() throws Exception {
+        String url = "/api/hotels/" + hotel.getId();
+        String etag = mockMvc.perform(asUser(get(url)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).isNotNull();
+
+        Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+        mockMvc.perform(asUser(get(url)).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+        assertThat(stats.getPrepareStatementCount()).as("queries").isEqualTo(1);
+        assertThat(stats.getEntityLoadCount()).as("entities").isZero();
+
+        String updated = mockMvc.perform(asAdmin(patch(url)).header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Etag Hotel Renamed\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Etag Hotel Renamed"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(updated).isNotEqualTo(etag);
+
+        // Второй админ правил ту же версию — его изменение не должно затереть первое.
+        mockMvc.perform(asAdmin(patch(url)).header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Lost Update\"}"))
+                .andExpect(status().isPreconditionFailed());
+        assertThat(hotelService.get(hotel.getId()).name()).isEqualTo("Etag Hotel Renamed");
+
+        mockMvc.perform(asUser(get(url)).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, updated));
+        mockMvc.perform(asUser(get(url)).header(HttpHeaders.IF_NONE_MATCH, updated))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void room_shouldChangeEtagOnBooking_butKeepIfMatchOnVersion() throws Exception {
+        String url = "/api/rooms/" + roomId;
+        String etag = mockMvc.perform(asUser(get(url)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        LocalDate start = LocalDate.now().plusDays(50);
+        roomService.confirmAvailability(roomId, new ConfirmAvailabilityRequest(
+                start, start.plusDays(2), "booking-et-" + UUID.randomUUID(), "req-et-" + UUID.randomUUID()));
+        String booked = mockMvc.perform(asUser(get(url)).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.timesBooked").value(1))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(booked).isNotEqualTo(etag);
+
+        // Бронь не правит поля номера: If-Match со старым ETag проходит.
+        String renamed = mockMvc.perform(asAdmin(patch(url)).header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"number\":\"ET-1A\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.number").value("ET-1A"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(asAdmin(patch(url)).header(HttpHeaders.IF_MATCH, booked)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"available\":false}"))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(asAdmin(patch(url)).header(HttpHeaders.IF_MATCH, "W/" + renamed)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"available\":false}"))
+                .andExpect(status().isPreconditionFailed());
+        assertThat(roomService.get(roomId).available()).isTrue();
+
+        mockMvc.perform(asAdmin(patch(url)).header(HttpHeaders.IF_MATCH, "\"0\", " + renamed)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"available\":false}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(asAdmin(patch(url)).header(HttpHeaders.IF_MATCH, "*")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"available\":true}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(asAdmin(patch(url))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"number\":\"ET-1B\"}"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void hotelList_shouldRevalidate_andChangeOnCreateUpdateDelete() throws Exception {
+        String etag = listEtag(null);
+
+        Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+        mockMvc.perform(asUser(get("/api/hotels")).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        assertThat(stats.getPrepareStatementCount()).as("queries").isEqualTo(1);
+
+        HotelDto created = hotelService.create(new HotelDto(null, "Etag Second", "Etag City, 2"));
+        String afterCreate = listEtag(etag);
+
+        hotelService.update(created.id(), new UpdateHotelRequest(null, "Etag City, 3"));
+        String afterUpdate = listEtag(afterCreate);
+
+        hotelService.delete(created.id());
+        assertThat(listEtag(afterUpdate)).isNotIn(afterCreate, afterUpdate);
+    }
+
+    /**
+     * ETag списка; если передан прошлый — проверяю, что с ним ответ уже 200, а не 304.
+     */
+    private String listEtag(String previous) throws Exception {
+        MockHttpServletRequestBuilder request = asUser(get("/api/hotels"));
+        if (previous != null) {
+            request.header(HttpHeaders.IF_NONE_MATCH, previous);
+        }
+        return mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    private static MockHttpServletRequestBuilder asUser(MockHttpServletRequestBuilder request) {
+        return request.with(SecurityMockMvcRequestPostProcessors.user("1").roles("USER"));
+    }
+
+    private static MockHttpServletRequestBuilder asAdmin(MockHttpServletRequestBuilder request) {
+        return request.with(SecurityMockMvcRequestPostProcessors.user("admin").roles("ADMIN"));
+    }
+}
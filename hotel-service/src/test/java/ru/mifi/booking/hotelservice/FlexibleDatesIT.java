@@ -0,0 +1,164 @@
+package ru.mifi.booking.hotelservice;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.mifi.booking.hotelservice.dto.ConfirmAvailabilityRequest;
+import ru.mifi.booking.hotelservice.dto.FlexibleRoomDto;
+import ru.mifi.booking.hotelservice.dto.FlexibleSearchPage;
+import ru.mifi.booking.hotelservice.dto.RoomDto;
+import ru.mifi.booking.hotelservice.entity.Hotel;
+import ru.mifi.booking.hotelservice.repository.HotelRepository;
+import ru.mifi.booking.hotelservice.service.HotelService;
+import ru.mifi.booking.hotelservice.service.RoomService;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Поиск с гибкими датами из БД (индекс и кэш выключены):
+ * <ul>
+ *     <li>даты заезда каждого номера совпадают с перебором listAvailable по датам, истёкший hold не мешает</li>
+ *     <li>страница стоит пары запросов, а не запроса на каждую дату окна</li>
+ *     <li>keyset-курсор листает номера без повторов, неверное окно/nights — 400</li>
+ * </ul>
+ */
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "spring.cloud.discovery.enabled=false",
+        "hotel.availability-index.enabled=false",
+        "hotel.availability-cache.enabled=false",
+        "hotel.times-booked.flush-ms=3600000",
+        "hotel.hold.reaper.fixed-delay-ms=3600000",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureMockMvc
+class FlexibleDatesIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private HotelService hotelService;
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private HotelRepository hotelRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Hotel hotel;
+    private Long roomA;
+    private Long roomB;
+    private Long roomC;
+    private LocalDate from;
+
+    @BeforeEach
+    void setUp() {
+        hotel = hotelRepository.save(new Hotel(null, "Flexible Hotel", "Flexible City, 1"));
+        roomA = roomService.addRoom(hotel, "FX-A", true).id();
+        roomB = roomService.addRoom(hotel, "FX-B", true).id();
+        roomC = roomService.addRoom(hotel, "FX-C", true).id();
+        from = LocalDate.now().plusDays(100);
+
+        confirm(roomA, from.plusDays(2), from.plusDays(4));
+        confirm(roomA, from.plusDays(7), from.plusDays(8));
+        confirm(roomB, from, from.plusDays(14));
+        String holdRequest = "req-fx-" + UUID.randomUUID();
+        roomService.confirmAvailability(roomC, new ConfirmAvailabilityRequest(
+                from.plusDays(1), from.plusDays(5), "booking-fx-" + UUID.randomUUID(), holdRequest));
+        jdbcTemplate.update("update room_locks set expires_at = ? where request_id = ?",
+                Timestamp.from(Instant.now().minusSeconds(60)), holdRequest);
+    }
+
+    @AfterEach
+    void tearDown() {
+        hotelService.delete(hotel.getId());
+    }
+
+    @Test
+    void flexible_shouldMatchPerDateSearch_inFewQueries() {
+        LocalDate to = from.plusDays(10);
+
+        Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+        FlexibleSearchPage page = roomService.flexible(from, to, 3, hotel.getId(), 20, null);
+        long queries = stats.getPrepareStatementCount();
+
+        assertThat(page.hasMore()).isFalse();
+        assertThat(page.items()).extracting(r -> r.room().id()).containsExactly(roomA, roomC);
+        assertThat(page.items().get(0).startDates()).containsExactly(from.plusDays(4));
+        assertThat(page.items().get(1).startDates()).containsExactlyElementsOf(from.datesUntil(from.plusDays(8)).toList());
+        assertThat(queries).as("queries per page").isLessThanOrEqualTo(2);
+
+        for (int nights = 1; nights <= 5; nights++) {
+            List<FlexibleRoomDto> expected = new ArrayList<>();
+            for (Long id : List.of(roomA, roomB, roomC)) {
+                List<LocalDate> dates = new ArrayList<>();
+                for (LocalDate d = from; !d.plusDays(nights).isAfter(to); d = d.plusDays(1)) {
+                    if (roomService.listAvailable(d, d.plusDays(nights)).stream().map(RoomDto::id).anyMatch(id::equals)) {
+                        dates.add(d);
+                    }
+                }
+                if (!dates.isEmpty()) {
+                    expected.add(new FlexibleRoomDto(roomService.get(id), dates));
+                }
+            }
+            assertThat(roomService.flexible(from, to, nights, hotel.getId(), 20, null).items())
+                    .as("nights=%d", nights)
+                    .isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void flexible_shouldPageWithCursor_andRejectBadWindow() throws Exception {
+        LocalDate to = from.plusDays(10);
+
+        FlexibleSearchPage first = roomService.flexible(from, to, 1, hotel.getId(), 1, null);
+        assertThat(first.items()).extracting(r -> r.room().id()).containsExactly(roomA);
+        assertThat(first.hasMore()).isTrue();
+
+        FlexibleSearchPage second = roomService.flexible(from, to, 1, hotel.getId(), 1, first.nextCursor());
+        assertThat(second.items()).extracting(r -> r.room().id()).containsExactly(roomC);
+        assertThat(second.hasMore()).isFalse();
+        assertThat(second.nextCursor()).isNull();
+
+        mockMvc.perform(get("/api/rooms/flexible?from=" + from + "&to=" + to + "&nights=3&hotelId=" + hotel.getId())
+                        .with(SecurityMockMvcRequestPostProcessors.user("1").roles("USER")))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/rooms/flexible?from=" + from + "&to=" + to + "&nights=11")
+                        .with(SecurityMockMvcRequestPostProcessors.user("1").roles("USER")))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/rooms/flexible?from=" + from + "&to=" + from.plusDays(400) + "&nights=3")
+                        .with(SecurityMockMvcRequestPostProcessors.user("1").roles("USER")))
+                .andExpect(status().isBadRequest());
+    }
+
+    private void confirm(Long roomId, LocalDate start, LocalDate end) {
+        roomService.confirmAvailability(roomId, new ConfirmAvailabilityRequest(
+                start, end, "booking-fx-" + UUID.randomUUID(), "req-fx-" + UUID.randomUUID()));
+    }
+}
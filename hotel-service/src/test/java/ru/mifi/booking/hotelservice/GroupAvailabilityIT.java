@@ -0,0 +1,181 @@
+package ru.mifi.booking.hotelservice;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.mifi.booking.hotelservice.dto.ConfirmAvailabilityRequest;
+import ru.mifi.booking.hotelservice.dto.GroupAvailabilityDto;
+import ru.mifi.booking.hotelservice.dto.GroupSearchPage;
+import ru.mifi.booking.hotelservice.dto.RoomDto;
+import ru.mifi.booking.hotelservice.dto.UpdateRoomRequest;
+import ru.mifi.booking.hotelservice.entity.Hotel;
+import ru.mifi.booking.hotelservice.repository.HotelRepository;
+import ru.mifi.booking.hotelservice.service.HotelService;
+import ru.mifi.booking.hotelservice.service.RoomService;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Поиск «k номеров в одном отеле» из БД (индекс и кэш выключены):
+ * <ul>
+ *     <li>отели и номера-кандидаты совпадают с группировкой полного списка listAvailable по отелям</li>
+ *     <li>занятые и снятые с продажи номера не считаются, истёкший hold не мешает</li>
+ *     <li>страница стоит двух запросов, keyset-курсор по id отеля проходит все подходящие отели</li>
+ * </ul>
+ */
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "spring.cloud.discovery.enabled=false",
+        "hotel.availability-index.enabled=false",
+        "hotel.availability-cache.enabled=false",
+        "hotel.times-booked.flush-ms=3600000",
+        "hotel.hold.reaper.fixed-delay-ms=3600000",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureMockMvc
+class GroupAvailabilityIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private HotelService hotelService;
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private HotelRepository hotelRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final List<Long> hotelIds = new ArrayList<>();
+    private LocalDate start;
+    private LocalDate end;
+
+    @BeforeEach
+    void setUp() {
+        start = LocalDate.now().plusDays(120);
+        end = start.plusDays(3);
+
+        Hotel partlyBooked = newHotel("Group Partly Booked");
+        Long booked = roomService.addRoom(partlyBooked, "G1-1", true).id();
+        roomService.addRoom(partlyBooked, "G1-2", true);
+        roomService.addRoom(partlyBooked, "G1-3", true);
+        confirm(booked, start.plusDays(1), start.plusDays(2));
+
+        Hotel small = newHotel("Group Small");
+        roomService.addRoom(small, "G2-1", true);
+        roomService.addRoom(small, "G2-2", true);
+
+        Hotel mixed = newHotel("Group Mixed");
+        Long retired = roomService.addRoom(mixed, "G3-1", true).id();
+        Long expired = roomService.addRoom(mixed, "G3-2", true).id();
+        roomService.addRoom(mixed, "G3-3", true);
+        roomService.update(retired, new UpdateRoomRequest(null, false));
+        String holdRequest = confirm(expired, start, end);
+        jdbcTemplate.update("update room_locks set expires_at = ? where request_id = ?",
+                Timestamp.from(Instant.now().minusSeconds(60)), holdRequest);
+    }
+
+    @AfterEach
+    void tearDown() {
+        hotelIds.forEach(hotelService::delete);
+        hotelIds.clear();
+    }
+
+    @Test
+    void group_shouldMatchListAvailableGroupedByHotel_inTwoQueriesPerPage() {
+        for (int rooms = 1; rooms <= 3; rooms++) {
+            Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+            List<GroupAvailabilityDto> actual = new ArrayList<>();
+            String cursor = null;
+            int pages = 0;
+            stats.clear();
+            do {
+                GroupSearchPage page = roomService.group(start, end, rooms, 2, cursor);
+                actual.addAll(page.items());
+                cursor = page.nextCursor();
+                pages++;
+            } while (cursor != null);
+            long queries = stats.getPrepareStatementCount();
+
+            assertThat(actual).as("rooms=%d", rooms).isEqualTo(expected(rooms));
+            assertThat(queries).as("queries for %d pages", pages).isLessThanOrEqualTo(2L * pages);
+        }
+
+        List<GroupAvailabilityDto> pairs = expected(2);
+        assertThat(pairs).extracting(GroupAvailabilityDto::hotelId).containsAll(hotelIds);
+        assertThat(expected(3)).extracting(GroupAvailabilityDto::hotelId).doesNotContainAnyElementsOf(hotelIds);
+    }
+
+    @Test
+    void group_shouldRejectBadArguments() throws Exception {
+        mockMvc.perform(get("/api/rooms/group?start=" + start + "&end=" + end + "&rooms=2&size=5")
+                        .with(SecurityMockMvcRequestPostProcessors.user("1").roles("USER")))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/rooms/group?start=" + start + "&end=" + end + "&rooms=0")
+                        .with(SecurityMockMvcRequestPostProcessors.user("1").roles("USER")))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/rooms/group?start=" + start + "&end=" + end + "&rooms=101")
+                        .with(SecurityMockMvcRequestPostProcessors.user("1").roles("USER")))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/rooms/group?start=" + end + "&end=" + start + "&rooms=2")
+                        .with(SecurityMockMvcRequestPostProcessors.user("1").roles("USER")))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Что клиент получал раньше: весь список свободных номеров, сгруппированный по отелям на своей стороне.
+     */
+    private List<GroupAvailabilityDto> expected(int rooms) {
+        Map<Long, List<Long>> byHotel = new TreeMap<>();
+        for (RoomDto room : roomService.listAvailable(start, end)) {
+            byHotel.computeIfAbsent(room.hotelId(), id -> new ArrayList<>()).add(room.id());
+        }
+        List<GroupAvailabilityDto> result = new ArrayList<>();
+        byHotel.forEach((hotelId, roomIds) -> {
+            if (roomIds.size() >= rooms) {
+                result.add(new GroupAvailabilityDto(hotelId, roomIds.subList(0, rooms)));
+            }
+        });
+        return result;
+    }
+
+    private Hotel newHotel(String name) {
+        Hotel hotel = hotelRepository.save(new Hotel(null, name, "Group City, " + hotelIds.size()));
+        hotelIds.add(hotel.getId());
+        return hotel;
+    }
+
+    private String confirm(Long roomId, LocalDate from, LocalDate to) {
+        String requestId = "req-grp-" + UUID.randomUUID();
+        roomService.confirmAvailability(roomId, new ConfirmAvailabilityRequest(
+                from, to, "booking-grp-" + UUID.randomUUID(), requestId));
+        return requestId;
+    }
+}
@@ -0,0 +1,196 @@
+package ru.mifi.booking.hotelservice;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import ru.mifi.booking.hotelservice.dto.BatchConfirmAvailabilityRequest;
+import ru.mifi.booking.hotelservice.dto.BatchReleaseRequest;
+import ru.mifi.booking.hotelservice.dto.ConfirmAvailabilityRequest;
+import ru.mifi.booking.hotelservice.dto.HotelDto;
+import ru.mifi.booking.hotelservice.dto.HotelNightOccupancyDto;
+import ru.mifi.booking.hotelservice.dto.OccupancyRebuildReport;
+import ru.mifi.booking.hotelservice.dto.UpdateRoomRequest;
+import ru.mifi.booking.hotelservice.entity.Hotel;
+import ru.mifi.booking.hotelservice.repository.HotelNightOccupancyJdbcRepository;
+import ru.mifi.booking.hotelservice.repository.HotelRepository;
+import ru.mifi.booking.hotelservice.repository.RoomLockRepository;
+import ru.mifi.booking.hotelservice.service.HotelOccupancyService;
+import ru.mifi.booking.hotelservice.service.HotelService;
+import ru.mifi.booking.hotelservice.service.RoomBatchService;
+import ru.mifi.booking.hotelservice.service.RoomService;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.reset;
+
+/**
+ * Интеграционные проверки агрегата загрузки отелей по ночам:
+ * <ul>
+ *     <li>confirm/release (одиночные и групповые) и удаление номера меняют счётчики так же, как полный пересчёт</li>
+ *     <li>удаление отеля удаляет его строки агрегата</li>
+ *     <li>номер, снятый с продажи, не считается ни свободным, ни занятым</li>
+ *     <li>confirm во время пересчёта не ждёт сверки и учитывается в агрегате</li>
+ * </ul>
+ */
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "spring.cloud.discovery.enabled=false"
+})
+class HotelOccupancyIT {
+
+    @Autowired
+    private HotelOccupancyService occupancyService;
+
+    @Autowired
+    private HotelService hotelService;
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private RoomBatchService roomBatchService;
+
+    @Autowired
+    private HotelRepository hotelRepository;
+
+    @Autowired
+    private RoomLockRepository roomLockRepository;
+
+    @MockitoSpyBean
+    private HotelNightOccupancyJdbcRepository occupancyRepository;
+
+    private Hotel hotel;
+    private Long roomA;
+    private Long roomB;
+    private Long roomC;
+
+    @BeforeEach
+    void setUp() {
+        roomLockRepository.deleteAll();
+        occupancyService.rebuild();
+        hotel = hotelRepository.save(new Hotel(null, "Occupancy Hotel", "Test City"));
+        roomA = roomService.addRoom(hotel, "O-1", true).id();
+        roomB = roomService.addRoom(hotel, "O-2", true).id();
+        roomC = roomService.addRoom(hotel, "O-3", true).id();
+    }
+
+    @AfterEach
+    void tearDown() {
+        roomLockRepository.deleteAll();
+        if (hotelRepository.existsById(hotel.getId())) {
+            hotelService.delete(hotel.getId());
+        }
+    }
+
+    @Test
+    void incrementalUpdates_shouldMatchFullRebuild() {
+        LocalDate start = LocalDate.now().plusDays(40);
+
+        // A: ночи 0..3, B: ночи 2..4, группа A+C: ночи 5..6.
+        confirm(roomA, start, start.plusDays(4), "booking-occ-a");
+        confirm(roomB, start.plusDays(2), start.plusDays(5), "booking-occ-b");
+        roomBatchService.confirm(new BatchConfirmAvailabilityRequest(start.plusDays(5), start.plusDays(7), List.of(
+                new BatchConfirmAvailabilityRequest.Item(roomA, "booking-occ-ga", "req-" + UUID.randomUUID()),
+                new BatchConfirmAvailabilityRequest.Item(roomC, "booking-occ-gc", "req-" + UUID.randomUUID()))));
+
+        assertThat(occupied(start, start.plusDays(8))).containsExactly(1L, 1L, 2L, 2L, 1L, 2L, 2L, 0L);
+        assertThat(occupancyService.freeRooms(hotel.getId(), start.plusDays(2), start.plusDays(3)))
+                .containsExactly(new HotelNightOccupancyDto(start.plusDays(2), 3, 2, 1, 0));
+
+        roomService.release(roomB, "booking-occ-b");
+        roomBatchService.release(new BatchReleaseRequest(List.of(
+                new BatchReleaseRequest.Item(roomC, "booking-occ-gc"))));
+        roomService.delete(roomA);
+
+        List<Long> incremental = occupied(start, start.plusDays(8));
+        assertThat(incremental).containsOnly(0L);
+
+        confirm(roomB, start.plusDays(1), start.plusDays(3), "booking-occ-b2");
+        incremental = occupied(start, start.plusDays(8));
+        occupancyService.rebuild();
+        assertThat(occupied(start, start.plusDays(8))).isEqualTo(incremental).containsExactly(0L, 1L, 1L, 0L, 0L, 0L, 0L, 0L);
+    }
+
+    @Test
+    void hotelDelete_shouldRemoveAggregateRows() {
+        LocalDate start = LocalDate.now().plusDays(70);
+        confirm(roomA, start, start.plusDays(3), "booking-occ-del");
+        assertThat(occupancyRepository.findOccupied(hotel.getId(), start, start.plusDays(3))).hasSize(3);
+
+        Long hotelId = hotel.getId();
+        hotelService.delete(hotelId);
+
+        assertThat(occupancyRepository.findOccupied(hotelId, start, start.plusDays(3))).isEmpty();
+        assertThat(hotelService.list()).extracting(HotelDto::id).doesNotContain(hotelId);
+    }
+
+    @Test
+    void offSaleRoom_shouldBeNeitherFreeNorOccupied() {
+        LocalDate start = LocalDate.now().plusDays(110);
+        confirm(roomA, start, start.plusDays(2), "booking-occ-s1");
+        confirm(roomC, start, start.plusDays(1), "booking-occ-s2");
+
+        // C снят с продажи, его блокировка осталась: в продаже A и B, занят только A.
+        roomService.update(roomC, new UpdateRoomRequest(null, false), null);
+
+        assertThat(occupancyService.freeRooms(hotel.getId(), start, start.plusDays(2))).containsExactly(
+                new HotelNightOccupancyDto(start, 2, 1, 1, 1),
+                new HotelNightOccupancyDto(start.plusDays(1), 2, 1, 1, 1));
+    }
+
+    @Test
+    void confirmDuringRebuild_shouldNotWaitForDriftScan() throws Exception {
+        LocalDate start = LocalDate.now().plusDays(90);
+        confirm(roomA, start, start.plusDays(2), "booking-occ-r1");
+        // Блокировки удалены мимо агрегата: сверка найдёт расхождение и пересчитает отель.
+        roomLockRepository.deleteAll();
+
+        // Пересчёт стоит на сверке (самой долгой части на большом каталоге).
+        CountDownLatch scanning = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            scanning.countDown();
+            assertThat(proceed.await(10, TimeUnit.SECONDS)).isTrue();
+            return invocation.callRealMethod();
+        }).when(occupancyRepository).findDriftedHotels(any());
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<OccupancyRebuildReport> rebuild = pool.submit(occupancyService::rebuild);
+            assertThat(scanning.await(10, TimeUnit.SECONDS)).isTrue();
+
+            pool.submit(() -> confirm(roomB, start, start.plusDays(2), "booking-occ-r2")).get(5, TimeUnit.SECONDS);
+
+            proceed.countDown();
+            assertThat(rebuild.get(10, TimeUnit.SECONDS).hotels()).isPositive();
+        } finally {
+            proceed.countDown();
+            pool.shutdownNow();
+            reset(occupancyRepository);
+        }
+
+        assertThat(occupied(start, start.plusDays(2))).containsExactly(1L, 1L);
+    }
+
+    private List<Long> occupied(LocalDate start, LocalDate end) {
+        return occupancyService.freeRooms(hotel.getId(), start, end).stream()
+                .map(HotelNightOccupancyDto::occupiedRooms)
+                .toList();
+    }
+
+    private void confirm(Long roomId, LocalDate start, LocalDate end, String bookingId) {
+        roomService.confirmAvailability(roomId, new ConfirmAvailabilityRequest(start, end, bookingId, "req-" + UUID.randomUUID()));
+    }
+}
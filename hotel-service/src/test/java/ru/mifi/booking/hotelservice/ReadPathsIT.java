@@ -0,0 +1,115 @@
+package ru.mifi.booking.hotelservice;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.mifi.booking.hotelservice.dto.ConfirmAvailabilityRequest;
+import ru.mifi.booking.hotelservice.entity.Hotel;
+import ru.mifi.booking.hotelservice.repository.HotelRepository;
+import ru.mifi.booking.hotelservice.repository.RoomLockRepository;
+import ru.mifi.booking.hotelservice.service.HotelService;
+import ru.mifi.booking.hotelservice.service.RoomService;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * GET-эндпоинты отвечают из DTO-проекций (индекс и кэш выключены — всё читается из БД):
+ * Hibernate не загружает ни одной сущности (ни сразу, ни лениво) и не делает flush.
+ */
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "spring.cloud.discovery.enabled=false",
+        "hotel.availability-index.enabled=false",
+        "hotel.availability-cache.enabled=false",
+        "hotel.times-booked.flush-ms=3600000",
+        "hotel.hold.reaper.fixed-delay-ms=3600000",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureMockMvc
+class ReadPathsIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private HotelService hotelService;
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private HotelRepository hotelRepository;
+
+    @Autowired
+    private RoomLockRepository roomLockRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Hotel hotel;
+    private Long roomId;
+
+    @BeforeEach
+    void setUp() {
+        roomLockRepository.deleteAll();
+        hotel = hotelRepository.save(new Hotel(null, "Read Paths Hotel", "Projection City, 1"));
+        roomId = roomService.addRoom(hotel, "RP-1", true).id();
+        roomService.addRoom(hotel, "RP-2", true);
+        LocalDate start = LocalDate.now().plusDays(10);
+        roomService.confirmAvailability(roomId, new ConfirmAvailabilityRequest(
+                start, start.plusDays(2), "booking-rp-" + UUID.randomUUID(), "req-rp-" + UUID.randomUUID()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        hotelService.delete(hotel.getId());
+    }
+
+    @Test
+    void getEndpoints_shouldNotLoadEntitiesOrFlush() throws Exception {
+        LocalDate start = LocalDate.now().plusDays(9);
+        LocalDate end = start.plusDays(5);
+        Long hotelId = hotel.getId();
+
+        Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+
+        perform("/api/hotels");
+        perform("/api/hotels/" + hotelId);
+        perform("/api/hotels/" + hotelId + "/occupancy?start=" + start + "&end=" + end);
+        perform("/api/rooms/" + roomId);
+        perform("/api/rooms?start=" + start + "&end=" + end);
+        perform("/api/rooms/search?start=" + start + "&end=" + end + "&hotelId=" + hotelId + "&city=Projection");
+        perform("/api/rooms/search?start=" + start + "&end=" + end + "&city=Projection");
+        perform("/api/rooms/flexible?from=" + start + "&to=" + end + "&nights=2&hotelId=" + hotelId);
+        perform("/api/rooms/group?start=" + start + "&end=" + end + "&rooms=2");
+        perform("/api/rooms/recommend?start=" + start + "&end=" + end);
+        perform("/api/rooms/recommend?start=" + start + "&end=" + end + "&limit=5");
+        perform("/api/rooms/stats?hotelId=" + hotelId + "&start=" + start + "&end=" + end);
+        perform("/api/rooms/stats/hotels?hotelIds=" + hotelId + "&start=" + start + "&end=" + end);
+
+        assertThat(stats.getPrepareStatementCount()).as("queries executed").isPositive();
+        assertThat(stats.getEntityLoadCount()).as("entities loaded").isZero();
+        assertThat(stats.getEntityFetchCount()).as("lazy fetches").isZero();
+        assertThat(stats.getCollectionLoadCount()).as("collections loaded").isZero();
+        assertThat(stats.getFlushCount()).as("flushes").isZero();
+    }
+
+    private void perform(String uri) throws Exception {
+        mockMvc.perform(get(uri).with(SecurityMockMvcRequestPostProcessors.user("1").roles("ADMIN")))
+                .andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,149 @@
+package ru.mifi.booking.hotelservice;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.mifi.booking.hotelservice.dto.RoomDto;
+import ru.mifi.booking.hotelservice.dto.RoomSearchPage;
+import ru.mifi.booking.hotelservice.entity.Hotel;
+import ru.mifi.booking.hotelservice.entity.Room;
+import ru.mifi.booking.hotelservice.entity.RoomLock;
+import ru.mifi.booking.hotelservice.repository.HotelRepository;
+import ru.mifi.booking.hotelservice.repository.RoomLockRepository;
+import ru.mifi.booking.hotelservice.repository.RoomRepository;
+import ru.mifi.booking.hotelservice.service.RoomService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Интеграционная проверка поиска свободных номеров:
+ * <ul>
+ *     <li>один SQL-запрос на поиск независимо от количества номеров (нет N+1)</li>
+ *     <li>номера с пересекающейся блокировкой в выдачу не попадают</li>
+ *     <li>keyset-пагинация поиска проходит все номера без пропусков и дублей; город — буквальный префикс адреса</li>
+ * </ul>
+ */
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "spring.cloud.discovery.enabled=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        // Проверяю именно SQL-путь поиска, поэтому in-memory индекс и кэш выдачи выключены.
+        "hotel.availability-index.enabled=false",
+        "hotel.availability-cache.enabled=false"
+})
+class RoomAvailabilityQueryIT {
+
+    private static final int EXTRA_ROOMS = 50;
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private HotelRepository hotelRepository;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private RoomLockRepository roomLockRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Hotel hotel;
+    private final List<Room> rooms = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        roomLockRepository.deleteAll();
+
+        hotel = hotelRepository.save(new Hotel(null, "N+1 Hotel", "Test City"));
+        for (int i = 0; i < EXTRA_ROOMS; i++) {
+            rooms.add(roomRepository.save(new Room(null, hotel, "Q-" + i, true, 0)));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        roomLockRepository.deleteAll();
+        roomRepository.deleteAll(rooms);
+        hotelRepository.delete(hotel);
+        rooms.clear();
+    }
+
+    @Test
+    void listAvailable_shouldExecuteSingleQuery_regardlessOfRoomCount() {
+        LocalDate start = LocalDate.now().plusDays(5);
+        LocalDate end = LocalDate.now().plusDays(8);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<RoomDto> available = roomService.listAvailable(start, end);
+
+        assertThat(available).hasSizeGreaterThanOrEqualTo(EXTRA_ROOMS);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        // Hotel не должен подгружаться ради hotelId.
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void listAvailable_shouldExcludeRoomsWithOverlappingLock() {
+        LocalDate start = LocalDate.now().plusDays(5);
+        LocalDate end = LocalDate.now().plusDays(8);
+
+        Room locked = rooms.getFirst();
+        Room touching = rooms.get(1);
+        roomLockRepository.save(new RoomLock(null, locked, start.plusDays(1), end.plusDays(1),
+                "b-" + UUID.randomUUID(), "r-" + UUID.randomUUID()));
+        // Блокировка, заканчивающаяся ровно в start, период не пересекает.
+        roomLockRepository.save(new RoomLock(null, touching, start.minusDays(2), start,
+                "b-" + UUID.randomUUID(), "r-" + UUID.randomUUID()));
+
+        List<Long> ids = roomService.listAvailable(start, end).stream().map(RoomDto::id).toList();
+
+        assertThat(ids).doesNotContain(locked.getId());
+        assertThat(ids).contains(touching.getId());
+        assertThat(ids).isSorted();
+    }
+
+    @Test
+    void search_shouldPageThroughHotelRoomsWithKeysetCursor() {
+        LocalDate start = LocalDate.now().plusDays(5);
+        LocalDate end = LocalDate.now().plusDays(8);
+        roomLockRepository.save(new RoomLock(null, rooms.get(3), start, end,
+                "b-" + UUID.randomUUID(), "r-" + UUID.randomUUID()));
+
+        List<Long> collected = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            RoomSearchPage page = roomService.search(start, end, hotel.getId(), null, 7, cursor);
+            page.items().forEach(r -> collected.add(r.id()));
+            cursor = page.nextCursor();
+            assertThat(page.hasMore()).isEqualTo(cursor != null);
+            pages++;
+        } while (cursor != null);
+
+        List<Long> expected = rooms.stream().map(Room::getId).filter(id -> !id.equals(rooms.get(3).getId())).toList();
+        assertThat(collected).containsExactlyElementsOf(expected);
+        assertThat(pages).isEqualTo(7);
+
+        RoomSearchPage byCity = roomService.search(start, end, null, "Test City", 200, null);
+        assertThat(byCity.items()).extracting(RoomDto::id).containsAll(expected);
+        assertThat(roomService.search(start, end, hotel.getId(), "Nowhere", 10, null).items()).isEmpty();
+        // % и _ в городе — буквальные символы, а не шаблон like (так же, как при проверке отеля по hotelId).
+        assertThat(roomService.search(start, end, null, "Test%", 200, null).items()).isEmpty();
+        assertThat(roomService.search(start, end, null, "Test_City", 200, null).items()).isEmpty();
+    }
+}
@@ -0,0 +1,163 @@
+package ru.mifi.booking.hotelservice;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import ru.mifi.booking.hotelservice.availability.AvailabilityIndexSynchronizer;
+import ru.mifi.booking.hotelservice.dto.BatchConfirmAvailabilityRequest;
+import ru.mifi.booking.hotelservice.dto.BatchReleaseRequest;
+import ru.mifi.booking.hotelservice.dto.ConfirmAvailabilityRequest;
+import ru.mifi.booking.hotelservice.entity.Hotel;
+import ru.mifi.booking.hotelservice.repository.HotelRepository;
+import ru.mifi.booking.hotelservice.repository.RoomLockRepository;
+import ru.mifi.booking.hotelservice.repository.RoomNightRepository;
+import ru.mifi.booking.hotelservice.repository.RoomRepository;
+import ru.mifi.booking.hotelservice.service.RoomService;
+import ru.mifi.booking.hotelservice.service.TimesBookedCounter;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Интеграционные проверки групповых confirm/release:
+ * <ul>
+ *     <li>группа блокируется целиком, повтор с теми же requestId идемпотентен, release снимает всё</li>
+ *     <li>если хотя бы один номер занят — 409 и ни одной новой блокировки</li>
+ * </ul>
+ */
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "spring.cloud.discovery.enabled=false"
+})
+@AutoConfigureMockMvc
+class RoomBatchConfirmIT {
+
+    private static final int GROUP_SIZE = 5;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private AvailabilityIndexSynchronizer synchronizer;
+
+    @Autowired
+    private HotelRepository hotelRepository;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private TimesBookedCounter timesBooked;
+
+    @Autowired
+    private RoomLockRepository roomLockRepository;
+
+    @Autowired
+    private RoomNightRepository roomNightRepository;
+
+    private Hotel hotel;
+    private final List<Long> roomIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        roomLockRepository.deleteAll();
+        hotel = hotelRepository.save(new Hotel(null, "Group Hotel", "Test City"));
+        for (int i = 0; i < GROUP_SIZE; i++) {
+            roomIds.add(roomService.addRoom(hotel, "G-" + i, true).id());
+        }
+        synchronizer.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        roomLockRepository.deleteAll();
+        roomIds.forEach(roomService::delete);
+        roomIds.clear();
+        hotelRepository.delete(hotel);
+    }
+
+    @Test
+    void batchConfirm_shouldLockAllRooms_beIdempotent_andBatchReleaseShouldUndoIt() throws Exception {
+        LocalDate start = LocalDate.now().plusDays(15);
+        LocalDate end = start.plusDays(3);
+        BatchConfirmAvailabilityRequest req = groupRequest(start, end);
+
+        confirmBatch(req).andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(GROUP_SIZE))
+                .andExpect(jsonPath("$.alreadyConfirmed").value(0));
+        confirmBatch(req).andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(0))
+                .andExpect(jsonPath("$.alreadyConfirmed").value(GROUP_SIZE));
+
+        assertThat(roomLockRepository.count()).isEqualTo(GROUP_SIZE);
+        assertThat(roomNightRepository.count()).isEqualTo(GROUP_SIZE * 3L);
+        timesBooked.flush();
+        assertThat(roomRepository.findAllById(roomIds)).allMatch(r -> r.getTimesBooked() == 1);
+        assertThat(synchronizer.checkConsistency().mismatches()).isEmpty();
+
+        BatchReleaseRequest release = new BatchReleaseRequest(req.rooms().stream()
+                .map(i -> new BatchReleaseRequest.Item(i.roomId(), i.bookingId()))
+                .toList());
+        mockMvc.perform(post("/api/rooms/batch/release")
+                        .with(SecurityMockMvcRequestPostProcessors.user("svc").roles("SERVICE"))
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(release)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.released").value(GROUP_SIZE));
+
+        assertThat(roomLockRepository.count()).isZero();
+        assertThat(roomNightRepository.count()).isZero();
+        timesBooked.flush();
+        assertThat(roomRepository.findAllById(roomIds)).allMatch(r -> r.getTimesBooked() == 0);
+    }
+
+    @Test
+    void batchConfirm_shouldBeAllOrNothing_whenOneRoomIsTaken() throws Exception {
+        LocalDate start = LocalDate.now().plusDays(25);
+        LocalDate end = start.plusDays(2);
+        roomService.confirmAvailability(roomIds.get(2), new ConfirmAvailabilityRequest(
+                start.plusDays(1), end.plusDays(1), "booking-single-" + UUID.randomUUID(), "req-single-" + UUID.randomUUID()));
+
+        confirmBatch(groupRequest(start, end)).andExpect(status().isConflict());
+
+        assertThat(roomLockRepository.count()).isEqualTo(1);
+        assertThat(roomNightRepository.count()).isEqualTo(2);
+    }
+
+    private BatchConfirmAvailabilityRequest groupRequest(LocalDate start, LocalDate end) {
+        // Порядок в запросе намеренно не по возрастанию id.
+        List<BatchConfirmAvailabilityRequest.Item> items = new ArrayList<>();
+        for (int i = roomIds.size() - 1; i >= 0; i--) {
+            items.add(new BatchConfirmAvailabilityRequest.Item(
+                    roomIds.get(i), "booking-group-" + UUID.randomUUID(), "req-group-" + UUID.randomUUID()));
+        }
+        return new BatchConfirmAvailabilityRequest(start, end, items);
+    }
+
+    private ResultActions confirmBatch(BatchConfirmAvailabilityRequest req) throws Exception {
+        return mockMvc.perform(post("/api/rooms/batch/confirm-availability")
+                .with(SecurityMockMvcRequestPostProcessors.user("svc").roles("SERVICE"))
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(req)));
+    }
+}
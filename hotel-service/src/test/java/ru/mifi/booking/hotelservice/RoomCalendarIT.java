@@ -0,0 +1,168 @@
+package ru.mifi.booking.hotelservice;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import ru.mifi.booking.hotelservice.dto.CalendarSpanDto;
+import ru.mifi.booking.hotelservice.dto.ConfirmAvailabilityRequest;
+import ru.mifi.booking.hotelservice.dto.RoomCalendarDto;
+import ru.mifi.booking.hotelservice.entity.Hotel;
+import ru.mifi.booking.hotelservice.repository.HotelRepository;
+import ru.mifi.booking.hotelservice.service.HotelService;
+import ru.mifi.booking.hotelservice.service.RoomService;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Календарь номера {@code GET /api/rooms/{id}/calendar} из БД (индекс и кэш выключены):
+ * <ul>
+ *     <li>брони сливаются в занятые отрезки, истёкший hold свободен, запросов к БД — два</li>
+ *     <li>повтор с If-None-Match — 304 без тела, после новой брони в периоде — 200 с новым ETag</li>
+ *     <li>несуществующий номер — 404, период длиннее 366 дней — 400</li>
+ * </ul>
+ */
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "spring.cloud.discovery.enabled=false",
+        "hotel.availability-index.enabled=false",
+        "hotel.availability-cache.enabled=false",
+        "hotel.times-booked.flush-ms=3600000",
+        "hotel.hold.reaper.fixed-delay-ms=3600000",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureMockMvc
+class RoomCalendarIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private HotelService hotelService;
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private HotelRepository hotelRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Hotel hotel;
+    private Long roomId;
+    private LocalDate from;
+
+    @BeforeEach
+    void setUp() {
+        hotel = hotelRepository.save(new Hotel(null, "Calendar Hotel", "Calendar City, 1"));
+        roomId = roomService.addRoom(hotel, "CAL-1", true).id();
+        from = LocalDate.now().plusDays(30);
+
+        confirm(from.plusDays(3), from.plusDays(5));
+        confirm(from.plusDays(5), from.plusDays(6));
+        confirm(from.plusDays(20), from.plusDays(35));
+        String holdRequest = confirm(from.plusDays(10), from.plusDays(12));
+        jdbcTemplate.update("update room_locks set expires_at = ? where request_id = ?",
+                Timestamp.from(Instant.now().minusSeconds(60)), holdRequest);
+    }
+
+    @AfterEach
+    void tearDown() {
+        hotelService.delete(hotel.getId());
+    }
+
+    @Test
+    void calendar_shouldReturnMergedSpans_inTwoQueries() throws Exception {
+        Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+
+        MvcResult result = mockMvc.perform(calendarRequest(from, from.plusDays(31)))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"))
+                .andReturn();
+        long queries = stats.getPrepareStatementCount();
+
+        RoomCalendarDto calendar = objectMapper.readValue(result.getResponse().getContentAsByteArray(), RoomCalendarDto.class);
+        assertThat(calendar.available()).isTrue();
+        assertThat(calendar.spans()).containsExactly(
+                new CalendarSpanDto(from, 3, true),
+                new CalendarSpanDto(from.plusDays(3), 3, false),
+                new CalendarSpanDto(from.plusDays(6), 14, true),
+                new CalendarSpanDto(from.plusDays(20), 11, false));
+        assertThat(queries).as("queries").isEqualTo(2);
+    }
+
+    @Test
+    void calendar_shouldRevalidateWithEtag() throws Exception {
+        LocalDate to = from.plusDays(31);
+        String etag = mockMvc.perform(calendarRequest(from, to))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(calendarRequest(from, to).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+
+        // Бронь за пределами периода календарь не меняет.
+        confirm(from.plusDays(40), from.plusDays(41));
+        mockMvc.perform(calendarRequest(from, to).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        confirm(from, from.plusDays(1));
+        String changed = mockMvc.perform(calendarRequest(from, to).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(changed).isNotEqualTo(etag);
+    }
+
+    @Test
+    void calendar_shouldRejectUnknownRoomAndLongPeriod() throws Exception {
+        mockMvc.perform(get("/api/rooms/999999999/calendar?from=" + from + "&to=" + from.plusDays(5))
+                        .with(SecurityMockMvcRequestPostProcessors.user("1").roles("USER")))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(calendarRequest(from, from.plusDays(367)))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(calendarRequest(from, from))
+                .andExpect(status().isBadRequest());
+    }
+
+    private MockHttpServletRequestBuilder calendarRequest(LocalDate start, LocalDate end) {
+        return get("/api/rooms/" + roomId + "/calendar?from=" + start + "&to=" + end)
+                .with(SecurityMockMvcRequestPostProcessors.user("1").roles("USER"));
+    }
+
+    private String confirm(LocalDate start, LocalDate end) {
+        String requestId = "req-cal-" + UUID.randomUUID();
+        roomService.confirmAvailability(roomId, new ConfirmAvailabilityRequest(
+                start, end, "booking-cal-" + UUID.randomUUID(), requestId));
+        return requestId;
+    }
+}
@@ -10,8 +10,10 @@ import org.springframework.security.test.web.servlet.request.SecurityMockMvcRequ
 import org.springframework.test.web.servlet.MockMvc;
 import ru.mifi.booking.hotelservice.dto.ConfirmAvailabilityRequest;
 import ru.mifi.booking.hotelservice.entity.Room;
+import ru.mifi.booking.hotelservice.lock.RoomRangeLockManager;
 import ru.mifi.booking.hotelservice.repository.RoomLockRepository;
 import ru.mifi.booking.hotelservice.repository.RoomRepository;
+import ru.mifi.booking.hotelservice.service.TimesBookedCounter;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
@@ -21,6 +23,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -31,6 +34,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  * <ul>
  *     <li>конкурентный confirm-availability (5 параллельных запросов) — ровно один успех, остальные 409</li>
  *     <li>идемпотентность confirm-availability по requestId</li>
+ *     <li>confirm на непересекающиеся периоды одного номера не ждут друг друга, timesBooked не теряет инкременты</li>
  * </ul>
  */
 @SpringBootTest(properties = {
@@ -49,9 +53,15 @@ class RoomConfirmConcurrencyIT {
     @Autowired
     private RoomRepository roomRepository;
 
+    @Autowired
+    private TimesBookedCounter timesBooked;
+
     @Autowired
     private RoomLockRepository roomLockRepository;
 
+    @Autowired
+    private RoomRangeLockManager rangeLocks;
+
     private Long roomId;
 
     @BeforeEach
@@ -62,7 +72,8 @@ class RoomConfirmConcurrencyIT {
 
         this.roomId = room.getId();
 
-        // Чистим блокировки и статистику, чтобы тесты были независимыми.
+        // Чистим блокировки и статистику, чтобы тесты были независимыми (сначала дописываю дельты прошлых тестов).
+        timesBooked.flush();
         roomLockRepository.deleteAll();
         room.setTimesBooked(0);
         roomRepository.saveAndFlush(room);
@@ -150,8 +161,84 @@ class RoomConfirmConcurrencyIT {
                 )
                 .andExpect(status().isOk());
 
+        timesBooked.flush();
         Room roomAfter = roomRepository.findById(roomId).orElseThrow();
         assertThat(roomAfter.getTimesBooked()).isEqualTo(1);
         assertThat(roomLockRepository.count()).isEqualTo(1);
     }
+
+    @Test
+    void nonOverlappingConfirm_shouldNotWaitForHeldRangeOfSameRoom() throws Exception {
+        LocalDate heldStart = LocalDate.now().plusDays(30);
+        LocalDate heldEnd = LocalDate.now().plusDays(40);
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            CompletableFuture<Integer> overlapping;
+            try (RoomRangeLockManager.Handle ignored = rangeLocks.acquire(roomId, heldStart, heldEnd)) {
+                // Другой месяц того же номера проходит, пока период [heldStart, heldEnd) занят.
+                CompletableFuture<Integer> other = CompletableFuture.supplyAsync(
+                        () -> confirm(heldEnd.plusDays(20), heldEnd.plusDays(22)), pool);
+                assertThat(other.get(5, TimeUnit.SECONDS)).isEqualTo(200);
+
+                // Пересекающийся период ждёт освобождения.
+                overlapping = CompletableFuture.supplyAsync(
+                        () -> confirm(heldStart.plusDays(2), heldStart.plusDays(4)), pool);
+                Thread.sleep(300);
+                assertThat(overlapping).isNotDone();
+            }
+            assertThat(overlapping.get(5, TimeUnit.SECONDS)).isEqualTo(200);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(roomLockRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    void parallelNonOverlappingConfirms_shouldAllSucceed_andCountEveryBooking() {
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch startLatch = new CountDownLatch(1);
+
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            LocalDate start = LocalDate.now().plusDays(100 + i * 10L);
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    startLatch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return confirm(start, start.plusDays(3));
+            }, pool));
+        }
+        startLatch.countDown();
+
+        List<Integer> statuses = futures.stream().map(CompletableFuture::join).toList();
+        pool.shutdownNow();
+
+        assertThat(statuses).containsOnly(200);
+        assertThat(roomLockRepository.count()).isEqualTo(threads);
+        timesBooked.flush();
+        assertThat(roomRepository.findById(roomId).orElseThrow().getTimesBooked()).isEqualTo(threads);
+    }
+
+    private int confirm(LocalDate start, LocalDate end) {
+        ConfirmAvailabilityRequest body = new ConfirmAvailabilityRequest(
+                start, end, "booking-range-" + UUID.randomUUID(), "req-range-" + UUID.randomUUID());
+        try {
+            return mockMvc.perform(
+                            post("/api/rooms/{id}/confirm-availability", roomId)
+                                    .with(SecurityMockMvcRequestPostProcessors.user("svc").roles("SERVICE"))
+                                    .contentType("application/json")
+                                    .content(objectMapper.writeValueAsString(body))
+                    )
+                    .andReturn()
+                    .getResponse()
+                    .getStatus();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
 }
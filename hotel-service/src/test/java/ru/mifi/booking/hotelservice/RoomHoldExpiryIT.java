@@ -0,0 +1,235 @@
+package ru.mifi.booking.hotelservice;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import ru.mifi.booking.common.exception.ConflictException;
+import ru.mifi.booking.hotelservice.availability.AvailabilityIndexSynchronizer;
+import ru.mifi.booking.hotelservice.dto.BatchCommitRequest;
+import ru.mifi.booking.hotelservice.dto.BatchCommitResult;
+import ru.mifi.booking.hotelservice.dto.BatchConfirmAvailabilityRequest;
+import ru.mifi.booking.hotelservice.dto.ConfirmAvailabilityRequest;
+import ru.mifi.booking.hotelservice.dto.RoomDto;
+import ru.mifi.booking.hotelservice.entity.Hotel;
+import ru.mifi.booking.hotelservice.repository.HotelRepository;
+import ru.mifi.booking.hotelservice.repository.RoomLockRepository;
+import ru.mifi.booking.hotelservice.repository.RoomNightRepository;
+import ru.mifi.booking.hotelservice.service.RoomBatchService;
+import ru.mifi.booking.hotelservice.service.RoomHoldService;
+import ru.mifi.booking.hotelservice.service.RoomService;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.reset;
+
+/**
+ * Интеграционные проверки hold-ов со сроком:
+ * <ul>
+ *     <li>истёкший hold перестаёт занимать номер в индексе, кэше и запросах к БД ещё до reaper-а</li>
+ *     <li>подтверждённый (commit) hold не истекает; commit истёкшего — 409</li>
+ *     <li>новый confirm на ночи истёкшего hold-а проходит, reaper удаляет остальные и возвращает timesBooked</li>
+ *     <li>reaper, удаливший hold во время его скрытия поиском, уменьшает timesBooked один раз и не оставляет скрытых hold-ов</li>
+ * </ul>
+ */
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "spring.cloud.discovery.enabled=false",
+        "hotel.hold.ttl=1s",
+        "hotel.hold.reaper.fixed-delay-ms=3600000"
+})
+class RoomHoldExpiryIT {
+
+    private static final long AFTER_TTL_MS = 1_200;
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private RoomBatchService roomBatchService;
+
+    @Autowired
+    private RoomHoldService roomHoldService;
+
+    @Autowired
+    private AvailabilityIndexSynchronizer synchronizer;
+
+    @Autowired
+    private HotelRepository hotelRepository;
+
+    @MockitoSpyBean
+    private RoomLockRepository roomLockRepository;
+
+    @Autowired
+    private RoomNightRepository roomNightRepository;
+
+    private Hotel hotel;
+    private Long roomA;
+    private Long roomB;
+
+    @BeforeEach
+    void setUp() {
+        roomLockRepository.deleteAll();
+        hotel = hotelRepository.save(new Hotel(null, "Hold Hotel", "Hold City"));
+        roomA = roomService.addRoom(hotel, "H-1", true).id();
+        roomB = roomService.addRoom(hotel, "H-2", true).id();
+        synchronizer.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        roomLockRepository.deleteAll();
+        roomService.delete(roomA);
+        roomService.delete(roomB);
+        hotelRepository.delete(hotel);
+    }
+
+    @Test
+    void expiredHold_shouldStopOccupyingRoomBeforeReaper() throws Exception {
+        LocalDate start = LocalDate.now().plusDays(30);
+        LocalDate end = start.plusDays(3);
+        confirm(roomA, start, end, "booking-hold-" + UUID.randomUUID());
+
+        assertThat(ids(roomService.listAvailable(start, end))).doesNotContain(roomA);
+
+        Thread.sleep(AFTER_TTL_MS);
+
+        // Индекс + кэш и запрос к БД (keyset-поиск идёт мимо индекса).
+        assertThat(ids(roomService.listAvailable(start, end))).contains(roomA);
+        assertThat(ids(roomService.search(start, end, hotel.getId(), null, 10, null).items())).contains(roomA);
+        assertThat(roomService.stats(hotel.getId(), start, end))
+                .filteredOn(s -> s.roomId().equals(roomA))
+                .singleElement()
+                .satisfies(s -> assertThat(s.bookedDaysInRange()).isZero());
+        assertThat(synchronizer.checkConsistency().consistent()).isTrue();
+        assertThat(roomLockRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void committedHolds_shouldNotExpire() throws Exception {
+        LocalDate start = LocalDate.now().plusDays(40);
+        LocalDate end = start.plusDays(2);
+        String bookingA = "booking-hold-" + UUID.randomUUID();
+        String bookingB = "booking-hold-" + UUID.randomUUID();
+        String single = "booking-hold-" + UUID.randomUUID();
+
+        roomBatchService.confirm(new BatchConfirmAvailabilityRequest(start, end, List.of(
+                new BatchConfirmAvailabilityRequest.Item(roomA, bookingA, "req-hold-" + UUID.randomUUID()),
+                new BatchConfirmAvailabilityRequest.Item(roomB, bookingB, "req-hold-" + UUID.randomUUID()))));
+        BatchCommitRequest commitReq = new BatchCommitRequest(List.of(
+                new BatchCommitRequest.Item(roomA, bookingA),
+                new BatchCommitRequest.Item(roomB, bookingB)));
+        assertThat(roomHoldService.commit(commitReq)).isEqualTo(new BatchCommitResult(2, 0));
+        assertThat(roomHoldService.commit(commitReq)).isEqualTo(new BatchCommitResult(0, 2));
+
+        confirm(roomA, end, end.plusDays(1), single);
+        roomHoldService.commit(roomA, single);
+        roomHoldService.commit(roomA, single);
+
+        Thread.sleep(AFTER_TTL_MS);
+
+        assertThat(ids(roomService.listAvailable(start, end.plusDays(1)))).doesNotContain(roomA, roomB);
+        assertThat(roomHoldService.reapExpired()).isZero();
+        assertThat(roomLockRepository.count()).isEqualTo(3);
+    }
+
+    @Test
+    void expiredHold_commitConflicts_andNewConfirmTakesItsNights() throws Exception {
+        LocalDate start = LocalDate.now().plusDays(50);
+        LocalDate end = start.plusDays(4);
+        String stale = "booking-hold-" + UUID.randomUUID();
+        confirm(roomA, start, end, stale);
+
+        Thread.sleep(AFTER_TTL_MS);
+
+        assertThatThrownBy(() -> roomHoldService.commit(roomA, stale)).isInstanceOf(ConflictException.class);
+
+        String fresh = "booking-hold-" + UUID.randomUUID();
+        confirm(roomA, start.plusDays(1), end.plusDays(1), fresh);
+        roomHoldService.commit(roomA, fresh);
+
+        assertThat(roomLockRepository.findByBookingId(stale)).isEmpty();
+        assertThat(roomLockRepository.count()).isEqualTo(1);
+        assertThat(roomNightRepository.count()).isEqualTo(4);
+        assertThat(roomService.get(roomA).timesBooked()).isEqualTo(1);
+        assertThat(ids(roomService.listAvailable(start, end))).doesNotContain(roomA);
+        assertThat(synchronizer.checkConsistency().consistent()).isTrue();
+    }
+
+    @Test
+    void reaper_shouldDeleteExpiredHoldsAndRestoreCounters() throws Exception {
+        LocalDate start = LocalDate.now().plusDays(60);
+        confirm(roomA, start, start.plusDays(2), "booking-hold-" + UUID.randomUUID());
+        confirm(roomA, start.plusDays(5), start.plusDays(7), "booking-hold-" + UUID.randomUUID());
+        confirm(roomB, start, start.plusDays(2), "booking-hold-" + UUID.randomUUID());
+
+        Thread.sleep(AFTER_TTL_MS);
+
+        assertThat(roomHoldService.reapExpired()).isEqualTo(3);
+        assertThat(roomHoldService.reapExpired()).isZero();
+
+        assertThat(roomLockRepository.count()).isZero();
+        assertThat(roomNightRepository.count()).isZero();
+        assertThat(roomService.get(roomA).timesBooked()).isZero();
+        assertThat(roomService.get(roomB).timesBooked()).isZero();
+        assertThat(synchronizer.checkConsistency().consistent()).isTrue();
+    }
+
+    @Test
+    void reaperReleasingDuringExpiry_shouldDecrementOnce_andLeaveNothingHidden() throws Exception {
+        LocalDate start = LocalDate.now().plusDays(70);
+        confirm(roomA, start, start.plusDays(2), "booking-hold-" + UUID.randomUUID());
+        Thread.sleep(AFTER_TTL_MS);
+
+        // Поиск забрал истёкший hold и стоит на проверке в БД; в этот момент reaper удаляет строку (RELEASED).
+        CountDownLatch checking = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            checking.countDown();
+            assertThat(proceed.await(10, TimeUnit.SECONDS)).isTrue();
+            // Spy репозитория Spring Data делегирует настоящему бину через default answer.
+            return mockingDetails(roomLockRepository).getMockCreationSettings().getDefaultAnswer().answer(invocation);
+        }).when(roomLockRepository).findActiveIdsIn(any(), any());
+        ExecutorService searcher = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> expiry = searcher.submit(synchronizer::expireDueHolds);
+            assertThat(checking.await(10, TimeUnit.SECONDS)).isTrue();
+
+            assertThat(roomHoldService.reapExpired()).isEqualTo(1);
+            proceed.countDown();
+            expiry.get(10, TimeUnit.SECONDS);
+        } finally {
+            proceed.countDown();
+            searcher.shutdownNow();
+            reset(roomLockRepository);
+        }
+
+        assertThat(roomService.get(roomA).timesBooked()).isZero();
+        assertThat(ids(roomService.listAvailable(start, start.plusDays(2)))).contains(roomA);
+        assertThat(synchronizer.checkConsistency().consistent()).isTrue();
+        assertThat(synchronizer.expiredHoldCount()).isZero();
+    }
+
+    private void confirm(Long roomId, LocalDate start, LocalDate end, String bookingId) {
+        roomService.confirmAvailability(roomId,
+                new ConfirmAvailabilityRequest(start, end, bookingId, "req-hold-" + UUID.randomUUID()));
+    }
+
+    private static List<Long> ids(List<RoomDto> rooms) {
+        return rooms.stream().map(RoomDto::id).toList();
+    }
+}
@@ -0,0 +1,209 @@
+package ru.mifi.booking.hotelservice;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.mifi.booking.hotelservice.availability.AvailabilityIndexSynchronizer;
+import ru.mifi.booking.hotelservice.dto.ConfirmAvailabilityRequest;
+import ru.mifi.booking.hotelservice.dto.LockArchiveReport;
+import ru.mifi.booking.hotelservice.dto.RoomStatsDto;
+import ru.mifi.booking.hotelservice.entity.Hotel;
+import ru.mifi.booking.hotelservice.repository.HotelRepository;
+import ru.mifi.booking.hotelservice.repository.RoomLockHistoryRepository;
+import ru.mifi.booking.hotelservice.repository.RoomLockRepository;
+import ru.mifi.booking.hotelservice.repository.RoomNightRepository;
+import ru.mifi.booking.hotelservice.repository.RoomRepository;
+import ru.mifi.booking.hotelservice.service.HotelService;
+import ru.mifi.booking.hotelservice.service.RoomHoldService;
+import ru.mifi.booking.hotelservice.service.RoomLockArchiveService;
+import ru.mifi.booking.hotelservice.service.RoomService;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Интеграционные проверки архива room_lock_history:
+ * <ul>
+ *     <li>завершившиеся подтверждённые блокировки уходят из room_locks/room_nights/индекса, hold-ы и будущие остаются</li>
+ *     <li>статистика за период в прошлом не меняется после переноса (горячая часть + архив)</li>
+ *     <li>удаление отеля удаляет его историю</li>
+ * </ul>
+ * Замер стоимости поиска до/после переноса — {@code -Dhotel.archive.benchmark.locks=N} (по умолчанию не запускается).
+ */
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "spring.cloud.discovery.enabled=false"
+})
+class RoomLockArchiveIT {
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private HotelService hotelService;
+
+    @Autowired
+    private RoomHoldService roomHoldService;
+
+    @Autowired
+    private RoomLockArchiveService archiveService;
+
+    @Autowired
+    private AvailabilityIndexSynchronizer synchronizer;
+
+    @Autowired
+    private HotelRepository hotelRepository;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private RoomLockRepository roomLockRepository;
+
+    @Autowired
+    private RoomLockHistoryRepository historyRepository;
+
+    @Autowired
+    private RoomNightRepository roomNightRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Hotel hotel;
+    private Long roomId;
+
+    @BeforeEach
+    void setUp() {
+        roomLockRepository.deleteAll();
+        hotel = hotelRepository.save(new Hotel(null, "Archive Hotel", "Archive City"));
+        roomId = roomService.addRoom(hotel, "AR-1", true).id();
+        synchronizer.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        roomLockRepository.deleteAll();
+        if (hotelRepository.existsById(hotel.getId())) {
+            hotelService.delete(hotel.getId());
+        }
+    }
+
+    @Test
+    void archive_shouldMoveEndedLocks_andKeepStatsUnchanged() {
+        LocalDate today = LocalDate.now();
+        String past = confirm(today.minusDays(10), today.minusDays(7));
+        String endsToday = confirm(today.minusDays(3), today);
+        String future = confirm(today.plusDays(5), today.plusDays(8));
+        roomHoldService.commit(roomId, past);
+        roomHoldService.commit(roomId, endsToday);
+        roomHoldService.commit(roomId, future);
+        // Неподтверждённый hold в прошлом — забота reaper-а, не архива.
+        confirm(today.minusDays(20), today.minusDays(18));
+
+        List<RoomStatsDto> before = roomService.stats(hotel.getId(), today.minusDays(30), today.plusDays(30));
+
+        LockArchiveReport report = archiveService.archive();
+
+        assertThat(report.archived()).isEqualTo(2);
+        assertThat(roomLockRepository.findByBookingId(past)).isEmpty();
+        assertThat(roomLockRepository.findByBookingId(endsToday)).isEmpty();
+        assertThat(roomLockRepository.findByBookingId(future)).isPresent();
+        assertThat(roomLockRepository.count()).isEqualTo(2);
+        assertThat(roomNightRepository.count()).isEqualTo(5);
+        assertThat(historyRepository.findSpansInHotel(hotel.getId(), today.minusDays(30), today)).hasSize(2);
+
+        assertThat(roomService.stats(hotel.getId(), today.minusDays(30), today.plusDays(30))).isEqualTo(before);
+        assertThat(roomService.stats(hotel.getId(), today.minusDays(9), today.minusDays(8)))
+                .singleElement()
+                .satisfies(s -> {
+                    assertThat(s.locksCountInRange()).isEqualTo(1);
+                    assertThat(s.bookedDaysInRange()).isEqualTo(1);
+                });
+        assertThat(roomService.get(roomId).timesBooked()).isEqualTo(4);
+        assertThat(synchronizer.checkConsistency().consistent()).isTrue();
+
+        assertThat(archiveService.archive().archived()).isZero();
+    }
+
+    @Test
+    void hotelDelete_shouldRemoveItsHistory() {
+        LocalDate today = LocalDate.now();
+        roomHoldService.commit(roomId, confirm(today.minusDays(5), today.minusDays(2)));
+        archiveService.archive();
+        assertThat(historyRepository.findSpansInHotel(hotel.getId(), today.minusDays(5), today)).hasSize(1);
+
+        hotelService.delete(hotel.getId());
+
+        assertThat(historyRepository.findSpansInHotel(hotel.getId(), today.minusDays(5), today)).isEmpty();
+    }
+
+    /**
+     * Замер: поиск свободных номеров по БД (keyset search, мимо индекса) на таблице с N завершившимися блокировками
+     * до и после переноса в архив. Результат — в stdout.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "hotel.archive.benchmark.locks", matches = "\\d+")
+    void benchmark_searchCostBeforeAndAfterArchive() {
+        int locks = Integer.parseInt(System.getProperty("hotel.archive.benchmark.locks"));
+        int rooms = 200;
+        List<Long> roomIds = new ArrayList<>(rooms);
+        roomIds.add(roomId);
+        for (int i = 1; i < rooms; i++) {
+            roomIds.add(roomService.addRoom(hotel, "AR-B-" + i, true).id());
+        }
+
+        // По одной ночи на блокировку, подряд в прошлое от вчерашнего дня.
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        List<Object[]> batch = new ArrayList<>(10_000);
+        for (int i = 0; i < locks; i++) {
+            LocalDate night = yesterday.minusDays(i / rooms);
+            batch.add(new Object[]{roomIds.get(i % rooms), Date.valueOf(night), Date.valueOf(night.plusDays(1)),
+                    "bench-b-" + i, "bench-r-" + i});
+            if (batch.size() == 10_000 || i == locks - 1) {
+                jdbcTemplate.batchUpdate(
+                        "insert into room_locks (room_id, start_date, end_date, booking_id, request_id) values (?, ?, ?, ?, ?)",
+                        batch);
+                batch.clear();
+            }
+        }
+
+        LocalDate start = LocalDate.now().plusDays(30);
+        long beforeMicros = measureSearch(start);
+        LockArchiveReport report = archiveService.archive();
+        long afterMicros = measureSearch(start);
+
+        System.out.printf("room_locks archive benchmark: locks=%d, search before=%d us, after=%d us, archive=%d ms (%d batches)%n",
+                locks, beforeMicros, afterMicros, report.durationMs(), report.batches());
+        assertThat(report.archived()).isEqualTo(locks);
+        assertThat(roomLockRepository.count()).isZero();
+        roomIds.stream().skip(1).forEach(roomRepository::deleteById);
+    }
+
+    private long measureSearch(LocalDate start) {
+        for (int i = 0; i < 5; i++) {
+            roomService.search(start, start.plusDays(3), hotel.getId(), null, 50, null);
+        }
+        int runs = 20;
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            assertThat(roomService.search(start, start.plusDays(3), hotel.getId(), null, 50, null).items()).hasSize(50);
+        }
+        return (System.nanoTime() - startedAt) / 1_000 / runs;
+    }
+
+    private String confirm(LocalDate start, LocalDate end) {
+        String bookingId = "booking-archive-" + UUID.randomUUID();
+        roomService.confirmAvailability(roomId,
+                new ConfirmAvailabilityRequest(start, end, bookingId, "req-archive-" + UUID.randomUUID()));
+        return bookingId;
+    }
+}
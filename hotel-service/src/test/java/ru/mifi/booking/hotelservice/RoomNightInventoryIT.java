@@ -0,0 +1,105 @@
+package ru.mifi.booking.hotelservice;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DuplicateKeyException;
+import ru.mifi.booking.common.exception.ConflictException;
+import ru.mifi.booking.hotelservice.dto.ConfirmAvailabilityRequest;
+import ru.mifi.booking.hotelservice.entity.Hotel;
+import ru.mifi.booking.hotelservice.entity.RoomLock;
+import ru.mifi.booking.hotelservice.repository.HotelRepository;
+import ru.mifi.booking.hotelservice.repository.RoomLockRepository;
+import ru.mifi.booking.hotelservice.repository.RoomNightJdbcRepository;
+import ru.mifi.booking.hotelservice.repository.RoomNightRepository;
+import ru.mifi.booking.hotelservice.service.RoomService;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Интеграционные проверки таблицы ночей room_nights:
+ * <ul>
+ *     <li>confirm пишет по строке на ночь, release удаляет их каскадом вместе с RoomLock</li>
+ *     <li>пересекающиеся ночи отвергает сама БД (первичный ключ), даже в обход блокировок приложения</li>
+ * </ul>
+ */
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "spring.cloud.discovery.enabled=false"
+})
+class RoomNightInventoryIT {
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private HotelRepository hotelRepository;
+
+    @Autowired
+    private RoomLockRepository roomLockRepository;
+
+    @Autowired
+    private RoomNightRepository roomNightRepository;
+
+    @Autowired
+    private RoomNightJdbcRepository roomNightJdbcRepository;
+
+    private Hotel hotel;
+    private Long roomId;
+
+    @BeforeEach
+    void setUp() {
+        roomLockRepository.deleteAll();
+        hotel = hotelRepository.save(new Hotel(null, "Nights Hotel", "Test City"));
+        roomId = roomService.addRoom(hotel, "N-1", true).id();
+    }
+
+    @AfterEach
+    void tearDown() {
+        roomLockRepository.deleteAll();
+        roomService.delete(roomId);
+        hotelRepository.delete(hotel);
+    }
+
+    @Test
+    void confirmAndRelease_shouldWriteAndCascadeDeleteNights() {
+        LocalDate start = LocalDate.now().plusDays(10);
+        String bookingId = "booking-nights-" + UUID.randomUUID();
+
+        roomService.confirmAvailability(roomId,
+                new ConfirmAvailabilityRequest(start, start.plusDays(4), bookingId, "req-nights-" + UUID.randomUUID()));
+
+        assertThat(roomNightRepository.count()).isEqualTo(4);
+        assertThat(roomNightRepository.existsInPeriod(roomId, start.plusDays(3), start.plusDays(5))).isTrue();
+        assertThat(roomNightRepository.existsInPeriod(roomId, start.plusDays(4), start.plusDays(6))).isFalse();
+
+        roomService.release(roomId, bookingId);
+
+        assertThat(roomNightRepository.count()).isZero();
+    }
+
+    @Test
+    void overlappingNights_shouldBeRejectedByDatabase() {
+        LocalDate start = LocalDate.now().plusDays(20);
+        roomService.confirmAvailability(roomId,
+                new ConfirmAvailabilityRequest(start, start.plusDays(3), "booking-nights-" + UUID.randomUUID(), "req-nights-" + UUID.randomUUID()));
+        RoomLock existing = roomLockRepository.findAll().getFirst();
+
+        // Прямая вставка мимо RoomRangeLockManager (и вне транзакции — поэтому только уже занятые ночи).
+        assertThatThrownBy(() -> roomNightJdbcRepository.insertNights(existing.getId(), roomId, start.plusDays(1), start.plusDays(3)))
+                .isInstanceOf(DuplicateKeyException.class);
+
+        assertThatThrownBy(() -> roomService.confirmAvailability(roomId,
+                new ConfirmAvailabilityRequest(start.plusDays(2), start.plusDays(5), "booking-nights-" + UUID.randomUUID(), "req-nights-" + UUID.randomUUID())))
+                .isInstanceOf(ConflictException.class);
+
+        assertThat(roomLockRepository.count()).isEqualTo(1);
+        assertThat(roomNightRepository.count()).isEqualTo(3);
+    }
+}
@@ -0,0 +1,140 @@
+package ru.mifi.booking.hotelservice;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.mifi.booking.common.exception.BadRequestException;
+import ru.mifi.booking.common.exception.NotFoundException;
+import ru.mifi.booking.hotelservice.dto.ConfirmAvailabilityRequest;
+import ru.mifi.booking.hotelservice.dto.HotelRoomStatsDto;
+import ru.mifi.booking.hotelservice.dto.RoomStatsDto;
+import ru.mifi.booking.hotelservice.entity.Hotel;
+import ru.mifi.booking.hotelservice.repository.HotelRepository;
+import ru.mifi.booking.hotelservice.repository.RoomLockRepository;
+import ru.mifi.booking.hotelservice.service.RoomService;
+import ru.mifi.booking.hotelservice.service.RoomStatsReportService;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Интеграционные проверки статистики загруженности на SQL-пути:
+ * <ul>
+ *     <li>статистика отеля считается одним GROUP BY-запросом без загрузки сущностей</li>
+ *     <li>отчёт по нескольким отелям возвращает статистику каждого отеля в порядке запроса</li>
+ * </ul>
+ */
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "spring.cloud.discovery.enabled=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        // При готовом индексе stats считается по битовому календарю; здесь проверяю запрос к БД.
+        "hotel.availability-index.enabled=false"
+})
+class RoomStatsIT {
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private RoomStatsReportService roomStatsReportService;
+
+    @Autowired
+    private HotelRepository hotelRepository;
+
+    @Autowired
+    private RoomLockRepository roomLockRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Hotel hotel;
+    private Hotel otherHotel;
+    private Long busyRoomId;
+    private Long freeRoomId;
+    private Long otherRoomId;
+
+    @BeforeEach
+    void setUp() {
+        roomLockRepository.deleteAll();
+        hotel = hotelRepository.save(new Hotel(null, "Stats Hotel", "Test City"));
+        otherHotel = hotelRepository.save(new Hotel(null, "Stats Hotel 2", "Test City"));
+        busyRoomId = roomService.addRoom(hotel, "S-1", true).id();
+        freeRoomId = roomService.addRoom(hotel, "S-2", true).id();
+        otherRoomId = roomService.addRoom(otherHotel, "S-3", true).id();
+    }
+
+    @AfterEach
+    void tearDown() {
+        roomLockRepository.deleteAll();
+        roomService.delete(busyRoomId);
+        roomService.delete(freeRoomId);
+        roomService.delete(otherRoomId);
+        hotelRepository.delete(hotel);
+        hotelRepository.delete(otherHotel);
+    }
+
+    @Test
+    void stats_shouldAggregateLocksAndNightsInSingleQuery() {
+        LocalDate start = LocalDate.now().plusDays(30);
+        LocalDate end = start.plusDays(10);
+        // Пересекает начало периода: внутри 2 ночи из 4.
+        confirm(busyRoomId, start.minusDays(2), start.plusDays(2));
+        // Целиком внутри: 3 ночи.
+        confirm(busyRoomId, start.plusDays(5), start.plusDays(8));
+        // Начинается ровно в end — период не пересекает.
+        confirm(busyRoomId, end, end.plusDays(2));
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<RoomStatsDto> stats = roomService.stats(hotel.getId(), start, end);
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(stats).containsExactly(
+                new RoomStatsDto(busyRoomId, hotel.getId(), "S-1", 3, 2, 5),
+                new RoomStatsDto(freeRoomId, hotel.getId(), "S-2", 0, 0, 0));
+    }
+
+    @Test
+    void statsForHotels_shouldReturnEveryHotelInRequestOrder() {
+        LocalDate start = LocalDate.now().plusDays(50);
+        LocalDate end = start.plusDays(5);
+        confirm(otherRoomId, start.plusDays(1), start.plusDays(3));
+
+        List<HotelRoomStatsDto> report = roomStatsReportService.stats(
+                List.of(otherHotel.getId(), hotel.getId(), otherHotel.getId()), start, end);
+
+        assertThat(report).extracting(HotelRoomStatsDto::hotelId).containsExactly(otherHotel.getId(), hotel.getId());
+        assertThat(report.getFirst().rooms()).containsExactly(
+                new RoomStatsDto(otherRoomId, otherHotel.getId(), "S-3", 1, 1, 2));
+        assertThat(report.get(1).rooms()).extracting(RoomStatsDto::bookedDaysInRange).containsExactly(0L, 0L);
+    }
+
+    @Test
+    void statsForHotels_shouldRejectUnknownHotelsAndTooManyHotels() {
+        LocalDate start = LocalDate.now().plusDays(50);
+        LocalDate end = start.plusDays(5);
+
+        assertThatThrownBy(() -> roomStatsReportService.stats(List.of(hotel.getId(), -1L), start, end))
+                .isInstanceOf(NotFoundException.class);
+        assertThatThrownBy(() -> roomStatsReportService.stats(LongStream.rangeClosed(1, 101).boxed().toList(), start, end))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    private void confirm(Long roomId, LocalDate start, LocalDate end) {
+        roomService.confirmAvailability(roomId, new ConfirmAvailabilityRequest(
+                start, end, "booking-stats-" + UUID.randomUUID(), "req-stats-" + UUID.randomUUID()));
+    }
+}
@@ -0,0 +1,132 @@
+package ru.mifi.booking.hotelservice;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.mifi.booking.common.http.MediaTypes;
+import ru.mifi.booking.hotelservice.dto.ConfirmAvailabilityRequest;
+import ru.mifi.booking.hotelservice.dto.RoomDto;
+import ru.mifi.booking.hotelservice.entity.Hotel;
+import ru.mifi.booking.hotelservice.repository.HotelRepository;
+import ru.mifi.booking.hotelservice.service.HotelService;
+import ru.mifi.booking.hotelservice.service.RoomService;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Smile на internal-вызовах booking-service (индекс и кэш выключены):
+ * <ul>
+ *     <li>recommend с Accept: application/x-jackson-smile отдаёт те же номера, что JSON, и компактнее; без Accept — по-прежнему JSON</li>
+ *     <li>confirm-availability принимает тело в Smile; повтор того же запроса в JSON идемпотентен</li>
+ * </ul>
+ */
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "spring.cloud.discovery.enabled=false",
+        "hotel.availability-index.enabled=false",
+        "hotel.availability-cache.enabled=false",
+        "hotel.times-booked.flush-ms=3600000",
+        "hotel.hold.reaper.fixed-delay-ms=3600000",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureMockMvc
+class SmileWireFormatIT {
+
+    /** Так же, как Smile-конвертер RestTemplate в booking-service. */
+    private static final ObjectMapper SMILE = Jackson2ObjectMapperBuilder.smile().build();
+    private static final MediaType APPLICATION_SMILE = MediaType.parseMediaType(MediaTypes.APPLICATION_SMILE_VALUE);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private HotelService hotelService;
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private HotelRepository hotelRepository;
+
+    private Hotel hotel;
+    private Long roomId;
+    private LocalDate start;
+
+    @BeforeEach
+    void setUp() {
+        hotel = hotelRepository.save(new Hotel(null, "Smile Hotel", "Smile City, 1"));
+        roomId = roomService.addRoom(hotel, "SM-1", true).id();
+        for (int i = 2; i <= 5; i++) {
+            roomService.addRoom(hotel, "SM-" + i, true);
+        }
+        start = LocalDate.now().plusDays(70);
+    }
+
+    @AfterEach
+    void tearDown() {
+        hotelService.delete(hotel.getId());
+    }
+
+    @Test
+    void recommend_shouldNegotiateSmile_andKeepJsonByDefault() throws Exception {
+        String url = "/api/rooms/recommend?start=" + start + "&end=" + start.plusDays(2) + "&limit=20";
+
+        MvcResult json = mockMvc.perform(get(url)
+                        .with(SecurityMockMvcRequestPostProcessors.user("svc").roles("SERVICE")))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andReturn();
+        MvcResult smile = mockMvc.perform(get(url)
+                        .accept(APPLICATION_SMILE, MediaType.parseMediaType("application/json;q=0.5"))
+                        .with(SecurityMockMvcRequestPostProcessors.user("svc").roles("SERVICE")))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(APPLICATION_SMILE))
+                .andReturn();
+
+        byte[] jsonBytes = json.getResponse().getContentAsByteArray();
+        byte[] smileBytes = smile.getResponse().getContentAsByteArray();
+        RoomDto[] fromJson = objectMapper.readValue(jsonBytes, RoomDto[].class);
+        assertThat(fromJson).isNotEmpty();
+        assertThat(SMILE.readValue(smileBytes, RoomDto[].class)).containsExactly(fromJson);
+        assertThat(smileBytes.length).isLessThan(jsonBytes.length / 2);
+    }
+
+    @Test
+    void confirm_shouldAcceptSmileBody_andJsonRetry() throws Exception {
+        ConfirmAvailabilityRequest req = new ConfirmAvailabilityRequest(
+                start, start.plusDays(2), "booking-sm-" + UUID.randomUUID(), "req-sm-" + UUID.randomUUID());
+
+        mockMvc.perform(post("/api/rooms/" + roomId + "/confirm-availability")
+                        .with(SecurityMockMvcRequestPostProcessors.user("svc").roles("SERVICE"))
+                        .contentType(APPLICATION_SMILE)
+                        .content(SMILE.writeValueAsBytes(req)))
+                .andExpect(status().isOk());
+        assertThat(roomService.listAvailable(start, start.plusDays(2))).extracting(RoomDto::id).doesNotContain(roomId);
+
+        // Повтор того же requestId в JSON — идемпотентен, как и раньше.
+        mockMvc.perform(post("/api/rooms/" + roomId + "/confirm-availability")
+                        .with(SecurityMockMvcRequestPostProcessors.user("svc").roles("SERVICE"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsBytes(req)))
+                .andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,145 @@
+package ru.mifi.booking.hotelservice;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import ru.mifi.booking.common.dataset.DatasetSpec;
+import ru.mifi.booking.common.dataset.SyntheticBooking;
+import ru.mifi.booking.common.dataset.SyntheticDataset;
+import ru.mifi.booking.common.dataset.SyntheticHotel;
+import ru.mifi.booking.common.dataset.SyntheticRoom;
+import ru.mifi.booking.hotelservice.availability.AvailabilityIndexSynchronizer;
+import ru.mifi.booking.hotelservice.dto.ConfirmAvailabilityRequest;
+import ru.mifi.booking.hotelservice.dto.RoomDto;
+import ru.mifi.booking.hotelservice.entity.Hotel;
+import ru.mifi.booking.hotelservice.repository.HotelRepository;
+import ru.mifi.booking.hotelservice.service.RoomService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Профиль {@code dataset} на отдельной пустой БД: 5 отелей × 8 номеров, 300 броней на горизонте ±60 дней.
+ * <ul>
+ *     <li>генератор детерминирован, брони номера не пересекаются, горячие номера заметно популярнее</li>
+ *     <li>в БД ровно сгенерированный набор: прошедшие брони в архиве, остальные — блокировки с ночами,
+ *     timesBooked посчитан, индекс согласован; демо-отели не созданы</li>
+ *     <li>после загрузки save и confirm продолжают нумерацию за id набора</li>
+ * </ul>
+ */
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "spring.cloud.discovery.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:dataset-it;DB_CLOSE_DELAY=-1",
+        "dataset.seed=7",
+        "dataset.hotels=5",
+        "dataset.rooms-per-hotel=8",
+        "dataset.bookings=300",
+        "dataset.users=20",
+        "dataset.past-days=60",
+        "dataset.future-days=60",
+        "dataset.skew=1.2",
+        "dataset.batch-size=100"
+})
+@ActiveProfiles("dataset")
+class SyntheticDatasetIT {
+
+    private static final DatasetSpec SPEC = new DatasetSpec(7, 5, 8, 300, 20, 60, 60, 1.2, LocalDate.now());
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AvailabilityIndexSynchronizer synchronizer;
+
+    @Autowired
+    private HotelRepository hotelRepository;
+
+    @Autowired
+    private RoomService roomService;
+
+    @Test
+    void generator_shouldBeDeterministic_skewed_andNonOverlapping() {
+        List<SyntheticHotel> first = generate();
+        assertThat(generate()).isEqualTo(first);
+        assertThat(generate(new DatasetSpec(8, 5, 8, 300, 20, 60, 60, 1.2, SPEC.baseDate()))).isNotEqualTo(first);
+
+        List<SyntheticRoom> rooms = first.stream().flatMap(h -> h.rooms().stream()).toList();
+        long total = rooms.stream().mapToLong(r -> r.bookings().size()).sum();
+        int hottest = rooms.stream().mapToInt(r -> r.bookings().size()).max().orElseThrow();
+        assertThat(total).isBetween(285L, 300L);
+        assertThat(hottest).isGreaterThan((int) (4 * total / rooms.size()));
+
+        for (SyntheticRoom room : rooms) {
+            LocalDate previousEnd = SPEC.horizonStart();
+            for (SyntheticBooking booking : room.bookings()) {
+                assertThat(booking.startDate()).isAfterOrEqualTo(previousEnd);
+                assertThat(booking.endDate()).isAfter(booking.startDate()).isBeforeOrEqualTo(SPEC.horizonEnd());
+                assertThat(booking.userId()).isBetween(1L, 20L);
+                previousEnd = booking.endDate();
+            }
+        }
+    }
+
+    @Test
+    void loader_shouldWriteExactlyTheGeneratedDataset() {
+        LocalDate today = LocalDate.now();
+        List<SyntheticBooking> bookings = generate().stream()
+                .flatMap(h -> h.rooms().stream()).flatMap(r -> r.bookings().stream()).toList();
+        List<SyntheticBooking> active = bookings.stream().filter(b -> b.endDate().isAfter(today)).toList();
+        long nights = active.stream().mapToLong(b -> b.endDate().toEpochDay() - b.startDate().toEpochDay()).sum();
+
+        assertThat(count("select count(*) from hotels where id <= 5")).isEqualTo(5);
+        assertThat(count("select count(*) from hotels where name = 'Hotel One'")).isZero();
+        assertThat(count("select count(*) from rooms where id <= 40")).isEqualTo(40);
+        assertThat(count("select count(*) from room_locks where expires_at is null and id <= " + bookings.size()))
+                .isEqualTo(active.size());
+        assertThat(count("select count(*) from room_lock_history")).isEqualTo(bookings.size() - active.size());
+        assertThat(count("select count(*) from room_nights where lock_id <= " + bookings.size())).isEqualTo(nights);
+        assertThat(active).isNotEmpty().hasSizeLessThan(bookings.size());
+
+        SyntheticBooking sample = active.getFirst();
+        assertThat(jdbcTemplate.queryForObject("select booking_id from room_locks where id = ?", String.class, sample.id()))
+                .isEqualTo(sample.bookingUid());
+        assertThat(jdbcTemplate.queryForObject("select sum(times_booked) from rooms where id <= 40", Long.class))
+                .isEqualTo(bookings.size());
+
+        synchronizer.rebuild();
+        assertThat(synchronizer.checkConsistency().consistent()).isTrue();
+    }
+
+    @Test
+    void idsAfterLoad_shouldContinueAfterDataset() {
+        long maxLockId = generate().stream().flatMap(h -> h.rooms().stream())
+                .flatMap(r -> r.bookings().stream()).mapToLong(SyntheticBooking::id).max().orElseThrow();
+
+        Hotel hotel = hotelRepository.save(new Hotel(null, "After Dataset", "Moscow"));
+        RoomDto room = roomService.addRoom(hotel, "AD-1", true);
+        LocalDate start = LocalDate.now().plusDays(100);
+        roomService.confirmAvailability(room.id(), new ConfirmAvailabilityRequest(start, start.plusDays(1), "booking-ad", "req-ad"));
+
+        assertThat(hotel.getId()).isGreaterThan(5);
+        assertThat(room.id()).isGreaterThan(40);
+        assertThat(jdbcTemplate.queryForObject("select id from room_locks where booking_id = 'booking-ad'", Long.class))
+                .isGreaterThan(maxLockId);
+    }
+
+    private static List<SyntheticHotel> generate() {
+        return generate(SPEC);
+    }
+
+    private static List<SyntheticHotel> generate(DatasetSpec spec) {
+        List<SyntheticHotel> hotels = new ArrayList<>();
+        new SyntheticDataset(spec).forEachHotel(hotels::add);
+        return hotels;
+    }
+
+    private long count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Long.class);
+    }
+}
@@ -0,0 +1,148 @@
+package ru.mifi.booking.hotelservice;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.mifi.booking.common.exception.ConflictException;
+import ru.mifi.booking.hotelservice.dto.ConfirmAvailabilityRequest;
+import ru.mifi.booking.hotelservice.dto.RoomDto;
+import ru.mifi.booking.hotelservice.entity.Hotel;
+import ru.mifi.booking.hotelservice.entity.Room;
+import ru.mifi.booking.hotelservice.repository.HotelRepository;
+import ru.mifi.booking.hotelservice.repository.RoomLockRepository;
+import ru.mifi.booking.hotelservice.repository.RoomRepository;
+import ru.mifi.booking.hotelservice.service.RoomService;
+import ru.mifi.booking.hotelservice.service.TimesBookedCounter;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Интеграционные проверки отложенной записи timesBooked (индекс и кэш выключены — всё читается из БД):
+ * <ul>
+ *     <li>confirm/release видны сразу, а в rooms.times_booked попадают только при flush</li>
+ *     <li>recommend из БД сортирует по живому значению, а не по записанному</li>
+ *     <li>откатившийся confirm счётчик не меняет</li>
+ *     <li>пересчёт при старте восстанавливает значение из блокировок</li>
+ * </ul>
+ */
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "spring.cloud.discovery.enabled=false",
+        "hotel.availability-index.enabled=false",
+        "hotel.availability-cache.enabled=false",
+        "hotel.times-booked.flush-ms=3600000"
+})
+class TimesBookedCounterIT {
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private TimesBookedCounter timesBooked;
+
+    @Autowired
+    private HotelRepository hotelRepository;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private RoomLockRepository roomLockRepository;
+
+    private Hotel hotel;
+    private Long roomA;
+    private Long roomB;
+
+    @BeforeEach
+    void setUp() {
+        roomLockRepository.deleteAll();
+        hotel = hotelRepository.save(new Hotel(null, "Counter Hotel", "Counter City"));
+        roomA = roomService.addRoom(hotel, "TB-1", true).id();
+        roomB = roomService.addRoom(hotel, "TB-2", true).id();
+    }
+
+    @AfterEach
+    void tearDown() {
+        roomLockRepository.deleteAll();
+        roomService.delete(roomA);
+        roomService.delete(roomB);
+        hotelRepository.delete(hotel);
+    }
+
+    @Test
+    void confirmAndRelease_shouldBeLiveBeforeFlush_andWrittenByFlush() {
+        LocalDate start = LocalDate.now().plusDays(10);
+        String bookingId = "booking-tb-" + UUID.randomUUID();
+        confirm(roomA, start, start.plusDays(2), bookingId);
+
+        assertThat(roomService.get(roomA).timesBooked()).isEqualTo(1);
+        assertThat(stored(roomA)).isZero();
+
+        // В rooms оба номера пока с 0 и A раньше по id; живое значение ставит его после B.
+        LocalDate otherStart = start.plusDays(30);
+        assertThat(ours(roomService.recommend(otherStart, otherStart.plusDays(1), null))).containsExactly(roomB, roomA);
+        assertThat(ours(roomService.recommend(otherStart, otherStart.plusDays(1), 200))).containsExactly(roomB, roomA);
+
+        assertThat(timesBooked.flush()).isPositive();
+        assertThat(stored(roomA)).isEqualTo(1);
+        assertThat(roomService.get(roomA).timesBooked()).isEqualTo(1);
+
+        roomService.release(roomA, bookingId);
+
+        assertThat(roomService.get(roomA).timesBooked()).isZero();
+        timesBooked.flush();
+        assertThat(stored(roomA)).isZero();
+    }
+
+    @Test
+    void rolledBackConfirm_shouldNotCount() {
+        LocalDate start = LocalDate.now().plusDays(20);
+        confirm(roomA, start, start.plusDays(3), "booking-tb-" + UUID.randomUUID());
+
+        assertThatThrownBy(() -> confirm(roomA, start.plusDays(1), start.plusDays(4), "booking-tb-" + UUID.randomUUID()))
+                .isInstanceOf(ConflictException.class);
+
+        assertThat(roomService.get(roomA).timesBooked()).isEqualTo(1);
+        timesBooked.flush();
+        assertThat(stored(roomA)).isEqualTo(1);
+    }
+
+    @Test
+    void recomputeOnStartup_shouldRestoreCountFromLocks() {
+        LocalDate start = LocalDate.now().plusDays(40);
+        confirm(roomA, start, start.plusDays(1), "booking-tb-" + UUID.randomUUID());
+        confirm(roomA, start.plusDays(5), start.plusDays(6), "booking-tb-" + UUID.randomUUID());
+        timesBooked.flush();
+
+        // Как после падения: значение в rooms разошлось с блокировками.
+        Room room = roomRepository.findById(roomA).orElseThrow();
+        room.setTimesBooked(42);
+        roomRepository.save(room);
+
+        timesBooked.onApplicationReady();
+
+        assertThat(stored(roomA)).isEqualTo(2);
+        assertThat(stored(roomB)).isZero();
+        assertThat(roomService.get(roomA).timesBooked()).isEqualTo(2);
+    }
+
+    private void confirm(Long roomId, LocalDate start, LocalDate end, String bookingId) {
+        roomService.confirmAvailability(roomId,
+                new ConfirmAvailabilityRequest(start, end, bookingId, "req-tb-" + UUID.randomUUID()));
+    }
+
+    private long stored(Long roomId) {
+        return roomRepository.findById(roomId).orElseThrow().getTimesBooked();
+    }
+
+    private List<Long> ours(List<RoomDto> rooms) {
+        return rooms.stream().map(RoomDto::id).filter(id -> id.equals(roomA) || id.equals(roomB)).toList();
+    }
+}
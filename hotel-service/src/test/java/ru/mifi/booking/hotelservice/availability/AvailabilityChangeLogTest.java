@@ -0,0 +1,63 @@
+package ru.mifi.booking.hotelservice.availability;
+
+import org.junit.jupiter.api.Test;
+import ru.mifi.booking.hotelservice.dto.AvailabilityChangeDto;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Проверки кольцевого буфера изменений: чтение после курсора, пачки, вытеснение и «чужой» seq.
+ */
+class AvailabilityChangeLogTest {
+
+    private static final long INITIAL = 1_000;
+
+    @Test
+    void readAfter_shouldReturnChangesAfterCursorInBatches() {
+        AvailabilityChangeLog log = new AvailabilityChangeLog(8, INITIAL);
+        for (int i = 0; i < 5; i++) {
+            append(log, 10L + i);
+        }
+
+        assertThat(log.lastSeq()).isEqualTo(INITIAL + 5);
+        assertThat(seqs(log.readAfter(INITIAL, 3))).containsExactly(INITIAL + 1, INITIAL + 2, INITIAL + 3);
+        assertThat(seqs(log.readAfter(INITIAL + 3, 3))).containsExactly(INITIAL + 4, INITIAL + 5);
+        assertThat(log.readAfter(INITIAL + 5, 3)).isEmpty();
+        assertThat(log.readAfter(INITIAL + 2, 1)).extracting(AvailabilityChangeDto::roomId).containsExactly(12L);
+    }
+
+    @Test
+    void readAfter_shouldDetectEvictedAndUnknownSeq() {
+        AvailabilityChangeLog log = new AvailabilityChangeLog(4, INITIAL);
+        for (int i = 0; i < 10; i++) {
+            append(log, (long) i);
+        }
+
+        // В буфере seq INITIAL+7..INITIAL+10: дочитать можно начиная с курсора INITIAL+6.
+        assertThat(seqs(log.readAfter(INITIAL + 6, 10)))
+                .containsExactly(INITIAL + 7, INITIAL + 8, INITIAL + 9, INITIAL + 10);
+        assertThat(log.readAfter(INITIAL + 5, 10)).as("evicted").isNull();
+        assertThat(log.readAfter(INITIAL + 11, 10)).as("future").isNull();
+        assertThat(log.readAfter(0, 10)).as("previous process").isNull();
+    }
+
+    @Test
+    void emptyLog_shouldAcceptInitialSeqOnly() {
+        AvailabilityChangeLog log = new AvailabilityChangeLog(4, INITIAL);
+
+        assertThat(log.readAfter(INITIAL, 10)).isEmpty();
+        assertThat(log.readAfter(INITIAL - 1, 10)).isNull();
+    }
+
+    private static void append(AvailabilityChangeLog log, Long roomId) {
+        log.append(seq -> new AvailabilityChangeDto(seq, AvailabilityChangeDto.Type.ROOM_UPSERTED, roomId, 1L, true,
+                null, null, null, null, Instant.EPOCH));
+    }
+
+    private static List<Long> seqs(List<AvailabilityChangeDto> changes) {
+        return changes.stream().map(AvailabilityChangeDto::seq).toList();
+    }
+}
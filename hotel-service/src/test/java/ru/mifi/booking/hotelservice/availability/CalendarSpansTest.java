@@ -0,0 +1,54 @@
+package ru.mifi.booking.hotelservice.availability;
+
+import org.junit.jupiter.api.Test;
+import ru.mifi.booking.hotelservice.dto.CalendarSpanDto;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Проверки run-length календаря: слияние пересекающихся и стыкующихся интервалов, обрезка по периоду.
+ */
+class CalendarSpansTest {
+
+    private static final LocalDate FROM = LocalDate.of(2030, 3, 1);
+    private static final long DAY = FROM.toEpochDay();
+
+    @Test
+    void busyIntervals_shouldMergeAndAlternateWithFreeSpans() {
+        CalendarSpans spans = new CalendarSpans(DAY, DAY + 30);
+
+        spans.busy(DAY + 2, DAY + 5);
+        spans.busy(DAY + 5, DAY + 7);
+        spans.busy(DAY + 6, DAY + 9);
+        spans.busy(DAY + 20, DAY + 21);
+
+        assertThat(spans.finish()).containsExactly(
+                span(0, 2, true),
+                span(2, 7, false),
+                span(9, 11, true),
+                span(20, 1, false),
+                span(21, 9, true));
+    }
+
+    @Test
+    void partsOutsidePeriod_shouldBeClipped() {
+        CalendarSpans spans = new CalendarSpans(DAY, DAY + 10);
+
+        spans.busy(DAY - 20, DAY - 5);
+        spans.busy(DAY - 3, DAY + 1);
+        spans.busy(DAY + 8, DAY + 40);
+
+        assertThat(spans.finish()).containsExactly(span(0, 1, false), span(1, 7, true), span(8, 2, false));
+    }
+
+    @Test
+    void noBusyIntervals_shouldGiveOneFreeSpan() {
+        assertThat(new CalendarSpans(DAY, DAY + 31).finish()).containsExactly(span(0, 31, true));
+    }
+
+    private static CalendarSpanDto span(int offset, int nights, boolean free) {
+        return new CalendarSpanDto(FROM.plusDays(offset), nights, free);
+    }
+}
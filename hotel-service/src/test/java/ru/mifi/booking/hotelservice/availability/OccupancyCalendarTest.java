@@ -0,0 +1,78 @@
+package ru.mifi.booking.hotelservice.availability;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Проверки битового календаря занятости (маски на границах слов, popcount, поиск следующей занятой/свободной ночи, сдвиг окна)
+ * для обоих вариантов хранилища.
+ */
+class OccupancyCalendarTest {
+
+    private static final int WINDOW_DAYS = 731;
+    private static final long WINDOW_START = 20_000;
+
+    @ParameterizedTest
+    @ValueSource(strings = {"heap", "off-heap"})
+    void markAndClear_shouldRespectWordBoundaries(String storage) {
+        OccupancyCalendar calendar = newCalendar(storage);
+
+        // Ночи 60..70 — пересекают границу первого и второго слова.
+        calendar.mark(WINDOW_START + 60, WINDOW_START + 71);
+
+        assertThat(calendar.isFree(WINDOW_START, WINDOW_START + 60)).isTrue();
+        assertThat(calendar.isFree(WINDOW_START + 71, WINDOW_START + 200)).isTrue();
+        assertThat(calendar.isFree(WINDOW_START + 70, WINDOW_START + 71)).isFalse();
+        assertThat(calendar.isFree(WINDOW_START + 55, WINDOW_START + 61)).isFalse();
+        assertThat(calendar.countBooked(WINDOW_START, WINDOW_START + WINDOW_DAYS)).isEqualTo(11);
+        assertThat(calendar.countBooked(WINDOW_START + 64, WINDOW_START + 128)).isEqualTo(7);
+
+        calendar.clear(WINDOW_START + 60, WINDOW_START + 64);
+
+        assertThat(calendar.countBooked(WINDOW_START, WINDOW_START + WINDOW_DAYS)).isEqualTo(7);
+        assertThat(calendar.isFree(WINDOW_START, WINDOW_START + 64)).isTrue();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"heap", "off-heap"})
+    void nextBookedAndNextFree_shouldSkipWholeWords(String storage) {
+        OccupancyCalendar calendar = newCalendar(storage);
+
+        calendar.mark(WINDOW_START + 130, WINDOW_START + 200);
+
+        assertThat(calendar.nextBooked(WINDOW_START, WINDOW_START + 400)).isEqualTo(WINDOW_START + 130);
+        assertThat(calendar.nextBooked(WINDOW_START + 150, WINDOW_START + 400)).isEqualTo(WINDOW_START + 150);
+        assertThat(calendar.nextBooked(WINDOW_START, WINDOW_START + 130)).isEqualTo(WINDOW_START + 130);
+        assertThat(calendar.nextFree(WINDOW_START + 130, WINDOW_START + 400)).isEqualTo(WINDOW_START + 200);
+        assertThat(calendar.nextFree(WINDOW_START + 130, WINDOW_START + 190)).isEqualTo(WINDOW_START + 190);
+        assertThat(calendar.nextFree(WINDOW_START + 5, WINDOW_START + 400)).isEqualTo(WINDOW_START + 5);
+        assertThat(calendar.nextBooked(WINDOW_START + 200, WINDOW_START + WINDOW_DAYS)).isEqualTo(WINDOW_START + WINDOW_DAYS);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"heap", "off-heap"})
+    void outOfWindowPart_shouldBeIgnored_andWindowCanRoll(String storage) {
+        OccupancyCalendar calendar = newCalendar(storage);
+
+        calendar.mark(WINDOW_START - 10, WINDOW_START + 2);
+        calendar.mark(WINDOW_START + WINDOW_DAYS - 1, WINDOW_START + WINDOW_DAYS + 30);
+
+        assertThat(calendar.countBooked(WINDOW_START, WINDOW_START + WINDOW_DAYS)).isEqualTo(3);
+        assertThat(calendar.covers(WINDOW_START, WINDOW_START + WINDOW_DAYS)).isTrue();
+        assertThat(calendar.covers(WINDOW_START - 1, WINDOW_START + 1)).isFalse();
+
+        calendar.reset(WINDOW_START + 100);
+
+        assertThat(calendar.covers(WINDOW_START + 100, WINDOW_START + 100 + WINDOW_DAYS)).isTrue();
+        assertThat(calendar.countBooked(WINDOW_START + 100, WINDOW_START + 100 + WINDOW_DAYS)).isZero();
+    }
+
+    private OccupancyCalendar newCalendar(String storage) {
+        CalendarStore store = CalendarStore.create(storage, (WINDOW_DAYS + 63) / 64);
+        // Второй слот, чтобы проверить адресацию не с нулевого смещения.
+        new OccupancyCalendar(store, WINDOW_DAYS, WINDOW_START).mark(WINDOW_START, WINDOW_START + WINDOW_DAYS);
+        return new OccupancyCalendar(store, WINDOW_DAYS, WINDOW_START);
+    }
+}
@@ -0,0 +1,76 @@
+package ru.mifi.booking.hotelservice.availability;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Проверки очереди неподтверждённых hold-ов: выборка по сроку, ленивое удаление, повторное добавление.
+ */
+class PendingHoldsTest {
+
+    private static final Instant T0 = Instant.parse("2030-01-01T12:00:00Z");
+    private static final LocalDate START = LocalDate.of(2030, 2, 1);
+
+    @Test
+    void pollDue_shouldReturnOnlyExpiredHoldsInExpiryOrder() {
+        PendingHolds holds = new PendingHolds();
+        holds.addAll(List.of(hold(1L, 30), hold(2L, 10), hold(3L, 20)));
+
+        assertThat(holds.mayHaveDue(T0)).isFalse();
+        assertThat(holds.mayHaveDue(T0.plusSeconds(10))).isTrue();
+
+        assertThat(holds.pollDue(T0.plusSeconds(20))).extracting(PendingHold::lockId).containsExactly(2L, 3L);
+        assertThat(holds.pollDue(T0.plusSeconds(20))).isEmpty();
+        assertThat(holds.mayHaveDue(T0.plusSeconds(29))).isFalse();
+        assertThat(holds.size()).isEqualTo(1);
+    }
+
+    @Test
+    void removedHolds_shouldNotBeReturned() {
+        PendingHolds holds = new PendingHolds();
+        holds.add(hold(1L, 10));
+        holds.add(hold(2L, 20));
+
+        assertThat(holds.remove(1L)).isTrue();
+        assertThat(holds.remove(1L)).isFalse();
+        assertThat(holds.mayHaveDue(T0.plusSeconds(15))).isFalse();
+
+        assertThat(holds.pollDue(T0.plusSeconds(60))).extracting(PendingHold::lockId).containsExactly(2L);
+        assertThat(holds.size()).isZero();
+    }
+
+    @Test
+    void readdedHold_shouldUseLatestExpiry() {
+        PendingHolds holds = new PendingHolds();
+        holds.add(hold(1L, 10));
+        holds.add(hold(1L, 50));
+
+        assertThat(holds.pollDue(T0.plusSeconds(30))).isEmpty();
+        assertThat(holds.pollDue(T0.plusSeconds(50))).extracting(PendingHold::expiresAt).containsExactly(T0.plusSeconds(50));
+    }
+
+    @Test
+    void manyRemovals_shouldKeepQueueConsistent() {
+        PendingHolds holds = new PendingHolds();
+        for (long id = 1; id <= 100; id++) {
+            holds.add(hold(id, id));
+        }
+        for (long id = 1; id <= 100; id++) {
+            if (id % 10 != 0) {
+                holds.remove(id);
+            }
+        }
+
+        assertThat(holds.pollDue(T0.plusSeconds(1000))).extracting(PendingHold::lockId)
+                .containsExactly(10L, 20L, 30L, 40L, 50L, 60L, 70L, 80L, 90L, 100L);
+    }
+
+    private static PendingHold hold(Long lockId, long ttlSeconds) {
+        return new PendingHold(lockId, 100L + lockId, START, START.plusDays(2), T0.plusSeconds(ttlSeconds));
+    }
+}
@@ -0,0 +1,68 @@
+package ru.mifi.booking.hotelservice.lock;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.mifi.booking.common.exception.ConflictException;
+import ru.mifi.booking.common.exception.ServiceUnavailableException;
+
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Проверки полосатого менеджера блокировок периодов: ограничение очереди (409), таймаут ожидания (503)
+ * и метрики полосы.
+ */
+class RoomRangeLockManagerTest {
+
+    private static final LocalDate START = LocalDate.of(2030, 3, 1);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void deepQueue_shouldFailFastWith409_andWaiterShouldProceedAfterRelease() throws Exception {
+        RoomRangeLockManager locks = new RoomRangeLockManager(registry, 4, 5_000, 1);
+
+        CompletableFuture<Void> waiter;
+        try (RoomRangeLockManager.Handle ignored = locks.acquire(1L, START, START.plusDays(5))) {
+            waiter = CompletableFuture.runAsync(() -> locks.acquire(1L, START.plusDays(1), START.plusDays(2)).close());
+            awaitQueue(1);
+
+            // Очередь номера уже заполнена — следующий не ждёт.
+            assertThatThrownBy(() -> locks.acquire(1L, START.plusDays(3), START.plusDays(4)))
+                    .isInstanceOf(ConflictException.class);
+            // Непересекающийся период того же номера проходит сразу.
+            locks.acquire(1L, START.plusDays(5), START.plusDays(6)).close();
+        }
+
+        waiter.get(5, TimeUnit.SECONDS);
+        assertThat(registry.get("hotel.room.lock.rejected").tag("reason", "queue_full").counters())
+                .extracting(c -> c.count()).contains(1.0);
+        assertThat(registry.get("hotel.room.lock.wait").timers()).hasSize(4);
+    }
+
+    @Test
+    void waitLongerThanTimeout_shouldFailWith503() {
+        RoomRangeLockManager locks = new RoomRangeLockManager(registry, 4, 100, 8);
+
+        try (RoomRangeLockManager.Handle ignored = locks.acquireAll(7L)) {
+            assertThatThrownBy(() -> locks.acquire(7L, START, START.plusDays(1)))
+                    .isInstanceOf(ServiceUnavailableException.class);
+        }
+
+        // После отпускания номер снова свободен, очередь пуста.
+        locks.acquire(7L, START, START.plusDays(1)).close();
+        assertThat(registry.get("hotel.room.lock.queue").gauges()).allMatch(g -> g.value() == 0);
+    }
+
+    private void awaitQueue(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (registry.get("hotel.room.lock.queue").gauges().stream().mapToDouble(g -> g.value()).sum() < expected) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+}